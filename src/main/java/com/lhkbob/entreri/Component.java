@@ -178,6 +178,21 @@ package com.lhkbob.entreri;
  *
  * This pattern requires that the backing Property define the same method required by bean setters.
  *
+ * ### Indexed array accessors
+ *
+ * Properties of fixed-length primitive arrays, such as `int[]` declared with the {@link
+ * com.lhkbob.entreri.property.FixedArray} attribute, can be accessed one element at a time. Methods named
+ * 'get' that take a single `int` and return a primitive `E` read the element at that index, and methods named
+ * 'set' that take an `int` and an `E` and return `void` or the component type update it. The defined property
+ * has the type `E[]` and its name is the pluralized remainder of the method name, so `getSlot(int)` and
+ * `setSlot(int, int)` define the `int[]` property `slots`. To keep other two-argument setters from being
+ * treated as indexed setters, a setter is only matched when the component also declares the indexed getter
+ * or `@FixedArray` is applied to the setter. Bean getters and setters of the entire array can declare the
+ * same property.
+ *
+ * This pattern requires that the backing Property define the methods `E get(int, int)` and `void set(int,
+ * int, E)`.
+ *
  * ## Property types
  *
  * Under the hood, the data for all components of a particular data are managed by a {@link
@@ -193,6 +208,15 @@ package com.lhkbob.entreri;
  * The table below shows how the type of a logical property is mapped to a Property implementation, for the
  * implementations provided within `entreri`. It also shows the {@link com.lhkbob.entreri.property.Attribute}
  * annotation that property class defines that allows specification of default values for a component.
+ * An `int` property with {@link com.lhkbob.entreri.property.Within} bounds that span at most 16 bits is
+ * bit-packed by {@link com.lhkbob.entreri.property.PackedIntProperty} instead, unless it is double buffered.
+ * A `float` property annotated with {@link com.lhkbob.entreri.property.Quantized} is stored at half
+ * precision by {@link com.lhkbob.entreri.property.HalfFloatProperty}; the generated accessors still get and
+ * set `float` values and the conversion happens inside the property.
+ * An {@link com.lhkbob.entreri.Entity} property with reference semantics stores entity handles rather than
+ * Entity objects, and reads as `null` once the referenced entity is removed.
+ * A `String` property stores an int code per component into a symbol table shared by all of the
+ * components, so equal strings are held once no matter how many components use them.
  *
  * Type               | Semantics | Property implementation                                   | Default attribute annotation
  * -------------------|-----------|-----------------------------------------------------------|-----------------------------
@@ -201,11 +225,19 @@ package com.lhkbob.entreri;
  * `short`            | value     | {@link com.lhkbob.entreri.property.ShortProperty}         | {@link com.lhkbob.entreri.property.DefaultShort}
  * `char`             | value     | {@link com.lhkbob.entreri.property.CharProperty}          | {@link com.lhkbob.entreri.property.DefaultChar}
  * `int`              | value     | {@link com.lhkbob.entreri.property.IntProperty}           | {@link com.lhkbob.entreri.property.DefaultInt}
+ * `@Within int`      | value     | {@link com.lhkbob.entreri.property.PackedIntProperty}     | {@link com.lhkbob.entreri.property.DefaultInt}
  * `long`             | value     | {@link com.lhkbob.entreri.property.LongProperty}          | {@link com.lhkbob.entreri.property.DefaultLong}
  * `float`            | value     | {@link com.lhkbob.entreri.property.FloatProperty}         | {@link com.lhkbob.entreri.property.DefaultFloat}
+ * `@Quantized float` | value     | {@link com.lhkbob.entreri.property.HalfFloatProperty}     | {@link com.lhkbob.entreri.property.DefaultFloat}
  * `double`           | value     | {@link com.lhkbob.entreri.property.DoubleProperty}        | {@link com.lhkbob.entreri.property.DefaultDouble}
+ * `int[]`            | value     | {@link com.lhkbob.entreri.property.IntArrayProperty}      | {@link com.lhkbob.entreri.property.FixedArray}, {@link com.lhkbob.entreri.property.DefaultInt}
+ * `long[]`           | value     | {@link com.lhkbob.entreri.property.LongArrayProperty}     | {@link com.lhkbob.entreri.property.FixedArray}, {@link com.lhkbob.entreri.property.DefaultLong}
+ * `float[]`          | value     | {@link com.lhkbob.entreri.property.FloatArrayProperty}    | {@link com.lhkbob.entreri.property.FixedArray}, {@link com.lhkbob.entreri.property.DefaultFloat}
+ * `double[]`         | value     | {@link com.lhkbob.entreri.property.DoubleArrayProperty}   | {@link com.lhkbob.entreri.property.FixedArray}, {@link com.lhkbob.entreri.property.DefaultDouble}
  * `? extends Enum`   | value     | {@link com.lhkbob.entreri.property.EnumProperty}          | {@link com.lhkbob.entreri.property.DefaultEnum}
+ * `String`           | value     | {@link com.lhkbob.entreri.property.StringProperty}        | {@link com.lhkbob.entreri.property.DefaultString}
  * `? extends Object` | reference | {@link com.lhkbob.entreri.property.ObjectProperty}        | NA
+ * `Entity`           | reference | {@link com.lhkbob.entreri.property.EntityRefProperty}     | NA
  * `List<?>`          | reference | {@link com.lhkbob.entreri.property.ReferenceListProperty} | NA
  * `List<?>`          | value     | {@link com.lhkbob.entreri.property.ValueListProperty}     | {@link com.lhkbob.entreri.property.Collection}
  * `Set<?>`           | reference | {@link com.lhkbob.entreri.property.ReferenceSetProperty}  | NA
@@ -43,12 +43,14 @@ import java.util.Iterator;
  * This is very useful in Tasks when there are often related component types that you want to fetch and
  * process at the same time, while ignoring all other entities that do not have the set of components.
  * Optional Component's will be set to the entity if present otherwise they'll be marked as dead.
+ * Excluded component types, added with {@link #addExcluded(Class)}, reject every entity that has a
+ * component of that type before any of the flyweights are updated.
  *
  * ## Example
  *
  * The basic workflow for using a ComponentIterator is shown below. In the example, the iterator is used to
- * iterate over all entities that have both an `A` and a `B` component, while optionally loading a `C`
- * component if available.
+ * iterate over all entities that have both an `A` and a `B` component but no `D` component, while optionally
+ * loading a `C` component if available.
  *
  * ```java
  * // create iterator
@@ -58,6 +60,7 @@ import java.util.Iterator;
  * A cdA = it.addRequired(A.class);
  * B cdB = it.addRequired(B.class);
  * C cdC = it.addOptional(C.class);
+ * it.addExcluded(D.class);
  *
  * // iterate
  * it.reset(); // not actually required for first iteration
@@ -100,10 +103,21 @@ public interface ComponentIterator {
     public <T extends Component> T addOptional(Class<T> type);
 
     /**
-     * Advance the iterator to the next Entity that has components of all required types. Every flyweight
-     * component returned by previous calls to {@link #addRequired(Class)} will be updated to point to that
-     * entity. The optional flyweight components will be updated to the entity if a component exists. They may
-     * not be, in which case `isAlive()` will return false for them.
+     * Add the given Component type as an excluded component for this iterator. Every call to {@link #next()}
+     * will skip entities that have a component of the given type, even if they have components of all
+     * required types. Unlike required and optional types, no flyweight instance is created because the
+     * excluded component is never accessed.
+     *
+     * @param type The component type that entities must not have
+     * @throws NullPointerException if type is null
+     */
+    public void addExcluded(Class<? extends Component> type);
+
+    /**
+     * Advance the iterator to the next Entity that has components of all required types and no components of
+     * any excluded type. Every flyweight component returned by previous calls to {@link #addRequired(Class)}
+     * will be updated to point to that entity. The optional flyweight components will be updated to the
+     * entity if a component exists. They may not be, in which case `isAlive()` will return false for them.
      *
      * It can be assumed that when an Entity is found that all required components are valid and reference
      * that entity's components of the appropriate type.
@@ -34,6 +34,7 @@ import com.lhkbob.entreri.task.Task;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * EntitySystem
@@ -124,6 +125,24 @@ public interface EntitySystem extends Iterable<Entity> {
      */
     public <T extends Component> Iterator<T> iterator(Class<T> type);
 
+    /**
+     * Return a stream over all components of the given type. Like {@link #iterator(Class)}, the stream
+     * reports the canonical references to the components. The stream is backed by a spliterator over the
+     * component type's storage that splits efficiently, so `system.stream(type).parallel()` processes
+     * disjoint ranges of components on different threads.
+     *
+     * The components reported are those present when the stream is created. The system must not be
+     * structurally modified, by adding or removing entities or components or by compacting it, until the
+     * stream's terminal operation completes. The stream is `SIZED` when the system was compacted and no
+     * components of the type have been removed since.
+     *
+     * @param type The type of component to stream over
+     * @param <T>  The component type
+     * @return A stream over the components of the given type in this system
+     * @throws NullPointerException if type is null
+     */
+    public <T extends Component> Stream<T> stream(Class<T> type);
+
     /**
      * Return a new ComponentIterator that must be configured with required and optional components before
      * use. This is equivalent to calling {@code es.fastIterator(es)} although the returned implementation may
@@ -148,6 +167,21 @@ public interface EntitySystem extends Iterable<Entity> {
      */
     public ComponentIterator fastIterator(Iterable<Entity> entities);
 
+    /**
+     * Create a new instance of the given query type that iterates over the entities of this system. The
+     * query type must be an interface annotated with {@link Query} that was processed by the entreri
+     * annotation processor when it was compiled. The returned query is positioned before the first matching
+     * entity.
+     *
+     * @param queryType The query interface
+     * @param <Q>       The query type
+     * @return A new query over this system
+     * @throws NullPointerException     if queryType is null
+     * @throws IllegalArgumentException if queryType is not annotated with Query or no generated
+     *                                  implementation could be found
+     */
+    public <Q extends QueryIterator<Q>> Q createQuery(Class<Q> queryType);
+
     /**
      * Compact the entity and component data so that iteration is more efficient. In the life time of an
      * entity system, entities and components are added and removed, possibly causing the list of components
@@ -218,4 +252,53 @@ public interface EntitySystem extends Iterable<Entity> {
      * @throws NullPointerException if type or property are null
      */
     public <T extends Component, P extends Property<P>> P decorate(Class<T> type, P property);
+
+    /**
+     * Get a checksum of the structure of the system. The number of live entities is packed into the high 32
+     * bits. The low 32 bits hash the ids of the entities, and, for every component type, the number of
+     * components, the entities they are attached to and the sequence their versions are drawn from. The
+     * checksum does not depend on the order of entities or components, so compacting the system does not
+     * change it, but adding or removing an entity or component, moving a component to another entity, or
+     * calling an auto-versioning setter does. Property values are not hashed, and versions incremented
+     * concurrently, such as from a parallel stream, can make the checksum differ between otherwise identical
+     * runs.
+     *
+     * This is maintained as the system is modified, so it is cheap to compute and can be used to detect
+     * divergence between two systems that should be identical, such as when {@link
+     * com.lhkbob.entreri.task.JobReplayer replaying} a recorded log.
+     *
+     * @return The checksum of the system's structure
+     */
+    public long getStructureChecksum();
+
+    /**
+     * Swap the front and back buffers of every {@link com.lhkbob.entreri.property.DoubleBuffered double
+     * buffered} property of every component type in the system, and update the versions of the components
+     * written since the last swap. This must not be called while any task could be reading or writing
+     * component data, so tasks should call {@link Scheduler#swapBuffers()} instead, which takes the
+     * scheduler's exclusive lock first.
+     */
+    public void swapBuffers();
+
+    /**
+     * Merge the per-thread shards of every accumulating property, declared or decorated, of the given
+     * component type, and update the versions of the components written by bulk operations on its declared
+     * properties, see {@link com.lhkbob.entreri.property.Property.Unversioned}. Jobs do this for the types
+     * they modify before releasing their locks. This must not be called while any thread could be
+     * accumulating into or writing those properties. Types that have no components in the system are
+     * ignored.
+     *
+     * @param type The component type whose properties are merged
+     * @throws NullPointerException if type is null
+     * @see com.lhkbob.entreri.property.Property.Accumulating
+     */
+    public void mergeShards(Class<? extends Component> type);
+
+    /**
+     * Merge the per-thread shards of every accumulating property of every component type in the system, and
+     * update the versions of the components written by bulk operations.
+     *
+     * @see #mergeShards(Class)
+     */
+    public void mergeShards();
 }
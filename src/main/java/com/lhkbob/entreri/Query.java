@@ -0,0 +1,91 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+import java.lang.annotation.*;
+
+/**
+ * Query
+ * =====
+ *
+ * Query is applied to sub-interfaces of {@link QueryIterator} to have the annotation processor generate a
+ * type-specific iterator over the entities of a system that match the query. Where a {@link
+ * ComponentIterator} is configured at runtime, the component types of a query are fixed at compile time so
+ * the generated implementation can unroll its matching loop over the required, optional, and excluded types
+ * and hold each flyweight component in a dedicated field.
+ *
+ * The query interface declares no-argument getters that return one of its required or optional component
+ * types. These return the flyweight instances updated by {@link QueryIterator#next()}, exactly like the
+ * flyweights returned by {@link ComponentIterator#addRequired(Class)}. A required or optional type does not
+ * need a getter if its data is not accessed, and no flyweight is created or updated for it.
+ *
+ * A query can also declare property getters, which read a property of a required type at the current
+ * entity directly from the property, without going through a flyweight. The property is chosen by the
+ * getter's {@link Named} annotation or its bean name, exactly like a component getter, and must be declared
+ * by only one of the required types. The getter must return the property's type.
+ *
+ * ## Example
+ *
+ * ```java
+ * &#64;Query(required={Transform.class, Velocity.class}, excluded=Frozen.class)
+ * public interface Movers extends QueryIterator<Movers> {
+ *     Transform getTransform();
+ *
+ *     Velocity getVelocity();
+ *
+ *     // reads the 'mass' property of Velocity directly
+ *     double getMass();
+ * }
+ *
+ * Movers movers = system.createQuery(Movers.class);
+ * while(movers.next()) {
+ *     movers.getTransform().setPosition(...);
+ * }
+ * ```
+ *
+ * @author Michael Ludwig
+ * @see EntitySystem#createQuery(Class)
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Query {
+    /**
+     * @return All Component types an entity must have to be reported by the query, at least one is required
+     */
+    Class<? extends Component>[] required();
+
+    /**
+     * @return All Component types that are loaded if present but do not restrict the reported entities
+     */
+    Class<? extends Component>[] optional() default { };
+
+    /**
+     * @return All Component types an entity must not have to be reported by the query
+     */
+    Class<? extends Component>[] excluded() default { };
+}
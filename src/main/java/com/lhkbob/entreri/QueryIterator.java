@@ -0,0 +1,96 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+/**
+ * QueryIterator
+ * =============
+ *
+ * QueryIterator is the super-interface of all {@link Query} interfaces. It behaves like a {@link
+ * ComponentIterator} whose required, optional, and excluded component types were fixed when the query was
+ * compiled. The flyweight components are accessed through the getters declared by the query interface and
+ * are updated by each call to {@link #next()}.
+ *
+ * The type variable `Q` must be the query interface itself so that {@link #forEach(Visitor)} can hand the
+ * query to the visitor with its getters available.
+ *
+ * @param <Q> The query sub-interface
+ * @author Michael Ludwig
+ */
+public interface QueryIterator<Q extends QueryIterator<Q>> {
+    /**
+     * Advance the query to the next Entity that has components of all required types and no components of
+     * an excluded type. The flyweights of the required types are updated to the entity's components, and
+     * the flyweights of the optional types are updated if the entity has them; otherwise they are marked as
+     * dead.
+     *
+     * @return True if another entity was found, or false if there are no more matching entities
+     */
+    public boolean next();
+
+    /**
+     * Reset the query to the beginning of the system to perform another complete iteration. This does not
+     * change the identities of the flyweight components until the next call to {@link #next()}.
+     */
+    public void reset();
+
+    /**
+     * Get the entity the query is currently positioned at. This returns null if {@link #next()} has not
+     * been called since the query was created or reset, or if the last call returned false.
+     *
+     * @return The current entity
+     */
+    public Entity getEntity();
+
+    /**
+     * Reset the query and invoke `visitor` once for every matching entity in the system. The flyweights
+     * accessed through the query passed to the visitor are positioned at that entity. This is equivalent to
+     * calling `reset()` and then `visit()` after each call to `next()` that returns true, but lets the
+     * generated implementation drive the loop.
+     *
+     * @param visitor The visitor invoked for each matching entity
+     * @throws NullPointerException if visitor is null
+     */
+    public void forEach(Visitor<? super Q> visitor);
+
+    /**
+     * Visitor
+     * =======
+     *
+     * Callback for {@link QueryIterator#forEach(Visitor)}.
+     *
+     * @param <Q> The query type
+     */
+    public static interface Visitor<Q> {
+        /**
+         * Process the entity the query is currently positioned at.
+         *
+         * @param query The query, positioned at the visited entity
+         */
+        public void visit(Q query);
+    }
+}
@@ -119,24 +119,36 @@ public abstract class AbstractComponent<T extends Component> implements Componen
 
     @Override
     public Owner notifyOwnershipGranted(Ownable obj) {
-        owner.getOwnerDelegate(index).notifyOwnershipGranted(obj);
+        owner.getOrCreateOwnerDelegate(index).notifyOwnershipGranted(obj);
         // make sure to return the canonical component at the current index
         return owner.getComponent(index);
     }
 
     @Override
     public void notifyOwnershipRevoked(Ownable obj) {
-        owner.getOwnerDelegate(index).notifyOwnershipRevoked(obj);
+        OwnerSupport delegate = owner.getOwnerDelegate(index);
+        if (delegate != null) {
+            delegate.notifyOwnershipRevoked(obj);
+        }
     }
 
     @Override
     public void setOwner(Owner owner) {
-        this.owner.getOwnerDelegate(index).setOwner(owner);
+        OwnerSupport delegate = this.owner.getOwnerDelegate(index);
+        if (delegate == null) {
+            if (owner == null) {
+                // a component without a delegate has no owner, so there is nothing to clear
+                return;
+            }
+            delegate = this.owner.getOrCreateOwnerDelegate(index);
+        }
+        delegate.setOwner(owner);
     }
 
     @Override
     public Owner getOwner() {
-        return owner.getOwnerDelegate(index).getOwner();
+        OwnerSupport delegate = owner.getOwnerDelegate(index);
+        return (delegate == null ? null : delegate.getOwner());
     }
 
     @Override
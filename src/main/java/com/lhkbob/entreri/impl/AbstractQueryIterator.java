@@ -0,0 +1,118 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.property.Property;
+
+/**
+ * AbstractQueryIterator
+ * =====================
+ *
+ * AbstractQueryIterator is the base class of the query implementations generated by the annotation processor
+ * for each {@link com.lhkbob.entreri.Query} interface. It lives in the impl package so that generated code
+ * in other packages can reach the package-private parts of {@link EntitySystemImpl} and {@link
+ * AbstractComponent} that the unrolled iteration loop needs, and the property instances of the data stores
+ * that property getters read directly.
+ *
+ * @author Michael Ludwig
+ */
+public abstract class AbstractQueryIterator {
+    private final EntitySystemImpl system;
+    private int entityIndex;
+
+    /**
+     * Create a new query that iterates over the entities within `system`.
+     *
+     * @param system The EntitySystem of the query
+     * @throws NullPointerException if system is null
+     */
+    protected AbstractQueryIterator(EntitySystemImpl system) {
+        if (system == null) {
+            throw new NullPointerException("System cannot be null");
+        }
+        this.system = system;
+        entityIndex = 0;
+    }
+
+    /**
+     * Get the data store of the given component type within the query's system, creating it if necessary.
+     *
+     * @param type The component type
+     * @param <T>  The component type
+     * @return The data store for the type
+     */
+    protected final <T extends Component> ComponentDataStore<T> getDataStore(Class<T> type) {
+        return system.getRepository(type);
+    }
+
+    /**
+     * Get the declared property of a data store by its name, so that generated queries can read property
+     * values directly instead of through a flyweight component.
+     *
+     * @param store The data store declaring the property
+     * @param name  The name of the property
+     * @return The property instance
+     * @throws IllegalStateException if the store does not declare a property with the name
+     */
+    protected static Property getProperty(ComponentDataStore<?> store, String name) {
+        for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+            if (store.getDeclaredPropertyName(i).equals(name)) {
+                return store.getProperty(i);
+            }
+        }
+        throw new IllegalStateException(store.getType() + " does not declare property " + name);
+    }
+
+    /**
+     * Update the flyweight component to point to the component at `componentIndex` within its data store.
+     *
+     * @param flyweight      The flyweight component to update
+     * @param componentIndex The new component index, 0 marks the flyweight as dead
+     */
+    protected static void setComponentIndex(AbstractComponent<?> flyweight, int componentIndex) {
+        flyweight.setIndex(componentIndex);
+    }
+
+    /**
+     * Set the entity index that the query is currently positioned at, 0 means no entity.
+     *
+     * @param entityIndex The current entity index
+     */
+    protected final void setEntityIndex(int entityIndex) {
+        this.entityIndex = entityIndex;
+    }
+
+    /**
+     * @return The entity the query is currently positioned at, or null
+     * @see com.lhkbob.entreri.QueryIterator#getEntity()
+     */
+    public Entity getEntity() {
+        return entityIndex == 0 ? null : system.getEntityByIndex(entityIndex);
+    }
+}
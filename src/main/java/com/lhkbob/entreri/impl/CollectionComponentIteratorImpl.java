@@ -48,6 +48,7 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
 
     private AbstractComponent<?>[] required; // all required except primary
     private AbstractComponent<?>[] optional;
+    private ComponentDataStore<?>[] excluded; // ordered from largest to smallest
 
     private Iterator<Entity> currentIterator;
 
@@ -67,6 +68,7 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
 
         required = new AbstractComponent<?>[0];
         optional = new AbstractComponent<?>[0];
+        excluded = new ComponentDataStore<?>[0];
     }
 
     @Override
@@ -101,6 +103,25 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
         return (T) data;
     }
 
+    @Override
+    public void addExcluded(Class<? extends Component> type) {
+        if (type == null) {
+            throw new NullPointerException("Component type cannot be null");
+        }
+
+        ComponentDataStore<?> store = system.getRepository(type);
+
+        // insert the store so the array stays ordered from largest to smallest, an entity is most likely to
+        // have a component of a larger type so it can be rejected after fewer lookups
+        excluded = Arrays.copyOf(excluded, excluded.length + 1);
+        int i = excluded.length - 1;
+        while (i > 0 && excluded[i - 1].getMaxComponentIndex() < store.getMaxComponentIndex()) {
+            excluded[i] = excluded[i - 1];
+            i--;
+        }
+        excluded[i] = store;
+    }
+
     @Override
     public boolean next() {
         if (currentIterator == null) {
@@ -112,6 +133,9 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
         boolean found;
         while (currentIterator.hasNext()) {
             entityIndex = ((EntityImpl) currentIterator.next()).index;
+            if (isExcluded(entityIndex)) {
+                continue;
+            }
 
             found = true;
             for (int i = 0; i < required.length; i++) {
@@ -143,4 +167,13 @@ public class CollectionComponentIteratorImpl implements ComponentIterator {
     public void reset() {
         currentIterator = null;
     }
+
+    private boolean isExcluded(int entityIndex) {
+        for (int i = 0; i < excluded.length; i++) {
+            if (excluded[i].getComponentIndex(entityIndex) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
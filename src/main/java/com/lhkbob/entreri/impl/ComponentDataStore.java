@@ -53,6 +53,31 @@ public abstract class ComponentDataStore<T extends Component> {
         public <T extends Component> ComponentDataStore<T> create(EntitySystemImpl impl, Class<T> type);
     }
 
+    /**
+     * SlotReusePolicy
+     * ===============
+     *
+     * Policies for choosing the component index of a newly added component while the data store has holes
+     * left by removed components that have not yet been compacted.
+     */
+    public static enum SlotReusePolicy {
+        /**
+         * New components are always appended after the last component index. This keeps the components
+         * of newer entities after older ones, but the data store grows under churn until it's compacted.
+         */
+        APPEND_ONLY,
+        /**
+         * New components fill the lowest free component index, keeping live components packed towards the
+         * front of the data store so that iteration stays dense.
+         */
+        REUSE_LOWEST,
+        /**
+         * New components fill the most recently freed component index, whose property data is the most
+         * likely to still be in cache.
+         */
+        REUSE_LIFO
+    }
+
     private final EntitySystemImpl system;
     private final Class<T> type;
 
@@ -65,6 +90,14 @@ public abstract class ComponentDataStore<T extends Component> {
     private int[] componentIndexToEntityIndex;
     private T[] components;
     private int componentInsert;
+    private int componentCount; // number of live components below componentInsert
+    private boolean compacted; // no holes below componentInsert and ordered by entity index
+    private long[] liveSlots; // bit set of component indices that hold a live component
+
+    private SlotReusePolicy slotReusePolicy;
+    private int firstFreeHint; // there are no holes below this index
+    private int[] freeSlots; // stack of freed component indices, used by REUSE_LIFO
+    private int freeSlotCount;
 
     private final List<DeclaredPropertyStore<?>> declaredProperties;
     private final List<DecoratedPropertyStore<?>> decoratedProperties;
@@ -75,8 +108,11 @@ public abstract class ComponentDataStore<T extends Component> {
 
     private final ObjectProperty ownerDelegatesProperty;
 
+    private boolean referencesEntities; // some property implements Property.EntityReferencing
+
     private int idSeq;
     private int versionSeq;
+    private int entityIdHash; // order-independent hash of the ids of entities with a component
 
     /**
      * Create a ComponentRepository for the given system, that will store Components of the given type.
@@ -105,14 +141,23 @@ public abstract class ComponentDataStore<T extends Component> {
         for (Map.Entry<String, Property> p : properties.entrySet()) {
             DeclaredPropertyStore store = new DeclaredPropertyStore(p.getValue(), p.getKey());
             declaredProperties.add(store);
+            attachEntityTable(p.getValue());
         }
         Collections.sort(declaredProperties);
 
         entityIndexToComponentRepository = new int[1]; // holds default 0 value in 0th index
         componentIndexToEntityIndex = new int[1]; // holds default 0 value in 0th index
         components = (T[]) new Component[1]; // holds default null value in 0th index
+        liveSlots = new long[1];
+
+        slotReusePolicy = SlotReusePolicy.APPEND_ONLY;
+        firstFreeHint = 1;
+        freeSlots = new int[0];
+        freeSlotCount = 0;
 
         componentInsert = 1;
+        componentCount = 0;
+        compacted = true;
 
         // Make sure properties' stores hold enough space
         resizePropertyStores(declaredProperties, 1);
@@ -143,6 +188,86 @@ public abstract class ComponentDataStore<T extends Component> {
         return componentInsert;
     }
 
+    /**
+     * Get the number of live components in this data store. Unlike {@link #getMaxComponentIndex()}, this does
+     * not count the holes left by removed components that have not been compacted yet.
+     *
+     * @return The number of components currently attached to entities
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Get the first component index at or after `fromIndex` that holds a live component. Holes left by
+     * removed components are skipped a 64-slot word at a time, so iterating with this method remains
+     * efficient even when the data store is heavily fragmented. If there are no more live components,
+     * {@link #getMaxComponentIndex()} is returned.
+     *
+     * @param fromIndex The first component index to consider
+     * @return The next live component index, or the max component index if there is none
+     */
+    public int nextComponentIndex(int fromIndex) {
+        if (fromIndex >= componentInsert) {
+            return componentInsert;
+        }
+
+        int word = fromIndex >>> 6;
+        long bits = liveSlots[word] & (-1L << fromIndex);
+        while (bits == 0) {
+            word++;
+            if ((word << 6) >= componentInsert) {
+                return componentInsert;
+            }
+            bits = liveSlots[word];
+        }
+        return Math.min((word << 6) + Long.numberOfTrailingZeros(bits), componentInsert);
+    }
+
+    /**
+     * Set the policy used to pick the component index of new components while the data store has holes.
+     * Reusing freed component indices keeps the size of the data store bounded under steady add and remove
+     * churn without requiring {@link #compact(int[], int)}. Every reused slot is reset to default values
+     * and receives a new component id and version, so it is indistinguishable from an appended component.
+     *
+     * @param policy The new policy
+     * @throws NullPointerException if policy is null
+     */
+    public void setSlotReusePolicy(SlotReusePolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException("Policy cannot be null");
+        }
+        if (policy == SlotReusePolicy.REUSE_LIFO && slotReusePolicy != policy) {
+            // free slots are only recorded while the policy is LIFO, so gather the current holes
+            freeSlotCount = 0;
+            int free = nextFreeComponentIndex(1);
+            while (free < componentInsert) {
+                pushFreeSlot(free);
+                free = nextFreeComponentIndex(free + 1);
+            }
+        }
+        slotReusePolicy = policy;
+    }
+
+    /**
+     * @return The current slot reuse policy, the default is {@link SlotReusePolicy#APPEND_ONLY}
+     */
+    public SlotReusePolicy getSlotReusePolicy() {
+        return slotReusePolicy;
+    }
+
+    /**
+     * Get whether or not every component index below {@link #getMaxComponentIndex()} (excluding 0) holds a
+     * live component and the components are ordered by increasing entity index. This is true after {@link
+     * #compact(int[], int)} and remains true while components are only added to entities that are newer than
+     * the entity of the last component. Any removal invalidates it until the next compaction.
+     *
+     * @return True if the components are densely packed and sorted by entity
+     */
+    public boolean isCompacted() {
+        return compacted;
+    }
+
     /**
      * @return The owning EntitySystem
      */
@@ -220,13 +345,35 @@ public abstract class ComponentDataStore<T extends Component> {
     }
 
     /**
+     * Get the OwnerSupport delegate for the component at the given index. Delegates are created lazily the
+     * first time a component participates in an ownership relationship, so this will return null for the
+     * majority of components that never own anything or are never owned.
+     *
      * @param componentIndex The component index
-     * @return The OwnerSupport delegate for the component by the given index
+     * @return The OwnerSupport delegate for the component by the given index, or null if it hasn't been
+     * created yet
      */
     public OwnerSupport getOwnerDelegate(int componentIndex) {
         return (OwnerSupport) ownerDelegatesProperty.get(componentIndex);
     }
 
+    /**
+     * Get the OwnerSupport delegate for the component at the given index, creating it if necessary. This
+     * should be used when the ownership state of the component is about to be modified.
+     *
+     * @param componentIndex The component index
+     * @return The OwnerSupport delegate for the component by the given index
+     * @throws NullPointerException if there is no live component at the index
+     */
+    public OwnerSupport getOrCreateOwnerDelegate(int componentIndex) {
+        OwnerSupport delegate = (OwnerSupport) ownerDelegatesProperty.get(componentIndex);
+        if (delegate == null) {
+            delegate = new OwnerSupport(components[componentIndex]);
+            ownerDelegatesProperty.set(componentIndex, delegate);
+        }
+        return delegate;
+    }
+
     /**
      * @param propertyIndex The index of the property, which is the corresponding index from the property
      *                      specification of the component type
@@ -251,6 +398,61 @@ public abstract class ComponentDataStore<T extends Component> {
         return declaredProperties.size();
     }
 
+    /**
+     * Swap the front and back buffers of the declared properties that are {@link Property.Buffered}. The
+     * version of every live component that was written to a back buffer since the last swap is incremented,
+     * since this is when its new values become visible.
+     */
+    public void swapBuffers() {
+        for (int i = 0; i < declaredProperties.size(); i++) {
+            Property p = declaredProperties.get(i).getProperty();
+            if (p instanceof Property.Buffered) {
+                Property.Buffered buffered = (Property.Buffered) p;
+                // the written components can be anywhere below componentInsert when the store has holes
+                for (int c = buffered.nextBufferedWrite(1); c > 0 && c < componentInsert;
+                     c = buffered.nextBufferedWrite(c + 1)) {
+                    if (nextComponentIndex(c) == c) {
+                        incrementVersion(c);
+                    }
+                }
+                buffered.swapBuffers();
+            }
+        }
+    }
+
+    /**
+     * Increment the version of every live component that a declared {@link Property.Unversioned} property
+     * wrote since the last call, such as with a bulk operation, and forget the writes.
+     */
+    public void versionUnversionedWrites() {
+        for (int i = 0; i < declaredProperties.size(); i++) {
+            Property p = declaredProperties.get(i).getProperty();
+            if (p instanceof Property.Unversioned) {
+                Property.Unversioned unversioned = (Property.Unversioned) p;
+                for (int c = unversioned.nextUnversionedWrite(1); c > 0 && c < componentInsert;
+                     c = unversioned.nextUnversionedWrite(c + 1)) {
+                    if (nextComponentIndex(c) == c) {
+                        incrementVersion(c);
+                    }
+                }
+                unversioned.clearUnversionedWrites();
+            }
+        }
+    }
+
+    /**
+     * Merge the per-thread shards of the declared and decorated properties that are {@link
+     * Property.Accumulating}.
+     */
+    public void mergeShards() {
+        for (int i = 0; i < declaredProperties.size(); i++) {
+            declaredProperties.get(i).mergeShards();
+        }
+        for (int i = 0; i < decoratedProperties.size(); i++) {
+            decoratedProperties.get(i).mergeShards();
+        }
+    }
+
     /*
      * As expandEntityIndex() but expands all related component data and arrays
      * to hold the number of components.
@@ -271,6 +473,7 @@ public abstract class ComponentDataStore<T extends Component> {
 
         // Expand the component index
         componentIndexToEntityIndex = Arrays.copyOf(componentIndexToEntityIndex, size);
+        liveSlots = Arrays.copyOf(liveSlots, (size + 63) >>> 6);
     }
 
     /*
@@ -337,14 +540,72 @@ public abstract class ComponentDataStore<T extends Component> {
      * @throws IllegalArgumentException if initParams is incorrect
      */
     public T addComponent(int entityIndex) {
+        AbstractComponent<T> instance = attachComponent(entityIndex);
+
+        // ensure required components are added as well
+        Entity entity = system.getEntityByIndex(entityIndex);
+        for (int i = 0; i < requiredTypes.length; i++) {
+            if (entity.get((Class) requiredTypes[i]) == null) {
+                Component added = entity.add((Class) requiredTypes[i]);
+                added.setOwner(instance);
+            }
+        }
+
+        return (T) instance;
+    }
+
+    /**
+     * Create a new component for the entity at the given index as part of applying a delta snapshot. Unlike
+     * {@link #addComponent(int)}, required components are not added since the snapshot records them
+     * separately, and the component is given the id it had when the snapshot was written.
+     *
+     * @param entityIndex The entity index which the component is attached to
+     * @param id          The id of the component
+     * @return The component index of the new component
+     */
+    int restoreComponent(int entityIndex, int id) {
+        AbstractComponent<T> instance = attachComponent(entityIndex);
+        componentIdProperty.set(instance.index, id);
+        instance.setIndex(instance.index); // refresh the cached id
+        return instance.index;
+    }
+
+    /**
+     * Set the version of a component to the value recorded in a snapshot.
+     *
+     * @param componentIndex The component index
+     * @param version        The version of the component
+     */
+    void restoreVersion(int componentIndex, int version) {
+        componentVersionProperty.set(componentIndex, version);
+    }
+
+    /**
+     * @param idSeq      The id sequence of the data store when the snapshot was taken
+     * @param versionSeq The version sequence of the data store when the snapshot was taken
+     */
+    void restoreSequences(int idSeq, int versionSeq) {
+        this.idSeq = idSeq;
+        this.versionSeq = versionSeq;
+    }
+
+    /*
+     * Create a component with default values for the entity, replacing any existing component, without
+     * adding any of its required components.
+     */
+    private AbstractComponent<T> attachComponent(int entityIndex) {
         if (entityIndexToComponentRepository[entityIndex] != 0) {
             removeComponent(entityIndex);
         }
 
-        int componentIndex = componentInsert++;
-        if (componentIndex >= components.length) {
-            expandComponentRepository(componentIndex + 1);
+        int componentIndex = allocateComponentIndex();
+        if (componentIndex > 1 && componentIndexToEntityIndex[componentIndex - 1] > entityIndex) {
+            // appending out of entity order
+            compacted = false;
         }
+        componentCount++;
+        liveSlots[componentIndex >>> 6] |= 1L << componentIndex;
+        updateEntityIdHash(entityIndex, 1);
 
         AbstractComponent<T> instance = createDataInstance();
         components[componentIndex] = (T) instance;
@@ -364,25 +625,166 @@ public abstract class ComponentDataStore<T extends Component> {
         // although there could be a custom PropertyFactory for setting the id,
         // it's easier to assign a new id here
         componentIdProperty.set(componentIndex, idSeq++);
-        // same goes for assigning a new owner delegate
-        ownerDelegatesProperty.set(componentIndex, new OwnerSupport(instance));
+        // the owner delegate was reset to null by its default value, and will be created
+        // on demand if the component is ever involved in an ownership relationship
 
         // start with a unique version as well
         incrementVersion(componentIndex);
 
         // connect component back to the index too
         instance.setIndex(componentIndex);
+        return instance;
+    }
 
-        // ensure required components are added as well
-        Entity entity = system.getEntityByIndex(entityIndex);
-        for (int i = 0; i < requiredTypes.length; i++) {
-            if (entity.get((Class) requiredTypes[i]) == null) {
-                Component added = entity.add((Class) requiredTypes[i]);
-                added.setOwner(instance);
+    private int allocateComponentIndex() {
+        int reused = componentInsert;
+        if (slotReusePolicy == SlotReusePolicy.REUSE_LOWEST) {
+            reused = nextFreeComponentIndex(firstFreeHint);
+            firstFreeHint = reused + 1;
+        } else if (slotReusePolicy == SlotReusePolicy.REUSE_LIFO) {
+            while (freeSlotCount > 0 && reused == componentInsert) {
+                int slot = freeSlots[--freeSlotCount];
+                if (slot < componentInsert && (liveSlots[slot >>> 6] & (1L << slot)) == 0) {
+                    reused = slot;
+                }
             }
         }
 
-        return (T) instance;
+        if (reused < componentInsert) {
+            // a reused slot is a hole so the store was already not compacted
+            return reused;
+        }
+
+        int componentIndex = componentInsert++;
+        if (componentIndex >= components.length) {
+            expandComponentRepository(componentIndex + 1);
+        }
+        if (firstFreeHint >= componentIndex) {
+            firstFreeHint = componentInsert;
+        }
+        return componentIndex;
+    }
+
+    /*
+     * Like nextComponentIndex() but finds the first index at or after fromIndex without a live component,
+     * returning componentInsert if there are no holes.
+     */
+    private int nextFreeComponentIndex(int fromIndex) {
+        if (fromIndex >= componentInsert) {
+            return componentInsert;
+        }
+
+        int word = fromIndex >>> 6;
+        long bits = ~liveSlots[word] & (-1L << fromIndex);
+        while (bits == 0) {
+            word++;
+            if ((word << 6) >= componentInsert) {
+                return componentInsert;
+            }
+            bits = ~liveSlots[word];
+        }
+        return Math.min((word << 6) + Long.numberOfTrailingZeros(bits), componentInsert);
+    }
+
+    private void pushFreeSlot(int componentIndex) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(8, freeSlotCount * 2));
+        }
+        freeSlots[freeSlotCount++] = componentIndex;
+    }
+
+    /**
+     * @return The id that will be assigned to the next component
+     */
+    int getIdSequence() {
+        return idSeq;
+    }
+
+    /**
+     * @return The sequence the next incremented version is taken from
+     */
+    int getVersionSequence() {
+        return versionSeq;
+    }
+
+    /**
+     * Get a checksum of the structure of this data store: the number of components, the version sequence
+     * and an order-independent hash of the ids of the entities the components are attached to. It changes
+     * when a component is added, removed or attached to a different entity, and when a component's version
+     * is incremented, but it does not depend on the component indices, so compacting does not change it.
+     * A data store that has never had a component has a checksum of 0, so that types that were only looked
+     * up do not contribute to {@link EntitySystemImpl#getStructureChecksum()}.
+     *
+     * @return The checksum of the data store
+     */
+    int getStructureChecksum() {
+        if (componentCount == 0 && versionSeq == 0) {
+            return 0;
+        }
+        int h = type.getName().hashCode();
+        h = 31 * h + componentCount;
+        h = 31 * h + versionSeq;
+        h = 31 * h + entityIdHash;
+        return EntitySystemImpl.hashId(h);
+    }
+
+    private void updateEntityIdHash(int entityIndex, int sign) {
+        entityIdHash += sign * EntitySystemImpl.hashId(system.getEntity(entityIndex).getId());
+    }
+
+    /**
+     * Restore the components of a snapshot into this data store, which must not have had any components
+     * added to it yet. The components are placed at component indices `1` through `count`, in the given
+     * order, with their original ids and versions. Property values are left at their defaults so that they
+     * can be read in afterwards, and required components are not added since they are restored as well.
+     *
+     * @param count         The number of components
+     * @param entityIndices The entity index of each component
+     * @param ids           The id of each component
+     * @param versions      The version of each component
+     * @param idSeq         The id sequence of the data store when the snapshot was taken
+     * @param versionSeq    The version sequence of the data store when the snapshot was taken
+     * @throws IllegalStateException if components were already added to this data store
+     */
+    void restore(int count, int[] entityIndices, int[] ids, int[] versions, int idSeq, int versionSeq) {
+        if (componentInsert != 1) {
+            throw new IllegalStateException("Components can only be restored into an unused data store");
+        }
+
+        expandComponentRepository(count + 1);
+        compacted = true;
+        for (int i = 0; i < count; i++) {
+            int componentIndex = i + 1;
+            int entityIndex = entityIndices[i];
+            if (i > 0 && entityIndex < entityIndices[i - 1]) {
+                compacted = false;
+            }
+
+            componentIndexToEntityIndex[componentIndex] = entityIndex;
+            entityIndexToComponentRepository[entityIndex] = componentIndex;
+            liveSlots[componentIndex >>> 6] |= 1L << componentIndex;
+            updateEntityIdHash(entityIndex, 1);
+
+            for (int j = 0; j < declaredProperties.size(); j++) {
+                declaredProperties.get(j).setDefaultValue(componentIndex);
+            }
+            for (int j = 0; j < decoratedProperties.size(); j++) {
+                decoratedProperties.get(j).setDefaultValue(componentIndex);
+            }
+            componentIdProperty.set(componentIndex, ids[i]);
+            componentVersionProperty.set(componentIndex, versions[i]);
+
+            AbstractComponent<T> instance = createDataInstance();
+            components[componentIndex] = (T) instance;
+            instance.setIndex(componentIndex);
+        }
+
+        componentInsert = count + 1;
+        componentCount = count;
+        firstFreeHint = componentInsert;
+        freeSlotCount = 0;
+        this.idSeq = idSeq;
+        this.versionSeq = versionSeq;
     }
 
     /**
@@ -405,10 +807,20 @@ public abstract class ComponentDataStore<T extends Component> {
         // This code works even if componentIndex is 0
         T oldComponent = components[componentIndex];
         AbstractComponent<T> casted = (AbstractComponent<T>) oldComponent;
+        OwnerSupport delegate = null;
         if (oldComponent != null) {
-            oldComponent.setOwner(null);
-            getOwnerDelegate(componentIndex).disownAndRemoveChildren();
+            delegate = getOwnerDelegate(componentIndex);
             casted.setIndex(0);
+
+            componentCount--;
+            compacted = false;
+            liveSlots[componentIndex >>> 6] &= ~(1L << componentIndex);
+            updateEntityIdHash(entityIndex, -1);
+
+            firstFreeHint = Math.min(firstFreeHint, componentIndex);
+            if (slotReusePolicy == SlotReusePolicy.REUSE_LIFO) {
+                pushFreeSlot(componentIndex);
+            }
         }
 
         // Set default value for declared and decorated properties,
@@ -427,6 +839,14 @@ public abstract class ComponentDataStore<T extends Component> {
         componentIdProperty.set(componentIndex, 0); // clear id
         ownerDelegatesProperty.set(componentIndex, null);
 
+        if (delegate != null) {
+            // only components that were involved in ownership have a delegate to clean up, this is done
+            // after the component is detached so that an ownership cycle leading back to this component's
+            // entity does not remove it a second time
+            delegate.setOwner(null);
+            delegate.disownAndRemoveChildren();
+        }
+
         return oldComponent != null;
     }
 
@@ -505,6 +925,10 @@ public abstract class ComponentDataStore<T extends Component> {
             }
         }
 
+        compacted = true;
+        firstFreeHint = componentInsert;
+        freeSlotCount = 0;
+
         // Possibly compact the component data
         if (componentInsert < .6 * components.length) {
             int newSize = (int) (1.2 * componentInsert) + 1;
@@ -512,6 +936,13 @@ public abstract class ComponentDataStore<T extends Component> {
             componentIndexToEntityIndex = Arrays.copyOf(componentIndexToEntityIndex, newSize);
             resizePropertyStores(declaredProperties, newSize);
             resizePropertyStores(decoratedProperties, newSize);
+            liveSlots = new long[(newSize + 63) >>> 6];
+        }
+
+        // every live component is now packed into [1, componentInsert)
+        Arrays.fill(liveSlots, 0L);
+        for (int i = 1; i < componentInsert; i++) {
+            liveSlots[i >>> 6] |= 1L << i;
         }
 
         // Repair entityIndexToComponentRepository - and possible shrink the index
@@ -525,6 +956,16 @@ public abstract class ComponentDataStore<T extends Component> {
         for (int i = 1; i < componentInsert; i++) {
             entityIndexToComponentRepository[componentIndexToEntityIndex[i]] = i;
         }
+
+        // entity references held by the properties move along with the entities
+        if (referencesEntities) {
+            for (int i = 0; i < declaredProperties.size(); i++) {
+                declaredProperties.get(i).remapEntities(entityOldToNewMap);
+            }
+            for (int i = 0; i < decoratedProperties.size(); i++) {
+                decoratedProperties.get(i).remapEntities(entityOldToNewMap);
+            }
+        }
     }
 
     /**
@@ -537,6 +978,7 @@ public abstract class ComponentDataStore<T extends Component> {
      * @return The input property
      */
     public <P extends Property> P decorate(P property) {
+        attachEntityTable(property);
         int size = (declaredProperties.isEmpty() ? componentInsert
                                                  : declaredProperties.get(0).property.getCapacity());
         DecoratedPropertyStore<P> pstore = new DecoratedPropertyStore<>(property);
@@ -551,6 +993,32 @@ public abstract class ComponentDataStore<T extends Component> {
         return property;
     }
 
+    /**
+     * Clear the references that properties of this data store hold to the entity at `entityIndex`, which
+     * is being removed from the system.
+     *
+     * @param entityIndex The index of the removed entity
+     */
+    public void entityRemoved(int entityIndex) {
+        if (referencesEntities) {
+            for (int i = 0; i < declaredProperties.size(); i++) {
+                declaredProperties.get(i).entityRemoved(entityIndex);
+            }
+            for (int i = 0; i < decoratedProperties.size(); i++) {
+                decoratedProperties.get(i).entityRemoved(entityIndex);
+            }
+            // the components whose declared references were cleared changed, so they are versioned now
+            versionUnversionedWrites();
+        }
+    }
+
+    private void attachEntityTable(Property property) {
+        if (property instanceof Property.EntityReferencing) {
+            ((Property.EntityReferencing) property).setEntityTable(system);
+            referencesEntities = true;
+        }
+    }
+
     /*
      * Type wrapping a key, property, and factory, as well as an auxiliary data
      * store for compaction.
@@ -578,6 +1046,27 @@ public abstract class ComponentDataStore<T extends Component> {
             }
         }
 
+        void mergeShards() {
+            P property = getProperty();
+            if (property instanceof Property.Accumulating) {
+                ((Property.Accumulating) property).mergeShards();
+            }
+        }
+
+        void entityRemoved(int entityIndex) {
+            P property = getProperty();
+            if (property instanceof Property.EntityReferencing) {
+                ((Property.EntityReferencing) property).entityRemoved(entityIndex);
+            }
+        }
+
+        void remapEntities(int[] entityOldToNewMap) {
+            P property = getProperty();
+            if (property instanceof Property.EntityReferencing) {
+                ((Property.EntityReferencing) property).remapEntities(entityOldToNewMap);
+            }
+        }
+
         abstract P getProperty();
     }
 
@@ -0,0 +1,136 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * ComponentSpliterator
+ * ====================
+ *
+ * Spliterator over a range of component indices within a single {@link ComponentDataStore}. It reports the
+ * canonical component instances in component index order, skipping holes left by removed components. Splits
+ * divide the remaining index range in half so that a parallel stream processes disjoint sections of the data
+ * store in different fork-join tasks. Split points are rounded to a multiple of 64 component indices so that
+ * properties packing several components into one word can be written safely in parallel.
+ *
+ * The range is bound when the spliterator is created. When the data store is compacted the range contains
+ * no holes and the spliterator is {@link #SIZED} and {@link #SUBSIZED}; otherwise the size is an estimate
+ * that includes the holes. The data store must not be structurally modified (components added, removed, or
+ * compacted) while the spliterator is in use.
+ *
+ * @param <T> The component type
+ * @author Michael Ludwig
+ */
+public class ComponentSpliterator<T extends Component> implements Spliterator<T> {
+    private static final int SPLIT_ALIGNMENT = 64;
+
+    private final ComponentDataStore<T> store;
+    private final boolean exact;
+
+    private int index; // next component index to consider
+    private final int end; // exclusive
+
+    /**
+     * Create a spliterator over every component currently in `store`.
+     *
+     * @param store The data store to report components from
+     * @throws NullPointerException if store is null
+     */
+    public ComponentSpliterator(ComponentDataStore<T> store) {
+        this(store, 1, store.getMaxComponentIndex(), store.isCompacted());
+    }
+
+    private ComponentSpliterator(ComponentDataStore<T> store, int start, int end, boolean exact) {
+        this.store = store;
+        this.index = start;
+        this.end = end;
+        this.exact = exact;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (action == null) {
+            throw new NullPointerException("Action cannot be null");
+        }
+
+        int next = store.nextComponentIndex(index);
+        if (next < end) {
+            index = next + 1;
+            action.accept(store.getComponent(next));
+            return true;
+        } else {
+            index = end;
+            return false;
+        }
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        if (action == null) {
+            throw new NullPointerException("Action cannot be null");
+        }
+
+        int end = this.end;
+        for (int i = store.nextComponentIndex(index); i < end; i = store.nextComponentIndex(i + 1)) {
+            action.accept(store.getComponent(i));
+        }
+        index = end;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // split on a multiple of 64 so that bit-packed properties, such as BooleanProperty, never share a
+        // word between spliterators that may be written from different threads
+        int mid = ((index + end) >>> 1) & ~(SPLIT_ALIGNMENT - 1);
+        if (mid <= index) {
+            mid += SPLIT_ALIGNMENT;
+        }
+        if (mid >= end) {
+            return null;
+        }
+
+        // the prefix is handed off, this spliterator keeps the suffix
+        Spliterator<T> prefix = new ComponentSpliterator<>(store, index, mid, exact);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Math.max(0, end - index);
+    }
+
+    @Override
+    public int characteristics() {
+        int base = ORDERED | DISTINCT | NONNULL;
+        return (exact ? base | SIZED | SUBSIZED : base);
+    }
+}
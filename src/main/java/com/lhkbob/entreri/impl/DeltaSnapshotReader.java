@@ -0,0 +1,336 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.Ownable;
+import com.lhkbob.entreri.Owner;
+import com.lhkbob.entreri.property.IntIntMap;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DeltaSnapshotReader
+ * ===================
+ *
+ * DeltaSnapshotReader applies the chain of deltas written by a {@link DeltaSnapshotWriter} onto a system
+ * that was restored from the chain's base snapshot by a {@link SnapshotReader}. Deltas must be applied in
+ * the order they were written, starting with the first delta after the base, and the reader rejects deltas
+ * that are out of order or that belong to another chain. A reader should only be used with a single system.
+ *
+ * Entities and components are matched by id rather than by index, so the system may have been compacted
+ * between deltas. Added entities are appended after the existing entities, which preserves the relative
+ * order of the entities in the saved system.
+ *
+ * @author Michael Ludwig
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class DeltaSnapshotReader {
+    private final SnapshotCodecs codecs;
+    private ClassLoader classLoader;
+
+    private long chainId;
+    private int sequence;
+
+    /**
+     * Create a reader that uses the default codecs.
+     */
+    public DeltaSnapshotReader() {
+        this(new SnapshotCodecs());
+    }
+
+    /**
+     * Create a reader that uses the given codecs.
+     *
+     * @param codecs The codecs used to read property columns
+     * @throws NullPointerException if codecs is null
+     */
+    public DeltaSnapshotReader(SnapshotCodecs codecs) {
+        if (codecs == null) {
+            throw new NullPointerException("Codecs cannot be null");
+        }
+        this.codecs = codecs;
+        classLoader = DeltaSnapshotReader.class.getClassLoader();
+        sequence = 0;
+    }
+
+    /**
+     * Set the class loader that component types are loaded from. By default this is the class loader that
+     * loaded entreri.
+     *
+     * @param loader The class loader for component types
+     * @throws NullPointerException if loader is null
+     */
+    public void setClassLoader(ClassLoader loader) {
+        if (loader == null) {
+            throw new NullPointerException("ClassLoader cannot be null");
+        }
+        classLoader = loader;
+    }
+
+    /**
+     * Apply the delta stored in the file at `path` to `system`.
+     *
+     * @param path   The file to read
+     * @param system The system to update
+     * @throws IOException              if the file could not be read, is not a compatible delta, or is not
+     *                                  the next delta in the chain
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     */
+    public void apply(Path path, EntitySystem system) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            apply(channel, system);
+        }
+    }
+
+    /**
+     * Apply a delta read from `channel` to `system`. The channel is not closed.
+     *
+     * @param channel The channel to read from
+     * @param system  The system to update
+     * @throws IOException              if the channel could not be read, is not a compatible delta, or is
+     *                                  not the next delta in the chain
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     */
+    public void apply(ReadableByteChannel channel, EntitySystem system) throws IOException {
+        if (channel == null || system == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        if (!(system instanceof EntitySystemImpl)) {
+            throw new IllegalArgumentException("Unsupported EntitySystem implementation: " +
+                                               system.getClass());
+        }
+        EntitySystemImpl impl = (EntitySystemImpl) system;
+        SnapshotInput in = new SnapshotInput(channel);
+
+        if (in.readInt() != DeltaSnapshotWriter.MAGIC) {
+            throw new IOException("Not an entity system delta snapshot");
+        }
+        int version = in.readInt();
+        if (version != DeltaSnapshotWriter.VERSION) {
+            throw new IOException("Unsupported delta snapshot version: " + version);
+        }
+        long deltaChainId = in.readLong();
+        int deltaSequence = in.readInt();
+        if (deltaSequence != sequence + 1 || (sequence > 0 && deltaChainId != chainId)) {
+            throw new IOException("Delta snapshot " + deltaSequence + " cannot be applied after delta " +
+                                  sequence + " of the chain");
+        }
+
+        EntityMap entities = new EntityMap(impl);
+
+        // add new entities, remembering the removed ones until components and ownership are updated
+        int entityIdSeq = in.readInt();
+        int[] removedEntities = readInts(in);
+        int[] addedEntities = readInts(in);
+        for (int id : addedEntities) {
+            entities.put(impl.restoreEntity(id));
+        }
+        in.setEntityLookup(entities::get);
+
+        int typeCount = in.readInt();
+        ComponentDataStore<?>[] stores = new ComponentDataStore<?>[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            stores[i] = impl.getRepository(SnapshotReader.loadType(in.readString(), classLoader));
+        }
+
+        // the changed ownership links are cleared before any components are replaced or removed, so that
+        // removals only cascade to objects that are still owned in the saved system, which this delta
+        // removes as well
+        int linkCount = in.readInt();
+        int[] links = new int[linkCount * 4];
+        in.readInts(links, 0, links.length);
+        for (int i = 0; i < links.length; i += 4) {
+            Ownable ownable = (Ownable) resolve(stores, entities, links[i], links[i + 1]);
+            if (ownable != null) {
+                ownable.setOwner(null);
+            }
+        }
+
+        int[][] removedComponents = new int[typeCount][];
+        for (int i = 0; i < typeCount; i++) {
+            removedComponents[i] = readComponents(stores[i], entities, in);
+        }
+
+        // ownables removed by this delta no longer exist and their links remain cleared
+        for (int i = 0; i < links.length; i += 4) {
+            Ownable ownable = (Ownable) resolve(stores, entities, links[i], links[i + 1]);
+            if (ownable != null && links[i + 2] != DeltaSnapshotWriter.NO_OWNER) {
+                Owner owner = (Owner) resolve(stores, entities, links[i + 2], links[i + 3]);
+                if (owner == null) {
+                    throw new IOException("Invalid ownership reference in delta snapshot");
+                }
+                ownable.setOwner(owner);
+            }
+        }
+
+        for (int i = 0; i < typeCount; i++) {
+            removeComponents(stores[i], entities, removedComponents[i]);
+        }
+        for (int id : removedEntities) {
+            Entity e = entities.get(id);
+            if (e != null && e.isAlive()) {
+                impl.removeEntity(e);
+            }
+        }
+        impl.restoreEntityIdSequence(entityIdSeq);
+
+        chainId = deltaChainId;
+        sequence = deltaSequence;
+    }
+
+    /*
+     * Create and update the changed components of the store, returning the (entity id, component id) pairs
+     * of the components that were removed.
+     */
+    private int[] readComponents(ComponentDataStore<?> store, EntityMap entities, SnapshotInput in)
+            throws IOException {
+        int idSeq = in.readInt();
+        int versionSeq = in.readInt();
+
+        int removedCount = in.readInt();
+        int[] removed = new int[removedCount * 2];
+        in.readInts(removed, 0, removed.length);
+
+        int count = in.readInt();
+        int[] entityIds = new int[count];
+        int[] ids = new int[count];
+        int[] versions = new int[count];
+        in.readInts(entityIds, 0, count);
+        in.readInts(ids, 0, count);
+        in.readInts(versions, 0, count);
+
+        int[] componentIndices = new int[count];
+        for (int i = 0; i < count; i++) {
+            int entityIndex = entities.getIndex(entityIds[i]);
+            int componentIndex = store.getComponentIndex(entityIndex);
+            if (componentIndex == 0 || store.getId(componentIndex) != ids[i]) {
+                if (componentIndex != 0) {
+                    store.removeComponent(entityIndex);
+                }
+                componentIndex = store.restoreComponent(entityIndex, ids[i]);
+            }
+            componentIndices[i] = componentIndex;
+        }
+        SnapshotReader.readColumns(store, codecs, componentIndices, count, in);
+        for (int i = 0; i < count; i++) {
+            store.restoreVersion(componentIndices[i], versions[i]);
+        }
+
+        store.restoreSequences(idSeq, versionSeq);
+        return removed;
+    }
+
+    /*
+     * Remove components by (entity id, component id) pairs, skipping those that were already removed by an
+     * ownership cascade or that were replaced by a component with a new id.
+     */
+    private static void removeComponents(ComponentDataStore<?> store, EntityMap entities, int[] removed) {
+        for (int i = 0; i < removed.length; i += 2) {
+            EntityImpl e = entities.get(removed[i]);
+            if (e != null && e.isAlive()) {
+                int componentIndex = store.getComponentIndex(e.index);
+                if (componentIndex != 0 && store.getId(componentIndex) == removed[i + 1]) {
+                    store.removeComponent(e.index);
+                }
+            }
+        }
+    }
+
+    private static Object resolve(ComponentDataStore<?>[] stores, EntityMap entities, int typeIndex,
+                                  int entityId) throws IOException {
+        Entity e = entities.get(entityId);
+        if (typeIndex == SnapshotWriter.ENTITY_TYPE_INDEX) {
+            return e;
+        } else if (typeIndex >= 0 && typeIndex < stores.length) {
+            if (e == null) {
+                return null;
+            }
+            ComponentDataStore<?> store = stores[typeIndex];
+            return store.getComponent(store.getComponentIndex(((EntityImpl) e).index));
+        } else {
+            throw new IOException("Invalid ownership reference in delta snapshot");
+        }
+    }
+
+    private static int[] readInts(SnapshotInput in) throws IOException {
+        int[] values = new int[in.readInt()];
+        in.readInts(values, 0, values.length);
+        return values;
+    }
+
+    /*
+     * Lookup from entity id to the live entity of the system being updated, also used by SnapshotReader to
+     * resolve entity references. It is sized by the number of live entities rather than the id sequence.
+     */
+    static class EntityMap {
+        private final IntIntMap positions; // entity id to position in entities
+        private final List<EntityImpl> entities;
+
+        public EntityMap(EntitySystemImpl system) {
+            positions = new IntIntMap();
+            entities = new ArrayList<>(system.getEntityCount());
+            int maxEntityIndex = system.getMaxEntityIndex();
+            for (int i = 1; i < maxEntityIndex; i++) {
+                EntityImpl e = (EntityImpl) system.getEntityByIndex(i);
+                if (e != null) {
+                    put(e);
+                }
+            }
+        }
+
+        void put(EntityImpl e) {
+            int position = positions.getInt(e.getId(), -1);
+            if (position < 0) {
+                positions.putInt(e.getId(), entities.size());
+                entities.add(e);
+            } else {
+                entities.set(position, e);
+            }
+        }
+
+        EntityImpl get(int id) {
+            int position = positions.getInt(id, -1);
+            return (position < 0 ? null : entities.get(position));
+        }
+
+        int getIndex(int id) throws IOException {
+            EntityImpl e = get(id);
+            if (e == null) {
+                throw new IOException("Delta snapshot references unknown entity " + id);
+            }
+            return e.index;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.Owner;
+import com.lhkbob.entreri.property.IntIntMap;
+import com.lhkbob.entreri.property.IntSet;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * DeltaSnapshotWriter
+ * ===================
+ *
+ * DeltaSnapshotWriter writes a full snapshot of an {@link EntitySystemImpl} as a base, followed by a chain
+ * of delta snapshots that each hold only what changed since the previous snapshot in the chain. A delta
+ * records the entities that were added and removed, the components that were removed, and the id, version,
+ * and property values of every component that was added or whose version changed. It also records the
+ * ownership links that changed. {@link DeltaSnapshotReader} applies the deltas, in order, onto a system
+ * restored from the base.
+ *
+ * A component is considered changed when its version differs from its version in the previous snapshot.
+ * Writes to {@link com.lhkbob.entreri.property.DoubleBuffered double buffered} properties are covered
+ * because their versions are updated when the buffers are swapped. Changes made through setters annotated
+ * with {@link com.lhkbob.entreri.DoNotAutoVersion}, or through a declared property's per-component
+ * setters, are only captured if the component's version is updated with {@link Component#updateVersion()}.
+ * The bulk operations of the primitive properties and the references cleared when an entity is removed
+ * are recorded by their properties, see {@link com.lhkbob.entreri.property.Property.Unversioned}, and the
+ * written components are versioned before each snapshot is captured. Accumulator properties are not
+ * declared by components, so the values merged into them are not part of snapshots.
+ *
+ * Finding the changes scans the live entities and the component ids and versions of every data store,
+ * which is fast compared to serialization, so the size of a delta is proportional to the number of changes
+ * and the time to write it is proportional to the number of live components. The writer remembers the id,
+ * version and entity of every live component as of the previous snapshot, using memory proportional to the
+ * number of live components rather than the number of ids that have ever been assigned.
+ *
+ * @author Michael Ludwig
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class DeltaSnapshotWriter {
+    static final int MAGIC = 0x454e5444; // "ENTD"
+    static final int VERSION = 1;
+
+    static final int NO_OWNER = -2;
+
+    private final EntitySystemImpl system;
+    private final SnapshotCodecs codecs;
+
+    // component types in the order they were first seen, so that ownership keys are stable across deltas
+    private final List<Class<? extends Component>> types;
+
+    private State previous;
+    private long chainId;
+    private int sequence;
+
+    /**
+     * Create a writer for the given system that uses the default codecs.
+     *
+     * @param system The system to save
+     * @throws NullPointerException     if system is null
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     */
+    public DeltaSnapshotWriter(EntitySystem system) {
+        this(system, new SnapshotCodecs());
+    }
+
+    /**
+     * Create a writer for the given system that uses the given codecs.
+     *
+     * @param system The system to save
+     * @param codecs The codecs used to write property columns
+     * @throws NullPointerException     if system or codecs are null
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     */
+    public DeltaSnapshotWriter(EntitySystem system, SnapshotCodecs codecs) {
+        if (system == null || codecs == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        if (!(system instanceof EntitySystemImpl)) {
+            throw new IllegalArgumentException("Unsupported EntitySystem implementation: " +
+                                               system.getClass());
+        }
+        this.system = (EntitySystemImpl) system;
+        this.codecs = codecs;
+        types = new ArrayList<>();
+        previous = null;
+    }
+
+    /**
+     * Write a full snapshot to the file at `path` and start a new chain of deltas from it.
+     *
+     * @param path The file to write
+     * @throws IOException           if the file could not be written
+     * @throws IllegalStateException for the same reasons as {@link SnapshotWriter#write(WritableByteChannel)}
+     */
+    public void writeBase(Path path) throws IOException {
+        try (FileChannel channel = open(path)) {
+            writeBase(channel);
+        }
+    }
+
+    /**
+     * Write a full snapshot to `channel`, in the format of {@link SnapshotWriter}, and start a new chain of
+     * deltas from it. The channel is not closed.
+     *
+     * @param channel The channel to write to
+     * @throws IOException           if the channel could not be written to
+     * @throws IllegalStateException for the same reasons as {@link SnapshotWriter#write(WritableByteChannel)}
+     */
+    public void writeBase(WritableByteChannel channel) throws IOException {
+        new SnapshotWriter(system, codecs).write(channel);
+        previous = capture();
+        chainId = new Random().nextLong();
+        sequence = 0;
+    }
+
+    /**
+     * Write the changes since the last base or delta to the file at `path`.
+     *
+     * @param path The file to write
+     * @throws IOException           if the file could not be written
+     * @throws IllegalStateException if no base has been written yet, or for the same reasons as {@link
+     *                               SnapshotWriter#write(WritableByteChannel)}
+     */
+    public void writeDelta(Path path) throws IOException {
+        try (FileChannel channel = open(path)) {
+            writeDelta(channel);
+        }
+    }
+
+    /**
+     * Write the changes since the last base or delta to `channel`. The channel is not closed.
+     *
+     * @param channel The channel to write to
+     * @throws IOException           if the channel could not be written to
+     * @throws IllegalStateException if no base has been written yet, or for the same reasons as {@link
+     *                               SnapshotWriter#write(WritableByteChannel)}
+     */
+    public void writeDelta(WritableByteChannel channel) throws IOException {
+        if (previous == null) {
+            throw new IllegalStateException("A base snapshot must be written before any deltas");
+        }
+
+        State current = capture();
+        List<ComponentDataStore<?>> stores = new ArrayList<>(types.size());
+        PropertyCodec[][] propertyCodecs = new PropertyCodec[types.size()][];
+        for (int i = 0; i < types.size(); i++) {
+            stores.add(system.getRepository(types.get(i)));
+            propertyCodecs[i] = SnapshotWriter.getPropertyCodecs(codecs, stores.get(i));
+        }
+
+        SnapshotOutput out = new SnapshotOutput(channel);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(chainId);
+        out.writeInt(sequence + 1);
+
+        writeEntities(current, out);
+        out.writeInt(stores.size());
+        for (ComponentDataStore<?> store : stores) {
+            out.writeString(store.getType().getName());
+        }
+        writeOwnership(current, out);
+        for (int i = 0; i < stores.size(); i++) {
+            writeComponents(stores.get(i), propertyCodecs[i], previous.getComponents(i),
+                            current.getComponents(i), out);
+        }
+        out.flush();
+
+        previous = current;
+        sequence++;
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                StandardOpenOption.WRITE);
+    }
+
+    private void writeEntities(State current, SnapshotOutput out) throws IOException {
+        out.writeInt(system.getEntityIdSequence());
+
+        // removed entities, by id
+        int removed = 0;
+        for (int i = 0; i < previous.entityCount; i++) {
+            if (!current.liveEntities.containsInt(previous.entityIds[i])) {
+                removed++;
+            }
+        }
+        out.writeInt(removed);
+        for (int i = 0; i < previous.entityCount; i++) {
+            if (!current.liveEntities.containsInt(previous.entityIds[i])) {
+                out.writeInt(previous.entityIds[i]);
+            }
+        }
+
+        // added entities, in entity index order so they are appended in the same order when applied
+        int added = 0;
+        for (int i = 0; i < current.entityCount; i++) {
+            if (!previous.liveEntities.containsInt(current.entityIds[i])) {
+                added++;
+            }
+        }
+        out.writeInt(added);
+        for (int i = 0; i < current.entityCount; i++) {
+            if (!previous.liveEntities.containsInt(current.entityIds[i])) {
+                out.writeInt(current.entityIds[i]);
+            }
+        }
+    }
+
+    private void writeComponents(ComponentDataStore<?> store, PropertyCodec[] propertyCodecs,
+                                 Components previousComponents, Components currentComponents,
+                                 SnapshotOutput out) throws IOException {
+        out.writeInt(store.getIdSequence());
+        out.writeInt(store.getVersionSequence());
+
+        // removed components, by entity id and component id
+        int removed = 0;
+        for (int i = 0; i < previousComponents.size; i++) {
+            if (!currentComponents.contains(previousComponents.ids[i])) {
+                removed++;
+            }
+        }
+        out.writeInt(removed);
+        for (int i = 0; i < previousComponents.size; i++) {
+            if (!currentComponents.contains(previousComponents.ids[i])) {
+                out.writeInt(previousComponents.entityIds[i]);
+                out.writeInt(previousComponents.ids[i]);
+            }
+        }
+
+        // added or modified components, in component index order
+        int[] changed = new int[currentComponents.size];
+        int changedCount = 0;
+        for (int i = 0; i < currentComponents.size; i++) {
+            int id = currentComponents.ids[i];
+            if (!previousComponents.contains(id) ||
+                previousComponents.getVersion(id) != currentComponents.versions[i]) {
+                changed[changedCount++] = currentComponents.componentIndices[i];
+            }
+        }
+
+        out.writeInt(changedCount);
+        for (int i = 0; i < changedCount; i++) {
+            out.writeInt(system.getEntityByIndex(store.getEntityIndex(changed[i])).getId());
+        }
+        for (int i = 0; i < changedCount; i++) {
+            out.writeInt(store.getId(changed[i]));
+        }
+        for (int i = 0; i < changedCount; i++) {
+            out.writeInt(store.getVersion(changed[i]));
+        }
+        SnapshotWriter.writeColumns(store, propertyCodecs, changed, changedCount, out);
+    }
+
+    /*
+     * Ownership changes are written as pairs of references to the ownable and its owner, where each reference
+     * is the type index of the component in the delta (or ENTITY_TYPE_INDEX) and the entity id. An ownable
+     * whose owner was cleared has an owner type index of NO_OWNER.
+     */
+    private void writeOwnership(State current, SnapshotOutput out) throws IOException {
+        List<Long> changedOwnables = new ArrayList<>();
+        for (Map.Entry<Long, Long> link : current.owners.entrySet()) {
+            if (!link.getValue().equals(previous.owners.get(link.getKey()))) {
+                changedOwnables.add(link.getKey());
+            }
+        }
+        for (Long ownable : previous.owners.keySet()) {
+            if (!current.owners.containsKey(ownable)) {
+                changedOwnables.add(ownable);
+            }
+        }
+
+        out.writeInt(changedOwnables.size());
+        for (Long ownable : changedOwnables) {
+            writeKey(ownable, out);
+            Long owner = current.owners.get(ownable);
+            if (owner == null) {
+                out.writeInt(NO_OWNER);
+                out.writeInt(0);
+            } else {
+                writeKey(owner, out);
+            }
+        }
+    }
+
+    private static void writeKey(long key, SnapshotOutput out) throws IOException {
+        out.writeInt((int) (key >> 32));
+        out.writeInt((int) key);
+    }
+
+    /*
+     * Ownership keys pack the type index (or ENTITY_TYPE_INDEX) into the high bits and the entity id into
+     * the low bits.
+     */
+    private long getKey(Object ownerOrOwnable) {
+        if (ownerOrOwnable instanceof EntityImpl && ((Entity) ownerOrOwnable).getEntitySystem() == system) {
+            return key(SnapshotWriter.ENTITY_TYPE_INDEX, ((Entity) ownerOrOwnable).getId());
+        } else if (ownerOrOwnable instanceof AbstractComponent &&
+                   ((Component) ownerOrOwnable).getEntitySystem() == system) {
+            Component c = (Component) ownerOrOwnable;
+            return key(types.indexOf(c.getType()), c.getEntity().getId());
+        } else {
+            throw new IllegalStateException("Unable to save ownership by " + ownerOrOwnable);
+        }
+    }
+
+    private static long key(int typeIndex, int entityId) {
+        return ((long) typeIndex << 32) | (entityId & 0xffffffffL);
+    }
+
+    private State capture() {
+        Iterator<ComponentDataStore<?>> it = system.indexIterator();
+        while (it.hasNext()) {
+            Class<? extends Component> type = it.next().getType();
+            if (!types.contains(type)) {
+                types.add(type);
+            }
+        }
+
+        State state = new State(system.getEntityCount());
+        int maxEntityIndex = system.getMaxEntityIndex();
+        for (int i = 1; i < maxEntityIndex; i++) {
+            EntityImpl e = (EntityImpl) system.getEntityByIndex(i);
+            if (e != null) {
+                state.addEntity(e.getId());
+                if (e.delegate != null && e.delegate.getOwner() != null) {
+                    state.owners.put(getKey(e), getKey(e.delegate.getOwner()));
+                }
+            }
+        }
+
+        for (int t = 0; t < types.size(); t++) {
+            ComponentDataStore<?> store = system.getRepository(types.get(t));
+            store.versionUnversionedWrites();
+            Components components = new Components(store.getComponentCount());
+
+            int maxComponentIndex = store.getMaxComponentIndex();
+            for (int i = store.nextComponentIndex(1); i < maxComponentIndex;
+                 i = store.nextComponentIndex(i + 1)) {
+                int entityId = system.getEntityByIndex(store.getEntityIndex(i)).getId();
+                components.add(i, store.getId(i), store.getVersion(i), entityId);
+
+                OwnerSupport delegate = store.getOwnerDelegate(i);
+                if (delegate != null && delegate.getOwner() != null) {
+                    Owner owner = delegate.getOwner();
+                    state.owners.put(key(t, entityId), getKey(owner));
+                }
+            }
+            state.components.add(components);
+        }
+        return state;
+    }
+
+    private static class State {
+        final IntSet liveEntities; // ids of the live entities
+        final int[] entityIds; // in entity index order
+        int entityCount;
+
+        final List<Components> components = new ArrayList<>(); // by type index
+        final Map<Long, Long> owners = new HashMap<>(); // ownable key to owner key
+
+        State(int entityCount) {
+            liveEntities = new IntSet();
+            entityIds = new int[entityCount];
+            this.entityCount = 0;
+        }
+
+        void addEntity(int id) {
+            liveEntities.addInt(id);
+            entityIds[entityCount++] = id;
+        }
+
+        // types first used after this state was captured had no live components
+        Components getComponents(int typeIndex) {
+            return (typeIndex < components.size() ? components.get(typeIndex) : new Components(0));
+        }
+    }
+
+    /*
+     * The live components of one type, in component index order, with a compact map from component id to
+     * its position in the arrays.
+     */
+    private static class Components {
+        final IntIntMap slots; // component id to position
+        final int[] componentIndices;
+        final int[] ids;
+        final int[] versions;
+        final int[] entityIds;
+        int size;
+
+        Components(int capacity) {
+            slots = new IntIntMap();
+            componentIndices = new int[capacity];
+            ids = new int[capacity];
+            versions = new int[capacity];
+            entityIds = new int[capacity];
+            size = 0;
+        }
+
+        void add(int componentIndex, int id, int version, int entityId) {
+            slots.putInt(id, size);
+            componentIndices[size] = componentIndex;
+            ids[size] = id;
+            versions[size] = version;
+            entityIds[size] = entityId;
+            size++;
+        }
+
+        boolean contains(int id) {
+            return slots.containsIntKey(id);
+        }
+
+        int getVersion(int id) {
+            return versions[slots.getInt(id, -1)];
+        }
+    }
+}
@@ -43,7 +43,8 @@ public final class EntityImpl implements Entity {
     private final EntitySystemImpl system;
     private final int id;
 
-    final OwnerSupport delegate;
+    // created on demand the first time the entity is involved in an ownership relationship
+    OwnerSupport delegate;
 
     int index;
 
@@ -66,7 +67,7 @@ public final class EntityImpl implements Entity {
         this.index = index;
         this.id = id;
 
-        delegate = new OwnerSupport(this);
+        delegate = null;
     }
 
     @Override
@@ -213,23 +214,36 @@ public final class EntityImpl implements Entity {
 
     @Override
     public Owner notifyOwnershipGranted(Ownable obj) {
-        delegate.notifyOwnershipGranted(obj);
+        getOrCreateDelegate().notifyOwnershipGranted(obj);
         return this;
     }
 
     @Override
     public void notifyOwnershipRevoked(Ownable obj) {
-        delegate.notifyOwnershipRevoked(obj);
+        if (delegate != null) {
+            delegate.notifyOwnershipRevoked(obj);
+        }
     }
 
     @Override
     public void setOwner(Owner owner) {
-        delegate.setOwner(owner);
+        if (delegate == null && owner == null) {
+            // never owned, so there is nothing to revoke
+            return;
+        }
+        getOrCreateDelegate().setOwner(owner);
     }
 
     @Override
     public Owner getOwner() {
-        return delegate.getOwner();
+        return (delegate == null ? null : delegate.getOwner());
+    }
+
+    private OwnerSupport getOrCreateDelegate() {
+        if (delegate == null) {
+            delegate = new OwnerSupport(this);
+        }
+        return delegate;
     }
 
     @Override
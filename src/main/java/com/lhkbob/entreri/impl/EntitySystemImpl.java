@@ -30,10 +30,20 @@ import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.ComponentIterator;
 import com.lhkbob.entreri.Entity;
 import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.Query;
+import com.lhkbob.entreri.QueryIterator;
+import com.lhkbob.entreri.impl.apt.QueryGenerator;
+import com.lhkbob.entreri.property.EntityTable;
 import com.lhkbob.entreri.property.Property;
 import com.lhkbob.entreri.task.Scheduler;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * EntitySystemImpl
@@ -41,11 +51,18 @@ import java.util.*;
  *
  * Main and default implementation of EntitySystem that uses the registered annotation processor,
  * {@link com.lhkbob.entreri.impl.apt.ComponentAnnotationProcessor} to generate Java implementations of
- * Component definitions and then have them compiled.
+ * Component definitions and then have them compiled. It is also the {@link EntityTable} that entity
+ * reference properties resolve their entity indices with.
  *
  * @author Michael Ludwig
  */
-public final class EntitySystemImpl implements EntitySystem {
+public final class EntitySystemImpl implements EntitySystem, EntityTable {
+    /**
+     * The default minimum number of component slots, summed across all data stores, before {@link
+     * #compact()} will compact the data stores in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_COMPACT_THRESHOLD = 50000;
+
     // converts valid component data types into indices into dataStores
     private final Map<Class<? extends Component>, Integer> typeIndexMap;
     private int typeIdSeq;
@@ -57,9 +74,16 @@ public final class EntitySystemImpl implements EntitySystem {
     private int entityInsert;
     private int entityIdSeq;
 
+    // live entity count and order-independent hash of their ids, see getStructureChecksum()
+    private int entityCount;
+    private int entityIdHash;
+
     private final Scheduler manager;
     private final ComponentDataStore.Factory dataStoreFactory;
 
+    private int parallelCompactThreshold;
+    private ComponentDataStore.SlotReusePolicy slotReusePolicy;
+
     /**
      * Create a new EntitySystem that has no entities added.
      */
@@ -74,6 +98,62 @@ public final class EntitySystemImpl implements EntitySystem {
 
         entityIdSeq = 1; // start at 1, id 0 is reserved for index = 0
         entityInsert = 1;
+
+        parallelCompactThreshold = DEFAULT_PARALLEL_COMPACT_THRESHOLD;
+        slotReusePolicy = ComponentDataStore.SlotReusePolicy.APPEND_ONLY;
+    }
+
+    /**
+     * Set the minimum number of component slots, summed across all component types, that must be in use
+     * before {@link #compact()} distributes the compaction of the individual component data stores across
+     * a fork-join pool. Below the threshold, or when there is only a single component type, the data
+     * stores are compacted on the calling thread. Use `Integer.MAX_VALUE` to disable parallel compaction.
+     *
+     * @param threshold The new threshold
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public void setParallelCompactThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative: " + threshold);
+        }
+        parallelCompactThreshold = threshold;
+    }
+
+    /**
+     * @return The minimum number of component slots before compaction is performed in parallel
+     */
+    public int getParallelCompactThreshold() {
+        return parallelCompactThreshold;
+    }
+
+    /**
+     * Set the policy that every component data store of this system uses to pick the slot of a new
+     * component while there are holes left by removed components. This applies to the existing data stores
+     * and those created for component types used in the future. Reusing slots keeps memory bounded when
+     * components are continuously added and removed without calling {@link #compact()}.
+     *
+     * @param policy The new slot reuse policy
+     * @throws NullPointerException if policy is null
+     * @see ComponentDataStore#setSlotReusePolicy(ComponentDataStore.SlotReusePolicy)
+     */
+    public void setSlotReusePolicy(ComponentDataStore.SlotReusePolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException("Policy cannot be null");
+        }
+        slotReusePolicy = policy;
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                dataStores[i].setSlotReusePolicy(policy);
+            }
+        }
+    }
+
+    /**
+     * @return The slot reuse policy of the component data stores, the default is {@link
+     * ComponentDataStore.SlotReusePolicy#APPEND_ONLY}
+     */
+    public ComponentDataStore.SlotReusePolicy getSlotReusePolicy() {
+        return slotReusePolicy;
     }
 
     @Override
@@ -122,6 +202,14 @@ public final class EntitySystemImpl implements EntitySystem {
         return new ComponentIteratorWrapper<>(type);
     }
 
+    @Override
+    public <T extends Component> Stream<T> stream(Class<T> type) {
+        if (type == null) {
+            throw new NullPointerException("Type cannot be null");
+        }
+        return StreamSupport.stream(new ComponentSpliterator<>(getRepository(type)), false);
+    }
+
     @Override
     public void compact() {
         // Pack the data
@@ -168,11 +256,37 @@ public final class EntitySystemImpl implements EntitySystem {
         }
 
         // Now index and update all ComponentIndices
+        compactDataStores(oldToNew, entityInsert);
+    }
+
+    private void compactDataStores(int[] oldToNew, int numEntities) {
+        // once the entity remapping is built, each data store compacts independently of the others
+        List<ComponentDataStore<?>> stores = new ArrayList<>(dataStores.length);
+        long work = 0;
         for (int i = 0; i < dataStores.length; i++) {
             if (dataStores[i] != null) {
-                dataStores[i].compact(oldToNew, entityInsert);
+                stores.add(dataStores[i]);
+                work += dataStores[i].getMaxComponentIndex();
             }
         }
+
+        if (stores.size() < 2 || work < parallelCompactThreshold ||
+            Runtime.getRuntime().availableProcessors() < 2) {
+            for (int i = 0; i < stores.size(); i++) {
+                stores.get(i).compact(oldToNew, numEntities);
+            }
+        } else {
+            final List<CompactDataStoreAction> actions = new ArrayList<>(stores.size());
+            for (int i = 0; i < stores.size(); i++) {
+                actions.add(new CompactDataStoreAction(stores.get(i), oldToNew, numEntities));
+            }
+            CompactPool.POOL.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(actions);
+                }
+            });
+        }
     }
 
     @Override
@@ -202,6 +316,7 @@ public final class EntitySystemImpl implements EntitySystem {
 
         EntityImpl newEntity = new EntityImpl(this, entityIndex, entityIdSeq++);
         entities[entityIndex] = newEntity;
+        updateEntityChecksum(newEntity.getId(), 1);
 
         if (template != null) {
             for (Component c : template) {
@@ -226,9 +341,11 @@ public final class EntitySystemImpl implements EntitySystem {
             throw new IllegalArgumentException("Entity has already been removed");
         }
 
-        // Handle ownership removals
-        ei.setOwner(null);
-        ei.delegate.disownAndRemoveChildren();
+        // Handle ownership removals, entities without a delegate were never owned and own nothing
+        if (ei.delegate != null) {
+            ei.delegate.setOwner(null);
+            ei.delegate.disownAndRemoveChildren();
+        }
 
         // Remove all components from the entity (that weren't removed
         // by ownership rules)
@@ -238,9 +355,74 @@ public final class EntitySystemImpl implements EntitySystem {
             }
         }
 
+        // clear the references other components hold to the entity
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                dataStores[i].entityRemoved(ei.index);
+            }
+        }
+
         // clear out the entity
         entities[ei.index] = null;
         ei.index = 0;
+        updateEntityChecksum(ei.getId(), -1);
+    }
+
+    @Override
+    public long getStructureChecksum() {
+        // each data store's checksum is order-independent, and so is their sum, so the order the component
+        // types were registered in does not matter
+        int hash = entityIdHash;
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                hash += dataStores[i].getStructureChecksum();
+            }
+        }
+        return ((long) entityCount << 32) | (hash & 0xffffffffL);
+    }
+
+    @Override
+    public void swapBuffers() {
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                dataStores[i].swapBuffers();
+            }
+        }
+    }
+
+    @Override
+    public void mergeShards(Class<? extends Component> type) {
+        if (type == null) {
+            throw new NullPointerException("Type cannot be null");
+        }
+        Integer index = typeIndexMap.get(type);
+        if (index != null && index < dataStores.length && dataStores[index] != null) {
+            dataStores[index].mergeShards();
+            dataStores[index].versionUnversionedWrites();
+        }
+    }
+
+    @Override
+    public void mergeShards() {
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                dataStores[i].mergeShards();
+                dataStores[i].versionUnversionedWrites();
+            }
+        }
+    }
+
+    private void updateEntityChecksum(int id, int sign) {
+        entityCount += sign;
+        entityIdHash += sign * hashId(id);
+    }
+
+    /*
+     * Scramble sequential ids so that sums of the hashes of different id sets rarely collide.
+     */
+    static int hashId(int id) {
+        int h = id * 0x9e3779b9;
+        return h ^ (h >>> 16);
     }
 
     @Override
@@ -259,6 +441,25 @@ public final class EntitySystemImpl implements EntitySystem {
         return new CollectionComponentIteratorImpl(this, entities);
     }
 
+    @Override
+    public <Q extends QueryIterator<Q>> Q createQuery(Class<Q> queryType) {
+        if (queryType == null) {
+            throw new NullPointerException("Query type cannot be null");
+        }
+        if (queryType.getAnnotation(Query.class) == null) {
+            throw new IllegalArgumentException("Query type must be annotated with @Query: " + queryType);
+        }
+
+        String implName = QueryGenerator.getImplementationClassName(queryType, true);
+        try {
+            Class<?> impl = queryType.getClassLoader().loadClass(implName);
+            Method staticCtor = impl.getDeclaredMethod("create", EntitySystemImpl.class);
+            return queryType.cast(staticCtor.invoke(null, this));
+        } catch (ClassNotFoundException | NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to create query implementation for " + queryType, e);
+        }
+    }
+
     /**
      * Return the ComponentRepository associated with the given type. Creates a new component repository if
      * the type hasn't been used or accessed before.
@@ -280,6 +481,7 @@ public final class EntitySystemImpl implements EntitySystem {
             // if the index does not exist, then we need to use the default component data factory
             i = dataStoreFactory.create(this, type);
             i.expandEntityIndex(entities.length);
+            i.setSlotReusePolicy(slotReusePolicy);
             dataStores[index] = i;
         }
 
@@ -295,6 +497,19 @@ public final class EntitySystemImpl implements EntitySystem {
         return id;
     }
 
+    @Override
+    public Entity getEntity(int entityIndex) {
+        return (entityIndex > 0 && entityIndex < entityInsert ? entities[entityIndex] : null);
+    }
+
+    @Override
+    public int getEntityIndex(Entity entity) {
+        if (entity.getEntitySystem() != this) {
+            throw new IllegalArgumentException("Entity is not from this EntitySystem");
+        }
+        return ((EntityImpl) entity).index;
+    }
+
     /**
      * @return Return an iterator over the registered component indices
      */
@@ -313,12 +528,117 @@ public final class EntitySystemImpl implements EntitySystem {
         return entities[entityIndex];
     }
 
+    /**
+     * @return The upper bound (exclusive) for entity index values
+     */
+    int getMaxEntityIndex() {
+        return entityInsert;
+    }
+
+    /**
+     * @return The number of live entities in the system
+     */
+    int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * @return The id that will be assigned to the next entity
+     */
+    int getEntityIdSequence() {
+        return entityIdSeq;
+    }
+
+    /**
+     * Restore the entities of a snapshot into this system, which must not have had any entities added to it
+     * yet. The entities are placed at entity indices `1` through `count` with their original ids.
+     *
+     * @param count The number of entities
+     * @param ids   The id of each entity
+     * @param idSeq The entity id sequence of the system when the snapshot was taken
+     * @throws IllegalStateException if entities were already added to this system
+     */
+    void restoreEntities(int count, int[] ids, int idSeq) {
+        if (entityInsert != 1) {
+            throw new IllegalStateException("Entities can only be restored into an empty EntitySystem");
+        }
+
+        entities = new EntityImpl[count + 1];
+        for (int i = 0; i < count; i++) {
+            entities[i + 1] = new EntityImpl(this, i + 1, ids[i]);
+            updateEntityChecksum(ids[i], 1);
+        }
+        entityInsert = count + 1;
+        entityIdSeq = idSeq;
+
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                dataStores[i].expandEntityIndex(entities.length);
+            }
+        }
+    }
+
+    /**
+     * Add an entity with the given id as part of applying a delta snapshot.
+     *
+     * @param id The id of the entity when the snapshot was written
+     * @return The new entity
+     */
+    EntityImpl restoreEntity(int id) {
+        int entityIndex = entityInsert++;
+        if (entityIndex >= entities.length) {
+            entities = Arrays.copyOf(entities, (int) (entityIndex * 1.5f) + 1);
+        }
+        for (int i = 0; i < dataStores.length; i++) {
+            if (dataStores[i] != null) {
+                dataStores[i].expandEntityIndex(entityIndex + 1);
+            }
+        }
+
+        EntityImpl newEntity = new EntityImpl(this, entityIndex, id);
+        entities[entityIndex] = newEntity;
+        updateEntityChecksum(id, 1);
+        return newEntity;
+    }
+
+    /**
+     * @param idSeq The entity id sequence of the system when the snapshot was taken
+     */
+    void restoreEntityIdSequence(int idSeq) {
+        entityIdSeq = idSeq;
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     private <T extends Component> void addFromTemplate(int entityIndex, Class type, T c) {
         ComponentDataStore index = getRepository(type);
         index.addComponent(entityIndex, c);
     }
 
+    /*
+     * Lazily created pool shared by all entity systems for parallel compaction. Worker threads of a
+     * ForkJoinPool are daemon threads so this does not keep the JVM alive.
+     */
+    private static class CompactPool {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    private static class CompactDataStoreAction extends RecursiveAction {
+        private final ComponentDataStore<?> store;
+        private final int[] oldToNew;
+        private final int numEntities;
+
+        public CompactDataStoreAction(ComponentDataStore<?> store, int[] oldToNew, int numEntities) {
+            this.store = store;
+            this.oldToNew = oldToNew;
+            this.numEntities = numEntities;
+        }
+
+        @Override
+        protected void compute() {
+            store.compact(oldToNew, numEntities);
+        }
+    }
+
     private class ComponentRepositoryIterator implements Iterator<ComponentDataStore<?>> {
         private int index;
         private boolean advanced;
@@ -0,0 +1,57 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import java.io.IOException;
+
+/**
+ * ObjectCodec
+ * ===========
+ *
+ * ObjectCodec writes and reads single non-null values of a type stored in an {@link
+ * com.lhkbob.entreri.property.ObjectProperty}. The object property codec takes care of null values, so a
+ * codec only has to encode the state of an instance. Codecs are registered by type in {@link
+ * SnapshotCodecs}.
+ *
+ * @param <T> The value type
+ * @author Michael Ludwig
+ */
+public interface ObjectCodec<T> {
+    /**
+     * @param value The non-null value to write
+     * @param out   The output to write to
+     * @throws IOException if the value could not be written
+     */
+    public void write(T value, SnapshotOutput out) throws IOException;
+
+    /**
+     * @param in The input to read from
+     * @return A new instance equal to the value that was written
+     * @throws IOException if the value could not be read
+     */
+    public T read(SnapshotInput in) throws IOException;
+}
@@ -31,21 +31,22 @@ import com.lhkbob.entreri.Entity;
 import com.lhkbob.entreri.Ownable;
 import com.lhkbob.entreri.Owner;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 /**
  * OwnerSupport
  * ============
  *
  * Utility class for shared implementation of {@link com.lhkbob.entreri.Ownable} and {@link
- * com.lhkbob.entreri.Owner}
+ * com.lhkbob.entreri.Owner}. Entities and components create their OwnerSupport lazily, and the set of
+ * owned objects is not allocated until something is actually owned, since most entities and components
+ * never participate in ownership.
  *
  * @author Michael Ludwig
  */
 public class OwnerSupport {
     private final Ownable target;
-    private final Set<Ownable> ownedObjects;
+    private Set<Ownable> ownedObjects; // null until first ownership grant
     private Owner currentOwner;
 
     /**
@@ -59,7 +60,7 @@ public class OwnerSupport {
             throw new NullPointerException("Ownable cannot be null");
         }
         this.target = target;
-        ownedObjects = new HashSet<>();
+        ownedObjects = null;
         currentOwner = null;
     }
 
@@ -68,6 +69,9 @@ public class OwnerSupport {
      * @see Owner#notifyOwnershipGranted(Ownable)
      */
     public void notifyOwnershipGranted(Ownable obj) {
+        if (ownedObjects == null) {
+            ownedObjects = new HashSet<>();
+        }
         ownedObjects.add(obj);
     }
 
@@ -76,7 +80,9 @@ public class OwnerSupport {
      * @see Owner#notifyOwnershipRevoked(Ownable)
      */
     public void notifyOwnershipRevoked(Ownable obj) {
-        ownedObjects.remove(obj);
+        if (ownedObjects != null) {
+            ownedObjects.remove(obj);
+        }
     }
 
     /**
@@ -104,20 +110,167 @@ public class OwnerSupport {
 
     /**
      * Set the owner of all currently owned children to null. If any of the children are entities or
-     * components, they are removed from their creating system or entity, respectively.
+     * components, they are removed from their creating system or entity, respectively. This applies
+     * transitively to everything those entities and components own.
+     *
+     * The owned hierarchy is walked iteratively: it is first collected into a work list, disowning each
+     * object as it is discovered, and then the components are removed grouped by type followed by the
+     * entities. Because every collected object has already been disowned, removing it does not cascade any
+     * further, so arbitrarily deep hierarchies are removed without recursion.
      */
     public void disownAndRemoveChildren() {
-        // Mark all owned objects as not owned
-        // if they are an entity or component, recurse and remove them as well
-        Set<Ownable> cloned = new HashSet<Ownable>(ownedObjects);
-        for (Ownable owned : cloned) {
-            owned.setOwner(null);
-            if (owned instanceof Entity) {
-                Entity ownedEntity = (Entity) owned;
-                ownedEntity.getEntitySystem().removeEntity(ownedEntity);
-            } else if (owned instanceof Component) {
-                Component ownedComp = (Component) owned;
-                ownedComp.getEntity().remove(ownedComp.getType());
+        if (ownedObjects == null || ownedObjects.isEmpty()) {
+            return;
+        }
+
+        RemovalCascade cascade = new RemovalCascade();
+        cascade.collect(this);
+        cascade.remove();
+    }
+
+    /*
+     * Detach the owned objects from this delegate and set each of their owners to null. The returned set
+     * is no longer referenced by this delegate, so the revocation notifications triggered by setOwner(null)
+     * do not modify it while it's being iterated over.
+     */
+    private Set<Ownable> disownChildren() {
+        Set<Ownable> owned = ownedObjects;
+        ownedObjects = null;
+        if (owned != null) {
+            for (Ownable o : owned) {
+                o.setOwner(null);
+            }
+        }
+        return owned;
+    }
+
+    /*
+     * Work list used by disownAndRemoveChildren(). Components are tracked by the entity index they're
+     * attached to, grouped by their data store so that each store is processed in a single pass.
+     */
+    private static class RemovalCascade {
+        private final ArrayDeque<OwnerSupport> pending;
+
+        private EntityImpl[] entities;
+        private int entityCount;
+
+        private ComponentDataStore<?>[] stores;
+        private int[][] componentEntities;
+        private int[] componentCounts;
+        private int storeCount;
+
+        public RemovalCascade() {
+            pending = new ArrayDeque<>();
+            entities = new EntityImpl[8];
+            stores = new ComponentDataStore<?>[4];
+            componentEntities = new int[4][];
+            componentCounts = new int[4];
+        }
+
+        void collect(OwnerSupport root) {
+            pending.add(root);
+            while (!pending.isEmpty()) {
+                Set<Ownable> owned = pending.poll().disownChildren();
+                if (owned == null) {
+                    continue;
+                }
+
+                for (Ownable o : owned) {
+                    if (o instanceof EntityImpl) {
+                        collectEntity((EntityImpl) o);
+                    } else if (o instanceof AbstractComponent) {
+                        collectComponent((AbstractComponent<?>) o);
+                    } else if (o instanceof Entity) {
+                        // not an implementation we can batch, so remove it immediately
+                        Entity ownedEntity = (Entity) o;
+                        ownedEntity.getEntitySystem().removeEntity(ownedEntity);
+                    } else if (o instanceof Component) {
+                        Component ownedComp = (Component) o;
+                        ownedComp.getEntity().remove(ownedComp.getType());
+                    }
+                }
+            }
+        }
+
+        void remove() {
+            // remove components first, a type at a time
+            for (int i = 0; i < storeCount; i++) {
+                ComponentDataStore<?> store = stores[i];
+                int[] entityIndices = componentEntities[i];
+                for (int j = 0; j < componentCounts[i]; j++) {
+                    store.removeComponent(entityIndices[j]);
+                }
+            }
+
+            // then remove the entities, which clears out any remaining components
+            for (int i = 0; i < entityCount; i++) {
+                if (entities[i].isAlive()) {
+                    entities[i].getEntitySystem().removeEntity(entities[i]);
+                }
+            }
+        }
+
+        private void collectEntity(EntityImpl entity) {
+            if (!entity.isAlive()) {
+                return;
+            }
+
+            if (entityCount == entities.length) {
+                entities = Arrays.copyOf(entities, entityCount * 2);
+            }
+            entities[entityCount++] = entity;
+
+            if (entity.delegate != null) {
+                pending.add(entity.delegate);
+            }
+
+            // every component attached to the entity will be removed as well, so anything they own
+            // must be collected now
+            Iterator<ComponentDataStore<?>> it = ((EntitySystemImpl) entity.getEntitySystem())
+                    .indexIterator();
+            while (it.hasNext()) {
+                ComponentDataStore<?> store = it.next();
+                int componentIndex = store.getComponentIndex(entity.index);
+                if (componentIndex != 0) {
+                    OwnerSupport delegate = store.getOwnerDelegate(componentIndex);
+                    if (delegate != null) {
+                        pending.add(delegate);
+                    }
+                }
+            }
+        }
+
+        private void collectComponent(AbstractComponent<?> component) {
+            if (!component.isAlive()) {
+                return;
+            }
+
+            ComponentDataStore<?> store = component.owner;
+            int storeIndex = 0;
+            while (storeIndex < storeCount && stores[storeIndex] != store) {
+                storeIndex++;
+            }
+            if (storeIndex == storeCount) {
+                if (storeCount == stores.length) {
+                    stores = Arrays.copyOf(stores, storeCount * 2);
+                    componentEntities = Arrays.copyOf(componentEntities, storeCount * 2);
+                    componentCounts = Arrays.copyOf(componentCounts, storeCount * 2);
+                }
+                stores[storeIndex] = store;
+                componentEntities[storeIndex] = new int[8];
+                storeCount++;
+            }
+
+            int count = componentCounts[storeIndex];
+            if (count == componentEntities[storeIndex].length) {
+                componentEntities[storeIndex] = Arrays.copyOf(componentEntities[storeIndex], count * 2);
+            }
+            componentEntities[storeIndex][count] = store.getEntityIndex(component.index);
+            componentCounts[storeIndex] = count + 1;
+
+            OwnerSupport delegate = store.getOwnerDelegate(component.index);
+            if (delegate != null) {
+                pending.add(delegate);
             }
         }
     }
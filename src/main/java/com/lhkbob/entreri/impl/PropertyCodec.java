@@ -0,0 +1,76 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.property.Property;
+
+import java.io.IOException;
+
+/**
+ * PropertyCodec
+ * =============
+ *
+ * PropertyCodec writes and reads the values of a property column in a snapshot. {@link SnapshotWriter} asks
+ * the codec to write the values of the live components of a data store, in component index order, and
+ * {@link SnapshotReader} asks the codec of the restored property to read them back into the component
+ * indices the components were restored to. Delta snapshots write and read the values of only the components
+ * that changed. A codec is selected by the exact class of the property, see {@link SnapshotCodecs}.
+ *
+ * Codecs for the primitive properties write the backing arrays as raw little-endian values, so a custom
+ * property that packs its data into primitive arrays should do the same with the array methods of {@link
+ * SnapshotOutput} and {@link SnapshotInput}.
+ *
+ * @param <P> The property type
+ * @author Michael Ludwig
+ */
+public interface PropertyCodec<P extends Property<P>> {
+    /**
+     * Write the values of `property` for the first `count` component indices in `componentIndices`. The
+     * same number of values must be consumed by {@link #read(Property, int[], int, SnapshotInput)}.
+     *
+     * @param property         The property being written
+     * @param componentIndices The component indices of the components to write
+     * @param count            The number of component indices to write
+     * @param out              The output to write to
+     * @throws IOException if the values could not be written
+     */
+    public void write(P property, int[] componentIndices, int count, SnapshotOutput out) throws IOException;
+
+    /**
+     * Read `count` values written by {@link #write(Property, int[], int, SnapshotOutput)} and store them in
+     * `property` for the first `count` component indices in `componentIndices`. When a full snapshot is
+     * restored these are a contiguous range, but when a delta is applied they can be in any order. The
+     * property already has the capacity to hold them.
+     *
+     * @param property         The property being restored
+     * @param componentIndices The component indices receiving the values
+     * @param count            The number of values to read
+     * @param in               The input to read from
+     * @throws IOException if the values could not be read
+     */
+    public void read(P property, int[] componentIndices, int count, SnapshotInput in) throws IOException;
+}
@@ -0,0 +1,537 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.property.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * SnapshotCodecs
+ * ==============
+ *
+ * SnapshotCodecs is the registry of {@link PropertyCodec property codecs} and {@link ObjectCodec object
+ * codecs} shared by {@link SnapshotWriter} and {@link SnapshotReader}. A new registry has codecs for the
+ * primitive properties, which are written as raw arrays (one byte per flag for {@link BooleanProperty},
+ * unpacked ints for {@link PackedIntProperty}, and half-precision bits for {@link HalfFloatProperty}), for
+ * {@link EnumProperty}, which is written as ordinals, for the packed vector properties such as {@link
+ * Float3Property}, which are written as raw arrays with several floats per component, for the fixed-length
+ * array properties such as {@link IntArrayProperty}, which are written as their length followed by a raw
+ * array, for {@link EntityRefProperty}, which is written as the ids of the referenced entities, for {@link
+ * StringProperty}, which is written as the distinct strings followed by a code per component, and for
+ * {@link ObjectProperty}. Object properties are written value by value with the object codec registered for
+ * the property's element type or its closest registered super class; only a codec for `String` is registered
+ * by default.
+ *
+ * Properties of any other type, such as the collection properties or custom properties, can only be
+ * written once a codec has been registered for their class.
+ *
+ * @author Michael Ludwig
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public final class SnapshotCodecs {
+    private final Map<Class<?>, PropertyCodec<?>> propertyCodecs;
+    private final Map<Class<?>, ObjectCodec<?>> objectCodecs;
+
+    /**
+     * Create a new registry with the default codecs.
+     */
+    public SnapshotCodecs() {
+        propertyCodecs = new HashMap<>();
+        objectCodecs = new HashMap<>();
+
+        setPropertyCodec(BooleanProperty.class, new BooleanCodec());
+        setPropertyCodec(ByteProperty.class, new ByteCodec());
+        setPropertyCodec(ShortProperty.class, new ShortCodec());
+        setPropertyCodec(CharProperty.class, new CharCodec());
+        setPropertyCodec(IntProperty.class, new IntCodec());
+        setPropertyCodec(LongProperty.class, new LongCodec());
+        setPropertyCodec(FloatProperty.class, new FloatCodec());
+        setPropertyCodec(DoubleProperty.class, new DoubleCodec());
+        setPropertyCodec((Class) EnumProperty.class, new EnumCodec());
+        setPropertyCodec(Float2Property.class, new PackedFloatCodec<>(Float2Property::getIndexedData,
+                                                                      Float2Property.STRIDE));
+        setPropertyCodec(Float3Property.class, new PackedFloatCodec<>(Float3Property::getIndexedData,
+                                                                      Float3Property.STRIDE));
+        setPropertyCodec(Float4Property.class, new PackedFloatCodec<>(Float4Property::getIndexedData,
+                                                                      Float4Property.STRIDE));
+        setPropertyCodec(QuatProperty.class, new PackedFloatCodec<>(QuatProperty::getIndexedData,
+                                                                    QuatProperty.STRIDE));
+        setPropertyCodec(Mat4Property.class, new PackedFloatCodec<>(Mat4Property::getIndexedData,
+                                                                    Mat4Property.STRIDE));
+        setPropertyCodec(PackedIntProperty.class, new PackedIntCodec());
+        setPropertyCodec(HalfFloatProperty.class, new HalfFloatCodec());
+        setPropertyCodec(EntityRefProperty.class, new EntityRefCodec());
+        setPropertyCodec(StringProperty.class, new StringPropertyCodec());
+        setPropertyCodec(IntArrayProperty.class, new IntArrayCodec());
+        setPropertyCodec(LongArrayProperty.class, new LongArrayCodec());
+        setPropertyCodec(FloatArrayProperty.class, new FloatArrayCodec());
+        setPropertyCodec(DoubleArrayProperty.class, new DoubleArrayCodec());
+        setObjectCodec(String.class, new StringCodec());
+    }
+
+    /**
+     * Register the codec used for properties of exactly the given class, replacing any previous codec.
+     *
+     * @param type  The property class
+     * @param codec The codec for the property class
+     * @param <P>   The property type
+     * @throws NullPointerException if type or codec are null
+     */
+    public <P extends Property<P>> void setPropertyCodec(Class<P> type, PropertyCodec<P> codec) {
+        if (type == null || codec == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        propertyCodecs.put(type, codec);
+    }
+
+    /**
+     * Register the codec used for the values of object properties whose element type is `type` or a sub
+     * class that has no codec of its own, replacing any previous codec.
+     *
+     * @param type  The value class
+     * @param codec The codec for values of the class
+     * @param <T>   The value type
+     * @throws NullPointerException if type or codec are null
+     */
+    public <T> void setObjectCodec(Class<T> type, ObjectCodec<T> codec) {
+        if (type == null || codec == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        objectCodecs.put(type, codec);
+    }
+
+    /**
+     * Get the codec that can write and read the given property. For an {@link ObjectProperty} this
+     * resolves the object codec for its element type.
+     *
+     * @param property The property
+     * @return The codec for the property, or null if the property's type is not supported
+     */
+    public PropertyCodec getPropertyCodec(Property property) {
+        if (property instanceof ObjectProperty) {
+            Class<?> elementType = ((ObjectProperty) property).getIndexedData().getClass().getComponentType();
+            ObjectCodec codec = getObjectCodec(elementType);
+            return (codec == null ? null : new ObjectPropertyCodec(codec));
+        }
+        return propertyCodecs.get(property.getClass());
+    }
+
+    /**
+     * @param type The value type
+     * @return The codec registered for type or its closest super class, or null if there is none
+     */
+    public ObjectCodec<?> getObjectCodec(Class<?> type) {
+        while (type != null) {
+            ObjectCodec<?> codec = objectCodecs.get(type);
+            if (codec != null) {
+                return codec;
+            }
+            type = type.getSuperclass();
+        }
+        return null;
+    }
+
+    private static class BooleanCodec implements PropertyCodec<BooleanProperty> {
+        @Override
+        public void write(BooleanProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeBits(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(BooleanProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readBits(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class ByteCodec implements PropertyCodec<ByteProperty> {
+        @Override
+        public void write(ByteProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeBytes(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(ByteProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readBytes(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class ShortCodec implements PropertyCodec<ShortProperty> {
+        @Override
+        public void write(ShortProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeShorts(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(ShortProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readShorts(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class CharCodec implements PropertyCodec<CharProperty> {
+        @Override
+        public void write(CharProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeChars(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(CharProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readChars(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class IntCodec implements PropertyCodec<IntProperty> {
+        @Override
+        public void write(IntProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeInts(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(IntProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readInts(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class LongCodec implements PropertyCodec<LongProperty> {
+        @Override
+        public void write(LongProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeLongs(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(LongProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readLongs(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class FloatCodec implements PropertyCodec<FloatProperty> {
+        @Override
+        public void write(FloatProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeFloats(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(FloatProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readFloats(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class DoubleCodec implements PropertyCodec<DoubleProperty> {
+        @Override
+        public void write(DoubleProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeDoubles(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(DoubleProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readDoubles(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class EnumCodec<E extends Enum> implements PropertyCodec<EnumProperty<E>> {
+        @Override
+        public void write(EnumProperty<E> property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            // ordinals are widened to ints so the column doesn't depend on the property's storage width
+            for (int i = 0; i < count; i++) {
+                out.writeInt(property.getOrdinal(componentIndices[i]));
+            }
+        }
+
+        @Override
+        public void read(EnumProperty<E> property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            for (int i = 0; i < count; i++) {
+                int ordinal = in.readInt();
+                try {
+                    property.setOrdinal(componentIndices[i], ordinal);
+                } catch (IndexOutOfBoundsException e) {
+                    throw new IOException("Invalid enum ordinal: " + ordinal);
+                }
+            }
+        }
+    }
+
+    private static class PackedFloatCodec<P extends Property<P>> implements PropertyCodec<P> {
+        private final Function<P, float[]> data;
+        private final int stride;
+
+        public PackedFloatCodec(Function<P, float[]> data, int stride) {
+            this.data = data;
+            this.stride = stride;
+        }
+
+        @Override
+        public void write(P property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeFloats(data.apply(property), stride, componentIndices, count);
+        }
+
+        @Override
+        public void read(P property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readFloats(data.apply(property), stride, componentIndices, count);
+        }
+    }
+
+    private static class PackedIntCodec implements PropertyCodec<PackedIntProperty> {
+        @Override
+        public void write(PackedIntProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            // written in the same layout as IntProperty so a column can be read by either property
+            for (int i = 0; i < count; i++) {
+                out.writeInt(property.get(componentIndices[i]));
+            }
+        }
+
+        @Override
+        public void read(PackedIntProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            for (int i = 0; i < count; i++) {
+                try {
+                    property.set(componentIndices[i], in.readInt());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Snapshot value does not fit packed property", e);
+                }
+            }
+        }
+    }
+
+    private static class HalfFloatCodec implements PropertyCodec<HalfFloatProperty> {
+        @Override
+        public void write(HalfFloatProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeShorts(property.getIndexedData(), componentIndices, count);
+        }
+
+        @Override
+        public void read(HalfFloatProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            in.readShorts(property.getIndexedData(), componentIndices, count);
+        }
+    }
+
+    private static class EntityRefCodec implements PropertyCodec<EntityRefProperty> {
+        @Override
+        public void write(EntityRefProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            // entity indices do not survive a snapshot, so references are written as entity ids
+            for (int i = 0; i < count; i++) {
+                Entity e = property.get(componentIndices[i]);
+                out.writeInt(e == null ? 0 : e.getId());
+            }
+        }
+
+        @Override
+        public void read(EntityRefProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            for (int i = 0; i < count; i++) {
+                property.set(componentIndices[i], in.getEntity(in.readInt()));
+            }
+        }
+    }
+
+    private static class StringPropertyCodec implements PropertyCodec<StringProperty> {
+        @Override
+        public void write(StringProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            // the property's codes are sparse after removals, so the written codes are renumbered densely
+            IntIntMap localCodes = new IntIntMap();
+            int[] written = new int[count];
+            for (int i = 0; i < count; i++) {
+                int code = property.getCode(componentIndices[i]);
+                int local = localCodes.getInt(code, -1);
+                if (local < 0) {
+                    local = localCodes.size();
+                    localCodes.putInt(code, local);
+                }
+                written[i] = local;
+            }
+
+            String[] symbols = new String[localCodes.size()];
+            for (int i = 0; i < count; i++) {
+                symbols[written[i]] = property.get(componentIndices[i]);
+            }
+            out.writeInt(symbols.length);
+            for (String symbol : symbols) {
+                out.writeString(symbol);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(written[i]);
+            }
+        }
+
+        @Override
+        public void read(StringProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            String[] symbols = new String[in.readInt()];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = in.readString();
+            }
+            for (int i = 0; i < count; i++) {
+                int local = in.readInt();
+                if (local < 0 || local >= symbols.length) {
+                    throw new IOException("Invalid string code: " + local);
+                }
+                property.set(componentIndices[i], symbols[local]);
+            }
+        }
+    }
+
+    private static class IntArrayCodec implements PropertyCodec<IntArrayProperty> {
+        @Override
+        public void write(IntArrayProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeInt(property.getLength());
+            out.writeInts(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+
+        @Override
+        public void read(IntArrayProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            checkLength(property.getLength(), in.readInt());
+            in.readInts(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+    }
+
+    private static class LongArrayCodec implements PropertyCodec<LongArrayProperty> {
+        @Override
+        public void write(LongArrayProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeInt(property.getLength());
+            out.writeLongs(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+
+        @Override
+        public void read(LongArrayProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            checkLength(property.getLength(), in.readInt());
+            in.readLongs(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+    }
+
+    private static class FloatArrayCodec implements PropertyCodec<FloatArrayProperty> {
+        @Override
+        public void write(FloatArrayProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeInt(property.getLength());
+            out.writeFloats(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+
+        @Override
+        public void read(FloatArrayProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            checkLength(property.getLength(), in.readInt());
+            in.readFloats(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+    }
+
+    private static class DoubleArrayCodec implements PropertyCodec<DoubleArrayProperty> {
+        @Override
+        public void write(DoubleArrayProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            out.writeInt(property.getLength());
+            out.writeDoubles(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+
+        @Override
+        public void read(DoubleArrayProperty property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            checkLength(property.getLength(), in.readInt());
+            in.readDoubles(property.getIndexedData(), property.getLength(), componentIndices, count);
+        }
+    }
+
+    private static void checkLength(int expected, int length) throws IOException {
+        if (expected != length) {
+            throw new IOException("Snapshot array length " + length + " does not match property length " +
+                                  expected);
+        }
+    }
+
+    private static class ObjectPropertyCodec<T> implements PropertyCodec<ObjectProperty<T>> {
+        private final ObjectCodec<T> codec;
+
+        public ObjectPropertyCodec(ObjectCodec<T> codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public void write(ObjectProperty<T> property, int[] componentIndices, int count, SnapshotOutput out)
+                throws IOException {
+            T[] data = property.getIndexedData();
+            for (int i = 0; i < count; i++) {
+                T value = data[componentIndices[i]];
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    codec.write(value, out);
+                }
+            }
+        }
+
+        @Override
+        public void read(ObjectProperty<T> property, int[] componentIndices, int count, SnapshotInput in)
+                throws IOException {
+            T[] data = property.getIndexedData();
+            for (int i = 0; i < count; i++) {
+                data[componentIndices[i]] = (in.readBoolean() ? codec.read(in) : null);
+            }
+        }
+    }
+
+    private static class StringCodec implements ObjectCodec<String> {
+        @Override
+        public void write(String value, SnapshotOutput out) throws IOException {
+            out.writeString(value);
+        }
+
+        @Override
+        public String read(SnapshotInput in) throws IOException {
+            return in.readString();
+        }
+    }
+}
@@ -0,0 +1,634 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Entity;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+
+/**
+ * SnapshotInput
+ * =============
+ *
+ * Buffered little-endian reader over a channel used by {@link SnapshotReader} and the {@link PropertyCodec
+ * property codecs}, mirroring {@link SnapshotOutput}. The array methods read a run of values directly into
+ * a contiguous range of a property's backing array.
+ *
+ * An input over a file maps the file into memory instead of reading it through a buffer, a window of up to
+ * {@link #MAP_WINDOW_SIZE} bytes at a time, so that the bulk array reads copy columns straight out of the
+ * mapping without an intermediate buffer. The mapping is read-only and only used while reading; the
+ * restored properties own copies of the data.
+ *
+ * @author Michael Ludwig
+ */
+public final class SnapshotInput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The largest region of a file that is mapped at once.
+     */
+    public static final int MAP_WINDOW_SIZE = 1 << 30;
+
+    // windows start on a multiple of this so they can overlap the partial value left by the last one
+    static final int MAP_WINDOW_ALIGNMENT = 4096;
+
+    private final ReadableByteChannel channel;
+    private final boolean mapped;
+    private final int mapWindowSize;
+    private final long fileSize;
+
+    private ByteBuffer buffer;
+    private long bufferStart; // stream position of buffer index 0
+    private IntFunction<? extends Entity> entityLookup;
+
+    SnapshotInput(ReadableByteChannel channel) {
+        this.channel = channel;
+        mapped = false;
+        mapWindowSize = 0;
+        fileSize = -1;
+
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip(); // start out empty
+        bufferStart = 0;
+    }
+
+    SnapshotInput(FileChannel file, int mapWindowSize) throws IOException {
+        channel = file;
+        mapped = true;
+        this.mapWindowSize = mapWindowSize;
+        fileSize = file.size();
+
+        buffer = ByteBuffer.allocate(0);
+        bufferStart = 0;
+    }
+
+    void setEntityLookup(IntFunction<? extends Entity> entityLookup) {
+        this.entityLookup = entityLookup;
+    }
+
+    /**
+     * Get the entity of the system being restored that had the id `id` when the snapshot was written. This
+     * is used by codecs of properties that reference entities.
+     *
+     * @param id The entity id, where 0 represents a null reference
+     * @return The entity with the id, or null if the id is 0
+     * @throws IOException if there is no entity with the id
+     */
+    public Entity getEntity(int id) throws IOException {
+        if (id == 0) {
+            return null;
+        }
+        Entity e = (entityLookup == null ? null : entityLookup.apply(id));
+        if (e == null) {
+            throw new IOException("Snapshot references unknown entity " + id);
+        }
+        return e;
+    }
+
+    /**
+     * @return The number of bytes consumed so far
+     */
+    public long getPosition() {
+        return bufferStart + buffer.position();
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public short readShort() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public char readChar() throws IOException {
+        require(2);
+        return buffer.getChar();
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public float readFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    /**
+     * @return The next value
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    /**
+     * Read a string written by {@link SnapshotOutput#writeString(String)}.
+     *
+     * @return The string, which may be null
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public String readString() throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            require(1);
+            int n = Math.min(length - offset, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            offset += n;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read `count` values into `data[fromIndex]` through `data[fromIndex + count - 1]`.
+     *
+     * @param data      The destination array, usually the indexed data of a property
+     * @param fromIndex The first index of data to assign
+     * @param count     The number of values to read
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public void readBooleans(boolean[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(1);
+            int chunkEnd = i + Math.min(end - i, buffer.remaining());
+            for (; i < chunkEnd; i++) {
+                data[i] = buffer.get() != 0;
+            }
+        }
+    }
+
+    /**
+     * Read `count` values into `data[indices[i]]` for every `i` in `[0, count)`. When the indices are a
+     * contiguous increasing range this is as fast as {@link #readBooleans(boolean[], int, int)}.
+     *
+     * @param data    The destination array, usually the indexed data of a property
+     * @param indices The indices into data to assign
+     * @param count   The number of values to read
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public void readBooleans(boolean[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readBooleans(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(1);
+            int end = i + Math.min(count - i, buffer.remaining());
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.get() != 0;
+            }
+        }
+    }
+
+    /**
+     * Read `count` flags into bit `indices[i]` of `words` for every `i` in `[0, count)`, in the layout
+     * written by {@link SnapshotOutput#writeBits(long[], int[], int)}.
+     *
+     * @param words   The destination words, usually the indexed data of a bit-packed property
+     * @param indices The bit indices to assign
+     * @param count   The number of values to read
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public void readBits(long[] words, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(1);
+            int end = i + Math.min(count - i, buffer.remaining());
+            for (; i < end; i++) {
+                int bit = indices[i];
+                if (buffer.get() != 0) {
+                    words[bit >>> 6] |= (1L << bit);
+                } else {
+                    words[bit >>> 6] &= ~(1L << bit);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int, int)
+     */
+    public void readBytes(byte[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(1);
+            int n = Math.min(end - i, buffer.remaining());
+            buffer.get(data, i, n);
+            i += n;
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int[], int)
+     */
+    public void readBytes(byte[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readBytes(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(1);
+            int end = i + Math.min(count - i, buffer.remaining());
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.get();
+            }
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int, int)
+     */
+    public void readShorts(short[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(2);
+            int n = Math.min(end - i, buffer.remaining() >> 1);
+            buffer.asShortBuffer().get(data, i, n);
+            buffer.position(buffer.position() + (n << 1));
+            i += n;
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int[], int)
+     */
+    public void readShorts(short[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readShorts(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(2);
+            int end = i + Math.min(count - i, buffer.remaining() >> 1);
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.getShort();
+            }
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int, int)
+     */
+    public void readChars(char[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(2);
+            int n = Math.min(end - i, buffer.remaining() >> 1);
+            buffer.asCharBuffer().get(data, i, n);
+            buffer.position(buffer.position() + (n << 1));
+            i += n;
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int[], int)
+     */
+    public void readChars(char[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readChars(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(2);
+            int end = i + Math.min(count - i, buffer.remaining() >> 1);
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.getChar();
+            }
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int, int)
+     */
+    public void readInts(int[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(4);
+            int n = Math.min(end - i, buffer.remaining() >> 2);
+            buffer.asIntBuffer().get(data, i, n);
+            buffer.position(buffer.position() + (n << 2));
+            i += n;
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int[], int)
+     */
+    public void readInts(int[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readInts(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(4);
+            int end = i + Math.min(count - i, buffer.remaining() >> 2);
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.getInt();
+            }
+        }
+    }
+
+    /**
+     * @see #readFloats(float[], int, int[], int)
+     */
+    public void readInts(int[] data, int stride, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readInts(data, indices[0] * stride, count * stride);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            readInts(data, indices[i] * stride, stride);
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int, int)
+     */
+    public void readLongs(long[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(8);
+            int n = Math.min(end - i, buffer.remaining() >> 3);
+            buffer.asLongBuffer().get(data, i, n);
+            buffer.position(buffer.position() + (n << 3));
+            i += n;
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int[], int)
+     */
+    public void readLongs(long[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readLongs(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(8);
+            int end = i + Math.min(count - i, buffer.remaining() >> 3);
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.getLong();
+            }
+        }
+    }
+
+    /**
+     * @see #readFloats(float[], int, int[], int)
+     */
+    public void readLongs(long[] data, int stride, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readLongs(data, indices[0] * stride, count * stride);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            readLongs(data, indices[i] * stride, stride);
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int, int)
+     */
+    public void readFloats(float[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(4);
+            int n = Math.min(end - i, buffer.remaining() >> 2);
+            buffer.asFloatBuffer().get(data, i, n);
+            buffer.position(buffer.position() + (n << 2));
+            i += n;
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int[], int)
+     */
+    public void readFloats(float[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readFloats(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(4);
+            int end = i + Math.min(count - i, buffer.remaining() >> 2);
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.getFloat();
+            }
+        }
+    }
+
+    /**
+     * Read the `stride` consecutive values starting at `data[indices[i] * stride]` for every `i` in `[0,
+     * count)`, in the layout written by {@link SnapshotOutput#writeFloats(float[], int, int[], int)}.
+     *
+     * @param data    The destination array, usually the indexed data of a property
+     * @param stride  The number of values per index
+     * @param indices The indices into data to assign, before they are scaled by the stride
+     * @param count   The number of indices to use
+     * @throws IOException if the channel could not be read from or ended early
+     */
+    public void readFloats(float[] data, int stride, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readFloats(data, indices[0] * stride, count * stride);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            readFloats(data, indices[i] * stride, stride);
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int, int)
+     */
+    public void readDoubles(double[] data, int fromIndex, int count) throws IOException {
+        int i = fromIndex;
+        int end = fromIndex + count;
+        while (i < end) {
+            require(8);
+            int n = Math.min(end - i, buffer.remaining() >> 3);
+            buffer.asDoubleBuffer().get(data, i, n);
+            buffer.position(buffer.position() + (n << 3));
+            i += n;
+        }
+    }
+
+    /**
+     * @see #readBooleans(boolean[], int[], int)
+     */
+    public void readDoubles(double[] data, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readDoubles(data, indices[0], count);
+            return;
+        }
+
+        int i = 0;
+        while (i < count) {
+            require(8);
+            int end = i + Math.min(count - i, buffer.remaining() >> 3);
+            for (; i < end; i++) {
+                data[indices[i]] = buffer.getDouble();
+            }
+        }
+    }
+
+    /**
+     * @see #readFloats(float[], int, int[], int)
+     */
+    public void readDoubles(double[] data, int stride, int[] indices, int count) throws IOException {
+        if (isRange(indices, count)) {
+            readDoubles(data, indices[0] * stride, count * stride);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            readDoubles(data, indices[i] * stride, stride);
+        }
+    }
+
+    private static boolean isRange(int[] indices, int count) {
+        if (count == 0) {
+            return false;
+        }
+        int first = indices[0];
+        for (int i = 1; i < count; i++) {
+            if (indices[i] != first + i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Make sure at least the given number of bytes are buffered, compacting any partial value left over
+     * from the previous read before refilling from the channel, or mapping the next window of the file.
+     */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        long position = getPosition();
+        if (mapped) {
+            if (position + bytes > fileSize) {
+                throw new EOFException("Snapshot ended unexpectedly");
+            }
+            long start = position & ~(MAP_WINDOW_ALIGNMENT - 1L);
+            long size = Math.min(mapWindowSize, fileSize - start);
+            buffer = ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, start, size)
+                                            .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position((int) (position - start));
+            bufferStart = start;
+        } else {
+            buffer.compact();
+            bufferStart = position;
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Snapshot ended unexpectedly");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SnapshotOutput
+ * ==============
+ *
+ * Buffered little-endian writer over a channel used by {@link SnapshotWriter} and the {@link PropertyCodec
+ * property codecs}. Single values are appended to a direct buffer that is flushed to the channel whenever it
+ * fills up, and the array methods gather the values of selected component indices straight out of a
+ * property's backing array, so a column is streamed without copying it into an intermediate array first.
+ * *
+ * @author Michael Ludwig
+ */
+public final class SnapshotOutput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long position;
+
+    SnapshotOutput(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        position = 0;
+    }
+
+    /**
+     * @return The number of bytes written so far, including bytes still in the buffer
+     */
+    public long getPosition() {
+        return position + buffer.position();
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeBoolean(boolean value) throws IOException {
+        writeByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeByte(byte value) throws IOException {
+        require(1);
+        buffer.put(value);
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeShort(short value) throws IOException {
+        require(2);
+        buffer.putShort(value);
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeChar(char value) throws IOException {
+        require(2);
+        buffer.putChar(value);
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeInt(int value) throws IOException {
+        require(4);
+        buffer.putInt(value);
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeLong(long value) throws IOException {
+        require(8);
+        buffer.putLong(value);
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeFloat(float value) throws IOException {
+        require(4);
+        buffer.putFloat(value);
+    }
+
+    /**
+     * @param value The value to write
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeDouble(double value) throws IOException {
+        require(8);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Write a string as its UTF-8 byte length followed by the bytes. A null string is written as a length
+     * of -1.
+     *
+     * @param value The string to write, may be null
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            require(1);
+            int n = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.put(bytes, offset, n);
+            offset += n;
+        }
+    }
+
+    /**
+     * Write `data[indices[i]]` for every `i` in `[0, count)`, so booleans are written one byte each.
+     *
+     * @param data    The source array, usually the indexed data of a property
+     * @param indices The indices into data to write
+     * @param count   The number of indices to use
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeBooleans(boolean[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(1);
+            int end = i + Math.min(count - i, buffer.remaining());
+            for (; i < end; i++) {
+                buffer.put(data[indices[i]] ? (byte) 1 : (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Write bit `indices[i]` of `words` for every `i` in `[0, count)`, where bit `j` is bit `j & 63` of
+     * `words[j >>> 6]`. The flags are written one byte each, in the same layout as {@link
+     * #writeBooleans(boolean[], int[], int)}.
+     *
+     * @param words   The source words, usually the indexed data of a bit-packed property
+     * @param indices The bit indices to write
+     * @param count   The number of indices to use
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeBits(long[] words, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(1);
+            int end = i + Math.min(count - i, buffer.remaining());
+            for (; i < end; i++) {
+                int bit = indices[i];
+                buffer.put((words[bit >>> 6] & (1L << bit)) != 0 ? (byte) 1 : (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * @see #writeBooleans(boolean[], int[], int)
+     */
+    public void writeBytes(byte[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(1);
+            int end = i + Math.min(count - i, buffer.remaining());
+            for (; i < end; i++) {
+                buffer.put(data[indices[i]]);
+            }
+        }
+    }
+
+    /**
+     * @see #writeBooleans(boolean[], int[], int)
+     */
+    public void writeShorts(short[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(2);
+            int end = i + Math.min(count - i, buffer.remaining() >> 1);
+            for (; i < end; i++) {
+                buffer.putShort(data[indices[i]]);
+            }
+        }
+    }
+
+    /**
+     * @see #writeBooleans(boolean[], int[], int)
+     */
+    public void writeChars(char[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(2);
+            int end = i + Math.min(count - i, buffer.remaining() >> 1);
+            for (; i < end; i++) {
+                buffer.putChar(data[indices[i]]);
+            }
+        }
+    }
+
+    /**
+     * @see #writeBooleans(boolean[], int[], int)
+     */
+    public void writeInts(int[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(4);
+            int end = i + Math.min(count - i, buffer.remaining() >> 2);
+            for (; i < end; i++) {
+                buffer.putInt(data[indices[i]]);
+            }
+        }
+    }
+
+    /**
+     * @see #writeFloats(float[], int, int[], int)
+     */
+    public void writeInts(int[] data, int stride, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int offset = indices[i] * stride;
+            int j = 0;
+            while (j < stride) {
+                require(4);
+                int end = j + Math.min(stride - j, buffer.remaining() >> 2);
+                for (; j < end; j++) {
+                    buffer.putInt(data[offset + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see #writeBooleans(boolean[], int[], int)
+     */
+    public void writeLongs(long[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(8);
+            int end = i + Math.min(count - i, buffer.remaining() >> 3);
+            for (; i < end; i++) {
+                buffer.putLong(data[indices[i]]);
+            }
+        }
+    }
+
+    /**
+     * @see #writeFloats(float[], int, int[], int)
+     */
+    public void writeLongs(long[] data, int stride, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int offset = indices[i] * stride;
+            int j = 0;
+            while (j < stride) {
+                require(8);
+                int end = j + Math.min(stride - j, buffer.remaining() >> 3);
+                for (; j < end; j++) {
+                    buffer.putLong(data[offset + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see #writeBooleans(boolean[], int[], int)
+     */
+    public void writeFloats(float[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(4);
+            int end = i + Math.min(count - i, buffer.remaining() >> 2);
+            for (; i < end; i++) {
+                buffer.putFloat(data[indices[i]]);
+            }
+        }
+    }
+
+    /**
+     * Write the `stride` consecutive values starting at `data[indices[i] * stride]` for every `i` in `[0,
+     * count)`. This is used for properties that pack several values per component into a single array.
+     *
+     * @param data    The source array, usually the indexed data of a property
+     * @param stride  The number of values per index
+     * @param indices The indices into data to write, before they are scaled by the stride
+     * @param count   The number of indices to use
+     * @throws IOException if the channel could not be written to
+     */
+    public void writeFloats(float[] data, int stride, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int offset = indices[i] * stride;
+            int j = 0;
+            while (j < stride) {
+                require(4);
+                int end = j + Math.min(stride - j, buffer.remaining() >> 2);
+                for (; j < end; j++) {
+                    buffer.putFloat(data[offset + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see #writeBooleans(boolean[], int[], int)
+     */
+    public void writeDoubles(double[] data, int[] indices, int count) throws IOException {
+        int i = 0;
+        while (i < count) {
+            require(8);
+            int end = i + Math.min(count - i, buffer.remaining() >> 3);
+            for (; i < end; i++) {
+                buffer.putDouble(data[indices[i]]);
+            }
+        }
+    }
+
+    /**
+     * @see #writeFloats(float[], int, int[], int)
+     */
+    public void writeDoubles(double[] data, int stride, int[] indices, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int offset = indices[i] * stride;
+            int j = 0;
+            while (j < stride) {
+                require(8);
+                int end = j + Math.min(stride - j, buffer.remaining() >> 3);
+                for (; j < end; j++) {
+                    buffer.putDouble(data[offset + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write any buffered bytes to the channel. This does not close the channel.
+     *
+     * @throws IOException if the channel could not be written to
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
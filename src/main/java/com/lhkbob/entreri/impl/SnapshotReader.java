@@ -0,0 +1,266 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.Ownable;
+import com.lhkbob.entreri.Owner;
+import com.lhkbob.entreri.property.Property;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * SnapshotReader
+ * ==============
+ *
+ * SnapshotReader restores a snapshot written by {@link SnapshotWriter} into an empty {@link
+ * EntitySystemImpl}. Entities and components are recreated with their original ids and component versions,
+ * the property columns are read directly into the restored properties, and then the ownership links are
+ * reestablished. Entities are restored densely, so entity indices match those of the saved system after a
+ * compaction. Component types are loaded by name with the reader's class loader, and every component type
+ * must declare the same properties, with the same property classes, as it did when the snapshot was
+ * written.
+ *
+ * Snapshots read from a file are memory mapped rather than read through a buffer, so the property columns
+ * are bulk copied out of the mapping into the property arrays. The data is always copied: the restored
+ * properties are backed by heap arrays and do not keep the mapping, so restoring the same snapshot into
+ * several systems uses as much memory as restoring it into each one separately.
+ *
+ * @author Michael Ludwig
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class SnapshotReader {
+    private final SnapshotCodecs codecs;
+    private ClassLoader classLoader;
+
+    /**
+     * Create a reader that uses the default codecs.
+     */
+    public SnapshotReader() {
+        this(new SnapshotCodecs());
+    }
+
+    /**
+     * Create a reader that uses the given codecs.
+     *
+     * @param codecs The codecs used to read property columns
+     * @throws NullPointerException if codecs is null
+     */
+    public SnapshotReader(SnapshotCodecs codecs) {
+        if (codecs == null) {
+            throw new NullPointerException("Codecs cannot be null");
+        }
+        this.codecs = codecs;
+        classLoader = SnapshotReader.class.getClassLoader();
+    }
+
+    /**
+     * Set the class loader that component types are loaded from. By default this is the class loader that
+     * loaded entreri.
+     *
+     * @param loader The class loader for component types
+     * @throws NullPointerException if loader is null
+     */
+    public void setClassLoader(ClassLoader loader) {
+        if (loader == null) {
+            throw new NullPointerException("ClassLoader cannot be null");
+        }
+        classLoader = loader;
+    }
+
+    /**
+     * Read the snapshot stored in the file at `path` into `system`. The file is memory mapped while it is
+     * read and its property columns are copied into the restored properties.
+     *
+     * @param path   The file to read
+     * @param system The empty system to restore into
+     * @throws IOException              if the file could not be read or is not a compatible snapshot
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     * @throws IllegalStateException    if system already had entities or components added to it
+     */
+    public void read(Path path, EntitySystem system) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(new SnapshotInput(channel, SnapshotInput.MAP_WINDOW_SIZE), system);
+        }
+    }
+
+    /**
+     * Read a snapshot from `channel` into `system`. The channel is not closed.
+     *
+     * @param channel The channel to read from
+     * @param system  The empty system to restore into
+     * @throws IOException              if the channel could not be read or is not a compatible snapshot
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     * @throws IllegalStateException    if system already had entities or components added to it
+     */
+    public void read(ReadableByteChannel channel, EntitySystem system) throws IOException {
+        if (channel == null) {
+            throw new NullPointerException("Channel cannot be null");
+        }
+        read(new SnapshotInput(channel), system);
+    }
+
+    void read(SnapshotInput in, EntitySystem system) throws IOException {
+        if (system == null) {
+            throw new NullPointerException("System cannot be null");
+        }
+        if (!(system instanceof EntitySystemImpl)) {
+            throw new IllegalArgumentException("Unsupported EntitySystem implementation: " +
+                                               system.getClass());
+        }
+        EntitySystemImpl impl = (EntitySystemImpl) system;
+
+        if (in.readInt() != SnapshotWriter.MAGIC) {
+            throw new IOException("Not an entity system snapshot");
+        }
+        int version = in.readInt();
+        if (version != SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        int entityCount = in.readInt();
+        int entityIdSeq = in.readInt();
+        int[] entityIds = new int[entityCount];
+        in.readInts(entityIds, 0, entityCount);
+        impl.restoreEntities(entityCount, entityIds, entityIdSeq);
+        in.setEntityLookup(new DeltaSnapshotReader.EntityMap(impl)::get);
+
+        ComponentDataStore<?>[] stores = new ComponentDataStore[in.readInt()];
+        for (int i = 0; i < stores.length; i++) {
+            stores[i] = readComponents(impl, in);
+        }
+
+        readOwnership(impl, stores, in);
+    }
+
+    private ComponentDataStore<?> readComponents(EntitySystemImpl system, SnapshotInput in)
+            throws IOException {
+        ComponentDataStore<?> store = system.getRepository(loadType(in.readString(), classLoader));
+
+        int count = in.readInt();
+        int idSeq = in.readInt();
+        int versionSeq = in.readInt();
+        int[] entityIndices = new int[count];
+        int[] ids = new int[count];
+        int[] versions = new int[count];
+        in.readInts(entityIndices, 0, count);
+        in.readInts(ids, 0, count);
+        in.readInts(versions, 0, count);
+        store.restore(count, entityIndices, ids, versions, idSeq, versionSeq);
+
+        // restored components occupy the contiguous range starting at component index 1
+        int[] componentIndices = new int[count];
+        for (int i = 0; i < count; i++) {
+            componentIndices[i] = i + 1;
+        }
+
+        readColumns(store, codecs, componentIndices, count, in);
+        return store;
+    }
+
+    /*
+     * Read the columns written by SnapshotWriter.writeColumns() into the given components, after verifying
+     * that the snapshot has the same properties as the data store.
+     */
+    static void readColumns(ComponentDataStore<?> store, SnapshotCodecs codecs, int[] componentIndices,
+                            int count, SnapshotInput in) throws IOException {
+        Class<?> type = store.getType();
+        int propertyCount = in.readInt();
+        if (propertyCount != store.getDeclaredPropertyCount()) {
+            throw new IOException("Snapshot of " + type + " has " + propertyCount + " properties, expected " +
+                                  store.getDeclaredPropertyCount());
+        }
+        for (int i = 0; i < propertyCount; i++) {
+            String name = in.readString();
+            String propertyType = in.readString();
+            Property property = store.getProperty(i);
+            if (!name.equals(store.getDeclaredPropertyName(i)) ||
+                !propertyType.equals(property.getClass().getName())) {
+                throw new IOException("Snapshot property " + name + " (" + propertyType + ") of " + type +
+                                      " does not match " + store.getDeclaredPropertyName(i) + " (" +
+                                      property.getClass().getName() + ")");
+            }
+
+            PropertyCodec codec = codecs.getPropertyCodec(property);
+            if (codec == null) {
+                throw new IOException("No snapshot codec for property " + name + " of " + type +
+                                      " with type " + propertyType);
+            }
+            codec.read(property, componentIndices, count, in);
+            if (property instanceof Property.Buffered) {
+                // snapshots restore the front buffer, so the back buffer must be reseeded from it
+                ((Property.Buffered) property).discardBufferedWrites();
+            }
+        }
+    }
+
+    /*
+     * Load a component type by the name written in a snapshot.
+     */
+    static Class<? extends Component> loadType(String typeName, ClassLoader classLoader) throws IOException {
+        try {
+            return Class.forName(typeName, true, classLoader).asSubclass(Component.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unable to load component type: " + typeName, e);
+        }
+    }
+
+    private void readOwnership(EntitySystemImpl system, ComponentDataStore<?>[] stores, SnapshotInput in)
+            throws IOException {
+        int linkCount = in.readInt();
+        for (int i = 0; i < linkCount; i++) {
+            Ownable ownable = (Ownable) resolve(system, stores, in.readInt(), in.readInt());
+            Owner owner = (Owner) resolve(system, stores, in.readInt(), in.readInt());
+            ownable.setOwner(owner);
+        }
+    }
+
+    private Object resolve(EntitySystemImpl system, ComponentDataStore<?>[] stores, int typeIndex,
+                           int entityIndex) throws IOException {
+        Object result;
+        if (typeIndex == SnapshotWriter.ENTITY_TYPE_INDEX) {
+            result = (entityIndex > 0 && entityIndex < system.getMaxEntityIndex()
+                      ? system.getEntityByIndex(entityIndex) : null);
+        } else if (typeIndex >= 0 && typeIndex < stores.length) {
+            ComponentDataStore<?> store = stores[typeIndex];
+            result = (entityIndex > 0 && entityIndex < system.getMaxEntityIndex()
+                      ? store.getComponent(store.getComponentIndex(entityIndex)) : null);
+        } else {
+            result = null;
+        }
+
+        if (result == null) {
+            throw new IOException("Invalid ownership reference in snapshot");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.Owner;
+import com.lhkbob.entreri.property.Property;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * SnapshotWriter
+ * ==============
+ *
+ * SnapshotWriter saves the complete state of an {@link EntitySystemImpl} into a compact binary snapshot that
+ * can be restored with {@link SnapshotReader}. The snapshot is streamed through a fixed size buffer straight
+ * from the data stores, so saving a large system does not build an intermediate object graph. It contains,
+ * in order:
+ *
+ * 1. A header with the snapshot magic number and format version.
+ * 2. The entity table: the entity count, the entity id sequence, and the id of every entity.
+ * 3. For every component type: its class name, component count, id and version sequences, then the entity
+ * index, id, and version of every component, followed by each declared property as a column written by
+ * the property's {@link PropertyCodec}.
+ * 4. The ownership links between entities and components.
+ *
+ * Entities are written densely, as if the system had been compacted, and components are written in
+ * component index order skipping the holes left by removed components. The system itself is not modified.
+ * Decorated properties are not part of a snapshot.
+ *
+ * All numbers are little-endian. The snapshot must be read with codecs that are compatible with the ones it
+ * was written with.
+ *
+ * @author Michael Ludwig
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class SnapshotWriter {
+    static final int MAGIC = 0x454e5452; // "ENTR"
+    static final int VERSION = 1;
+
+    static final int ENTITY_TYPE_INDEX = -1;
+
+    private final EntitySystemImpl system;
+    private final SnapshotCodecs codecs;
+
+    /**
+     * Create a writer for the given system that uses the default codecs.
+     *
+     * @param system The system to save
+     * @throws NullPointerException     if system is null
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     */
+    public SnapshotWriter(EntitySystem system) {
+        this(system, new SnapshotCodecs());
+    }
+
+    /**
+     * Create a writer for the given system that uses the given codecs.
+     *
+     * @param system The system to save
+     * @param codecs The codecs used to write property columns
+     * @throws NullPointerException     if system or codecs are null
+     * @throws IllegalArgumentException if system was not created by {@link EntitySystem.Factory}
+     */
+    public SnapshotWriter(EntitySystem system, SnapshotCodecs codecs) {
+        if (system == null || codecs == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        if (!(system instanceof EntitySystemImpl)) {
+            throw new IllegalArgumentException("Unsupported EntitySystem implementation: " +
+                                               system.getClass());
+        }
+        this.system = (EntitySystemImpl) system;
+        this.codecs = codecs;
+    }
+
+    /**
+     * Write a snapshot to the file at `path`, replacing any existing file.
+     *
+     * @param path The file to write
+     * @throws IOException           if the file could not be written
+     * @throws IllegalStateException if a property has no codec, or an entity or component is owned by an
+     *                               owner that is not an entity or component of the system
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE)) {
+            write(channel);
+        }
+    }
+
+    /**
+     * Write a snapshot to `channel`. The channel is not closed.
+     *
+     * @param channel The channel to write to
+     * @throws IOException           if the channel could not be written to
+     * @throws IllegalStateException if a property has no codec, or an entity or component is owned by an
+     *                               owner that is not an entity or component of the system
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        List<ComponentDataStore<?>> stores = new ArrayList<>();
+        Iterator<ComponentDataStore<?>> it = system.indexIterator();
+        while (it.hasNext()) {
+            ComponentDataStore<?> store = it.next();
+            // the written versions must include the components changed by bulk operations
+            store.versionUnversionedWrites();
+            stores.add(store);
+        }
+
+        // resolve every codec before anything is written so an unsupported property fails fast
+        PropertyCodec[][] propertyCodecs = new PropertyCodec[stores.size()][];
+        for (int i = 0; i < stores.size(); i++) {
+            propertyCodecs[i] = getPropertyCodecs(codecs, stores.get(i));
+        }
+
+        SnapshotOutput out = new SnapshotOutput(channel);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        int[] entityMap = writeEntities(out);
+
+        out.writeInt(stores.size());
+        for (int i = 0; i < stores.size(); i++) {
+            writeComponents(stores.get(i), propertyCodecs[i], entityMap, out);
+        }
+
+        writeOwnership(stores, entityMap, out);
+        out.flush();
+    }
+
+    /*
+     * Resolve the codecs of every declared property of the data store, in declaration order.
+     */
+    static PropertyCodec[] getPropertyCodecs(SnapshotCodecs codecs, ComponentDataStore<?> store) {
+        PropertyCodec[] result = new PropertyCodec[store.getDeclaredPropertyCount()];
+        for (int i = 0; i < result.length; i++) {
+            Property property = store.getProperty(i);
+            result[i] = codecs.getPropertyCodec(property);
+            if (result[i] == null) {
+                throw new IllegalStateException("No snapshot codec for property " +
+                                                store.getDeclaredPropertyName(i) + " of " +
+                                                store.getType() + " with type " + property.getClass());
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Write the entity table and return the map from entity index to the dense entity index the snapshot
+     * uses for it.
+     */
+    private int[] writeEntities(SnapshotOutput out) throws IOException {
+        int maxEntityIndex = system.getMaxEntityIndex();
+        int[] entityMap = new int[maxEntityIndex];
+        int count = 0;
+        for (int i = 1; i < maxEntityIndex; i++) {
+            if (system.getEntityByIndex(i) != null) {
+                entityMap[i] = ++count;
+            }
+        }
+
+        out.writeInt(count);
+        out.writeInt(system.getEntityIdSequence());
+        for (int i = 1; i < maxEntityIndex; i++) {
+            Entity e = system.getEntityByIndex(i);
+            if (e != null) {
+                out.writeInt(e.getId());
+            }
+        }
+        return entityMap;
+    }
+
+    private void writeComponents(ComponentDataStore<?> store, PropertyCodec[] propertyCodecs, int[] entityMap,
+                                 SnapshotOutput out) throws IOException {
+        int[] componentIndices = new int[store.getComponentCount()];
+        int count = 0;
+        int maxComponentIndex = store.getMaxComponentIndex();
+        for (int i = store.nextComponentIndex(1); i < maxComponentIndex;
+             i = store.nextComponentIndex(i + 1)) {
+            componentIndices[count++] = i;
+        }
+
+        out.writeString(store.getType().getName());
+        out.writeInt(count);
+        out.writeInt(store.getIdSequence());
+        out.writeInt(store.getVersionSequence());
+        for (int i = 0; i < count; i++) {
+            out.writeInt(entityMap[store.getEntityIndex(componentIndices[i])]);
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeInt(store.getId(componentIndices[i]));
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeInt(store.getVersion(componentIndices[i]));
+        }
+
+        writeColumns(store, propertyCodecs, componentIndices, count, out);
+    }
+
+    /*
+     * Write the property count, and then the name, type, and values of each property for the given
+     * components.
+     */
+    static void writeColumns(ComponentDataStore<?> store, PropertyCodec[] propertyCodecs,
+                             int[] componentIndices, int count, SnapshotOutput out) throws IOException {
+        out.writeInt(propertyCodecs.length);
+        for (int i = 0; i < propertyCodecs.length; i++) {
+            out.writeString(store.getDeclaredPropertyName(i));
+            out.writeString(store.getProperty(i).getClass().getName());
+            propertyCodecs[i].write(store.getProperty(i), componentIndices, count, out);
+        }
+    }
+
+    /*
+     * Ownership links are written as pairs of references to the ownable and its owner, where each reference
+     * is the index of the component type in the snapshot (or ENTITY_TYPE_INDEX) and the dense entity index.
+     */
+    private void writeOwnership(List<ComponentDataStore<?>> stores, int[] entityMap, SnapshotOutput out)
+            throws IOException {
+        int[] links = new int[64];
+        int linkCount = 0;
+
+        for (int i = 1; i < entityMap.length; i++) {
+            EntityImpl e = (EntityImpl) system.getEntityByIndex(i);
+            if (e != null && e.delegate != null && e.delegate.getOwner() != null) {
+                if (linkCount * 4 + 4 > links.length) {
+                    links = Arrays.copyOf(links, links.length * 2);
+                }
+                links[linkCount * 4] = ENTITY_TYPE_INDEX;
+                links[linkCount * 4 + 1] = entityMap[i];
+                encodeOwner(e.delegate.getOwner(), stores, entityMap, links, linkCount * 4 + 2);
+                linkCount++;
+            }
+        }
+
+        for (int s = 0; s < stores.size(); s++) {
+            ComponentDataStore<?> store = stores.get(s);
+            int maxComponentIndex = store.getMaxComponentIndex();
+            for (int i = store.nextComponentIndex(1); i < maxComponentIndex;
+                 i = store.nextComponentIndex(i + 1)) {
+                OwnerSupport delegate = store.getOwnerDelegate(i);
+                if (delegate != null && delegate.getOwner() != null) {
+                    if (linkCount * 4 + 4 > links.length) {
+                        links = Arrays.copyOf(links, links.length * 2);
+                    }
+                    links[linkCount * 4] = s;
+                    links[linkCount * 4 + 1] = entityMap[store.getEntityIndex(i)];
+                    encodeOwner(delegate.getOwner(), stores, entityMap, links, linkCount * 4 + 2);
+                    linkCount++;
+                }
+            }
+        }
+
+        out.writeInt(linkCount);
+        for (int i = 0; i < linkCount * 4; i++) {
+            out.writeInt(links[i]);
+        }
+    }
+
+    private void encodeOwner(Owner owner, List<ComponentDataStore<?>> stores, int[] entityMap, int[] links,
+                             int offset) {
+        if (owner instanceof EntityImpl && ((EntityImpl) owner).getEntitySystem() == system) {
+            links[offset] = ENTITY_TYPE_INDEX;
+            links[offset + 1] = entityMap[((EntityImpl) owner).index];
+        } else if (owner instanceof AbstractComponent && ((Component) owner).getEntitySystem() == system) {
+            AbstractComponent<?> c = (AbstractComponent<?>) owner;
+            links[offset] = stores.indexOf(c.owner);
+            links[offset + 1] = entityMap[c.owner.getEntityIndex(c.getIndex())];
+        } else {
+            throw new IllegalStateException("Unable to save ownership by " + owner);
+        }
+    }
+}
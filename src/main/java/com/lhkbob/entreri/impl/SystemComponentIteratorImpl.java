@@ -37,6 +37,13 @@ import java.util.Arrays;
  *
  * Implementation of ComponentIterator used by EntitySystemImpl.
  *
+ * The iterator walks the data store of the required type with the fewest live components, the primary, and
+ * looks up the remaining required types for each of its entities. The primary is re-selected every time the
+ * iterator is reset because the component counts change as the system is modified. When every required data
+ * store is compacted, and thus sorted by entity, the other required types are found with a merge join that
+ * moves a cursor forward through each store instead of performing a random lookup per entity. The excluded
+ * types are re-ordered on reset as well, so the type with the most live components is checked first.
+ *
  * @author Michael Ludwig
  */
 public class SystemComponentIteratorImpl implements ComponentIterator {
@@ -44,11 +51,15 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
 
     private int index;
 
-    private AbstractComponent<?>[] required; // all required except primary
+    private AbstractComponent<?>[] required; // all required, including the primary
     private AbstractComponent<?>[] optional;
+    private ComponentDataStore<?>[] excluded; // ordered from most to fewest live components
 
     private AbstractComponent<?> primary;
 
+    private boolean mergeJoin;
+    private int[] joinCursors; // per required type, last component index before the current entity
+
     /**
      * Create a new ComponentIterator that will iterate over components within the given EntitySystem. It is
      * initialized with no required or optional components, but at least one required component must be added
@@ -64,7 +75,10 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         this.system = system;
         required = new AbstractComponent<?>[0];
         optional = new AbstractComponent<?>[0];
+        excluded = new ComponentDataStore<?>[0];
+        joinCursors = new int[0];
         primary = null;
+        mergeJoin = false;
         index = 0;
     }
 
@@ -76,25 +90,12 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         }
         AbstractComponent<T> data = system.getRepository(type).createDataInstance();
 
-        // check to see if the data should be the new primary
-        if (primary == null) {
-            // no other required components, so just set it
-            primary = data;
-        } else {
-            // check if the new data is shorter, but we will definitely
-            // putting one data into the required array
-            required = Arrays.copyOf(required, required.length + 1);
-
-            if (data.owner.getMaxComponentIndex() < primary.owner.getMaxComponentIndex()) {
-                // new primary
-                required[required.length - 1] = primary;
-                primary = data;
-            } else {
-                // not short enough so store it in the array
-                required[required.length - 1] = data;
-            }
-        }
+        required = Arrays.copyOf(required, required.length + 1);
+        required[required.length - 1] = data;
+        joinCursors = new int[required.length];
 
+        // the new type might be the smallest and it can change the join strategy
+        selectStrategy();
         return (T) data;
     }
 
@@ -114,6 +115,17 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         return (T) data;
     }
 
+    @Override
+    public void addExcluded(Class<? extends Component> type) {
+        if (type == null) {
+            throw new NullPointerException("Component type cannot be null");
+        }
+
+        excluded = Arrays.copyOf(excluded, excluded.length + 1);
+        excluded[excluded.length - 1] = system.getRepository(type);
+        orderExcluded();
+    }
+
     @Override
     public boolean next() {
         if (primary == null) {
@@ -125,15 +137,33 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
         int component;
         int count = primary.owner.getMaxComponentIndex();
         while (index < count - 1) {
-            index++; // always increment one
+            // jump over any holes left by removed components
+            int next = primary.owner.nextComponentIndex(index + 1);
+            if (next >= count) {
+                // stay on the last slot so components appended later are still visited
+                index = count - 1;
+                break;
+            }
+            index = next;
 
             found = true;
             entity = primary.owner.getEntityIndex(index);
-            if (entity != 0) {
+            if (entity != 0 && !isExcluded(entity)) {
                 // we have a possible entity candidate
-                primary.setIndex(index);
+                if (mergeJoin && !isJoinValid()) {
+                    // a store was modified during iteration so its cursor can't be trusted anymore
+                    mergeJoin = false;
+                }
+
                 for (int i = 0; i < required.length; i++) {
-                    component = required[i].owner.getComponentIndex(entity);
+                    if (required[i] == primary) {
+                        component = index;
+                    } else if (mergeJoin) {
+                        component = seek(i, entity);
+                    } else {
+                        component = required[i].owner.getComponentIndex(entity);
+                    }
+
                     if (component == 0) {
                         found = false;
                         break;
@@ -161,5 +191,89 @@ public class SystemComponentIteratorImpl implements ComponentIterator {
     @Override
     public void reset() {
         index = 0;
+        selectStrategy();
+        orderExcluded();
+    }
+
+    private void selectStrategy() {
+        // the primary drives the iteration, so pick the type with the fewest live components, breaking ties
+        // with the type that has fewer holes to step over
+        primary = null;
+        for (int i = 0; i < required.length; i++) {
+            ComponentDataStore<?> store = required[i].owner;
+            if (primary == null || store.getComponentCount() < primary.owner.getComponentCount() ||
+                (store.getComponentCount() == primary.owner.getComponentCount() &&
+                 store.getMaxComponentIndex() < primary.owner.getMaxComponentIndex())) {
+                primary = required[i];
+            }
+        }
+
+        Arrays.fill(joinCursors, 0);
+        mergeJoin = required.length > 1 && isJoinValid();
+    }
+
+    private void orderExcluded() {
+        // keep the excluded stores ordered from most to fewest live components, an entity is most likely to
+        // have a component of a larger type so it can be rejected after fewer lookups
+        for (int i = 1; i < excluded.length; i++) {
+            ComponentDataStore<?> store = excluded[i];
+            int j = i;
+            while (j > 0 && excluded[j - 1].getComponentCount() < store.getComponentCount()) {
+                excluded[j] = excluded[j - 1];
+                j--;
+            }
+            excluded[j] = store;
+        }
+    }
+
+    private boolean isJoinValid() {
+        for (int i = 0; i < required.length; i++) {
+            if (!required[i].owner.isCompacted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Find the component index of the entity within the i'th required store, assuming the store is
+     * compacted and entities are requested in increasing order. The cursor gallops forward and then binary
+     * searches, so a store much larger than the primary is not scanned linearly.
+     */
+    private int seek(int i, int entity) {
+        ComponentDataStore<?> store = required[i].owner;
+        int max = store.getMaxComponentIndex();
+
+        // invariant: the entity at lo is less than the requested entity (index 0 holds entity 0)
+        int lo = joinCursors[i];
+        int hi = lo + 1;
+        int step = 1;
+        while (hi < max && store.getEntityIndex(hi) < entity) {
+            lo = hi;
+            step <<= 1;
+            hi = lo + step;
+        }
+        hi = Math.min(hi, max);
+
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (store.getEntityIndex(mid) < entity) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+
+        joinCursors[i] = lo;
+        return (hi < max && store.getEntityIndex(hi) == entity ? hi : 0);
+    }
+
+    private boolean isExcluded(int entityIndex) {
+        for (int i = 0; i < excluded.length; i++) {
+            if (excluded[i].getComponentIndex(entityIndex) != 0) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -28,6 +28,7 @@ package com.lhkbob.entreri.impl.apt;
 
 import com.lhkbob.entreri.DoNotAutoVersion;
 import com.lhkbob.entreri.Validate;
+import com.lhkbob.entreri.property.DoubleBuffered;
 import com.lhkbob.entreri.property.Reference;
 import com.lhkbob.entreri.property.Within;
 
@@ -186,6 +187,9 @@ public class BeanSetterPattern extends AbstractMethodPattern {
                                                                                           com.lhkbob.entreri.property.Collection.class),
                                                                    generator);
                     }
+                } else if (generator.getContext().isAnnotationType(annot, DoubleBuffered.class)) {
+                    // the write goes to the back buffer, the version is updated when the buffers are swapped
+                    needsUpdate = false;
                 }
                 // else ignore the unsupported attribute
             }
@@ -28,6 +28,7 @@ package com.lhkbob.entreri.impl.apt;
 
 import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.IllegalComponentDefinitionException;
+import com.lhkbob.entreri.Query;
 import com.lhkbob.entreri.property.Property;
 
 import javax.annotation.processing.*;
@@ -46,20 +47,26 @@ import java.util.Set;
  * ComponentAnnotationProcessor
  * ============================
  *
- * ComponentAnnotationProcessor is an annotation processor to use with Java 7+ compilers or APT to
+ * ComponentAnnotationProcessor is an annotation processor to use with Java 8+ compilers or APT to
  * generate component proxy implementations for all component sub-interfaces encountered in the build class
  * path. These will then be dynamically loaded at runtime instead of using something such as Janino to
- * generate classes from scratch.
+ * generate classes from scratch. It similarly generates the implementations of all interfaces annotated with
+ * {@link Query}.
  *
  * This also validates the interface contract of all Property implementations.
  *
  * @author Michael Ludwig
  */
 @SupportedAnnotationTypes("*")
-@SupportedSourceVersion(SourceVersion.RELEASE_7)
 public class ComponentAnnotationProcessor extends AbstractProcessor {
     private TypeUtils types;
 
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        // the processor only inspects interfaces and classes, so newer language versions are fine
+        return SourceVersion.latestSupported();
+    }
+
     @Override
     public synchronized void init(ProcessingEnvironment env) {
         super.init(env);
@@ -74,7 +81,10 @@ public class ComponentAnnotationProcessor extends AbstractProcessor {
         TypeMirror propertySuperType = types.getRawType(Property.class);
 
         for (Element e : roundEnv.getRootElements()) {
-            if (e.getKind().equals(ElementKind.INTERFACE)) {
+            if (e.getAnnotation(Query.class) != null) {
+                // queries are never components, and the specification reports non-interface queries
+                generateQueryImplementation((TypeElement) e);
+            } else if (e.getKind().equals(ElementKind.INTERFACE)) {
                 // we have an interface
                 TypeElement t = (TypeElement) e;
                 if (tutil.isAssignable(t.asType(), componentSuperType)) {
@@ -149,4 +159,30 @@ public class ComponentAnnotationProcessor extends AbstractProcessor {
             processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, component);
         }
     }
+
+    private void generateQueryImplementation(TypeElement query) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.OTHER, "Validating...", query);
+
+        try {
+            QuerySpecification spec = new QuerySpecification(query, processingEnv);
+            String name = QueryGenerator.getImplementationClassName(spec, true);
+            String code = QueryGenerator.generateJavaCode(spec);
+
+            try {
+                Writer w = processingEnv.getFiler().createSourceFile(name, query).openWriter();
+                w.write(code);
+                w.flush();
+                w.close();
+            } catch (IOException ioe) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, ioe.getMessage(), query);
+            }
+        } catch (IllegalComponentDefinitionException ec) {
+            String typePrefix = query.asType().toString();
+            String msg = ec.getMessage();
+            if (msg.startsWith(typePrefix)) {
+                msg = msg.substring(typePrefix.length());
+            }
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, query);
+        }
+    }
 }
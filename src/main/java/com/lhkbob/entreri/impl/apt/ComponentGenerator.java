@@ -101,8 +101,8 @@ public class ComponentGenerator implements Generator {
         return getImplementationClassName(spec.getType().toString(), spec.getPackage(), includePackage);
     }
 
-    private static String getImplementationClassName(String typeName, String packageName,
-                                                     boolean includePackage) {
+    static String getImplementationClassName(String typeName, String packageName,
+                                             boolean includePackage) {
         // first remove the package name from typeName if necessary
         if (!packageName.isEmpty() && typeName.startsWith(packageName)) {
             typeName = typeName.substring(packageName.length() + 1);
@@ -142,7 +142,8 @@ public class ComponentGenerator implements Generator {
      * extend from AbstractComponent and has a single constructor that takes a ComponentDataStore. It will
      * also define a static public create() method to produce an appropriate ComponentDataStore object.
      *
-     * The source code that is generated requires Java 1.7 or higher to compile.
+     * The source code that is generated requires Java 9 or higher to compile, since it is annotated with
+     * `javax.annotation.processing.Generated`.
      *
      * @param spec The component specification that must be implemented
      * @return Source code of a valid implementation for the component type
@@ -173,7 +174,7 @@ public class ComponentGenerator implements Generator {
         df.setTimeZone(tz);
         String nowAsISO = df.format(new Date());
 
-        appendSyntax("import javax.annotation.Generated;", "",
+        appendSyntax("import javax.annotation.processing.Generated;", "",
                      "@Generated(value={\"" + ComponentGenerator.class.getName() +
                      "\"}, date=\"" + nowAsISO + "\")", "@SuppressWarnings(\"unchecked\")");
 
@@ -317,7 +318,8 @@ public class ComponentGenerator implements Generator {
 
     @Override
     public String getComponentIndex() {
-        return "index";
+        // qualified so that a method parameter named index, e.g. for indexed getters, does not shadow it
+        return "this.index";
     }
 
     @Override
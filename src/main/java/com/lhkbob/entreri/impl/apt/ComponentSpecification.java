@@ -30,9 +30,14 @@ import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.IllegalComponentDefinitionException;
 import com.lhkbob.entreri.Ownable;
 import com.lhkbob.entreri.Owner;
+import com.lhkbob.entreri.property.DoubleBuffered;
+import com.lhkbob.entreri.property.HalfFloatProperty;
 import com.lhkbob.entreri.property.ImplementedBy;
+import com.lhkbob.entreri.property.PackedIntProperty;
 import com.lhkbob.entreri.property.Property;
+import com.lhkbob.entreri.property.Quantized;
 import com.lhkbob.entreri.property.Reference;
+import com.lhkbob.entreri.property.Within;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
@@ -41,6 +46,7 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
@@ -60,6 +66,8 @@ import java.util.*;
  * @author Michael Ludwig
  */
 public class ComponentSpecification {
+    private static final int MAX_PACKED_INT_BITS = 16;
+
     private final Context context;
 
     private final TypeMirror componentType;
@@ -72,19 +80,23 @@ public class ComponentSpecification {
      * the APT processing environment given by `env`. This uses the default list of method patterns with
      * precedence:
      *
-     * 1. {@link com.lhkbob.entreri.impl.apt.MultiSetterPattern}
-     * 2. {@link com.lhkbob.entreri.impl.apt.SharedBeanGetterPattern}
-     * 3. {@link com.lhkbob.entreri.impl.apt.BeanGetterPattern}
-     * 4. {@link com.lhkbob.entreri.impl.apt.BeanSetterPattern}
+     * 1. {@link com.lhkbob.entreri.impl.apt.SharedBeanGetterPattern}
+     * 2. {@link com.lhkbob.entreri.impl.apt.CollectionsMethodPattern}
+     * 3. {@link com.lhkbob.entreri.impl.apt.IndexedMethodPattern}
+     * 4. {@link com.lhkbob.entreri.impl.apt.MultiSetterPattern}
+     * 5. {@link com.lhkbob.entreri.impl.apt.BeanGetterPattern}
+     * 6. {@link com.lhkbob.entreri.impl.apt.BeanSetterPattern}
      *
      * @param type The component type to analyze
      * @param env  The processing environment
      */
     public ComponentSpecification(TypeElement type, ProcessingEnvironment env) {
         // the shared bean getter must be before the collections method pattern to grab getters
-        // annotated with @ReturnValue instead of matching the get-key pattern
+        // annotated with @ReturnValue instead of matching the get-key pattern, and the indexed pattern must
+        // be before the multi setter pattern so that indexed setters are not split into two properties
         this(type, env, new SharedBeanGetterPattern(), new CollectionsMethodPattern(),
-             new MultiSetterPattern(), new BeanGetterPattern(), new BeanSetterPattern());
+             new IndexedMethodPattern(), new MultiSetterPattern(), new BeanGetterPattern(),
+             new BeanSetterPattern());
     }
 
     /**
@@ -197,6 +209,41 @@ public class ComponentSpecification {
         }
     }
 
+    private static TypeMirror getAttributeSelectedProperty(Context context, PropertyDeclaration p) {
+        // some attributes select a more compact property than the type mapping would, unless the property
+        // is double buffered, which only the primitive properties support
+        Within range = null;
+        boolean quantized = false;
+        boolean buffered = false;
+        for (AnnotationMirror a : p.getAttributes()) {
+            if (context.isAnnotationType(a, DoubleBuffered.class)) {
+                buffered = true;
+            } else if (context.isAnnotationType(a, Within.class)) {
+                range = context.asAnnotation(a, Within.class);
+            } else if (context.isAnnotationType(a, Quantized.class)) {
+                quantized = true;
+            }
+        }
+
+        if (p.getType().getKind() == TypeKind.FLOAT && quantized) {
+            if (buffered) {
+                throw new IllegalComponentDefinitionException(context.getComponentType().toString(),
+                                                              "Property cannot be both @Quantized and " +
+                                                              "@DoubleBuffered: " + p.getName());
+            }
+            return context.fromClass(HalfFloatProperty.class);
+        } else if (p.getType().getKind() == TypeKind.INT && range != null && !buffered) {
+            // int properties with small @Within ranges are packed into as few bits as the range needs
+            double min = Math.ceil(range.min());
+            double max = Math.floor(range.max());
+            if (min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE && min <= max &&
+                max - min < (1 << MAX_PACKED_INT_BITS)) {
+                return context.fromClass(PackedIntProperty.class);
+            }
+        }
+        return null;
+    }
+
     private static List<PropertyDeclaration> assignPropertyImplementations(Context context,
                                                                            List<PropertyDeclaration> properties) {
         for (PropertyDeclaration p : properties) {
@@ -221,6 +268,10 @@ public class ComponentSpecification {
                     }
                 }
 
+                if (propType == null) {
+                    propType = getAttributeSelectedProperty(context, p);
+                }
+
                 if (propType == null) {
                     // look up from the file mapping after determining semantics
                     boolean useReferenceSemantics = false;
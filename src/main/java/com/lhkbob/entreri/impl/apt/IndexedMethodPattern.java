@@ -0,0 +1,331 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl.apt;
+
+import com.lhkbob.entreri.DoNotAutoVersion;
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+import com.lhkbob.entreri.Named;
+import com.lhkbob.entreri.Validate;
+import com.lhkbob.entreri.property.FixedArray;
+import com.lhkbob.entreri.property.Within;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * IndexedMethodPattern
+ * ====================
+ *
+ * A method pattern that matches getters and setters for a single element of a fixed-length primitive array
+ * property, such as the `int[]` properties declared with the {@link FixedArray} attribute. It matches two
+ * kinds of methods:
+ *
+ * ### Getting
+ *
+ * * The method name starts with `get`
+ * * The method has one parameter of type `int`, which is the index into the array
+ * * The method returns a primitive type, the element type of the array
+ *
+ * ### Setting
+ *
+ * * The method name starts with `set`
+ * * The method has two parameters, the first of type `int` for the index into the array and the second of a
+ * primitive type for the new element value
+ * * The method's return type is `void` or the Component type declaring the method (in which case the
+ * implementation will return `this` for method chaining)
+ * * The component declares a matching indexed getter, or the method or one of its parameters is annotated
+ * with `@FixedArray`. Without either, the method is left to the {@link MultiSetterPattern}.
+ *
+ * The property name is the lower-cased remainder of the method name after the prefix is removed, and then
+ * pluralized, so `getSlot(int)` and `setSlot(int, int)` both declare the `int[]` property named `slots`. If
+ * the method is annotated with `@Named` that is used to define the property name instead. The same property
+ * may also be declared by bean getters and setters of the entire array.
+ *
+ * The property must be annotated with `@FixedArray` by one of its methods, and the backing Property must
+ * provide the `get(int, int) -> T` and `set(int, int, T) -> void` methods where `T` is the element type.
+ *
+ * @author Michael Ludwig
+ */
+public class IndexedMethodPattern extends AbstractMethodPattern {
+    private static final Pattern GETTER_NAME_PATTERN = Pattern.compile("(get).+");
+    private static final Pattern SETTER_NAME_PATTERN = Pattern.compile("(set).+");
+
+    public IndexedMethodPattern() {
+        super(Arrays.asList(Validate.class, DoNotAutoVersion.class));
+    }
+
+    @Override
+    public Map<ExecutableElement, Collection<? extends PropertyDeclaration>> match(Context context,
+                                                                                   List<ExecutableElement> methods) {
+        TypeMirror intType = context.getTypes().getPrimitiveType(TypeKind.INT);
+        List<ExecutableElement> getters = context.getMatchingMethods(context.getComponentType(), methods,
+                                                                     GETTER_NAME_PATTERN, null, intType);
+        List<ExecutableElement> setters = context.getMatchingMethods(context.getComponentType(), methods,
+                                                                     SETTER_NAME_PATTERN, null, intType,
+                                                                     null);
+
+        Map<ExecutableElement, Collection<? extends PropertyDeclaration>> matches = new HashMap<>();
+        Set<String> getterSuffixes = new HashSet<>();
+        for (ExecutableElement m : getters) {
+            TypeMirror elementType = m.getReturnType();
+            if (!elementType.getKind().isPrimitive()) {
+                continue;
+            }
+
+            PropertyDeclaration property = createProperty(context, m, elementType);
+            property.getMethods().add(new IndexedGetterDeclaration(m, property, getMethodAttributes(m)));
+            matches.put(m, Collections.singleton(property));
+            getterSuffixes.add(m.getSimpleName().toString().substring(3));
+        }
+
+        for (ExecutableElement m : setters) {
+            TypeMirror elementType = m.getParameters().get(1).asType();
+            if (!elementType.getKind().isPrimitive()) {
+                continue;
+            }
+            if (m.getReturnType().getKind() != TypeKind.VOID &&
+                !context.getTypes().isSameType(context.getComponentType(), m.getReturnType())) {
+                continue;
+            }
+            if (!getterSuffixes.contains(m.getSimpleName().toString().substring(3)) && !isFixedArray(m)) {
+                continue;
+            }
+
+            PropertyDeclaration property = createProperty(context, m, elementType);
+            Set<Annotation> methodAttrs = new HashSet<>();
+            methodAttrs.addAll(getMethodAttributes(m));
+            for (VariableElement p : m.getParameters()) {
+                methodAttrs.addAll(getMethodAttributes(p));
+            }
+            property.getMethods().add(new IndexedSetterDeclaration(m, property, methodAttrs,
+                                                                   m.getReturnType().getKind() !=
+                                                                   TypeKind.VOID));
+            matches.put(m, Collections.singleton(property));
+        }
+
+        return matches;
+    }
+
+    private PropertyDeclaration createProperty(Context context, ExecutableElement m, TypeMirror elementType) {
+        String name = getPropertyName(m, "get", "set");
+        // make the name plural (with the same simple logic as the collection methods) if it was not @Named
+        if (m.getAnnotation(Named.class) == null) {
+            if (name.endsWith("s") || name.endsWith("ch") || name.endsWith("z") || name.endsWith("sh")) {
+                name = name + "es";
+            } else {
+                name = name + "s";
+            }
+        }
+
+        PropertyDeclaration property = new PropertyDeclaration(context, name,
+                                                               context.getTypes().getArrayType(elementType));
+        property.getAttributes().addAll(getPropertyAttributes(context, m));
+        for (VariableElement p : m.getParameters()) {
+            property.getAttributes().addAll(getPropertyAttributes(context, p));
+        }
+        return property;
+    }
+
+    private static boolean isFixedArray(ExecutableElement m) {
+        if (m.getAnnotation(FixedArray.class) != null) {
+            return true;
+        }
+        for (VariableElement p : m.getParameters()) {
+            if (p.getAnnotation(FixedArray.class) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkFixedArray(Context context, PropertyDeclaration property) {
+        for (AnnotationMirror annot : property.getAttributes()) {
+            if (context.isAnnotationType(annot, FixedArray.class)) {
+                return;
+            }
+        }
+        throw new IllegalComponentDefinitionException(context.getComponentType().toString(),
+                                                      "Indexed property must declare @FixedArray: " +
+                                                      property.getName());
+    }
+
+    private static String getAnnotationSyntax(AbstractMethodDeclaration method, Context context,
+                                              TypeMirror attribute) {
+        String syntax = method.getMethodAnnotationReflectionSyntax(context, attribute);
+        for (int i = 0; syntax == null && i < method.getMethod().getParameters().size(); i++) {
+            syntax = method.getMethodParameterAnnotationReflectionSyntax(context, i, attribute);
+        }
+        return syntax;
+    }
+
+    private static class IndexedGetterDeclaration extends AbstractMethodDeclaration {
+        private PropertyDeclaration property;
+
+        protected IndexedGetterDeclaration(ExecutableElement method, PropertyDeclaration property,
+                                           Set<Annotation> attrs) {
+            super(method, attrs);
+            this.property = property;
+        }
+
+        @Override
+        public void replace(PropertyDeclaration original, PropertyDeclaration replaceWith) {
+            if (property == original) {
+                property = replaceWith;
+            }
+        }
+
+        @Override
+        public boolean arePropertiesValid(Context context) {
+            checkFixedArray(context, property);
+            // must have a get(int, int) -> T method where T is the element type
+            TypeMirror intType = context.getTypes().getPrimitiveType(TypeKind.INT);
+            return context.hasMethod(property.getPropertyImplementation(), "get", getReturnType(), intType,
+                                     intType);
+        }
+
+        @Override
+        public String getAnnotationSyntax(Context context, PropertyDeclaration property,
+                                          TypeMirror attribute) {
+            return IndexedMethodPattern.getAnnotationSyntax(this, context, attribute);
+        }
+
+        @Override
+        public void appendMembers(Generator generator) {
+            // needs no additional members
+        }
+
+        @Override
+        public void appendConstructorInitialization(Generator generator) {
+            // needs no additional initialization
+        }
+
+        @Override
+        public void appendMethodBody(Generator generator) {
+            String field = generator.getPropertyMemberName(property.getName());
+            String index = generator.getComponentIndex();
+            generator.appendSyntax("return " + field + ".get(" + index + ", " + getParameterNames().get(0) +
+                                   ");");
+        }
+
+        @Override
+        protected Collection<PropertyDeclaration> getProperties() {
+            return Collections.singleton(property);
+        }
+    }
+
+    private static class IndexedSetterDeclaration extends AbstractMethodDeclaration {
+        private final boolean returnsComponent;
+        private PropertyDeclaration property;
+
+        protected IndexedSetterDeclaration(ExecutableElement method, PropertyDeclaration property,
+                                           Set<Annotation> attrs, boolean returnsComponent) {
+            super(method, attrs);
+            this.returnsComponent = returnsComponent;
+            this.property = property;
+        }
+
+        @Override
+        public void replace(PropertyDeclaration original, PropertyDeclaration replaceWith) {
+            if (property == original) {
+                property = replaceWith;
+            }
+        }
+
+        @Override
+        public boolean arePropertiesValid(Context context) {
+            checkFixedArray(context, property);
+            // must have a set(int, int, T) -> void method where T is the element type
+            TypeMirror intType = context.getTypes().getPrimitiveType(TypeKind.INT);
+            return context.hasMethod(property.getPropertyImplementation(), "set",
+                                     context.getTypes().getNoType(TypeKind.VOID), intType, intType,
+                                     getParameterTypes().get(1));
+        }
+
+        @Override
+        public String getAnnotationSyntax(Context context, PropertyDeclaration property,
+                                          TypeMirror attribute) {
+            return IndexedMethodPattern.getAnnotationSyntax(this, context, attribute);
+        }
+
+        @Override
+        public void appendMembers(Generator generator) {
+            // needs no additional members
+        }
+
+        @Override
+        public void appendConstructorInitialization(Generator generator) {
+            // needs no additional initialization
+        }
+
+        @Override
+        public void appendMethodBody(Generator generator) {
+            // perform any validation
+            boolean needsUpdate = true;
+            for (Annotation annot : getAttributes()) {
+                if (annot instanceof Validate) {
+                    Validations.appendValidation(getParameterNames(), (Validate) annot, generator);
+                } else if (annot instanceof DoNotAutoVersion) {
+                    needsUpdate = false;
+                }
+            }
+
+            Context ctx = generator.getContext();
+            String value = getParameterNames().get(1);
+            for (AnnotationMirror annot : property.getAttributes()) {
+                if (ctx.isAnnotationType(annot, Within.class)) {
+                    // the range applies to each element of the array
+                    Validations.appendWithin(value, ctx.asAnnotation(annot, Within.class), generator);
+                }
+                // else ignore the unsupported attribute
+            }
+
+            String field = generator.getPropertyMemberName(property.getName());
+            String index = generator.getComponentIndex();
+            String element = getParameterNames().get(0);
+            generator.appendSyntax(field + ".set(" + index + ", " + element + ", " + value + ");");
+
+            if (needsUpdate) {
+                generator.appendSyntax("updateVersion();");
+            }
+
+            if (returnsComponent) {
+                generator.appendSyntax("return this;");
+            }
+        }
+
+        @Override
+        protected Collection<PropertyDeclaration> getProperties() {
+            return Collections.singleton(property);
+        }
+    }
+}
@@ -28,6 +28,7 @@ package com.lhkbob.entreri.impl.apt;
 
 import com.lhkbob.entreri.DoNotAutoVersion;
 import com.lhkbob.entreri.Validate;
+import com.lhkbob.entreri.property.DoubleBuffered;
 import com.lhkbob.entreri.property.Reference;
 import com.lhkbob.entreri.property.Within;
 
@@ -172,8 +173,10 @@ public class MultiSetterPattern extends AbstractMethodPattern {
 
             Context ctx = generator.getContext();
             int property = 0;
+            boolean allBuffered = true;
             for (PropertyDeclaration prop : properties) {
                 String name = getParameterNames().get(property);
+                boolean buffered = false;
                 for (AnnotationMirror annot : prop.getAttributes()) {
                     if (generator.getContext().isAnnotationType(annot, Reference.class)) {
                         Validations
@@ -198,13 +201,21 @@ public class MultiSetterPattern extends AbstractMethodPattern {
                                                                                               com.lhkbob.entreri.property.Collection.class),
                                                                        generator);
                         }
+                    } else if (generator.getContext().isAnnotationType(annot, DoubleBuffered.class)) {
+                        buffered = true;
                     }
                     // else ignore the unsupported attribute
                 }
 
+                allBuffered &= buffered;
                 property++;
             }
 
+            if (allBuffered) {
+                // every write goes to a back buffer, the version is updated when the buffers are swapped
+                needsUpdate = false;
+            }
+
             String index = generator.getComponentIndex();
             for (int i = 0; i < getParameterNames().size(); i++) {
                 String field = generator.getPropertyMemberName(properties.get(i).getName());
@@ -0,0 +1,324 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl.apt;
+
+import com.lhkbob.entreri.QueryIterator;
+import com.lhkbob.entreri.impl.AbstractComponent;
+import com.lhkbob.entreri.impl.AbstractQueryIterator;
+import com.lhkbob.entreri.impl.ComponentDataStore;
+import com.lhkbob.entreri.impl.EntitySystemImpl;
+
+import javax.lang.model.type.TypeMirror;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * QueryGenerator
+ * ==============
+ *
+ * QueryGenerator produces the source code for the implementation of a {@link com.lhkbob.entreri.Query}
+ * interface. The generated class extends {@link AbstractQueryIterator} and keeps the data store of every
+ * component type in its own field, so the matching loop in `next()` is unrolled over the required, excluded,
+ * and optional types instead of looping over arrays of flyweights like the general {@link
+ * com.lhkbob.entreri.ComponentIterator} implementations. `next()` walks the live components of the smallest
+ * required store once and joins the other types through the entity's component indices, which it keeps in
+ * int fields. Property getters read their cached property instance at those indices directly, and
+ * flyweights are only created and positioned for the types that the query returns from a component getter.
+ * Like the generated components, each query implementation declares a static `create` method that takes the
+ * {@link EntitySystemImpl} to iterate over.
+ *
+ * @author Michael Ludwig
+ */
+public class QueryGenerator {
+    private final QuerySpecification spec;
+
+    private int tabCount;
+    private final StringBuilder source;
+
+    private QueryGenerator(QuerySpecification spec) {
+        this.spec = spec;
+        source = new StringBuilder();
+        tabCount = 0;
+    }
+
+    /**
+     * Get the unique implementation name for the provided query interface. If `includePackage` is true, the
+     * returned string will include the package name to create a valid, absolute type name. The returned
+     * string may then be passed to {@link Class#forName(String)}.
+     *
+     * @param cls            The query interface type
+     * @param includePackage True if the package should be included
+     * @return The class name that corresponds to the generated implementation for the given type
+     */
+    public static String getImplementationClassName(Class<? extends QueryIterator<?>> cls,
+                                                    boolean includePackage) {
+        return ComponentGenerator.getImplementationClassName(cls.getCanonicalName(),
+                                                             cls.getPackage().getName(), includePackage);
+    }
+
+    /**
+     * Get the unique implementation name that should be used when generating the source file for the query
+     * specification. If `includePackage` is true, the returned string will include the package name.
+     *
+     * @param spec           The query specification
+     * @param includePackage True if the package should be included
+     * @return The class name that corresponds to the generated implementation for the given type
+     */
+    public static String getImplementationClassName(QuerySpecification spec, boolean includePackage) {
+        return ComponentGenerator.getImplementationClassName(spec.getType().toString(), spec.getPackage(),
+                                                             includePackage);
+    }
+
+    /**
+     * Generate valid Java source code implementing the given query. The name and package of the generated
+     * class are consistent with {@link #getImplementationClassName(QuerySpecification, boolean)}.
+     *
+     * The source code that is generated requires Java 9 or higher to compile, since it is annotated with
+     * `javax.annotation.processing.Generated`.
+     *
+     * @param spec The query specification that must be implemented
+     * @return Source code of a valid implementation for the query type
+     */
+    public static String generateJavaCode(QuerySpecification spec) {
+        return new QueryGenerator(spec).generate();
+    }
+
+    private String generate() {
+        source.setLength(0);
+
+        List<TypeMirror> required = spec.getRequiredTypes();
+        List<TypeMirror> optional = spec.getOptionalTypes();
+        List<TypeMirror> excluded = spec.getExcludedTypes();
+        List<QuerySpecification.PropertyGetter> properties = new ArrayList<>(spec.getPropertyGetters()
+                                                                                 .values());
+
+        // only the types returned by a component getter need a flyweight
+        boolean[] requiredFlyweight = new boolean[required.size()];
+        boolean[] optionalFlyweight = new boolean[optional.size()];
+        for (TypeMirror type : spec.getGetters().values()) {
+            int index = indexOf(required, type);
+            if (index >= 0) {
+                requiredFlyweight[index] = true;
+            } else {
+                optionalFlyweight[indexOf(optional, type)] = true;
+            }
+        }
+
+        String implName = getImplementationClassName(spec, false);
+        String storeType = ComponentDataStore.class.getName();
+        String flyweightType = AbstractComponent.class.getName();
+
+        if (!spec.getPackage().isEmpty()) {
+            appendSyntax("package " + spec.getPackage() + ";", "");
+        }
+
+        TimeZone tz = TimeZone.getTimeZone("UTC");
+        DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm'Z'");
+        df.setTimeZone(tz);
+        String nowAsISO = df.format(new Date());
+
+        appendSyntax("import javax.annotation.processing.Generated;", "",
+                     "@Generated(value={\"" + QueryGenerator.class.getName() + "\"}, date=\"" + nowAsISO +
+                     "\")");
+        appendSyntax("public final class " + implName + " extends " + AbstractQueryIterator.class.getName() +
+                     " implements " + spec.getType() + " {");
+
+        for (int i = 0; i < required.size(); i++) {
+            appendSyntax("private final " + storeType + "<" + required.get(i) + "> " + store("required", i) +
+                         ";");
+            if (requiredFlyweight[i]) {
+                appendSyntax("private final " + flyweightType + "<" + required.get(i) + "> " +
+                             flyweight("required", i) + ";");
+            }
+            appendSyntax("private int " + componentIndex("required", i) + ";");
+        }
+        for (int i = 0; i < optional.size(); i++) {
+            if (optionalFlyweight[i]) {
+                appendSyntax("private final " + storeType + "<" + optional.get(i) + "> " +
+                             store("optional", i) + ";", "private final " + flyweightType + "<" +
+                                                         optional.get(i) + "> " + flyweight("optional", i) +
+                                                         ";");
+            }
+        }
+        for (int i = 0; i < excluded.size(); i++) {
+            appendSyntax("private final " + storeType + "<" + excluded.get(i) + "> " + store("excluded", i) +
+                         ";");
+        }
+        for (int i = 0; i < properties.size(); i++) {
+            appendSyntax("private final " + properties.get(i).getPropertyType() + " " + property(i) + ";");
+        }
+        appendSyntax("", "private " + storeType + "<?> primary;", "private int index;", "");
+
+        // constructor
+        appendSyntax("private " + implName + "(" + EntitySystemImpl.class.getName() + " system) {",
+                     "super(system);");
+        for (int i = 0; i < required.size(); i++) {
+            appendSyntax(store("required", i) + " = getDataStore(" + required.get(i) + ".class);");
+            if (requiredFlyweight[i]) {
+                appendSyntax(flyweight("required", i) + " = " + store("required", i) +
+                             ".createDataInstance();");
+            }
+        }
+        for (int i = 0; i < optional.size(); i++) {
+            if (optionalFlyweight[i]) {
+                appendSyntax(store("optional", i) + " = getDataStore(" + optional.get(i) + ".class);",
+                             flyweight("optional", i) + " = " + store("optional", i) +
+                             ".createDataInstance();");
+            }
+        }
+        for (int i = 0; i < excluded.size(); i++) {
+            appendSyntax(store("excluded", i) + " = getDataStore(" + excluded.get(i) + ".class);");
+        }
+        for (int i = 0; i < properties.size(); i++) {
+            QuerySpecification.PropertyGetter p = properties.get(i);
+            appendSyntax(property(i) + " = (" + p.getPropertyType() + ") getProperty(" +
+                         store("required", p.getRequiredIndex()) + ", \"" + p.getPropertyName() + "\");");
+        }
+        appendSyntax("reset();", "}", "");
+
+        appendSyntax("public static " + implName + " create(" + EntitySystemImpl.class.getName() +
+                     " system) {", "return new " + implName + "(system);", "}", "");
+
+        // reset() selects the required store with the fewest live components as the primary store to walk
+        appendSyntax("@Override", "public void reset() {", "index = 0;", "setEntityIndex(0);");
+        for (int i = 0; i < required.size(); i++) {
+            appendSyntax(componentIndex("required", i) + " = 0;");
+        }
+        appendSyntax("primary = " + store("required", 0) + ";");
+        for (int i = 1; i < required.size(); i++) {
+            appendSyntax("if (" + store("required", i) + ".getComponentCount() < " +
+                         "primary.getComponentCount()) {", "primary = " + store("required", i) + ";", "}");
+        }
+        appendSyntax("}", "");
+
+        // next() walks the live components of the primary store once, and joins the other types through
+        // the entity's component index, reusing the walked index for the primary type
+        appendSyntax("@Override", "public boolean next() {", "int count = primary.getMaxComponentIndex();",
+                     "while (index < count - 1) {", "int next = primary.nextComponentIndex(index + 1);",
+                     "if (next >= count) {", "index = count - 1;", "break;", "}", "index = next;",
+                     "int entity = primary.getEntityIndex(index);",
+                     "if (entity == 0) {", "continue;", "}");
+        for (int i = 0; i < required.size(); i++) {
+            appendSyntax("int component" + i + " = (primary == " + store("required", i) + " ? index : " +
+                         store("required", i) + ".getComponentIndex(entity));",
+                         "if (component" + i + " == 0) {", "continue;", "}");
+        }
+        for (int i = 0; i < excluded.size(); i++) {
+            appendSyntax("if (" + store("excluded", i) + ".getComponentIndex(entity) != 0) {", "continue;",
+                         "}");
+        }
+        for (int i = 0; i < required.size(); i++) {
+            appendSyntax(componentIndex("required", i) + " = component" + i + ";");
+            if (requiredFlyweight[i]) {
+                appendSyntax("setComponentIndex(" + flyweight("required", i) + ", component" + i + ");");
+            }
+        }
+        for (int i = 0; i < optional.size(); i++) {
+            if (optionalFlyweight[i]) {
+                appendSyntax("setComponentIndex(" + flyweight("optional", i) + ", " + store("optional", i) +
+                             ".getComponentIndex(entity));");
+            }
+        }
+        appendSyntax("setEntityIndex(entity);", "return true;", "}");
+        for (int i = 0; i < required.size(); i++) {
+            appendSyntax(componentIndex("required", i) + " = 0;");
+        }
+        appendSyntax("setEntityIndex(0);", "return false;", "}", "");
+
+        appendSyntax("@Override", "public void forEach(" + QueryIterator.class.getCanonicalName() +
+                                  ".Visitor<? super " + spec.getType() + "> visitor) {",
+                     "if (visitor == null) {", "throw new NullPointerException(\"Visitor cannot be null\");",
+                     "}", "reset();", "while (next()) {", "visitor.visit(this);", "}", "}");
+
+        for (Map.Entry<String, TypeMirror> getter : spec.getGetters().entrySet()) {
+            int index = indexOf(required, getter.getValue());
+            String field = (index >= 0 ? flyweight("required", index)
+                                       : flyweight("optional", indexOf(optional, getter.getValue())));
+            appendSyntax("", "@Override", "public " + getter.getValue() + " " + getter.getKey() + "() {",
+                         "return (" + getter.getValue() + ") " + field + ";", "}");
+        }
+
+        int property = 0;
+        for (Map.Entry<String, QuerySpecification.PropertyGetter> getter : spec.getPropertyGetters()
+                                                                               .entrySet()) {
+            QuerySpecification.PropertyGetter p = getter.getValue();
+            appendSyntax("", "@Override", "public " + p.getValueType() + " " + getter.getKey() + "() {",
+                         "return " + property(property++) + ".get(" +
+                         componentIndex("required", p.getRequiredIndex()) + ");", "}");
+        }
+
+        appendSyntax("}");
+        return source.toString();
+    }
+
+    private static int indexOf(List<TypeMirror> types, TypeMirror type) {
+        // the types come from the same annotation so their string forms are canonical and unique
+        for (int i = 0; i < types.size(); i++) {
+            if (types.get(i).toString().equals(type.toString())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String store(String group, int index) {
+        return group + "Store" + index;
+    }
+
+    private static String flyweight(String group, int index) {
+        return group + index;
+    }
+
+    private static String componentIndex(String group, int index) {
+        return group + "Index" + index;
+    }
+
+    private static String property(int index) {
+        return "property" + index;
+    }
+
+    private void appendSyntax(String... blobLines) {
+        for (String line : blobLines) {
+            if (line.startsWith("}")) {
+                tabCount = Math.max(0, tabCount - 1);
+            }
+            for (int i = 0; i < tabCount; i++) {
+                source.append('\t');
+            }
+            if (line.endsWith("{")) {
+                tabCount++;
+            }
+
+            source.append(line).append('\n');
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl.apt;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+import com.lhkbob.entreri.Named;
+import com.lhkbob.entreri.Query;
+import com.lhkbob.entreri.QueryIterator;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypesException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.util.*;
+
+/**
+ * QuerySpecification
+ * ==================
+ *
+ * QuerySpecification validates an interface annotated with {@link Query} and records the component types
+ * and getter methods that {@link QueryGenerator} must implement. The query interface must extend {@link
+ * QueryIterator} parameterized by itself, list at least one required type, not list a component type more
+ * than once, and only declare no-argument getters. A getter either returns a required or optional component
+ * type, or returns the value of a property declared by exactly one required type. Property getters are
+ * matched to the property by their `@Named` annotation or bean name, like component getters, and the
+ * property must have a `get(int)` method returning the getter's type.
+ *
+ * @author Michael Ludwig
+ */
+public class QuerySpecification {
+    private final TypeMirror queryType;
+    private final String packageName;
+
+    private final List<TypeMirror> required;
+    private final List<TypeMirror> optional;
+    private final List<TypeMirror> excluded;
+    private final Map<String, TypeMirror> getters;
+    private final Map<String, PropertyGetter> propertyGetters;
+
+    /**
+     * Create a new QuerySpecification for the given interface `type`, operating within the APT processing
+     * environment given by `env`.
+     *
+     * @param type The query type to analyze
+     * @param env  The processing environment
+     * @throws IllegalComponentDefinitionException if the query type is invalid
+     */
+    public QuerySpecification(TypeElement type, ProcessingEnvironment env) {
+        TypeUtils tu = new TypeUtils(env);
+        queryType = type.asType();
+
+        Query query = type.getAnnotation(Query.class);
+        if (query == null) {
+            throw fail("Query definition must be annotated with @Query");
+        }
+        if (!type.getKind().equals(ElementKind.INTERFACE)) {
+            throw fail("Query definition must be an interface");
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            throw fail("Query definition cannot declare type variables");
+        }
+        if (!tu.getTypes().isAssignable(queryType, tu.fromGenericClass(QueryIterator.class, queryType))) {
+            throw fail("Query definition must extend QueryIterator<" + queryType + ">");
+        }
+
+        List<TypeMirror> required;
+        try {
+            query.required();
+            throw fail("Unable to inspect required types");
+        } catch (MirroredTypesException e) {
+            required = new ArrayList<>(e.getTypeMirrors());
+        }
+        List<TypeMirror> optional;
+        try {
+            query.optional();
+            throw fail("Unable to inspect optional types");
+        } catch (MirroredTypesException e) {
+            optional = new ArrayList<>(e.getTypeMirrors());
+        }
+        List<TypeMirror> excluded;
+        try {
+            query.excluded();
+            throw fail("Unable to inspect excluded types");
+        } catch (MirroredTypesException e) {
+            excluded = new ArrayList<>(e.getTypeMirrors());
+        }
+
+        if (required.isEmpty()) {
+            throw fail("Query must have at least one required component type");
+        }
+        List<TypeMirror> all = new ArrayList<>(required);
+        all.addAll(optional);
+        all.addAll(excluded);
+        validateComponentTypes(tu, all);
+
+        Map<String, TypeMirror> getters = new LinkedHashMap<>();
+        Map<String, PropertyGetter> propertyGetters = new LinkedHashMap<>();
+        List<ComponentSpecification> requiredSpecs = null;
+        for (ExecutableElement m : ElementFilter.methodsIn(tu.getElements().getAllMembers(type))) {
+            TypeElement declarer = (TypeElement) m.getEnclosingElement();
+            if (tu.getTypes().isSameType(tu.getRawType(QueryIterator.class), tu.getTypes()
+                                                                                .erasure(declarer.asType())) ||
+                tu.getTypes().isSameType(tu.fromClass(Object.class), declarer.asType())) {
+                continue;
+            }
+            if (!m.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+
+            TypeMirror returnType = m.getReturnType();
+            if (!m.getParameters().isEmpty() || !m.getTypeParameters().isEmpty() ||
+                returnType.getKind() == TypeKind.VOID) {
+                throw fail("Method must be a no-argument getter of a component or property: " + m);
+            }
+            if (contains(tu, required, returnType) || contains(tu, optional, returnType)) {
+                getters.put(m.getSimpleName().toString(), returnType);
+            } else {
+                if (requiredSpecs == null) {
+                    requiredSpecs = new ArrayList<>();
+                    for (TypeMirror t : required) {
+                        requiredSpecs.add(new ComponentSpecification(tu.asElement(t), env));
+                    }
+                }
+                propertyGetters.put(m.getSimpleName().toString(), getPropertyGetter(tu, requiredSpecs, m));
+            }
+        }
+
+        this.required = Collections.unmodifiableList(required);
+        this.optional = Collections.unmodifiableList(optional);
+        this.excluded = Collections.unmodifiableList(excluded);
+        this.getters = Collections.unmodifiableMap(getters);
+        this.propertyGetters = Collections.unmodifiableMap(propertyGetters);
+        packageName = tu.getElements().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private PropertyGetter getPropertyGetter(TypeUtils tu, List<ComponentSpecification> requiredSpecs,
+                                             ExecutableElement m) {
+        String name = getPropertyName(m);
+        PropertyGetter getter = null;
+        for (int i = 0; i < requiredSpecs.size(); i++) {
+            for (PropertyDeclaration p : requiredSpecs.get(i).getProperties()) {
+                if (p.getName().equals(name)) {
+                    if (getter != null) {
+                        throw fail("Property " + name + " is declared by more than one required type: " + m);
+                    }
+                    getter = new PropertyGetter(i, p.getName(), p.getType(), p.getPropertyImplementation());
+                }
+            }
+        }
+
+        if (getter == null) {
+            throw fail("Method does not return a required or optional type, or a property of a required " +
+                       "type: " + m);
+        }
+        if (!tu.getTypes().isSameType(getter.getValueType(), m.getReturnType()) ||
+            !tu.hasMethod(getter.getPropertyType(), "get", m.getReturnType(),
+                          tu.getTypes().getPrimitiveType(TypeKind.INT))) {
+            throw fail("Property " + name + " cannot be read as " + m.getReturnType() + ": " + m);
+        }
+        return getter;
+    }
+
+    private static String getPropertyName(ExecutableElement m) {
+        Named named = m.getAnnotation(Named.class);
+        if (named != null) {
+            return named.value();
+        }
+        String methodName = m.getSimpleName().toString();
+        for (String prefix : new String[] { "get", "is", "has" }) {
+            if (methodName.startsWith(prefix) && methodName.length() > prefix.length()) {
+                return Character.toLowerCase(methodName.charAt(prefix.length())) +
+                       methodName.substring(prefix.length() + 1);
+            }
+        }
+        return methodName;
+    }
+
+    private void validateComponentTypes(TypeUtils tu, List<TypeMirror> types) {
+        TypeMirror componentType = tu.fromClass(Component.class);
+        for (int i = 0; i < types.size(); i++) {
+            TypeMirror t = types.get(i);
+            if (tu.getTypes().isSameType(componentType, t) ||
+                !tu.asElement(t).getKind().equals(ElementKind.INTERFACE)) {
+                throw fail("Query types must be Component sub-interfaces: " + t);
+            }
+            if (contains(tu, types.subList(0, i), t)) {
+                throw fail("Component type listed more than once: " + t);
+            }
+        }
+    }
+
+    private static boolean contains(TypeUtils tu, List<TypeMirror> types, TypeMirror type) {
+        for (TypeMirror t : types) {
+            if (tu.getTypes().isSameType(t, type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private IllegalComponentDefinitionException fail(String msg) {
+        return new IllegalComponentDefinitionException(queryType.toString(), msg);
+    }
+
+    /**
+     * @return The query interface being implemented
+     */
+    public TypeMirror getType() {
+        return queryType;
+    }
+
+    /**
+     * @return The package the query interface is declared in, and that the implementation is generated in
+     */
+    public String getPackage() {
+        return packageName;
+    }
+
+    /**
+     * @return The required component types, in declaration order
+     */
+    public List<TypeMirror> getRequiredTypes() {
+        return required;
+    }
+
+    /**
+     * @return The optional component types, in declaration order
+     */
+    public List<TypeMirror> getOptionalTypes() {
+        return optional;
+    }
+
+    /**
+     * @return The excluded component types, in declaration order
+     */
+    public List<TypeMirror> getExcludedTypes() {
+        return excluded;
+    }
+
+    /**
+     * @return The getter methods to implement, mapped from method name to the returned component type
+     */
+    public Map<String, TypeMirror> getGetters() {
+        return getters;
+    }
+
+    /**
+     * @return The property getter methods to implement, mapped from method name to the property they read
+     */
+    public Map<String, PropertyGetter> getPropertyGetters() {
+        return propertyGetters;
+    }
+
+    /**
+     * PropertyGetter
+     * ==============
+     *
+     * A property getter declared by a query interface, which reads a property of one of the query's
+     * required types directly from the property instead of through a flyweight component.
+     */
+    public static class PropertyGetter {
+        private final int requiredIndex;
+        private final String propertyName;
+        private final TypeMirror valueType;
+        private final TypeMirror propertyType;
+
+        PropertyGetter(int requiredIndex, String propertyName, TypeMirror valueType,
+                       TypeMirror propertyType) {
+            this.requiredIndex = requiredIndex;
+            this.propertyName = propertyName;
+            this.valueType = valueType;
+            this.propertyType = propertyType;
+        }
+
+        /**
+         * @return The index of the required type declaring the property
+         */
+        public int getRequiredIndex() {
+            return requiredIndex;
+        }
+
+        /**
+         * @return The name of the property within its component type
+         */
+        public String getPropertyName() {
+            return propertyName;
+        }
+
+        /**
+         * @return The value type returned by the getter
+         */
+        public TypeMirror getValueType() {
+            return valueType;
+        }
+
+        /**
+         * @return The Property implementation storing the values
+         */
+        public TypeMirror getPropertyType() {
+            return propertyType;
+        }
+    }
+}
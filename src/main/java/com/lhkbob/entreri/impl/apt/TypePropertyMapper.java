@@ -57,7 +57,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * within the file must be a Property implementation that supports the class name of the file. The `semantics`
  * suffix must equal `value` for Property implementations extending {@link
  * com.lhkbob.entreri.property.Property.ValueSemantics}. The suffix must equal `reference` for those extending
- * {@link com.lhkbob.entreri.property.Property.ReferenceSemantics}.
+ * {@link com.lhkbob.entreri.property.Property.ReferenceSemantics}. Array types use the name of their
+ * component type followed by `-array` for each dimension, e.g. `int-array-value` for `int[]`, since file
+ * names in the class path cannot contain brackets.
  *
  * It is also capable of searching up a type's hierarchy to find a mapped property specified on a super
  * class and using it. This requires that there be no exact match for the requested type, and that the mapped
@@ -129,7 +131,7 @@ public final class TypePropertyMapper {
             FileObject mapping;
             try {
                 mapping = io.getResource(StandardLocation.CLASS_PATH, "",
-                                         MAPPING_DIR + tu.erasure(toLookup).toString() + "-" + pathSuffix);
+                                         MAPPING_DIR + getMappingName(toLookup) + "-" + pathSuffix);
             } catch (IOException e) {
                 // if an IO is thrown here, it means it couldn't find the file
                 mapping = null;
@@ -252,4 +254,12 @@ public final class TypePropertyMapper {
             return null;
         }
     }
+
+    private String getMappingName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return getMappingName(((ArrayType) type).getComponentType()) + "-array";
+        } else {
+            return tu.erasure(type).toString();
+        }
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.math;
+
+import java.util.Arrays;
+
+/**
+ * Mat4
+ * ====
+ *
+ * Mat4 is a mutable 4x4 float matrix, such as a local-to-world transform. The 16 elements are stored in
+ * column-major order in {@link #m}, so the element at row `r` and column `c` is `m[c * 4 + r]`. It is the
+ * value type stored by {@link com.lhkbob.entreri.property.Mat4Property}, which packs the elements of every
+ * component instance into a single float array and defaults to the identity matrix. Component getters that
+ * take a `@ReturnValue Mat4` fill in a caller-provided instance so that reading the property does not
+ * allocate.
+ *
+ * @author Michael Ludwig
+ */
+public class Mat4 {
+    /**
+     * The 16 elements of the matrix in column-major order.
+     */
+    public final float[] m;
+
+    /**
+     * Create a new Mat4 equal to the identity matrix.
+     */
+    public Mat4() {
+        m = new float[16];
+        setIdentity();
+    }
+
+    /**
+     * Create a new Mat4 that is a copy of `v`.
+     *
+     * @param v The matrix to copy
+     * @throws NullPointerException if v is null
+     */
+    public Mat4(Mat4 v) {
+        m = Arrays.copyOf(v.m, 16);
+    }
+
+    /**
+     * @param row The row of the element, from 0 to 3
+     * @param col The column of the element, from 0 to 3
+     * @return The element at the given row and column
+     */
+    public float get(int row, int col) {
+        return m[col * 4 + row];
+    }
+
+    /**
+     * Set the element at the given row and column.
+     *
+     * @param row   The row of the element, from 0 to 3
+     * @param col   The column of the element, from 0 to 3
+     * @param value The new element value
+     * @return This instance
+     */
+    public Mat4 set(int row, int col, float value) {
+        m[col * 4 + row] = value;
+        return this;
+    }
+
+    /**
+     * Set this matrix to equal `v`.
+     *
+     * @param v The matrix to copy
+     * @return This instance
+     * @throws NullPointerException if v is null
+     */
+    public Mat4 set(Mat4 v) {
+        System.arraycopy(v.m, 0, m, 0, 16);
+        return this;
+    }
+
+    /**
+     * Set this matrix to the identity matrix.
+     *
+     * @return This instance
+     */
+    public Mat4 setIdentity() {
+        Arrays.fill(m, 0f);
+        m[0] = 1f;
+        m[5] = 1f;
+        m[10] = 1f;
+        m[15] = 1f;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Mat4 && Arrays.equals(m, ((Mat4) o).m);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int r = 0; r < 4; r++) {
+            if (r > 0) {
+                sb.append(", ");
+            }
+            sb.append('[');
+            for (int c = 0; c < 4; c++) {
+                if (c > 0) {
+                    sb.append(", ");
+                }
+                sb.append(get(r, c));
+            }
+            sb.append(']');
+        }
+        return sb.append(']').toString();
+    }
+}
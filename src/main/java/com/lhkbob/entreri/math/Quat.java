@@ -0,0 +1,133 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.math;
+
+/**
+ * Quat
+ * ====
+ *
+ * Quat is a mutable quaternion representing a rotation, where `w` is the scalar part. It is the value type
+ * stored by {@link com.lhkbob.entreri.property.QuatProperty}, which packs the components of every component
+ * instance into a single float array and defaults to the identity rotation. Component getters that take a
+ * `@ReturnValue Quat` fill in a caller-provided instance so that reading the property does not allocate.
+ * The quaternion is not required to be normalized.
+ *
+ * @author Michael Ludwig
+ */
+public class Quat {
+    public float x;
+    public float y;
+    public float z;
+    public float w;
+
+    /**
+     * Create a new Quat equal to the identity rotation.
+     */
+    public Quat() {
+        this(0f, 0f, 0f, 1f);
+    }
+
+    /**
+     * Create a new Quat with the given components.
+     *
+     * @param x The x component
+     * @param y The y component
+     * @param z The z component
+     * @param w The w component
+     */
+    public Quat(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    /**
+     * Create a new Quat that is a copy of `v`.
+     *
+     * @param v The value to copy
+     * @throws NullPointerException if v is null
+     */
+    public Quat(Quat v) {
+        this(v.x, v.y, v.z, v.w);
+    }
+
+    /**
+     * Set the components of this value.
+     *
+     * @param x The new x component
+     * @param y The new y component
+     * @param z The new z component
+     * @param w The new w component
+     * @return This instance
+     */
+    public Quat set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    /**
+     * Set this value to equal `v`.
+     *
+     * @param v The value to copy
+     * @return This instance
+     * @throws NullPointerException if v is null
+     */
+    public Quat set(Quat v) {
+        return set(v.x, v.y, v.z, v.w);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Quat)) {
+            return false;
+        }
+        Quat v = (Quat) o;
+        return Float.floatToIntBits(x) == Float.floatToIntBits(v.x) &&
+               Float.floatToIntBits(y) == Float.floatToIntBits(v.y) &&
+               Float.floatToIntBits(z) == Float.floatToIntBits(v.z) &&
+               Float.floatToIntBits(w) == Float.floatToIntBits(v.w);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+        result = 31 * result + Float.floatToIntBits(x);
+        result = 31 * result + Float.floatToIntBits(y);
+        result = 31 * result + Float.floatToIntBits(z);
+        result = 31 * result + Float.floatToIntBits(w);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + x + ", " + y + ", " + z + ", " + w + "]";
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.math;
+
+/**
+ * Vec3
+ * ====
+ *
+ * Vec3 is a mutable three component float vector, such as a position or velocity. It is the value type
+ * stored by {@link com.lhkbob.entreri.property.Float3Property}, which packs the components of every
+ * component instance into a single float array. Component getters that take a `@ReturnValue Vec3` fill in a
+ * caller-provided instance so that reading the property does not allocate.
+ *
+ * @author Michael Ludwig
+ */
+public class Vec3 {
+    public float x;
+    public float y;
+    public float z;
+
+    /**
+     * Create a new Vec3 with every component equal to 0.
+     */
+    public Vec3() {
+    }
+
+    /**
+     * Create a new Vec3 with the given components.
+     *
+     * @param x The x component
+     * @param y The y component
+     * @param z The z component
+     */
+    public Vec3(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Create a new Vec3 that is a copy of `v`.
+     *
+     * @param v The value to copy
+     * @throws NullPointerException if v is null
+     */
+    public Vec3(Vec3 v) {
+        this(v.x, v.y, v.z);
+    }
+
+    /**
+     * Set the components of this value.
+     *
+     * @param x The new x component
+     * @param y The new y component
+     * @param z The new z component
+     * @return This instance
+     */
+    public Vec3 set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    /**
+     * Set this value to equal `v`.
+     *
+     * @param v The value to copy
+     * @return This instance
+     * @throws NullPointerException if v is null
+     */
+    public Vec3 set(Vec3 v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Vec3)) {
+            return false;
+        }
+        Vec3 v = (Vec3) o;
+        return Float.floatToIntBits(x) == Float.floatToIntBits(v.x) &&
+               Float.floatToIntBits(y) == Float.floatToIntBits(v.y) &&
+               Float.floatToIntBits(z) == Float.floatToIntBits(v.z);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+        result = 31 * result + Float.floatToIntBits(x);
+        result = 31 * result + Float.floatToIntBits(y);
+        result = 31 * result + Float.floatToIntBits(z);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + x + ", " + y + ", " + z + "]";
+    }
+}
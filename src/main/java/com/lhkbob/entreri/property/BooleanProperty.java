@@ -37,6 +37,12 @@ import java.util.Arrays;
  * DoNotClone} attributes. Values will not be cloned if either the source or
  * destination property specify not to clone the value.
  *
+ * The flags are packed 64 to a `long` word, so the flag of component index `i` is bit `i % 64` of word `i /
+ * 64` in {@link #getIndexedData()}. This uses an eighth of the memory of a `boolean[]` and lets a system with
+ * many flags iterate over far less data. Because neighboring components share a word, writes to different
+ * components are only safe from different threads when the components are in different words; the
+ * spliterators used for parallel streams split their ranges on multiples of 64 for this reason.
+ *
  * ## Supported method patterns
  *
  * BooleanProperty defines the `get(int) -> boolean` and `set(int, boolean) -> void` methods that can be used
@@ -47,7 +53,8 @@ import java.util.Arrays;
 public final class BooleanProperty implements Property<BooleanProperty>, Property.ValueSemantics {
     private final boolean defaultValue;
     private final boolean cloneValue;
-    private boolean[] data;
+    private long[] data;
+    private int capacity;
 
     /**
      * Create a BooleanProperty with a programmer friendly signature.
@@ -58,7 +65,8 @@ public final class BooleanProperty implements Property<BooleanProperty>, Propert
     public BooleanProperty(boolean defaultValue, boolean cloneValue) {
         this.defaultValue = defaultValue;
         this.cloneValue = cloneValue;
-        data = new boolean[1];
+        data = new long[1];
+        capacity = 1;
     }
 
     /**
@@ -69,13 +77,13 @@ public final class BooleanProperty implements Property<BooleanProperty>, Propert
     }
 
     /**
-     * Return the backing boolean array of this property. The array may be longer than necessary for the
-     * number of components in the system. Data can be accessed for a component directly using the component's
-     * index.
+     * Return the backing words of this property, which hold 64 flags each. The array may be longer than
+     * necessary for the number of components in the system. The flag for a component is bit
+     * `componentIndex & 63` of the word at `componentIndex >>> 6`.
      *
-     * @return The boolean data for all packed properties that this property has been packed with
+     * @return The packed boolean data for all components
      */
-    public boolean[] getIndexedData() {
+    public long[] getIndexedData() {
         return data;
     }
 
@@ -87,7 +95,8 @@ public final class BooleanProperty implements Property<BooleanProperty>, Propert
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public boolean get(int componentIndex) {
-        return data[componentIndex];
+        // the shift distance of a long only uses the low 6 bits of the index
+        return (data[componentIndex >>> 6] & (1L << componentIndex)) != 0;
     }
 
     /**
@@ -98,7 +107,11 @@ public final class BooleanProperty implements Property<BooleanProperty>, Propert
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public void set(int componentIndex, boolean val) {
-        data[componentIndex] = val;
+        if (val) {
+            data[componentIndex >>> 6] |= (1L << componentIndex);
+        } else {
+            data[componentIndex >>> 6] &= ~(1L << componentIndex);
+        }
     }
 
     @Override
@@ -117,18 +130,23 @@ public final class BooleanProperty implements Property<BooleanProperty>, Propert
 
     @Override
     public void swap(int a, int b) {
-        boolean t = data[a];
-        data[a] = data[b];
-        data[b] = t;
+        boolean t = get(a);
+        set(a, get(b));
+        set(b, t);
     }
 
     @Override
     public int getCapacity() {
-        return data.length;
+        return capacity;
     }
 
     @Override
     public void setCapacity(int size) {
-        data = Arrays.copyOf(data, size);
+        data = Arrays.copyOf(data, (size + 63) >>> 6);
+        if (size < capacity && (size & 63) != 0) {
+            // clear the flags that were truncated from the last word
+            data[data.length - 1] &= (1L << size) - 1;
+        }
+        capacity = size;
     }
 }
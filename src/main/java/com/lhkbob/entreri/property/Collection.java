@@ -38,7 +38,8 @@ import java.util.*;
  * collections are allowed to store null elements (verified by the component implementation). For
  * value-semantics collections, it can specify the implementation of the collection to use. This is
  * configuration is ignored for reference-semantic collections because the implementation can be chosen on a
- * per-reference basis.
+ * per-reference basis. For `Integer` elements, {@link IntList}, {@link IntSet} and {@link IntIntMap} store
+ * their elements as primitive ints instead of boxing them.
  *
  *  Additionally, it can be used to explicitly declare the collection type of the property if the component
  *  type does not specify methods that implicitly define the type. It is an error to declare one collection
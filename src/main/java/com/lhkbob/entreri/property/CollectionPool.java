@@ -0,0 +1,205 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.IllegalComponentDefinitionException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * CollectionPool
+ * ==============
+ *
+ * CollectionPool manages the per-component collections of the value-semantics collection properties. A
+ * slot's collection and its read-only view are only created when the slot is first written, so growing
+ * a property does not allocate anything. When a slot is reset to its default value, its collection is
+ * cleared and kept in the pool along with its view, and is handed to the next slot that needs one instead
+ * of allocating again. The pool never holds more collections than the property has slots.
+ *
+ * Collections are created through a `Supplier`; the common implementations are created directly and only
+ * other classes fall back to their reflected default constructor.
+ *
+ * @author Michael Ludwig
+ */
+final class CollectionPool<C> {
+    private final Supplier<? extends C> factory;
+    private final UnaryOperator<C> viewFactory;
+    private final Consumer<C> clearer;
+
+    private Object[] collections;
+    private Object[] views;
+    private int size;
+
+    /**
+     * Create a new pool that creates collections with `factory`, wraps them in read-only views with
+     * `viewFactory`, and clears them with `clearer` before they are pooled.
+     *
+     * @param factory     The collection factory
+     * @param viewFactory The function creating the read-only view of a collection
+     * @param clearer     The function clearing a collection
+     */
+    CollectionPool(Supplier<? extends C> factory, UnaryOperator<C> viewFactory, Consumer<C> clearer) {
+        this.factory = factory;
+        this.viewFactory = viewFactory;
+        this.clearer = clearer;
+        collections = new Object[4];
+        views = new Object[4];
+        size = 0;
+    }
+
+    /**
+     * Store a collection and its view into `data` and `readOnlyData` at `index` if the slot does not
+     * already have one, reusing a pooled collection when possible.
+     *
+     * @param data         The property's collections
+     * @param readOnlyData The property's read-only views
+     * @param index        The component index
+     */
+    @SuppressWarnings("unchecked")
+    void acquire(C[] data, C[] readOnlyData, int index) {
+        if (data[index] != null) {
+            return;
+        }
+
+        if (size > 0) {
+            size--;
+            data[index] = (C) collections[size];
+            readOnlyData[index] = (C) views[size];
+            collections[size] = null;
+            views[size] = null;
+        } else {
+            C collection = factory.get();
+            data[index] = collection;
+            readOnlyData[index] = viewFactory.apply(collection);
+        }
+    }
+
+    /**
+     * Clear the collection at `index`, if the slot has one, and move it and its view into the pool.
+     *
+     * @param data         The property's collections
+     * @param readOnlyData The property's read-only views
+     * @param index        The component index
+     */
+    void release(C[] data, C[] readOnlyData, int index) {
+        C collection = data[index];
+        if (collection == null) {
+            return;
+        }
+
+        clearer.accept(collection);
+        if (size < data.length) {
+            if (size == collections.length) {
+                collections = Arrays.copyOf(collections, size * 2);
+                views = Arrays.copyOf(views, size * 2);
+            }
+            collections[size] = collection;
+            views[size] = readOnlyData[index];
+            size++;
+        }
+        data[index] = null;
+        readOnlyData[index] = null;
+    }
+
+    /**
+     * Discard pooled collections so that at most `maxSize` remain.
+     *
+     * @param maxSize The new maximum number of pooled collections
+     */
+    void trim(int maxSize) {
+        if (size > maxSize) {
+            Arrays.fill(collections, maxSize, size, null);
+            Arrays.fill(views, maxSize, size, null);
+            size = maxSize;
+        }
+    }
+
+    /**
+     * @return The number of cleared collections currently pooled
+     */
+    int getPooledCount() {
+        return size;
+    }
+
+    /**
+     * Get a factory for `type`, which must have a public default constructor. `kind` is the collection
+     * interface's name used in the error message.
+     *
+     * @param type The collection implementation
+     * @param kind The name of the collection interface
+     * @return A factory creating new instances of the type
+     * @throws IllegalComponentDefinitionException if the type does not have a public default constructor
+     */
+    @SuppressWarnings("unchecked")
+    static <C> Supplier<C> newFactory(Class<?> type, String kind) {
+        if (type == ArrayList.class) {
+            return () -> (C) new ArrayList<>();
+        } else if (type == LinkedList.class) {
+            return () -> (C) new LinkedList<>();
+        } else if (type == HashSet.class) {
+            return () -> (C) new HashSet<>();
+        } else if (type == LinkedHashSet.class) {
+            return () -> (C) new LinkedHashSet<>();
+        } else if (type == TreeSet.class) {
+            return () -> (C) new TreeSet<>();
+        } else if (type == HashMap.class) {
+            return () -> (C) new HashMap<>();
+        } else if (type == LinkedHashMap.class) {
+            return () -> (C) new LinkedHashMap<>();
+        } else if (type == TreeMap.class) {
+            return () -> (C) new TreeMap<>();
+        } else if (type == IntList.class) {
+            return () -> (C) new IntList();
+        } else if (type == IntSet.class) {
+            return () -> (C) new IntSet();
+        } else if (type == IntIntMap.class) {
+            return () -> (C) new IntIntMap();
+        }
+
+        Constructor<?> ctor;
+        try {
+            ctor = type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalComponentDefinitionException("Requested backing " + kind + " implementation " +
+                                                          "does not have a public default constructor: " +
+                                                          type);
+        }
+        return () -> {
+            try {
+                return (C) ctor.newInstance();
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new RuntimeException("Error creating default value for " + kind.toLowerCase() +
+                                           " property", e);
+            }
+        };
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.lang.annotation.*;
+
+/**
+ * DoubleBuffered
+ * ==============
+ *
+ * DoubleBuffered is a property-level attribute that stores the property in a front and back buffer. The
+ * component's getter reads the front buffer, which holds the values as of the last call to {@link
+ * com.lhkbob.entreri.task.Scheduler#swapBuffers()}, and its setter writes the back buffer. This lets a task
+ * that reads the property run at the same time as a task that computes its next values, as long as the
+ * writing task declares the component type in {@link
+ * com.lhkbob.entreri.task.ParallelAware#bufferedComponents()} instead of `modifiedComponents()`. It is
+ * supported by {@link IntProperty}, {@link LongProperty}, {@link FloatProperty}, and {@link
+ * DoubleProperty}, see {@link Property.Buffered}.
+ *
+ * A task that writes a double buffered property does not see its own writes until the buffers are swapped,
+ * so read-modify-write updates such as `setPosition(getPosition() + velocity * dt)` compute the next value
+ * from the current one.
+ *
+ * The setters of a double buffered property do not update the component's version. Instead, the version of
+ * every component whose buffered value was written, by a setter or a bulk operation, is updated when the
+ * buffers are swapped, which is when the new value becomes visible. This applies even if the setter is
+ * annotated with {@link com.lhkbob.entreri.DoNotAutoVersion}.
+ *
+ * @author Michael Ludwig
+ */
+@Documented
+@Attribute
+@Target({ ElementType.METHOD, ElementType.PARAMETER })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DoubleBuffered {
+
+}
@@ -0,0 +1,329 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.Entity;
+
+import java.util.Arrays;
+
+/**
+ * EntityRefProperty
+ * =================
+ *
+ * EntityRefProperty is a Property with reference semantics for storing references to other entities of the
+ * same system. Instead of holding the Entity objects, it stores a handle of two ints per component: the
+ * referenced entity's index, which resolves it through the system's {@link EntityTable}, and its id, which
+ * acts as a generation that guards against resolving to a different entity. Removed entities are therefore
+ * never kept reachable by the property, and resolving a reference does not require a liveness check on an
+ * Entity object.
+ *
+ * The property keeps a reverse index from each referenced entity to the components referencing it, as linked
+ * lists threaded through primitive arrays. When an entity is removed, every reference to it is cleared
+ * immediately, so {@link #get(int)} returns null instead of a dead entity. The cleared components are
+ * reported through {@link Property.Unversioned} so that their versions are updated. When the system is
+ * compacted, the stored entity indices are remapped to the entities' new indices.
+ *
+ * References are copied when a component is cloned unless either property has the {@link DoNotClone}
+ * attribute, or the template component belongs to a different system, in which case the reference is left
+ * null. The default value is always `null`. Because setting a reference updates the shared reverse index,
+ * references must not be set concurrently from parallel streams.
+ *
+ * ## Supported method patterns
+ *
+ * EntityRefProperty defines the `get(int) -> Entity` and `set(int, Entity) -> void` methods that can be used
+ * by a component's Java Bean getters and setters of type {@link Entity} with the {@link Reference}
+ * attribute. It additionally exposes {@link #getEntityIndex(int)} so that graphs of entities can be walked
+ * by index without resolving Entity objects.
+ *
+ * @author Michael Ludwig
+ */
+public final class EntityRefProperty
+        implements Property<EntityRefProperty>, Property.ReferenceSemantics, Property.EntityReferencing,
+                   Property.Unversioned {
+    private static final int NONE = -1;
+
+    private final boolean cloneValue;
+    private EntityTable table;
+
+    // two ints per component, the referenced entity index and id, both 0 for a null reference
+    private int[] handles;
+
+    // reverse index: the first component referencing each entity index, and doubly linked lists of the
+    // components referencing the same entity, all terminated by NONE
+    private int[] firstReference;
+    private int[] nextReference;
+    private int[] prevReference;
+
+    // components whose references were cleared by an entity removal and not yet versioned
+    private final PendingWrites cleared;
+
+    /**
+     * Create an EntityRefProperty with the given clone policy. This is the programmer-friendly constructor.
+     * The property cannot store references until it has been given an entity table.
+     *
+     * @param cloneValue True if the reference should be copied during a component clone
+     */
+    public EntityRefProperty(boolean cloneValue) {
+        this.cloneValue = cloneValue;
+        handles = new int[2];
+        firstReference = new int[0];
+        nextReference = new int[] { NONE };
+        prevReference = new int[] { NONE };
+        cleared = new PendingWrites(1);
+    }
+
+    /**
+     * A constructor meeting the default conventions for automated creation.
+     */
+    public EntityRefProperty(DoNotClone doNotClone) {
+        this(doNotClone == null);
+    }
+
+    /**
+     * Return the backing int array of this property's data store, which holds the entity index followed by
+     * the entity id for each component. The array may be longer than necessary for the number of components
+     * in the system.
+     *
+     * @return The handle data for all components
+     */
+    public int[] getIndexedData() {
+        return handles;
+    }
+
+    /**
+     * Get the entity referenced by the given component.
+     *
+     * @param componentIndex The component's index
+     * @return The referenced entity, or null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public Entity get(int componentIndex) {
+        int entityIndex = handles[componentIndex << 1];
+        if (entityIndex == 0) {
+            return null;
+        }
+        Entity e = table.getEntity(entityIndex);
+        return (e != null && e.getId() == handles[(componentIndex << 1) + 1] ? e : null);
+    }
+
+    /**
+     * Get the current index of the entity referenced by the given component.
+     *
+     * @param componentIndex The component's index
+     * @return The referenced entity's index, or 0 if the reference is null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int getEntityIndex(int componentIndex) {
+        return handles[componentIndex << 1];
+    }
+
+    /**
+     * Store a reference to `entity` for the given component. Storing an entity that has already been removed
+     * stores null.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param entity         The entity to reference, can be null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws IllegalArgumentException       if the entity belongs to a different system
+     * @throws IllegalStateException          if the property has not been given an entity table
+     */
+    public void set(int componentIndex, Entity entity) {
+        int entityIndex = 0;
+        if (entity != null) {
+            if (table == null) {
+                throw new IllegalStateException("Property is not attached to an entity system");
+            }
+            entityIndex = table.getEntityIndex(entity);
+        }
+        setHandle(componentIndex, entityIndex, (entityIndex == 0 ? 0 : entity.getId()));
+    }
+
+    @Override
+    public void setEntityTable(EntityTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public void entityRemoved(int entityIndex) {
+        if (entityIndex >= firstReference.length) {
+            return;
+        }
+
+        int componentIndex = firstReference[entityIndex];
+        while (componentIndex != NONE) {
+            int next = nextReference[componentIndex];
+            handles[componentIndex << 1] = 0;
+            handles[(componentIndex << 1) + 1] = 0;
+            nextReference[componentIndex] = NONE;
+            prevReference[componentIndex] = NONE;
+            cleared.mark(componentIndex);
+            componentIndex = next;
+        }
+        firstReference[entityIndex] = NONE;
+    }
+
+    @Override
+    public void remapEntities(int[] oldToNew) {
+        // the lists are keyed by entity index, so they are rebuilt from scratch
+        Arrays.fill(firstReference, NONE);
+        int capacity = getCapacity();
+        for (int i = 0; i < capacity; i++) {
+            int oldIndex = handles[i << 1];
+            if (oldIndex != 0) {
+                int newIndex = (oldIndex < oldToNew.length ? oldToNew[oldIndex] : 0);
+                if (newIndex == 0) {
+                    handles[i << 1] = 0;
+                    handles[(i << 1) + 1] = 0;
+                    nextReference[i] = NONE;
+                    prevReference[i] = NONE;
+                } else {
+                    handles[i << 1] = newIndex;
+                    link(i, newIndex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int nextUnversionedWrite(int fromIndex) {
+        return cleared.next(fromIndex);
+    }
+
+    @Override
+    public void clearUnversionedWrites() {
+        cleared.clear();
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        setHandle(index, 0, 0);
+        cleared.unmark(index);
+    }
+
+    @Override
+    public void clone(EntityRefProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue || src.table != table) {
+            setDefaultValue(dstIndex);
+        } else {
+            setHandle(dstIndex, src.handles[srcIndex << 1], src.handles[(srcIndex << 1) + 1]);
+        }
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        cleared.swap(a, b);
+
+        int entityA = handles[a << 1];
+        int idA = handles[(a << 1) + 1];
+        int entityB = handles[b << 1];
+        int idB = handles[(b << 1) + 1];
+
+        unlink(a);
+        unlink(b);
+        handles[a << 1] = entityB;
+        handles[(a << 1) + 1] = idB;
+        handles[b << 1] = entityA;
+        handles[(b << 1) + 1] = idA;
+        if (entityB != 0) {
+            link(a, entityB);
+        }
+        if (entityA != 0) {
+            link(b, entityA);
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return nextReference.length;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        int oldSize = getCapacity();
+        for (int i = size; i < oldSize; i++) {
+            // discarded components must not remain in the reverse index
+            unlink(i);
+        }
+
+        handles = Arrays.copyOf(handles, size << 1);
+        nextReference = Arrays.copyOf(nextReference, size);
+        prevReference = Arrays.copyOf(prevReference, size);
+        cleared.setCapacity(size);
+        if (size > oldSize) {
+            Arrays.fill(nextReference, oldSize, size, NONE);
+            Arrays.fill(prevReference, oldSize, size, NONE);
+        }
+    }
+
+    private void setHandle(int componentIndex, int entityIndex, int entityId) {
+        unlink(componentIndex);
+        handles[componentIndex << 1] = entityIndex;
+        handles[(componentIndex << 1) + 1] = entityId;
+        if (entityIndex != 0) {
+            link(componentIndex, entityIndex);
+        }
+    }
+
+    private void link(int componentIndex, int entityIndex) {
+        if (entityIndex >= firstReference.length) {
+            int oldLength = firstReference.length;
+            firstReference = Arrays.copyOf(firstReference, Math.max(entityIndex + 1, oldLength * 2));
+            Arrays.fill(firstReference, oldLength, firstReference.length, NONE);
+        }
+
+        int head = firstReference[entityIndex];
+        nextReference[componentIndex] = head;
+        prevReference[componentIndex] = NONE;
+        if (head != NONE) {
+            prevReference[head] = componentIndex;
+        }
+        firstReference[entityIndex] = componentIndex;
+    }
+
+    private void unlink(int componentIndex) {
+        int entityIndex = handles[componentIndex << 1];
+        if (entityIndex == 0) {
+            return;
+        }
+
+        int prev = prevReference[componentIndex];
+        int next = nextReference[componentIndex];
+        if (prev != NONE) {
+            nextReference[prev] = next;
+        } else {
+            firstReference[entityIndex] = next;
+        }
+        if (next != NONE) {
+            prevReference[next] = prev;
+        }
+        nextReference[componentIndex] = NONE;
+        prevReference[componentIndex] = NONE;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.Entity;
+
+/**
+ * EntityTable
+ * ===========
+ *
+ * EntityTable is the view of an entity system's entities that {@link Property.EntityReferencing} properties
+ * are given, so that they can store entities as entity indices and resolve them again without holding
+ * references to the entities. Entity indices are only stable until the system is compacted, at which point
+ * the properties are told how the indices moved.
+ *
+ * @author Michael Ludwig
+ */
+public interface EntityTable {
+    /**
+     * Get the live entity at `entityIndex`.
+     *
+     * @param entityIndex The entity index
+     * @return The entity at the index, or null if the index is out of range or its entity was removed
+     */
+    public Entity getEntity(int entityIndex);
+
+    /**
+     * Get the current index of `entity` within the table.
+     *
+     * @param entity The entity
+     * @return The entity's index, or 0 if it has been removed
+     * @throws IllegalArgumentException if the entity belongs to a different entity system
+     */
+    public int getEntityIndex(Entity entity);
+}
@@ -33,9 +33,11 @@ import java.util.Arrays;
  * ============
  *
  * EnumProperty is a specialized generic property for enum values that stores just the ordinal values of a
- * specific enum class in a packed int array.  The type-mapping of component implementation generation
- * automatically uses an EnumProperty for any enum properties unless there's an explicit mapping declared in
- * META-INF for a particular enum.
+ * specific enum class in a packed array. Enums with at most 256 constants store one byte per component, and
+ * larger enums store a short, which covers every enum the class file format allows. The enum's constants
+ * are looked up once when the property is created, so {@link #get(int)} is an array access. The
+ * type-mapping of component implementation generation automatically uses an EnumProperty for any enum
+ * properties unless there's an explicit mapping declared in META-INF for a particular enum.
  *
  * It supports the {@link DefaultEnum} and {@link
  * DoNotClone} attributes. Values will not be cloned if either the source or
@@ -46,6 +48,15 @@ import java.util.Arrays;
  * EnumProperty defines the `get(int) -> T` and `set(int, T) -> void` methods that can be used
  * by a component's Java Bean getters and setters of type the enum type `T`.
  *
+ * ## Analytics
+ *
+ * {@link #countByOrdinal(int, int)} builds a histogram of the values over a range of component indices by
+ * scanning the ordinal array directly, without resolving any enum constants. The property does not know
+ * which of its slots hold live components, so every slot in the range is counted: index 0, which never
+ * holds a component, and the holes left by removed components, which keep their last value until the slot
+ * is reused. To count exactly the live components, compact the system first and count the range `[1,
+ * count + 1)`, where count is the number of components of the type.
+ *
  * ## Generic
  *
  * As a generic property, this property supports any type of enum that extends {@link java.lang.Enum}.
@@ -57,7 +68,10 @@ public class EnumProperty<T extends Enum>
     private final T[] values;
     private final T defaultValue;
     private final boolean cloneValue;
-    private int[] data;
+
+    // exactly one of these is non-null, depending on the number of enum constants
+    private byte[] byteData;
+    private short[] shortData;
 
     /**
      * Create an EnumProperty with the selected default enum value and clone policy. This is a programmer
@@ -68,10 +82,7 @@ public class EnumProperty<T extends Enum>
      */
     @SuppressWarnings("unchecked")
     public EnumProperty(T dflt, boolean cloneValue) {
-        values = (T[]) dflt.getClass().getEnumConstants();
-        defaultValue = dflt;
-        this.cloneValue = cloneValue;
-        data = new int[1];
+        this((T[]) dflt.getDeclaringClass().getEnumConstants(), dflt, cloneValue);
     }
 
     /**
@@ -80,22 +91,70 @@ public class EnumProperty<T extends Enum>
      * @param enumType The enum class
      */
     public EnumProperty(Class<T> enumType, DefaultEnum dflt, DoNotClone doNotClone) {
-        values = enumType.getEnumConstants();
-        defaultValue = values[dflt != null ? dflt.ordinal() : 0];
-        cloneValue = doNotClone == null;
-        data = new int[1];
+        this(enumType.getEnumConstants(), dflt, doNotClone == null);
+    }
+
+    private EnumProperty(T[] values, DefaultEnum dflt, boolean cloneValue) {
+        this(values, values[dflt != null ? dflt.ordinal() : 0], cloneValue);
+    }
+
+    private EnumProperty(T[] values, T dflt, boolean cloneValue) {
+        this.values = values;
+        defaultValue = dflt;
+        this.cloneValue = cloneValue;
+        if (values.length <= 256) {
+            byteData = new byte[1];
+        } else {
+            shortData = new short[1];
+        }
+    }
+
+    /**
+     * @return The number of bytes used to store each ordinal, 1 for enums with at most 256 constants and 2
+     * otherwise
+     */
+    public int getBytesPerValue() {
+        return (byteData != null ? 1 : 2);
+    }
+
+    /**
+     * Return the backing byte array of this property's data store, if the ordinals are stored in bytes. The
+     * array may be longer than necessary for the number of components in the system. The unsigned byte
+     * values are the ordinals of the enum constants.
+     *
+     * @return The byte data, or null if {@link #getBytesPerValue()} is 2
+     */
+    public byte[] getByteData() {
+        return byteData;
+    }
+
+    /**
+     * Return the backing short array of this property's data store, if the ordinals are stored in shorts.
+     * The array may be longer than necessary for the number of components in the system. The unsigned short
+     * values are the ordinals of the enum constants.
+     *
+     * @return The short data, or null if {@link #getBytesPerValue()} is 1
+     */
+    public short[] getShortData() {
+        return shortData;
     }
 
     /**
-     * Return the backing int array of this property's data store. The array may be longer than necessary for
-     * the number of components in the system. Data can be accessed for a component directly using the
-     * component's index. The int values correspond to the ordinals of the enum class stored by this
-     * EnumProperty.
+     * Return the ordinals of every slot widened to ints. The ordinals used to be stored in an int array that
+     * this returned directly; the returned array is now a copy, so modifying it does not change the
+     * property.
      *
-     * @return The int data for all packed properties that this property has been packed with
+     * @return A copy of the ordinal data for all components
+     * @deprecated The ordinals are stored in bytes or shorts, use {@link #getOrdinal(int)}, {@link
+     * #getByteData()} or {@link #getShortData()} instead
      */
+    @Deprecated
     public int[] getIndexedData() {
-        return data;
+        int[] ordinals = new int[getCapacity()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = getOrdinal(i);
+        }
+        return ordinals;
     }
 
     /**
@@ -106,7 +165,7 @@ public class EnumProperty<T extends Enum>
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public T get(int index) {
-        return values[data[index]];
+        return values[getOrdinal(index)];
     }
 
     /**
@@ -117,17 +176,102 @@ public class EnumProperty<T extends Enum>
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public void set(int index, T value) {
-        data[index] = value.ordinal();
+        setOrdinal(index, value.ordinal());
+    }
+
+    /**
+     * @param index The component's index
+     * @return The ordinal of the enum value of the given component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int getOrdinal(int index) {
+        return (byteData != null ? byteData[index] & 0xff : shortData[index] & 0xffff);
+    }
+
+    /**
+     * Store the enum constant with the given ordinal for the given component index.
+     *
+     * @param index   The index of the component being modified
+     * @param ordinal The ordinal of the enum value to store
+     * @throws IndexOutOfBoundsException if the ordinal is not an ordinal of the enum type
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void setOrdinal(int index, int ordinal) {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IndexOutOfBoundsException("Invalid ordinal: " + ordinal);
+        }
+        if (byteData != null) {
+            byteData[index] = (byte) ordinal;
+        } else {
+            shortData[index] = (short) ordinal;
+        }
+    }
+
+    /**
+     * Count the components in the range `[fromIndex, toIndex)` that hold each enum value. The returned array
+     * is indexed by ordinal and has an element for every constant of the enum type.
+     *
+     * Every slot in the range is counted, including index 0 and the slots of removed components, so the
+     * range must start at 1 and the system must be compacted for the counts to only include live
+     * components.
+     *
+     * @param fromIndex The first component index, inclusive
+     * @param toIndex   The last component index, exclusive
+     * @return The number of components holding each enum value
+     * @throws ArrayIndexOutOfBoundsException if the range is not within the capacity of the property
+     */
+    public int[] countByOrdinal(int fromIndex, int toIndex) {
+        int[] counts = new int[values.length];
+        countByOrdinal(fromIndex, toIndex, counts);
+        return counts;
+    }
+
+    /**
+     * Count the components in the range `[fromIndex, toIndex)` that hold each enum value, adding the counts
+     * to `counts`. This allows a histogram to be accumulated over several ranges, or several properties of
+     * the same enum type, without allocating. As with {@link #countByOrdinal(int, int)}, every slot in the
+     * range is counted, including index 0 and the slots of removed components.
+     *
+     * @param fromIndex The first component index, inclusive
+     * @param toIndex   The last component index, exclusive
+     * @param counts    The array indexed by ordinal that the counts are added to
+     * @throws IllegalArgumentException       if counts is shorter than the number of enum constants
+     * @throws ArrayIndexOutOfBoundsException if the range is not within the capacity of the property
+     */
+    public void countByOrdinal(int fromIndex, int toIndex, int[] counts) {
+        if (counts.length < values.length) {
+            throw new IllegalArgumentException("Counts must have an element for each of the " +
+                                               values.length + " enum values");
+        }
+        if (fromIndex < 0 || toIndex > getCapacity()) {
+            throw new ArrayIndexOutOfBoundsException("Invalid range: [" + fromIndex + ", " + toIndex + ")");
+        }
+
+        if (byteData != null) {
+            byte[] data = byteData;
+            for (int i = fromIndex; i < toIndex; i++) {
+                counts[data[i] & 0xff]++;
+            }
+        } else {
+            short[] data = shortData;
+            for (int i = fromIndex; i < toIndex; i++) {
+                counts[data[i] & 0xffff]++;
+            }
+        }
     }
 
     @Override
     public void setCapacity(int size) {
-        data = Arrays.copyOf(data, size);
+        if (byteData != null) {
+            byteData = Arrays.copyOf(byteData, size);
+        } else {
+            shortData = Arrays.copyOf(shortData, size);
+        }
     }
 
     @Override
     public int getCapacity() {
-        return data.length;
+        return (byteData != null ? byteData.length : shortData.length);
     }
 
     @Override
@@ -140,14 +284,20 @@ public class EnumProperty<T extends Enum>
         if (!src.cloneValue || !cloneValue) {
             setDefaultValue(dstIndex);
         } else {
-            set(dstIndex, src.get(srcIndex));
+            setOrdinal(dstIndex, src.getOrdinal(srcIndex));
         }
     }
 
     @Override
     public void swap(int indexA, int indexB) {
-        int ord = data[indexA];
-        data[indexA] = data[indexB];
-        data[indexB] = ord;
+        if (byteData != null) {
+            byte ord = byteData[indexA];
+            byteData[indexA] = byteData[indexB];
+            byteData[indexB] = ord;
+        } else {
+            short ord = shortData[indexA];
+            shortData[indexA] = shortData[indexB];
+            shortData[indexB] = ord;
+        }
     }
 }
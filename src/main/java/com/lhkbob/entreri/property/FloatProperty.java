@@ -33,21 +33,40 @@ import java.util.Arrays;
  * =============
  *
  * FloatProperty is an implementation of Property that stores a single float value, obviously with value
- * semantics. It supports the {@link DefaultFloat} and {@link
- * DoNotClone} attributes. Values will not be cloned if either the source or
- * destination property specify not to clone the value.
+ * semantics. It supports the {@link DefaultFloat}, {@link DoNotClone}, and {@link DoubleBuffered}
+ * attributes. Values will not be cloned if either the source or destination property specify not to clone
+ * the value.
  *
  * ## Supported method patterns
  *
  * FloatProperty defines the `get(int) -> float` and `set(int, float) -> void` methods that can be used
  * by a component's Java Bean getters and setters of type `float`.
  *
+ * ## Bulk operations
+ *
+ * FloatProperty also provides bulk operations over ranges of component indices (`fill`, `copy`,
+ * `scaleAdd`) and over arbitrary index arrays (`gather`, `scatter`). These are written as simple loops
+ * over the backing array so that tasks can update a dense range of components in a single call instead of
+ * going through a flyweight component per entity. When the property is double buffered, the bulk operations
+ * read the front buffer and write the back buffer, just like `get()` and `set()`.
+ *
+ * The bulk writes do not update the versions of the written components immediately. The property records
+ * the written component indices and the entity system updates their versions when the job that wrote them
+ * completes, or when the buffers are swapped if the property is double buffered, see {@link
+ * Property.Unversioned}. Code that relies on a component's version before then must call {@link
+ * com.lhkbob.entreri.Component#updateVersion()} itself.
+ *
  * @author Michael Ludwig
  */
-public final class FloatProperty implements Property<FloatProperty>, Property.ValueSemantics {
+public final class FloatProperty
+        implements Property<FloatProperty>, Property.ValueSemantics, Property.Buffered,
+                   Property.Unversioned {
     private final float defaultValue;
     private final boolean cloneValue;
-    private float[] data;
+    private final boolean doubleBuffered;
+    private float[] data; // front buffer, read by get()
+    private float[] back; // back buffer, written by set(), the same array unless double buffered
+    private final PendingWrites writes; // buffered writes since the last swap, or unversioned bulk writes
 
     /**
      * Create a FloatProperty with a programmer friendly signature.
@@ -56,22 +75,44 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
      * @param cloneValue   True if the value is cloned, or false if clones just use the default
      */
     public FloatProperty(float defaultValue, boolean cloneValue) {
+        this(defaultValue, cloneValue, false);
+    }
+
+    /**
+     * Create a FloatProperty with a programmer friendly signature.
+     *
+     * @param defaultValue   The default float value when components are initialized
+     * @param cloneValue     True if the value is cloned, or false if clones just use the default
+     * @param doubleBuffered True if reads and writes go to separate front and back buffers
+     */
+    public FloatProperty(float defaultValue, boolean cloneValue, boolean doubleBuffered) {
         this.defaultValue = defaultValue;
         this.cloneValue = cloneValue;
+        this.doubleBuffered = doubleBuffered;
         data = new float[1];
+        back = (doubleBuffered ? new float[1] : data);
+        writes = new PendingWrites(1);
     }
 
     /**
      * Create a FloatProperty using the constructor satisfying the default annotation conventions.
      */
     public FloatProperty(DefaultFloat dflt, DoNotClone clonePolicy) {
-        this((dflt != null ? dflt.value() : 0.0f), clonePolicy == null);
+        this(dflt, clonePolicy, null);
     }
 
     /**
-     * Return the backing float array of this property. The array may be longer than necessary for the number
-     * of components in the system. Data can be accessed for a component directly using the component's
-     * index.
+     * Create a FloatProperty using the constructor satisfying the default annotation conventions.
+     */
+    public FloatProperty(DefaultFloat dflt, DoNotClone clonePolicy, DoubleBuffered buffered) {
+        this((dflt != null ? dflt.value() : 0.0f), clonePolicy == null, buffered != null);
+    }
+
+    /**
+     * Return the backing float array of this property. When the property is double buffered, this is the
+     * front buffer that is read by `get()`, and {@link #getBackData()} is written by `set()`. The array may
+     * be longer than necessary for the number of components in the system. Data can be accessed for a
+     * component directly using the component's index.
      *
      * @return The float data for all packed properties that this property has been packed with
      */
@@ -79,6 +120,16 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
         return data;
     }
 
+    /**
+     * Return the array written by `set()`. This is the same array as {@link #getIndexedData()} unless the
+     * property is double buffered.
+     *
+     * @return The back buffer of the property
+     */
+    public float[] getBackData() {
+        return back;
+    }
+
     /**
      * Get the value stored in this property for the given component index.
      *
@@ -98,12 +149,134 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public void set(int componentIndex, float val) {
-        data[componentIndex] = val;
+        back[componentIndex] = val;
+        if (doubleBuffered) {
+            writes.mark(componentIndex);
+        }
+    }
+
+    /**
+     * Assign `value` to every component index in the range `[fromIndex, toIndex)`.
+     *
+     * The versions of the written components are updated later, see {@link Property.Unversioned}.
+     *
+     * @param fromIndex The first component index to modify (inclusive)
+     * @param toIndex   The last component index to modify (exclusive)
+     * @param value     The value to store
+     * @throws IllegalArgumentException       if fromIndex is greater than toIndex
+     * @throws ArrayIndexOutOfBoundsException if the range is outside of the property's capacity
+     */
+    public void fill(int fromIndex, int toIndex, float value) {
+        Arrays.fill(back, fromIndex, toIndex, value);
+        writes.mark(fromIndex, toIndex);
+    }
+
+    /**
+     * Copy `count` values from `src`, starting at `srcIndex`, into this property starting at `dstIndex`.
+     * The source property may be this property, in which case overlapping ranges are handled correctly.
+     *
+     * The versions of the written components are updated later, see {@link Property.Unversioned}.
+     *
+     * @param src      The property to copy values from
+     * @param srcIndex The first component index read from `src`
+     * @param dstIndex The first component index written to in this property
+     * @param count    The number of values to copy
+     * @throws NullPointerException           if src is null
+     * @throws ArrayIndexOutOfBoundsException if either range is outside of its property's capacity
+     */
+    public void copy(FloatProperty src, int srcIndex, int dstIndex, int count) {
+        System.arraycopy(src.data, srcIndex, back, dstIndex, count);
+        writes.mark(dstIndex, dstIndex + count);
+    }
+
+    /**
+     * Add `scale` times the value of `src` to this property's value for every component index in the range
+     * `[fromIndex, toIndex)`, e.g. `this[i] += scale * src[i]`. This is convenient for integrators that
+     * update one property from another of the same component type, such as position from velocity.
+     *
+     * The versions of the written components are updated later, see {@link Property.Unversioned}.
+     *
+     * @param fromIndex The first component index to modify (inclusive)
+     * @param toIndex   The last component index to modify (exclusive)
+     * @param scale     The scale factor applied to the values of `src`
+     * @param src       The property whose scaled values are accumulated into this property
+     * @throws NullPointerException           if src is null
+     * @throws IllegalArgumentException       if fromIndex is greater than toIndex
+     * @throws ArrayIndexOutOfBoundsException if the range is outside of either property's capacity
+     */
+    public void scaleAdd(int fromIndex, int toIndex, float scale, FloatProperty src) {
+        float[] cur = data;
+        float[] dst = back;
+        float[] in = src.data;
+        checkRange(fromIndex, toIndex, Math.min(dst.length, in.length));
+
+        // simple counted loop over local arrays so the JIT can vectorize it
+        for (int i = fromIndex; i < toIndex; i++) {
+            dst[i] = cur[i] + scale * in[i];
+        }
+        writes.mark(fromIndex, toIndex);
+    }
+
+    /**
+     * Read the values of the first `count` component indices in `componentIndices` into `dst`, so that
+     * `dst[i] = this[componentIndices[i]]`.
+     *
+     * @param componentIndices The component indices to read
+     * @param dst              The array receiving the values
+     * @param count            The number of values to read
+     * @throws NullPointerException           if componentIndices or dst are null
+     * @throws ArrayIndexOutOfBoundsException if count exceeds either array's length, or a component index is
+     *                                        invalid
+     */
+    public void gather(int[] componentIndices, float[] dst, int count) {
+        float[] src = data;
+        checkRange(0, count, Math.min(componentIndices.length, dst.length));
+        for (int i = 0; i < count; i++) {
+            dst[i] = src[componentIndices[i]];
+        }
+    }
+
+    /**
+     * Store the first `count` values of `src` into this property at the component indices in
+     * `componentIndices`, so that `this[componentIndices[i]] = src[i]`.
+     *
+     * The versions of the written components are updated later, see {@link Property.Unversioned}.
+     *
+     * @param componentIndices The component indices to write
+     * @param src              The values to store
+     * @param count            The number of values to write
+     * @throws NullPointerException           if componentIndices or src are null
+     * @throws ArrayIndexOutOfBoundsException if count exceeds either array's length, or a component index is
+     *                                        invalid
+     */
+    public void scatter(int[] componentIndices, float[] src, int count) {
+        float[] dst = back;
+        checkRange(0, count, Math.min(componentIndices.length, src.length));
+        for (int i = 0; i < count; i++) {
+            dst[componentIndices[i]] = src[i];
+        }
+        for (int i = 0; i < count; i++) {
+            writes.mark(componentIndices[i]);
+        }
+    }
+
+    private static void checkRange(int fromIndex, int toIndex, int length) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+        }
+        if (fromIndex < 0) {
+            throw new ArrayIndexOutOfBoundsException(fromIndex);
+        }
+        if (toIndex > length) {
+            throw new ArrayIndexOutOfBoundsException(toIndex);
+        }
     }
 
     @Override
     public void setDefaultValue(int index) {
-        set(index, defaultValue);
+        data[index] = defaultValue;
+        back[index] = defaultValue;
+        writes.unmark(index);
     }
 
     @Override
@@ -111,7 +284,9 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
         if (!src.cloneValue || !cloneValue) {
             setDefaultValue(dstIndex);
         } else {
-            set(dstIndex, src.get(srcIndex));
+            data[dstIndex] = src.get(srcIndex);
+            back[dstIndex] = data[dstIndex];
+            writes.unmark(dstIndex);
         }
     }
 
@@ -120,6 +295,12 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
         float t = data[a];
         data[a] = data[b];
         data[b] = t;
+        if (doubleBuffered) {
+            t = back[a];
+            back[a] = back[b];
+            back[b] = t;
+        }
+        writes.swap(a, b);
     }
 
     @Override
@@ -130,5 +311,53 @@ public final class FloatProperty implements Property<FloatProperty>, Property.Va
     @Override
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
+        back = (doubleBuffered ? Arrays.copyOf(back, size) : data);
+        writes.setCapacity(size);
+    }
+
+    @Override
+    public boolean isDoubleBuffered() {
+        return doubleBuffered;
+    }
+
+    @Override
+    public void swapBuffers() {
+        if (doubleBuffered) {
+            float[] t = data;
+            data = back;
+            back = t;
+            // only the values written since the last swap differ between the buffers
+            for (int i = writes.next(0); i >= 0; i = writes.next(i + 1)) {
+                back[i] = data[i];
+            }
+            writes.clear();
+        }
+    }
+
+    @Override
+    public void discardBufferedWrites() {
+        if (doubleBuffered) {
+            // the front buffer may have been modified directly, so it is copied completely
+            System.arraycopy(data, 0, back, 0, data.length);
+            writes.clear();
+        }
+    }
+
+    @Override
+    public int nextBufferedWrite(int fromIndex) {
+        return (doubleBuffered ? writes.next(fromIndex) : -1);
+    }
+
+    @Override
+    public int nextUnversionedWrite(int fromIndex) {
+        // bulk writes to a double buffered property are versioned with the other buffered writes
+        return (doubleBuffered ? -1 : writes.next(fromIndex));
+    }
+
+    @Override
+    public void clearUnversionedWrites() {
+        if (!doubleBuffered) {
+            writes.clear();
+        }
     }
 }
@@ -0,0 +1,264 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.Arrays;
+
+/**
+ * HalfFloatProperty
+ * =================
+ *
+ * HalfFloatProperty is an implementation of Property that stores a single float value at half precision,
+ * with value semantics. Values are stored in a `short` array in the IEEE 754 binary16 format, rounding to the
+ * nearest representable value, and are converted back to `float` when read. Magnitudes above 65504 become
+ * infinite. It is selected by the annotation processor for `float` properties with the {@link Quantized}
+ * attribute. It supports the {@link DefaultFloat} and {@link DoNotClone} attributes. Values will not be
+ * cloned if either the source or destination property specify not to clone the value.
+ *
+ * ## Supported method patterns
+ *
+ * HalfFloatProperty defines the `get(int) -> float` and `set(int, float) -> void` methods that can be used
+ * by a component's Java Bean getters and setters of type `float`.
+ *
+ * ## Bulk operations
+ *
+ * Consumers that process many components at once, such as a render extraction pass, can decode a dense
+ * range of component indices (`decode`) or an arbitrary set of indices (`gather`) into a `float[]` in a
+ * single call, and then work on plain floats.
+ *
+ * @author Michael Ludwig
+ */
+public final class HalfFloatProperty implements Property<HalfFloatProperty>, Property.ValueSemantics {
+    private final short defaultValue;
+    private final boolean cloneValue;
+    private short[] data;
+
+    /**
+     * Create a HalfFloatProperty with a programmer friendly signature.
+     *
+     * @param defaultValue The default float value when components are initialized, which is rounded to half
+     *                     precision
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     */
+    public HalfFloatProperty(float defaultValue, boolean cloneValue) {
+        this.defaultValue = toHalf(defaultValue);
+        this.cloneValue = cloneValue;
+        data = new short[1];
+    }
+
+    /**
+     * Create a HalfFloatProperty using the constructor satisfying the default annotation conventions.
+     */
+    public HalfFloatProperty(DefaultFloat dflt, DoNotClone clonePolicy) {
+        this((dflt != null ? dflt.value() : 0f), clonePolicy == null);
+    }
+
+    /**
+     * Return the backing short array of this property, which holds the half-precision bits of each value.
+     * The array may be longer than necessary for the number of components in the system. Data can be
+     * accessed for a component directly using the component's index, and converted with {@link
+     * #toFloat(short)}.
+     *
+     * @return The half-precision data for all components
+     */
+    public short[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get the value stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The object at the given offset for the given component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public float get(int componentIndex) {
+        return toFloat(data[componentIndex]);
+    }
+
+    /**
+     * Store `val` in this property for the given component index, rounded to half precision.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, float val) {
+        data[componentIndex] = toHalf(val);
+    }
+
+    /**
+     * Decode the values of every component index in the range `[fromIndex, toIndex)` into `dst`, starting
+     * at `dstOffset`.
+     *
+     * @param fromIndex The first component index to read (inclusive)
+     * @param toIndex   The last component index to read (exclusive)
+     * @param dst       The array receiving the values
+     * @param dstOffset The first index of dst to assign
+     * @throws NullPointerException           if dst is null
+     * @throws IllegalArgumentException       if fromIndex is greater than toIndex
+     * @throws ArrayIndexOutOfBoundsException if the range is outside of the property's capacity or dst
+     */
+    public void decode(int fromIndex, int toIndex, float[] dst, int dstOffset) {
+        short[] src = data;
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+        }
+        if (fromIndex < 0 || toIndex > src.length) {
+            throw new ArrayIndexOutOfBoundsException(fromIndex < 0 ? fromIndex : toIndex);
+        }
+        if (dstOffset < 0 || dstOffset + (toIndex - fromIndex) > dst.length) {
+            throw new ArrayIndexOutOfBoundsException(dstOffset);
+        }
+
+        int j = dstOffset;
+        for (int i = fromIndex; i < toIndex; i++) {
+            dst[j++] = toFloat(src[i]);
+        }
+    }
+
+    /**
+     * Decode the values of the first `count` component indices in `componentIndices` into `dst`, so that
+     * `dst[i] = this[componentIndices[i]]`.
+     *
+     * @param componentIndices The component indices to read
+     * @param dst              The array receiving the values
+     * @param count            The number of values to read
+     * @throws NullPointerException           if componentIndices or dst are null
+     * @throws ArrayIndexOutOfBoundsException if count exceeds either array's length, or a component index is
+     *                                        invalid
+     */
+    public void gather(int[] componentIndices, float[] dst, int count) {
+        short[] src = data;
+        if (count > componentIndices.length || count > dst.length) {
+            throw new ArrayIndexOutOfBoundsException(count);
+        }
+        for (int i = 0; i < count; i++) {
+            dst[i] = toFloat(src[componentIndices[i]]);
+        }
+    }
+
+    /**
+     * Convert `value` to the bits of the nearest IEEE 754 half-precision value, rounding ties to even.
+     * Values too large for half precision become infinite, NaN stays NaN, and values too small become
+     * signed zeros.
+     *
+     * @param value The float to convert
+     * @return The half-precision bits
+     */
+    public static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+
+        if (abs >= 0x7f800000) {
+            // infinity stays infinite, and NaN keeps its high payload bits but must stay a NaN
+            return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 | (abs >>> 13) & 0x3ff : 0));
+        } else if (abs >= 0x477ff000) {
+            // at least 65520, which rounds past the largest half (65504) to infinity
+            return (short) (sign | 0x7c00);
+        } else if (abs >= 0x38800000) {
+            // normal half, rebias the exponent from 127 to 15 and round off 13 mantissa bits, where a
+            // carry out of the mantissa correctly increments the exponent
+            int half = (abs - 0x38000000) >>> 13;
+            int rem = abs & 0x1fff;
+            if (rem > 0x1000 || (rem == 0x1000 && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        } else if (abs >= 0x33000000) {
+            // subnormal half, in units of 2^-24
+            int mantissa = (abs & 0x7fffff) | 0x800000;
+            int shift = 126 - (abs >>> 23);
+            int half = mantissa >>> shift;
+            int rem = mantissa & ((1 << shift) - 1);
+            int tie = 1 << (shift - 1);
+            if (rem > tie || (rem == tie && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        } else {
+            // less than or equal to 2^-25, which rounds to zero
+            return (short) sign;
+        }
+    }
+
+    /**
+     * Convert the bits of an IEEE 754 half-precision value to a float. Every half-precision value is exactly
+     * representable as a float.
+     *
+     * @param half The half-precision bits
+     * @return The float value
+     */
+    public static float toFloat(short half) {
+        int bits = half & 0xffff;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1f;
+        int mantissa = bits & 0x3ff;
+
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        } else if (exponent != 0) {
+            return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+        } else {
+            // zero or subnormal, which is mantissa * 2^-24
+            float value = mantissa * 0x1p-24f;
+            return (sign != 0 ? -value : value);
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        data[index] = defaultValue;
+    }
+
+    @Override
+    public void clone(HalfFloatProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else {
+            data[dstIndex] = src.data[srcIndex];
+        }
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        short t = data[a];
+        data[a] = data[b];
+        data[b] = t;
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * IntAccumulatorProperty
+ * ======================
+ *
+ * IntAccumulatorProperty is a int property that reduces the values accumulated for each component
+ * according to a {@link Reduction}, and is intended to be added to a component type with {@link
+ * com.lhkbob.entreri.EntitySystem#decorate(Class, Property)}. Values passed to {@link #accumulate(int,
+ * int)} are collected in a shard owned by the calling thread, so the workers of a parallel stream, such
+ * as `system.stream(type).parallel()`, can accumulate into any component, not just the component they
+ * are processing, without locking or contention. A typical use is summing the forces or damage that many
+ * entities apply to each other.
+ *
+ * The shards are merged into the values read by {@link #get(int)} when a job finishes its tasks, before it
+ * releases the lock for the component type. Tasks that accumulate must therefore list the decorated
+ * component type in {@link com.lhkbob.entreri.task.ParallelAware#modifiedComponents()}. Outside of jobs,
+ * {@link #mergeShards()} can be called directly once all threads have finished accumulating. Shards are
+ * also merged before the property is resized or its values are swapped. When a component is removed or
+ * reset to its default value, the values accumulated for it that have not been merged yet are discarded,
+ * so a component that reuses its slot does not inherit them.
+ *
+ * Each thread that accumulates keeps its shard, sized to the highest component index it accumulated into,
+ * for as long as the thread is alive. The shards of terminated threads are dropped by the next merge.
+ *
+ * New components start with the reduction's identity, and {@link #clear()} resets every component back to
+ * the identity, which is usually done at the start of each frame.
+ *
+ * @author Michael Ludwig
+ */
+public final class IntAccumulatorProperty
+        implements Property<IntAccumulatorProperty>, Property.ValueSemantics, Property.Accumulating {
+    private final Reduction reduction;
+    private final int identity;
+    private int[] data;
+
+    private final ThreadLocal<Shard> localShard;
+    private final List<Shard> shards;
+
+    /**
+     * Create a new IntAccumulatorProperty that combines values with the given reduction.
+     *
+     * @param reduction The reduction used to combine accumulated values
+     * @throws NullPointerException if reduction is null
+     */
+    public IntAccumulatorProperty(Reduction reduction) {
+        if (reduction == null) {
+            throw new NullPointerException("Reduction cannot be null");
+        }
+        this.reduction = reduction;
+        switch (reduction) {
+        case MIN:
+            identity = Integer.MAX_VALUE;
+            break;
+        case MAX:
+            identity = Integer.MIN_VALUE;
+            break;
+        default:
+            identity = 0;
+            break;
+        }
+
+        data = new int[1];
+        shards = new CopyOnWriteArrayList<>();
+        localShard = ThreadLocal.withInitial(() -> {
+            Shard shard = new Shard();
+            shards.add(shard);
+            return shard;
+        });
+    }
+
+    /**
+     * @return The reduction used to combine accumulated values
+     */
+    public Reduction getReduction() {
+        return reduction;
+    }
+
+    /**
+     * Return the backing int array of this property, holding the merged values. The array may be longer
+     * than necessary for the number of components in the system. Data can be accessed for a component
+     * directly using the component's index.
+     *
+     * @return The int data for all merged values
+     */
+    public int[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get the merged value stored in this property for the given component index. Values accumulated since
+     * the last merge are not included.
+     *
+     * @param componentIndex The component's index
+     * @return The merged value of the component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int get(int componentIndex) {
+        return data[componentIndex];
+    }
+
+    /**
+     * Overwrite the merged value of the component. This is not thread safe, and any values accumulated by
+     * other threads that have not been merged are reduced with `val` by the next merge.
+     *
+     * @param componentIndex The component index
+     * @param val            The new value
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, int val) {
+        data[componentIndex] = val;
+    }
+
+    /**
+     * Accumulate `val` into the calling thread's shard for the component. This can be called concurrently
+     * by any number of threads, as long as the property is not merged, resized, or swapped at the same time.
+     *
+     * @param componentIndex The component index
+     * @param val            The value reduced into the component's value
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is negative
+     */
+    public void accumulate(int componentIndex, int val) {
+        Shard shard = localShard.get();
+        int[] values = shard.values;
+        if (componentIndex >= values.length) {
+            values = shard.grow(componentIndex + 1);
+        }
+
+        switch (reduction) {
+        case SUM:
+            values[componentIndex] += val;
+            break;
+        case MIN:
+            values[componentIndex] = Math.min(values[componentIndex], val);
+            break;
+        case MAX:
+            values[componentIndex] = Math.max(values[componentIndex], val);
+            break;
+        }
+
+        if (componentIndex < shard.dirtyStart) {
+            shard.dirtyStart = componentIndex;
+        }
+        if (componentIndex >= shard.dirtyEnd) {
+            shard.dirtyEnd = componentIndex + 1;
+        }
+    }
+
+    /**
+     * Reset the merged value of every component to the reduction's identity. Values accumulated since the
+     * last merge are kept and will be reduced by the next merge.
+     */
+    public void clear() {
+        Arrays.fill(data, identity);
+    }
+
+    @Override
+    public void mergeShards() {
+        for (int i = shards.size() - 1; i >= 0; i--) {
+            Shard shard = shards.get(i);
+            int start = shard.dirtyStart;
+            int end = Math.min(shard.dirtyEnd, data.length);
+            int[] values = shard.values;
+            switch (reduction) {
+            case SUM:
+                for (int j = start; j < end; j++) {
+                    data[j] += values[j];
+                }
+                break;
+            case MIN:
+                for (int j = start; j < end; j++) {
+                    data[j] = Math.min(data[j], values[j]);
+                }
+                break;
+            case MAX:
+                for (int j = start; j < end; j++) {
+                    data[j] = Math.max(data[j], values[j]);
+                }
+                break;
+            }
+            shard.reset();
+            if (!shard.owner.isAlive()) {
+                // a terminated thread cannot accumulate again, so its shard would only hold on to memory
+                shards.remove(i);
+            }
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int componentIndex) {
+        data[componentIndex] = identity;
+        discardShards(componentIndex);
+    }
+
+    @Override
+    public void clone(IntAccumulatorProperty src, int srcIndex, int dstIndex) {
+        data[dstIndex] = src.data[srcIndex];
+        discardShards(dstIndex);
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        mergeShards();
+        data = Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        mergeShards();
+        int t = data[indexA];
+        data[indexA] = data[indexB];
+        data[indexB] = t;
+    }
+
+    private void discardShards(int componentIndex) {
+        // the slot may be reused by a new component, which must not see the old component's values
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).discard(componentIndex);
+        }
+    }
+
+    /*
+     * The values accumulated by a single thread since the last merge, and the range of component indices
+     * that were accumulated into so that merging only touches that range.
+     */
+    private class Shard {
+        final Thread owner;
+        int[] values;
+        int dirtyStart;
+        int dirtyEnd; // exclusive
+
+        Shard() {
+            owner = Thread.currentThread();
+            values = new int[0];
+            dirtyStart = Integer.MAX_VALUE;
+            dirtyEnd = 0;
+        }
+
+        int[] grow(int minLength) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, Math.max(minLength, data.length));
+            Arrays.fill(values, oldLength, values.length, identity);
+            return values;
+        }
+
+        void discard(int componentIndex) {
+            if (componentIndex < values.length) {
+                values[componentIndex] = identity;
+            }
+        }
+
+        void reset() {
+            if (dirtyStart < dirtyEnd) {
+                Arrays.fill(values, dirtyStart, Math.min(dirtyEnd, values.length), identity);
+            }
+            dirtyStart = Integer.MAX_VALUE;
+            dirtyEnd = 0;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.Arrays;
+
+/**
+ * IntArrayProperty
+ * ================
+ *
+ * IntArrayProperty is an implementation of Property that stores a fixed-length `int[]` for each component,
+ * with value semantics. The length is declared by the required {@link FixedArray} attribute. Rather than
+ * allocating an array per component, the values are packed into a single int array with `length` consecutive
+ * values per component, so the values of component index `i` start at `i * length` in {@link
+ * #getIndexedData()}. Every element defaults to the value of the {@link DefaultInt} attribute, or 0 if it is
+ * not present. It also supports the {@link DoNotClone} attribute. Values will not be cloned if either the
+ * source or destination property specify not to clone the value.
+ *
+ * ## Supported method patterns
+ *
+ * IntArrayProperty defines the `get(int, int) -> int` and `set(int, int, int) -> void` methods that are used
+ * by a component's indexed getters and setters, such as `int getValue(int index)` and `setValue(int index,
+ * int value)`, which access a single element without any allocation. It also defines the `get(int) -> int[]`,
+ * `get(int, int[]) -> void` and `set(int, int[]) -> void` methods for bean getters and setters of the entire
+ * array. The plain getter returns a new array each time it is called, while getters that take a `@ReturnValue
+ * int[]` argument copy into that array instead.
+ *
+ * It is mapped as the default value property for `int[]`.
+ *
+ * @author Michael Ludwig
+ */
+public final class IntArrayProperty implements Property<IntArrayProperty>, Property.ValueSemantics {
+    private final int length;
+    private final int defaultValue;
+    private final boolean cloneValue;
+    private int[] data;
+
+    /**
+     * Create a IntArrayProperty with a programmer friendly signature.
+     *
+     * @param length       The number of values stored for each component
+     * @param defaultValue The default value of every element when components are initialized
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     * @throws IllegalArgumentException if length is less than 1
+     */
+    public IntArrayProperty(int length, int defaultValue, boolean cloneValue) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Array length must be at least 1, not: " + length);
+        }
+        this.length = length;
+        this.defaultValue = defaultValue;
+        this.cloneValue = cloneValue;
+        data = new int[length];
+    }
+
+    /**
+     * Create a IntArrayProperty using the constructor satisfying the default annotation conventions.
+     *
+     * @throws IllegalArgumentException if array is null or declares a length less than 1
+     */
+    public IntArrayProperty(FixedArray array, DefaultInt dflt, DoNotClone clonePolicy) {
+        this(getLength(array), (dflt != null ? dflt.value() : 0), clonePolicy == null);
+    }
+
+    private static int getLength(FixedArray array) {
+        if (array == null) {
+            throw new IllegalArgumentException("int[] properties require the @FixedArray attribute");
+        }
+        return array.length();
+    }
+
+    /**
+     * @return The number of values stored for each component
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Return the backing int array of this property, which holds {@link #getLength()} values per
+     * component. The array may be longer than necessary for the number of components in the system.
+     *
+     * @return The packed int data for all components
+     */
+    public int[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get a single element of the array stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @param element        The index into the component's array
+     * @return The value of the element
+     * @throws IndexOutOfBoundsException if the componentIndex or the element is invalid
+     */
+    public int get(int componentIndex, int element) {
+        return data[componentIndex * length + checkElement(element)];
+    }
+
+    /**
+     * Store `val` as a single element of the array stored in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param element        The index into the component's array
+     * @param val            The value to store
+     * @throws IndexOutOfBoundsException if the componentIndex or the element is invalid
+     */
+    public void set(int componentIndex, int element, int val) {
+        data[componentIndex * length + checkElement(element)] = val;
+    }
+
+    /**
+     * Get the array stored in this property for the given component index, as a new array.
+     *
+     * @param componentIndex The component's index
+     * @return A new array of length {@link #getLength()} holding the component's values
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int[] get(int componentIndex) {
+        int[] result = new int[length];
+        get(componentIndex, result);
+        return result;
+    }
+
+    /**
+     * Copy the array stored in this property for the given component index into `result`.
+     *
+     * @param componentIndex The component's index
+     * @param result         The array that is overwritten with the component's values
+     * @throws IllegalArgumentException       if result's length is not {@link #getLength()}
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws NullPointerException           if result is null
+     */
+    public void get(int componentIndex, int[] result) {
+        checkLength(result);
+        System.arraycopy(data, componentIndex * length, result, 0, length);
+    }
+
+    /**
+     * Store `val` in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The values to store, which are copied into the property
+     * @throws IllegalArgumentException       if val's length is not {@link #getLength()}
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws NullPointerException           if val is null
+     */
+    public void set(int componentIndex, int[] val) {
+        checkLength(val);
+        System.arraycopy(val, 0, data, componentIndex * length, length);
+    }
+
+    private int checkElement(int element) {
+        if (element < 0 || element >= length) {
+            throw new IndexOutOfBoundsException("Element must be in [0, " + length + "), not: " + element);
+        }
+        return element;
+    }
+
+    private void checkLength(int[] array) {
+        if (array.length != length) {
+            throw new IllegalArgumentException("Array must have length " + length + ", not: " + array.length);
+        }
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, size * length);
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length / length;
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int a = indexA * length;
+        int b = indexB * length;
+        for (int i = 0; i < length; i++) {
+            int t = data[a + i];
+            data[a + i] = data[b + i];
+            data[b + i] = t;
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int componentIndex) {
+        int i = componentIndex * length;
+        Arrays.fill(data, i, i + length, defaultValue);
+    }
+
+    @Override
+    public void clone(IntArrayProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue || src.length != length) {
+            setDefaultValue(dstIndex);
+        } else {
+            System.arraycopy(src.data, srcIndex * length, data, dstIndex * length, length);
+        }
+    }
+}
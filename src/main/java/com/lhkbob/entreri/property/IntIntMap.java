@@ -0,0 +1,336 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.*;
+
+/**
+ * IntIntMap
+ * =========
+ *
+ * IntIntMap is a Map from Integers to Integers that stores its keys and values in an open-addressed pair of
+ * `int[]` hash tables instead of boxing them. It can be selected as the backing map of a value-semantics
+ * `Map<Integer, Integer>` property with `@Collection(mapImpl = IntIntMap.class)`. Besides the standard Map
+ * methods, which box and unbox keys and values, it provides {@link #getInt(int, int)}, {@link #putInt(int,
+ * int)}, {@link #removeInt(int)} and {@link #containsIntKey(int)} that work with primitives directly.
+ * IntIntMap does not support null keys or values, and its iteration order is unspecified.
+ *
+ * @author Michael Ludwig
+ */
+public class IntIntMap extends AbstractMap<Integer, Integer> {
+    private int[] keys;
+    private int[] values;
+    private byte[] states;
+    private int size;
+    private int used; // full and removed slots, which both lengthen probe sequences
+    private int modCount;
+
+    private Set<Map.Entry<Integer, Integer>> entrySet;
+
+    /**
+     * Create a new, empty IntIntMap.
+     */
+    public IntIntMap() {
+        keys = new int[16];
+        values = new int[16];
+        states = new byte[16];
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * @param key The key to search for
+     * @return True if the map contains `key`
+     */
+    public boolean containsIntKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param key          The key to look up
+     * @param missingValue The value returned if the map does not contain the key
+     * @return The value associated with `key`, or `missingValue`
+     */
+    public int getInt(int key, int missingValue) {
+        int slot = find(key);
+        return (slot < 0 ? missingValue : values[slot]);
+    }
+
+    /**
+     * Associate `value` with `key`, replacing any previous value.
+     *
+     * @param key   The key
+     * @param value The value
+     */
+    public void putInt(int key, int value) {
+        // insert() may rehash, so values can only be read after it returns
+        int slot = insert(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Remove `key` and its value from the map.
+     *
+     * @param key The key to remove
+     * @return True if the map contained the key
+     */
+    public boolean removeInt(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        states[slot] = IntSet.REMOVED;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && containsIntKey((Integer) key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value instanceof Integer) {
+            int v = (Integer) value;
+            for (int i = 0; i < states.length; i++) {
+                if (states[i] == IntSet.FULL && values[i] == v) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (key instanceof Integer) {
+            int slot = find((Integer) key);
+            if (slot >= 0) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Integer put(Integer key, Integer value) {
+        int v = value;
+        int slot = find(key);
+        if (slot >= 0) {
+            int old = values[slot];
+            values[slot] = v;
+            return old;
+        } else {
+            slot = insert(key);
+            values[slot] = v;
+            return null;
+        }
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        if (key instanceof Integer) {
+            int slot = find((Integer) key);
+            if (slot >= 0) {
+                int old = values[slot];
+                removeInt(keys[slot]);
+                return old;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        if (used > 0) {
+            Arrays.fill(states, IntSet.FREE);
+            size = 0;
+            used = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Integer>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<Integer, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<Integer, Integer>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    IntIntMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /*
+     * Return the slot holding key, adding it with an undefined value if it's not already in the map.
+     */
+    private int insert(int key) {
+        int mask = keys.length - 1;
+        int slot = IntSet.hash(key) & mask;
+        int removedSlot = -1;
+        while (states[slot] != IntSet.FREE) {
+            if (states[slot] == IntSet.FULL && keys[slot] == key) {
+                return slot;
+            } else if (states[slot] == IntSet.REMOVED && removedSlot < 0) {
+                removedSlot = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (removedSlot >= 0) {
+            slot = removedSlot;
+        } else {
+            used++;
+        }
+        keys[slot] = key;
+        states[slot] = IntSet.FULL;
+        size++;
+        modCount++;
+
+        if (used * 2 > keys.length) {
+            rehash();
+            return find(key);
+        }
+        return slot;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = IntSet.hash(key) & mask;
+        while (states[slot] != IntSet.FREE) {
+            if (states[slot] == IntSet.FULL && keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        // grow if the live entries alone fill a quarter of the table, otherwise just drop removed slots
+        int capacity = (size * 4 >= keys.length ? keys.length * 2 : keys.length);
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        byte[] oldStates = states;
+
+        keys = new int[capacity];
+        values = new int[capacity];
+        states = new byte[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] == IntSet.FULL) {
+                int slot = IntSet.hash(oldKeys[i]) & mask;
+                while (states[slot] != IntSet.FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                states[slot] = IntSet.FULL;
+            }
+        }
+        used = size;
+    }
+
+    private class Entry extends AbstractMap.SimpleEntry<Integer, Integer> {
+        private final int slot;
+
+        public Entry(int slot) {
+            super(keys[slot], values[slot]);
+            this.slot = slot;
+        }
+
+        @Override
+        public Integer setValue(Integer value) {
+            values[slot] = value;
+            return super.setValue(value);
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<Integer, Integer>> {
+        private int next = advance(0);
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        private int advance(int slot) {
+            while (slot < states.length && states[slot] != IntSet.FULL) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < states.length;
+        }
+
+        @Override
+        public Map.Entry<Integer, Integer> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= states.length) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // removal only marks the slot, so the remaining slots are not disturbed
+            removeInt(keys[last]);
+            expectedModCount = modCount;
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * IntList
+ * =======
+ *
+ * IntList is a List of Integers that stores its elements in an `int[]` instead of boxing them. It can be
+ * selected as the backing list of a value-semantics `List<Integer>` property with `@Collection(listImpl =
+ * IntList.class)`. Besides the standard List methods, which box and unbox elements, it provides {@link
+ * #getInt(int)}, {@link #setInt(int, int)}, {@link #addInt(int)} and {@link #indexOfInt(int)} that work
+ * with primitives directly. IntList does not support null elements.
+ *
+ * @author Michael Ludwig
+ */
+public class IntList extends AbstractList<Integer> implements RandomAccess {
+    private int[] elements;
+    private int size;
+
+    /**
+     * Create a new, empty IntList.
+     */
+    public IntList() {
+        elements = new int[8];
+        size = 0;
+    }
+
+    /**
+     * @param index The list index
+     * @return The element at `index`
+     * @throws IndexOutOfBoundsException if index is less than 0 or at least the list's size
+     */
+    public int getInt(int index) {
+        checkIndex(index, size);
+        return elements[index];
+    }
+
+    /**
+     * Replace the element at `index`.
+     *
+     * @param index   The list index
+     * @param element The new element
+     * @return The previous element
+     * @throws IndexOutOfBoundsException if index is less than 0 or at least the list's size
+     */
+    public int setInt(int index, int element) {
+        checkIndex(index, size);
+        int old = elements[index];
+        elements[index] = element;
+        return old;
+    }
+
+    /**
+     * Append `element` to the end of the list.
+     *
+     * @param element The element to add
+     */
+    public void addInt(int element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = element;
+        modCount++;
+    }
+
+    /**
+     * @param element The element to search for
+     * @return The index of the first occurrence of `element`, or -1 if it is not in the list
+     */
+    public int indexOfInt(int element) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element) {
+        return setInt(index, element);
+    }
+
+    @Override
+    public boolean add(Integer element) {
+        addInt(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Integer element) {
+        checkIndex(index, size + 1);
+        int value = element;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        checkIndex(index, size);
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return (o instanceof Integer ? indexOfInt((Integer) o) : -1);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
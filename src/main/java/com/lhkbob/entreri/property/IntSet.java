@@ -0,0 +1,240 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.*;
+
+/**
+ * IntSet
+ * ======
+ *
+ * IntSet is a Set of Integers that stores its elements in an open-addressed `int[]` hash table instead of
+ * boxing them. It can be selected as the backing set of a value-semantics `Set<Integer>` property with
+ * `@Collection(setImpl = IntSet.class)`. Besides the standard Set methods, which box and unbox elements, it
+ * provides {@link #addInt(int)}, {@link #removeInt(int)} and {@link #containsInt(int)} that work with
+ * primitives directly. IntSet does not support null elements, and its iteration order is unspecified.
+ *
+ * @author Michael Ludwig
+ */
+public class IntSet extends AbstractSet<Integer> {
+    static final byte FREE = 0;
+    static final byte FULL = 1;
+    static final byte REMOVED = 2;
+
+    private int[] keys;
+    private byte[] states;
+    private int size;
+    private int used; // full and removed slots, which both lengthen probe sequences
+    private int modCount;
+
+    /**
+     * Create a new, empty IntSet.
+     */
+    public IntSet() {
+        keys = new int[16];
+        states = new byte[16];
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * @param element The element to search for
+     * @return True if the set contains `element`
+     */
+    public boolean containsInt(int element) {
+        return find(element) >= 0;
+    }
+
+    /**
+     * Add `element` to the set.
+     *
+     * @param element The element to add
+     * @return True if the set did not already contain the element
+     */
+    public boolean addInt(int element) {
+        int mask = keys.length - 1;
+        int slot = hash(element) & mask;
+        int removedSlot = -1;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL && keys[slot] == element) {
+                return false;
+            } else if (states[slot] == REMOVED && removedSlot < 0) {
+                removedSlot = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (removedSlot >= 0) {
+            slot = removedSlot;
+        } else {
+            used++;
+        }
+        keys[slot] = element;
+        states[slot] = FULL;
+        size++;
+        modCount++;
+
+        if (used * 2 > keys.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * Remove `element` from the set.
+     *
+     * @param element The element to remove
+     * @return True if the set contained the element
+     */
+    public boolean removeInt(int element) {
+        int slot = find(element);
+        if (slot < 0) {
+            return false;
+        }
+        states[slot] = REMOVED;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsInt((Integer) o);
+    }
+
+    @Override
+    public boolean add(Integer element) {
+        return addInt(element);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && removeInt((Integer) o);
+    }
+
+    @Override
+    public void clear() {
+        if (used > 0) {
+            Arrays.fill(states, FREE);
+            size = 0;
+            used = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next = advance(0);
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            private int advance(int slot) {
+                while (slot < states.length && states[slot] != FULL) {
+                    slot++;
+                }
+                return slot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < states.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= states.length) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance(next + 1);
+                return keys[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                // removal only marks the slot, so the remaining slots are not disturbed
+                removeInt(keys[last]);
+                expectedModCount = modCount;
+                last = -1;
+            }
+        };
+    }
+
+    private int find(int element) {
+        int mask = keys.length - 1;
+        int slot = hash(element) & mask;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL && keys[slot] == element) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        // grow if the live elements alone fill a quarter of the table, otherwise just drop removed slots
+        int capacity = (size * 4 >= keys.length ? keys.length * 2 : keys.length);
+        int[] oldKeys = keys;
+        byte[] oldStates = states;
+
+        keys = new int[capacity];
+        states = new byte[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStates[i] == FULL) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (states[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                states[slot] = FULL;
+            }
+        }
+        used = size;
+    }
+
+    static int hash(int key) {
+        int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
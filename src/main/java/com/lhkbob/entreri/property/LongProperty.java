@@ -33,9 +33,9 @@ import java.util.Arrays;
  * ============
  *
  * LongProperty is an implementation of Property that stores a single long value, obviously with value
- * semantics. It supports the {@link DefaultLong} and {@link
- * DoNotClone} attributes. Values will not be cloned if either the source or
- * destination property specify not to clone the value.
+ * semantics. It supports the {@link DefaultLong}, {@link DoNotClone}, and {@link DoubleBuffered}
+ * attributes. Values will not be cloned if either the source or destination property specify not to clone
+ * the value.
  *
  * ## Supported method patterns
  *
@@ -44,10 +44,14 @@ import java.util.Arrays;
  *
  * @author Michael Ludwig
  */
-public final class LongProperty implements Property<LongProperty>, Property.ValueSemantics {
+public final class LongProperty
+        implements Property<LongProperty>, Property.ValueSemantics, Property.Buffered {
     private final long defaultValue;
     private final boolean cloneValue;
-    private long[] data;
+    private final boolean doubleBuffered;
+    private long[] data; // front buffer, read by get()
+    private long[] back; // back buffer, written by set(), the same array unless double buffered
+    private final PendingWrites writes; // indices written to the back buffer since the last swap, or null
 
     /**
      * Create a LongProperty with a programmer friendly signature.
@@ -56,16 +60,37 @@ public final class LongProperty implements Property<LongProperty>, Property.Valu
      * @param cloneValue   True if the value is cloned, or false if clones just use the default
      */
     public LongProperty(long defaultValue, boolean cloneValue) {
+        this(defaultValue, cloneValue, false);
+    }
+
+    /**
+     * Create a LongProperty with a programmer friendly signature.
+     *
+     * @param defaultValue   The default long value when components are initialized
+     * @param cloneValue     True if the value is cloned, or false if clones just use the default
+     * @param doubleBuffered True if reads and writes go to separate front and back buffers
+     */
+    public LongProperty(long defaultValue, boolean cloneValue, boolean doubleBuffered) {
         this.defaultValue = defaultValue;
         this.cloneValue = cloneValue;
+        this.doubleBuffered = doubleBuffered;
         data = new long[1];
+        back = (doubleBuffered ? new long[1] : data);
+        writes = (doubleBuffered ? new PendingWrites(1) : null);
     }
 
     /**
      * Create a LongProperty using the constructor satisfying the default annotation conventions.
      */
     public LongProperty(DefaultLong dflt, DoNotClone clonePolicy) {
-        this((dflt != null ? dflt.value() : 0), clonePolicy == null);
+        this(dflt, clonePolicy, null);
+    }
+
+    /**
+     * Create a LongProperty using the constructor satisfying the default annotation conventions.
+     */
+    public LongProperty(DefaultLong dflt, DoNotClone clonePolicy, DoubleBuffered buffered) {
+        this((dflt != null ? dflt.value() : 0), clonePolicy == null, buffered != null);
     }
 
     /**
@@ -78,6 +103,16 @@ public final class LongProperty implements Property<LongProperty>, Property.Valu
         return data;
     }
 
+    /**
+     * Return the array written by `set()`. This is the same array as {@link #getIndexedData()} unless the
+     * property is double buffered.
+     *
+     * @return The back buffer of the property
+     */
+    public long[] getBackData() {
+        return back;
+    }
+
     /**
      * Get the value stored in this property for the given component index.
      *
@@ -97,12 +132,19 @@ public final class LongProperty implements Property<LongProperty>, Property.Valu
      * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
      */
     public void set(int componentIndex, long val) {
-        data[componentIndex] = val;
+        back[componentIndex] = val;
+        if (doubleBuffered) {
+            writes.mark(componentIndex);
+        }
     }
 
     @Override
     public void setDefaultValue(int index) {
-        set(index, defaultValue);
+        data[index] = defaultValue;
+        back[index] = defaultValue;
+        if (doubleBuffered) {
+            writes.unmark(index);
+        }
     }
 
     @Override
@@ -110,7 +152,11 @@ public final class LongProperty implements Property<LongProperty>, Property.Valu
         if (!src.cloneValue || !cloneValue) {
             setDefaultValue(dstIndex);
         } else {
-            set(dstIndex, src.get(srcIndex));
+            data[dstIndex] = src.get(srcIndex);
+            back[dstIndex] = data[dstIndex];
+            if (doubleBuffered) {
+                writes.unmark(dstIndex);
+            }
         }
     }
 
@@ -119,6 +165,12 @@ public final class LongProperty implements Property<LongProperty>, Property.Valu
         long t = data[a];
         data[a] = data[b];
         data[b] = t;
+        if (doubleBuffered) {
+            t = back[a];
+            back[a] = back[b];
+            back[b] = t;
+            writes.swap(a, b);
+        }
     }
 
     @Override
@@ -129,5 +181,42 @@ public final class LongProperty implements Property<LongProperty>, Property.Valu
     @Override
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size);
+        back = (doubleBuffered ? Arrays.copyOf(back, size) : data);
+        if (doubleBuffered) {
+            writes.setCapacity(size);
+        }
+    }
+
+    @Override
+    public boolean isDoubleBuffered() {
+        return doubleBuffered;
+    }
+
+    @Override
+    public void swapBuffers() {
+        if (doubleBuffered) {
+            long[] t = data;
+            data = back;
+            back = t;
+            // only the values written since the last swap differ between the buffers
+            for (int i = writes.next(0); i >= 0; i = writes.next(i + 1)) {
+                back[i] = data[i];
+            }
+            writes.clear();
+        }
+    }
+
+    @Override
+    public void discardBufferedWrites() {
+        if (doubleBuffered) {
+            // the front buffer may have been modified directly, so it is copied completely
+            System.arraycopy(data, 0, back, 0, data.length);
+            writes.clear();
+        }
+    }
+
+    @Override
+    public int nextBufferedWrite(int fromIndex) {
+        return (doubleBuffered ? writes.next(fromIndex) : -1);
     }
 }
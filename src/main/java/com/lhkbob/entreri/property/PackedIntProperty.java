@@ -0,0 +1,239 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.Arrays;
+
+/**
+ * PackedIntProperty
+ * =================
+ *
+ * PackedIntProperty is an implementation of Property that stores a single int value from a small, bounded
+ * range, with value semantics. The range is declared by the required {@link Within} attribute, and values are
+ * stored as their offset from the minimum using only as many bits as the range needs, rounded up to a power
+ * of two so that values never straddle a word. For example `@Within(min = 0, max = 15)` stores 16 values in
+ * every `long` word instead of using 32 bits for each. It also supports the {@link DefaultInt} and {@link
+ * DoNotClone} attributes. If there is no default, the default value is 0 clamped to the declared range.
+ * Values will not be cloned if either the source or destination property specify not to clone the value.
+ *
+ * The annotation processor selects this property automatically for `int` properties whose `@Within` bounds
+ * span at most 16 bits, unless the property is double buffered or has an explicit implementation. Like {@link
+ * BooleanProperty}, neighboring components share a word, so writes to different components are only safe from
+ * different threads when the components are in different words.
+ *
+ * ## Supported method patterns
+ *
+ * PackedIntProperty defines the `get(int) -> int` and `set(int, int) -> void` methods that can be used by a
+ * component's Java Bean getters and setters of type `int`.
+ *
+ * @author Michael Ludwig
+ */
+public final class PackedIntProperty implements Property<PackedIntProperty>, Property.ValueSemantics {
+    private final int min;
+    private final int max;
+    private final int defaultValue;
+    private final boolean cloneValue;
+
+    private final int log2Bits; // values use 1 << log2Bits bits
+    private final int wordShift; // componentIndex >>> wordShift is the word holding the value
+    private final long mask;
+
+    private long[] data;
+    private int capacity;
+
+    /**
+     * Create a PackedIntProperty with a programmer friendly signature.
+     *
+     * @param min          The minimum value that can be stored, inclusive
+     * @param max          The maximum value that can be stored, inclusive
+     * @param defaultValue The default int value when components are initialized
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     * @throws IllegalArgumentException if min is greater than max, or defaultValue is outside of the range
+     */
+    public PackedIntProperty(int min, int max, int defaultValue, boolean cloneValue) {
+        if (min > max) {
+            throw new IllegalArgumentException("Minimum (" + min + ") cannot be greater than maximum (" +
+                                               max + ")");
+        }
+        if (defaultValue < min || defaultValue > max) {
+            throw new IllegalArgumentException("Default value must be in [" + min + ", " + max + "], not: " +
+                                               defaultValue);
+        }
+        this.min = min;
+        this.max = max;
+        this.defaultValue = defaultValue;
+        this.cloneValue = cloneValue;
+
+        int bits = Math.max(1, 64 - Long.numberOfLeadingZeros((long) max - min));
+        log2Bits = 32 - Integer.numberOfLeadingZeros(bits - 1);
+        wordShift = 6 - log2Bits;
+        mask = (1L << (1 << log2Bits)) - 1;
+
+        data = new long[1];
+        capacity = 1;
+    }
+
+    /**
+     * Create a PackedIntProperty using the constructor satisfying the default annotation conventions.
+     *
+     * @throws IllegalArgumentException if range is null or its bounds are not finite int values
+     */
+    public PackedIntProperty(Within range, DefaultInt dflt, DoNotClone clonePolicy) {
+        this(getMinimum(range), getMaximum(range),
+             (dflt != null ? dflt.value() : Math.max(getMinimum(range), Math.min(0, getMaximum(range)))),
+             clonePolicy == null);
+    }
+
+    private static int getMinimum(Within range) {
+        if (range == null) {
+            throw new IllegalArgumentException("PackedIntProperty requires the @Within attribute");
+        }
+        return toInt(Math.ceil(range.min()));
+    }
+
+    private static int getMaximum(Within range) {
+        if (range == null) {
+            throw new IllegalArgumentException("PackedIntProperty requires the @Within attribute");
+        }
+        return toInt(Math.floor(range.max()));
+    }
+
+    private static int toInt(double bound) {
+        if (bound < Integer.MIN_VALUE || bound > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("@Within bounds must be int values, not: " + bound);
+        }
+        return (int) bound;
+    }
+
+    /**
+     * @return The minimum value that can be stored, inclusive
+     */
+    public int getMinimum() {
+        return min;
+    }
+
+    /**
+     * @return The maximum value that can be stored, inclusive
+     */
+    public int getMaximum() {
+        return max;
+    }
+
+    /**
+     * @return The number of bits used to store each value
+     */
+    public int getBitsPerValue() {
+        return 1 << log2Bits;
+    }
+
+    /**
+     * Return the backing words of this property. The value of a component is stored as its offset from
+     * {@link #getMinimum()} in the {@link #getBitsPerValue()} bits starting at bit `(componentIndex *
+     * bitsPerValue) & 63` of the word at `componentIndex * bitsPerValue / 64`. The array may be longer than
+     * necessary for the number of components in the system.
+     *
+     * @return The packed int data for all components
+     */
+    public long[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get the value stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The object at the given offset for the given component
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int get(int componentIndex) {
+        int shift = (componentIndex << log2Bits) & 63;
+        return min + (int) ((data[componentIndex >>> wordShift] >>> shift) & mask);
+    }
+
+    /**
+     * Store `val` in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store
+     * @throws IllegalArgumentException       if val is outside of the property's range
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, int val) {
+        if (val < min || val > max) {
+            throw new IllegalArgumentException("Value must be in [" + min + ", " + max + "], not: " + val);
+        }
+        setOffset(componentIndex, (long) val - min);
+    }
+
+    private void setOffset(int componentIndex, long offset) {
+        int word = componentIndex >>> wordShift;
+        int shift = (componentIndex << log2Bits) & 63;
+        data[word] = (data[word] & ~(mask << shift)) | ((offset & mask) << shift);
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        set(index, defaultValue);
+    }
+
+    @Override
+    public void clone(PackedIntProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else {
+            int value = src.get(srcIndex);
+            if (value < min || value > max) {
+                setDefaultValue(dstIndex);
+            } else {
+                set(dstIndex, value);
+            }
+        }
+    }
+
+    @Override
+    public void swap(int a, int b) {
+        int t = get(a);
+        set(a, get(b));
+        set(b, t);
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        int valuesPerWord = 1 << wordShift;
+        data = Arrays.copyOf(data, (size + valuesPerWord - 1) >>> wordShift);
+        // clear the values that were truncated from the last word
+        for (int i = size; i < capacity && (i & (valuesPerWord - 1)) != 0; i++) {
+            setOffset(i, 0L);
+        }
+        capacity = size;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.Arrays;
+
+/**
+ * PendingWrites
+ * =============
+ *
+ * PendingWrites records component indices that a property wrote without the components' versions being
+ * updated yet: the writes to the back buffer of a double buffered property since its buffers were last
+ * swapped, or the bulk writes of a property since the entity system last versioned them. Indices are kept
+ * as bits packed 64 to a `long` word, the same layout as {@link BooleanProperty}, so a swap only has to
+ * copy the written values into the new back buffer instead of the whole array, and only the written
+ * components have their versions updated. Like BooleanProperty, marking an index is not atomic with
+ * respect to other indices of the same word; the component spliterators split parallel streams on
+ * multiples of 64 for this reason.
+ *
+ * @author Michael Ludwig
+ */
+final class PendingWrites {
+    private long[] words;
+
+    /**
+     * Create a new set of pending writes that can hold the component indices `[0, capacity)`.
+     *
+     * @param capacity The initial capacity
+     */
+    PendingWrites(int capacity) {
+        words = new long[wordCount(capacity)];
+    }
+
+    /**
+     * Record a write to `index`.
+     *
+     * @param index The component index
+     */
+    void mark(int index) {
+        words[index >>> 6] |= (1L << index);
+    }
+
+    /**
+     * Record a write to every index in `[fromIndex, toIndex)`.
+     *
+     * @param fromIndex The first component index (inclusive)
+     * @param toIndex   The last component index (exclusive)
+     */
+    void mark(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+        int first = fromIndex >>> 6;
+        int last = (toIndex - 1) >>> 6;
+        long firstMask = -1L << fromIndex;
+        long lastMask = -1L >>> -toIndex;
+        if (first == last) {
+            words[first] |= (firstMask & lastMask);
+        } else {
+            words[first] |= firstMask;
+            for (int i = first + 1; i < last; i++) {
+                words[i] = -1L;
+            }
+            words[last] |= lastMask;
+        }
+    }
+
+    /**
+     * Forget a write to `index`, because both buffers were assigned the same value.
+     *
+     * @param index The component index
+     */
+    void unmark(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Exchange the recorded writes of `a` and `b`, when the values of two components are swapped.
+     *
+     * @param a The first component index
+     * @param b The second component index
+     */
+    void swap(int a, int b) {
+        boolean markedA = isMarked(a);
+        if (markedA != isMarked(b)) {
+            if (markedA) {
+                unmark(a);
+                mark(b);
+            } else {
+                mark(a);
+                unmark(b);
+            }
+        }
+    }
+
+    /**
+     * @param index The component index
+     * @return True if `index` was written since the last call to {@link #clear()}
+     */
+    boolean isMarked(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Get the first written component index that is greater than or equal to `fromIndex`.
+     *
+     * @param fromIndex The index to start searching from
+     * @return The next written index, or -1 if there are no more
+     */
+    int next(int fromIndex) {
+        int word = fromIndex >>> 6;
+        if (fromIndex < 0 || word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << fromIndex);
+        while (bits == 0) {
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Forget every recorded write.
+     */
+    void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Resize to hold the component indices `[0, capacity)`, forgetting writes to truncated indices.
+     *
+     * @param capacity The new capacity
+     */
+    void setCapacity(int capacity) {
+        words = Arrays.copyOf(words, wordCount(capacity));
+        if ((capacity & 63) != 0) {
+            words[words.length - 1] &= (-1L >>> -capacity);
+        }
+    }
+
+    private static int wordCount(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+}
@@ -40,11 +40,12 @@ package com.lhkbob.entreri.property;
  *
  * ## Defining new Property classes
  *
- * Although `entreri` comes with predefined Property types for all Java primitives, any Enum, and Object
- * references it can be desirable to define new Property types. This is necessary to take full advantage of
- * the mapped-object design pattern and see the performance gains `entreri` is capable of. A canonical example
- * of an Object type benefiting from a custom Property are linear algebra vectors and matrices, which can be
- * efficiently packed into float or double arrays.
+ * Although `entreri` comes with predefined Property types for all Java primitives, any Enum, Object
+ * references, and the vector and matrix types in `com.lhkbob.entreri.math`, it can be desirable to define
+ * new Property types. This is necessary to take full advantage of the mapped-object design pattern and see
+ * the performance gains `entreri` is capable of. A canonical example of an Object type benefiting from a
+ * custom Property are linear algebra vectors and matrices, which can be efficiently packed into float or
+ * double arrays, as {@link Float3Property} and {@link Mat4Property} do.
  *
  * The following subsections discuss the details of implementing a new Property type.
  *
@@ -88,6 +89,8 @@ package com.lhkbob.entreri.property;
  * `* remove[NAME](K)`           | `V remove(int index, K key)`             | Remove the key's value from the map and return it.
  * `* remove[NAME](T)`           | `boolean remove(int index, T element)`   | Remove the element and return true if the list or set was modified.
  * `* add[NAME](T)`              | `boolean add(int index, T element)`      | Append the element to the list or set and return true if it was modified.
+ * `E get[NAME](int)`            | `E get(int index, int element)`          | Get one element of type `E` of a fixed-length array.
+ * `* set[NAME](int, E)`         | `void set(int index, int element, E v)`  | Update one element of a fixed-length array to be `v`.
  *
  * These getters and setters exposed by the Property subclass must respect the requirements of its chosen
  * semantics. It is not required for a property type to support all of these methods. It is not validated if a
@@ -241,6 +244,157 @@ public interface Property<T extends Property<T>> {
     public static interface Generic<P> {
     }
 
+    /**
+     * Buffered
+     * ========
+     *
+     * Buffered is implemented by Property subclasses that support the {@link DoubleBuffered} attribute. A
+     * double buffered property keeps a front buffer that its accessors read from and a back buffer that its
+     * mutators write to, so tasks that read the property see the values as of the last swap while other
+     * tasks write the next values. Structural operations, such as {@link #setDefaultValue(int)}, {@link
+     * #clone(Property, int, int)}, and {@link #swap(int, int)}, update both buffers. When a property is not
+     * configured to be double buffered, both buffers are the same storage and the methods of this interface
+     * do nothing.
+     *
+     * The buffers are swapped by {@link com.lhkbob.entreri.task.Scheduler#swapBuffers()}. A buffered property
+     * records the component indices written to its back buffer since the last swap, so a swap only copies
+     * those values instead of the whole buffer, and the entity system updates the versions of the written
+     * components when it swaps instead of when they are written.
+     *
+     * @author Michael Ludwig
+     */
+    public static interface Buffered {
+        /**
+         * @return True if the property keeps separate front and back buffers
+         */
+        public boolean isDoubleBuffered();
+
+        /**
+         * Make the values written to the back buffer visible to readers. The buffers are exchanged by
+         * reference and then the values written since the last swap are copied into the new back buffer,
+         * so that it matches the new front buffer. The cost is proportional to the number of written
+         * components, not the capacity of the property.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         */
+        public void swapBuffers();
+
+        /**
+         * Discard the values written to the back buffer since the last swap by overwriting it with the front
+         * buffer. This is used after the front buffer is modified directly, such as when restoring a
+         * snapshot, so unlike {@link #swapBuffers()} the whole buffer is copied.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         */
+        public void discardBufferedWrites();
+
+        /**
+         * Get the first component index, greater than or equal to `fromIndex`, whose value was written to the
+         * back buffer since the last swap. Properties that are not double buffered always return -1.
+         *
+         * @param fromIndex The component index to start searching from
+         * @return The next written component index, or -1 if there are no more
+         */
+        public int nextBufferedWrite(int fromIndex);
+    }
+
+    /**
+     * Unversioned
+     * ===========
+     *
+     * Unversioned is implemented by Property subclasses with public methods that write the values of many
+     * components at once without going through the components' setters, such as the bulk operations of
+     * {@link FloatProperty}, and so without updating the components' versions. The property records the
+     * component indices it wrote, and the entity system updates the versions of those components when the
+     * job that wrote them completes, when {@link com.lhkbob.entreri.EntitySystem#mergeShards()} is called,
+     * or before a snapshot is written.
+     *
+     * @author Michael Ludwig
+     */
+    public static interface Unversioned {
+        /**
+         * Get the first component index, greater than or equal to `fromIndex`, whose value was written
+         * without updating its version since the last call to {@link #clearUnversionedWrites()}.
+         *
+         * @param fromIndex The component index to start searching from
+         * @return The next written component index, or -1 if there are no more
+         */
+        public int nextUnversionedWrite(int fromIndex);
+
+        /**
+         * Forget the recorded writes, once the versions of the written components have been updated.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         */
+        public void clearUnversionedWrites();
+    }
+
+    /**
+     * Accumulating
+     * ============
+     *
+     * Accumulating is implemented by Property subclasses that collect values written concurrently by
+     * several threads into per-thread shards, such as {@link FloatAccumulatorProperty}. The shards are
+     * combined into the values visible to `get()` by {@link #mergeShards()}, which jobs invoke before
+     * releasing their locks on the component types they modify.
+     *
+     * @author Michael Ludwig
+     */
+    public static interface Accumulating {
+        /**
+         * Reduce the values accumulated in every thread's shard into the property's values, and reset the
+         * shards to the reduction's identity. This must not be called while any thread is accumulating into
+         * the property.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         */
+        public void mergeShards();
+    }
+
+    /**
+     * EntityReferencing
+     * =================
+     *
+     * EntityReferencing is implemented by Property subclasses that store references to other entities of
+     * the same system by entity index, such as {@link EntityRefProperty}. The system gives the property its
+     * {@link EntityTable} when the property is created, tells it when a referenced entity is removed so
+     * that the references can be cleared, and tells it how the entity indices moved when the system is
+     * compacted.
+     *
+     * @author Michael Ludwig
+     */
+    public static interface EntityReferencing {
+        /**
+         * Set the entity table that the property resolves entity indices with. This is called once, before
+         * any values are stored in the property.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param table The entity table of the system that owns the property
+         */
+        public void setEntityTable(EntityTable table);
+
+        /**
+         * Clear every reference to the entity that was at `entityIndex`, which has been removed from the
+         * system.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param entityIndex The index of the removed entity
+         */
+        public void entityRemoved(int entityIndex);
+
+        /**
+         * Update the stored entity indices after the system has been compacted. The entity previously at
+         * index `i` is now at `oldToNew[i]`; an index that maps to 0 belonged to a removed entity.
+         *
+         * This is for internal use *only*, and should not be called outside the management of components.
+         *
+         * @param oldToNew The map from old entity index to new entity index
+         */
+        public void remapEntities(int[] oldToNew);
+    }
+
     /**
      * Resize the internal storage to support indexed lookups from 0 to `size - 1`.  If `size` is less than
      * the current capacity, all previous values with an index less than `size` must be preserved, and the
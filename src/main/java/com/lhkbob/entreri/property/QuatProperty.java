@@ -0,0 +1,174 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.math.Quat;
+
+import java.util.Arrays;
+
+/**
+ * QuatProperty
+ * ============
+ *
+ * QuatProperty is an implementation of Property that stores a {@link Quat} with value semantics. The default
+ * value is the identity rotation `(0, 0, 0, 1)`. Values are packed into a single float array with 4
+ * consecutive floats per component, so the values of component index `i` start at `i * 4` in {@link
+ * #getIndexedData()}. This keeps every value next to each other in memory without allocating a Quat per
+ * component. It supports the {@link DoNotClone} attribute. Values will not be cloned if either the source or
+ * destination property specify not to clone the value.
+ *
+ * ## Supported method patterns
+ *
+ * QuatProperty defines the `get(int) -> Quat`, `get(int, Quat) -> void`, and `set(int, Quat) -> void`
+ * methods, which can be used by a component's getters and setters of type `Quat`. The `get(int, Quat)` method
+ * is used by getters that take a `@ReturnValue Quat` argument, and reads into that caller-provided instance
+ * without allocating, while the plain getter returns a new instance each time it is called.
+ *
+ * It is mapped as the default value property for `Quat`.
+ *
+ * @author Michael Ludwig
+ */
+public final class QuatProperty implements Property<QuatProperty>, Property.ValueSemantics {
+    /**
+     * The number of floats stored for each component.
+     */
+    public static final int STRIDE = 4;
+
+    private final boolean cloneValue;
+    private float[] data;
+
+    /**
+     * Create a QuatProperty with a programmer friendly signature.
+     *
+     * @param cloneValue True if the value is cloned, or false if clones just use the default
+     */
+    public QuatProperty(boolean cloneValue) {
+        this.cloneValue = cloneValue;
+        data = new float[STRIDE];
+    }
+
+    /**
+     * Create a QuatProperty using the constructor satisfying the default annotation conventions.
+     */
+    public QuatProperty(DoNotClone clonePolicy) {
+        this(clonePolicy == null);
+    }
+
+    /**
+     * Return the backing float array of this property, which holds 4 floats per component. The array
+     * may be longer than necessary for the number of components in the system.
+     *
+     * @return The packed float data for all components
+     */
+    public float[] getIndexedData() {
+        return data;
+    }
+
+    /**
+     * Get the value stored in this property for the given component index, as a new instance.
+     *
+     * @param componentIndex The component's index
+     * @return A new Quat holding the component's value
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public Quat get(int componentIndex) {
+        Quat result = new Quat();
+        get(componentIndex, result);
+        return result;
+    }
+
+    /**
+     * Copy the value stored in this property for the given component index into `result`.
+     *
+     * @param componentIndex The component's index
+     * @param result         The instance that is overwritten with the component's value
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws NullPointerException           if result is null
+     */
+    public void get(int componentIndex, Quat result) {
+        int i = componentIndex * STRIDE;
+        result.x = data[i];
+        result.y = data[i + 1];
+        result.z = data[i + 2];
+        result.w = data[i + 3];
+    }
+
+    /**
+     * Store `val` in this property for the given component index.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param val            The value to store, its state is copied into the property
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     * @throws NullPointerException           if val is null
+     */
+    public void set(int componentIndex, Quat val) {
+        int i = componentIndex * STRIDE;
+        data[i] = val.x;
+        data[i + 1] = val.y;
+        data[i + 2] = val.z;
+        data[i + 3] = val.w;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, size * STRIDE);
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length / STRIDE;
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int a = indexA * STRIDE;
+        int b = indexB * STRIDE;
+        for (int i = 0; i < STRIDE; i++) {
+            float t = data[a + i];
+            data[a + i] = data[b + i];
+            data[b + i] = t;
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int componentIndex) {
+        int i = componentIndex * STRIDE;
+        data[i] = 0f;
+        data[i + 1] = 0f;
+        data[i + 2] = 0f;
+        data[i + 3] = 1f;
+    }
+
+    @Override
+    public void clone(QuatProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else {
+            System.arraycopy(src.data, srcIndex * STRIDE, data, dstIndex * STRIDE, STRIDE);
+        }
+    }
+}
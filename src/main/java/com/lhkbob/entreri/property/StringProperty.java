@@ -0,0 +1,336 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import java.util.Arrays;
+
+/**
+ * StringProperty
+ * ==============
+ *
+ * StringProperty is a Property with value semantics for `String` values that dictionary-encodes them. Each
+ * component stores an int code in a packed array, and the property keeps a single symbol table that maps
+ * every distinct string to its code. Components that hold equal strings share one String instance and
+ * cost four bytes each, instead of every component keeping its own copy reachable from the heap. Codes
+ * are reference counted, so a string is dropped from the table, and its code reused, once no component
+ * holds it anymore. The default value always has code 0 and is never dropped.
+ *
+ * Because equal strings have equal codes, {@link #isEqual(int, int)} and {@link #isEqual(int, String)}
+ * compare strings by comparing ints, and {@link #getCode(int)} and {@link #lookupCode(String)} allow
+ * systems to do the same when filtering or grouping components by name or tag.
+ *
+ * It supports the {@link DefaultString} and {@link DoNotClone} attributes. The default value is the empty
+ * string unless specified otherwise. Null values are not allowed. Because setting a value updates the shared
+ * symbol table, values must not be set concurrently from parallel streams.
+ *
+ * ## Supported method patterns
+ *
+ * StringProperty defines the `get(int) -> String` and `set(int, String) -> void` methods that can be used
+ * by a component's Java Bean getters and setters of type `String`.
+ *
+ * @author Michael Ludwig
+ */
+public final class StringProperty implements Property<StringProperty>, Property.ValueSemantics {
+    // hash table slot states, live slots store their symbol's code plus one
+    private static final int FREE = 0;
+    private static final int REMOVED = -1;
+
+    private final String defaultValue;
+    private final boolean cloneValue;
+    private int[] codes;
+
+    // symbol table: the string and the number of components referencing each code, code 0 is the default
+    private String[] symbols;
+    private int[] refCounts;
+    private int symbolCount; // codes in use or free, all are less than this
+    private int liveSymbolCount;
+    private int[] freeCodes;
+    private int freeCodeCount;
+
+    // open-addressed hash table from string to code
+    private int[] table;
+    private int usedSlots; // live and removed slots
+
+    /**
+     * Create a StringProperty with a programmer friendly signature.
+     *
+     * @param defaultValue The default string value when components are initialized
+     * @param cloneValue   True if the value is cloned, or false if clones just use the default
+     * @throws NullPointerException if defaultValue is null
+     */
+    public StringProperty(String defaultValue, boolean cloneValue) {
+        if (defaultValue == null) {
+            throw new NullPointerException("Default value cannot be null");
+        }
+        this.defaultValue = defaultValue;
+        this.cloneValue = cloneValue;
+        codes = new int[1];
+
+        symbols = new String[8];
+        refCounts = new int[8];
+        freeCodes = new int[8];
+        table = new int[16];
+        symbolCount = 0;
+        liveSymbolCount = 0;
+        freeCodeCount = 0;
+        usedSlots = 0;
+        intern(defaultValue);
+    }
+
+    /**
+     * Create a StringProperty using the constructor satisfying the default annotation conventions.
+     */
+    public StringProperty(DefaultString dflt, DoNotClone clonePolicy) {
+        this((dflt != null ? dflt.value() : ""), clonePolicy == null);
+    }
+
+    /**
+     * Return the backing int array of this property. Each element is the code of the string stored for the
+     * component at that index, which can be resolved with {@link #getSymbol(int)}. The array may be longer
+     * than necessary for the number of components in the system.
+     *
+     * @return The code data for all components
+     */
+    public int[] getIndexedData() {
+        return codes;
+    }
+
+    /**
+     * Get the value stored in this property for the given component index.
+     *
+     * @param componentIndex The component's index
+     * @return The string of the given component, never null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public String get(int componentIndex) {
+        return symbols[codes[componentIndex]];
+    }
+
+    /**
+     * Store `value` in this property for the given component index. If an equal string is already held by
+     * another component, that instance is shared and `value` is not retained.
+     *
+     * @param componentIndex The index of the component being modified
+     * @param value          The value to store
+     * @throws NullPointerException           if value is null
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public void set(int componentIndex, String value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        setCode(componentIndex, intern(value));
+    }
+
+    /**
+     * @param componentIndex The component's index
+     * @return The code of the string stored for the component, 0 if it holds the default value
+     * @throws ArrayIndexOutOfBoundsException if the componentIndex is invalid
+     */
+    public int getCode(int componentIndex) {
+        return codes[componentIndex];
+    }
+
+    /**
+     * Look up the code of `value` without adding it to the symbol table.
+     *
+     * @param value The string to look up
+     * @return The code of the string, or -1 if no component of this property holds it
+     */
+    public int lookupCode(String value) {
+        int slot = find(value);
+        return (slot < 0 ? -1 : table[slot] - 1);
+    }
+
+    /**
+     * @param code A code stored in this property
+     * @return The string that the code represents, or null if the code is not in use
+     * @throws ArrayIndexOutOfBoundsException if the code is negative or larger than any assigned code
+     */
+    public String getSymbol(int code) {
+        return symbols[code];
+    }
+
+    /**
+     * @return The number of distinct strings currently held, including the default value
+     */
+    public int getSymbolCount() {
+        return liveSymbolCount;
+    }
+
+    /**
+     * Compare the values of two components by their codes.
+     *
+     * @param componentIndexA The index of the first component
+     * @param componentIndexB The index of the second component
+     * @return True if both components hold equal strings
+     */
+    public boolean isEqual(int componentIndexA, int componentIndexB) {
+        return codes[componentIndexA] == codes[componentIndexB];
+    }
+
+    /**
+     * Compare the value of a component to `value`. The string is hashed once to find its code, so callers
+     * comparing many components to the same value should use {@link #lookupCode(String)} and {@link
+     * #getCode(int)} instead.
+     *
+     * @param componentIndex The index of the component
+     * @param value          The string to compare to
+     * @return True if the component holds a string equal to `value`
+     */
+    public boolean isEqual(int componentIndex, String value) {
+        return codes[componentIndex] == lookupCode(value);
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        for (int i = size; i < codes.length; i++) {
+            release(codes[i]);
+        }
+        // new slots are 0, the code of the default value
+        codes = Arrays.copyOf(codes, size);
+    }
+
+    @Override
+    public int getCapacity() {
+        return codes.length;
+    }
+
+    @Override
+    public void setDefaultValue(int componentIndex) {
+        setCode(componentIndex, 0);
+    }
+
+    @Override
+    public void clone(StringProperty src, int srcIndex, int dstIndex) {
+        if (!src.cloneValue || !cloneValue) {
+            setDefaultValue(dstIndex);
+        } else if (src == this) {
+            setCode(dstIndex, codes[srcIndex]);
+        } else {
+            set(dstIndex, src.get(srcIndex));
+        }
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int code = codes[indexA];
+        codes[indexA] = codes[indexB];
+        codes[indexB] = code;
+    }
+
+    private void setCode(int componentIndex, int code) {
+        // retain the new code before releasing the old one, so setting the same string never drops it
+        if (code != 0) {
+            refCounts[code]++;
+        }
+        release(codes[componentIndex]);
+        codes[componentIndex] = code;
+    }
+
+    private void release(int code) {
+        if (code != 0 && --refCounts[code] == 0) {
+            table[find(symbols[code])] = REMOVED;
+            symbols[code] = null;
+            liveSymbolCount--;
+            if (freeCodeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCodeCount * 2);
+            }
+            freeCodes[freeCodeCount++] = code;
+        }
+    }
+
+    private int intern(String value) {
+        int mask = table.length - 1;
+        int slot = IntSet.hash(value.hashCode()) & mask;
+        int removedSlot = -1;
+        while (table[slot] != FREE) {
+            if (table[slot] == REMOVED) {
+                if (removedSlot < 0) {
+                    removedSlot = slot;
+                }
+            } else if (symbols[table[slot] - 1].equals(value)) {
+                return table[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int code;
+        if (freeCodeCount > 0) {
+            code = freeCodes[--freeCodeCount];
+        } else {
+            if (symbolCount == symbols.length) {
+                symbols = Arrays.copyOf(symbols, symbolCount * 2);
+                refCounts = Arrays.copyOf(refCounts, symbolCount * 2);
+            }
+            code = symbolCount++;
+        }
+        symbols[code] = value;
+        refCounts[code] = 0;
+        liveSymbolCount++;
+
+        if (removedSlot >= 0) {
+            slot = removedSlot;
+        } else {
+            usedSlots++;
+        }
+        table[slot] = code + 1;
+        if (usedSlots * 2 > table.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    private int find(String value) {
+        int mask = table.length - 1;
+        int slot = IntSet.hash(value.hashCode()) & mask;
+        while (table[slot] != FREE) {
+            if (table[slot] != REMOVED && symbols[table[slot] - 1].equals(value)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        // grow if the live symbols alone fill a quarter of the table, otherwise just drop removed slots
+        int capacity = (liveSymbolCount * 4 >= table.length ? table.length * 2 : table.length);
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int code = 0; code < symbolCount; code++) {
+            if (symbols[code] != null) {
+                int slot = IntSet.hash(symbols[code].hashCode()) & mask;
+                while (table[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = code + 1;
+            }
+        }
+        usedSlots = liveSymbolCount;
+    }
+}
@@ -26,10 +26,6 @@
  */
 package com.lhkbob.entreri.property;
 
-import com.lhkbob.entreri.IllegalComponentDefinitionException;
-
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -47,6 +43,14 @@ import java.util.List;
  * allowed to have null references as elements. Value semantics are not enforced upon the elements, they
  * are stored and treated as references.
  *
+ * A component's list is not created until a value is first written to it, so growing the property allocates
+ * nothing for components that never use their list. Until then `get(int)` returns a shared, immutable empty
+ * list; reads never modify the property, so they are safe from parallel streams. The empty list returned
+ * before a component's first write does not reflect that write, so the list must be fetched again afterwards.
+ * When a component is removed or reset to the default value, its list is cleared and recycled for the next
+ * component that needs one, so a read-only list obtained before the reset will show another component's
+ * values and should not be held on to.
+ *
  * ## Supported method patterns
  *
  * ValueListProperty supports the standard `get(int) -> List<T>` and `set(int, List<T>) -> void` methods
@@ -63,7 +67,7 @@ import java.util.List;
  */
 public class ValueListProperty<T>
         implements Property<ValueListProperty<T>>, Property.ValueSemantics, Property.Generic<List<T>> {
-    private final Constructor<? extends List<T>> newListCtor;
+    private final CollectionPool<List<T>> pool;
     private final boolean clone;
     private List<T>[] data;
     private List<T>[] readOnlyData;
@@ -77,18 +81,11 @@ public class ValueListProperty<T>
      */
     @SuppressWarnings("unchecked")
     public ValueListProperty(Class<? extends List> listClass, boolean cloneValue) {
-        try {
-            newListCtor = (Constructor<? extends List<T>>) listClass.getConstructor();
-        } catch (NoSuchMethodException e) {
-            throw new IllegalComponentDefinitionException("Requested backing List implementation does not have a public default constructor: " +
-                                                          listClass);
-        }
+        pool = new CollectionPool<>(CollectionPool.newFactory(listClass, "List"),
+                                    Collections::unmodifiableList, List::clear);
         clone = cloneValue;
         data = new List[1];
         readOnlyData = new List[1];
-
-        // must initialize it so that the 0 index obeys value semantics
-        setDefaultValue(0);
     }
 
     /**
@@ -100,10 +97,13 @@ public class ValueListProperty<T>
 
     /**
      * @param index The component index
-     * @return The current List as a read-only reference (this mirrors any changes to the value)
+     * @return The current List as a read-only reference, which mirrors later changes to the value once the
+     *         component's list has been written
      */
     public List<T> get(int index) {
-        return readOnlyData[index];
+        List<T> value = readOnlyData[index];
+        // unallocated slots are not allocated by reads, so that reads never modify the property
+        return (value == null ? Collections.emptyList() : value);
     }
 
     /**
@@ -116,6 +116,7 @@ public class ValueListProperty<T>
         if (list == null) {
             throw new NullPointerException("Value-semantics list cannot be null");
         }
+        pool.acquire(data, readOnlyData, index);
         data[index].clear();
         data[index].addAll(list);
     }
@@ -129,6 +130,7 @@ public class ValueListProperty<T>
      * @return True if the list was modified (generally always true for lists)
      */
     public boolean add(int index, T element) {
+        pool.acquire(data, readOnlyData, index);
         return data[index].add(element);
     }
 
@@ -141,7 +143,7 @@ public class ValueListProperty<T>
      * @return True if the element was removed
      */
     public boolean remove(int index, T element) {
-        return data[index].remove(element);
+        return data[index] != null && data[index].remove(element);
     }
 
     /**
@@ -153,20 +155,16 @@ public class ValueListProperty<T>
      * @return True if the current list contains `element`
      */
     public boolean contains(int index, T element) {
-        return data[index].contains(element);
+        return data[index] != null && data[index].contains(element);
     }
 
     @Override
     public void setCapacity(int size) {
-        int oldLength = data.length;
-
         data = Arrays.copyOf(data, size);
         readOnlyData = Arrays.copyOf(readOnlyData, size);
 
-        // guarantee we have value semantics for new values
-        for (int i = oldLength; i < size; i++) {
-            setDefaultValue(i);
-        }
+        // new slots are left null until they're written
+        pool.trim(size);
     }
 
     @Override
@@ -187,23 +185,18 @@ public class ValueListProperty<T>
 
     @Override
     public void setDefaultValue(int index) {
-        if (data[index] == null) {
-            // first time initialization for this slot
-            try {
-                data[index] = newListCtor.newInstance();
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException("Error creating default value for list property", e);
-            }
-            readOnlyData[index] = Collections.unmodifiableList(data[index]);
-        } else {
-            data[index].clear();
-        }
+        pool.release(data, readOnlyData, index);
     }
 
     @Override
     public void clone(ValueListProperty<T> src, int srcIndex, int dstIndex) {
         if (src.clone && clone) {
-            set(dstIndex, src.get(srcIndex));
+            List<T> value = src.data[srcIndex];
+            if (value == null || value.isEmpty()) {
+                setDefaultValue(dstIndex);
+            } else {
+                set(dstIndex, value);
+            }
         } else {
             setDefaultValue(dstIndex);
         }
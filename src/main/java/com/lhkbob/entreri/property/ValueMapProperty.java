@@ -26,10 +26,6 @@
  */
 package com.lhkbob.entreri.property;
 
-import com.lhkbob.entreri.IllegalComponentDefinitionException;
-
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,6 +43,14 @@ import java.util.Map;
  * allowed to have null references as keys and values. Value semantics are not enforced upon the elements,
  * they are stored and treated as references.
  *
+ * A component's map is not created until a value is first written to it, so growing the property allocates
+ * nothing for components that never use their map. Until then `get(int)` returns a shared, immutable empty
+ * map; reads never modify the property, so they are safe from parallel streams. The empty map returned before
+ * a component's first write does not reflect that write, so the map must be fetched again afterwards. When a
+ * component is removed or reset to the default value, its map is cleared and recycled for the next component
+ * that needs one, so a read-only map obtained before the reset will show another component's values and
+ * should not be held on to.
+ *
  * ## Supported method patterns
  *
  * ValueMapProperty supports the standard `get(int) -> Map<T>` and `set(int, Map<T>) -> void` methods used
@@ -64,7 +68,7 @@ import java.util.Map;
  */
 public class ValueMapProperty<K, V>
         implements Property<ValueMapProperty<K, V>>, Property.ValueSemantics, Property.Generic<Map<K, V>> {
-    private final Constructor<? extends Map<K, V>> newMapCtor;
+    private final CollectionPool<Map<K, V>> pool;
     private final boolean clone;
     private Map<K, V>[] data;
     private Map<K, V>[] readOnlyData;
@@ -78,18 +82,11 @@ public class ValueMapProperty<K, V>
      */
     @SuppressWarnings("unchecked")
     public ValueMapProperty(Class<? extends Map> mapClass, boolean cloneValue) {
-        try {
-            newMapCtor = (Constructor<? extends Map<K, V>>) mapClass.getConstructor();
-        } catch (NoSuchMethodException e) {
-            throw new IllegalComponentDefinitionException("Requested backing Map implementation does not have a public default constructor: " +
-                                                          mapClass);
-        }
+        pool = new CollectionPool<>(CollectionPool.newFactory(mapClass, "Map"),
+                                    Collections::unmodifiableMap, Map::clear);
         clone = cloneValue;
         data = new Map[1];
         readOnlyData = new Map[1];
-
-        // must initialize it so that the 0 index obeys value semantics
-        setDefaultValue(0);
     }
 
     /**
@@ -101,10 +98,13 @@ public class ValueMapProperty<K, V>
 
     /**
      * @param index The component index
-     * @return The current Map as a read-only view (this mirrors any changes to the map)
+     * @return The current Map as a read-only view, which mirrors later changes to the map once the
+     *         component's map has been written
      */
     public Map<K, V> get(int index) {
-        return readOnlyData[index];
+        Map<K, V> value = readOnlyData[index];
+        // unallocated slots are not allocated by reads, so that reads never modify the property
+        return (value == null ? Collections.emptyMap() : value);
     }
 
     /**
@@ -117,6 +117,7 @@ public class ValueMapProperty<K, V>
         if (map == null) {
             throw new NullPointerException("Value-semantics map cannot be null");
         }
+        pool.acquire(data, readOnlyData, index);
         data[index].clear();
         data[index].putAll(map);
     }
@@ -131,6 +132,7 @@ public class ValueMapProperty<K, V>
      * @return The previous value for the key, or null
      */
     public V put(int index, K key, V value) {
+        pool.acquire(data, readOnlyData, index);
         return data[index].put(key, value);
     }
 
@@ -143,7 +145,7 @@ public class ValueMapProperty<K, V>
      * @return The current map's value associated with the key
      */
     public V get(int index, K key) {
-        return data[index].get(key);
+        return (data[index] == null ? null : data[index].get(key));
     }
 
     /**
@@ -155,7 +157,7 @@ public class ValueMapProperty<K, V>
      * @return The element that was removed
      */
     public V remove(int index, K key) {
-        return data[index].remove(key);
+        return (data[index] == null ? null : data[index].remove(key));
     }
 
     /**
@@ -167,20 +169,16 @@ public class ValueMapProperty<K, V>
      * @return True if the current map contains the `key`
      */
     public boolean contains(int index, K key) {
-        return data[index].containsKey(key);
+        return data[index] != null && data[index].containsKey(key);
     }
 
     @Override
     public void setCapacity(int size) {
-        int oldLength = data.length;
-
         data = Arrays.copyOf(data, size);
         readOnlyData = Arrays.copyOf(readOnlyData, size);
 
-        // guarantee we have value semantics for new values
-        for (int i = oldLength; i < size; i++) {
-            setDefaultValue(i);
-        }
+        // new slots are left null until they're written
+        pool.trim(size);
     }
 
     @Override
@@ -201,23 +199,18 @@ public class ValueMapProperty<K, V>
 
     @Override
     public void setDefaultValue(int index) {
-        if (data[index] == null) {
-            // first time initialization for this slot
-            try {
-                data[index] = newMapCtor.newInstance();
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException("Error creating default value for map property", e);
-            }
-            readOnlyData[index] = Collections.unmodifiableMap(data[index]);
-        } else {
-            data[index].clear();
-        }
+        pool.release(data, readOnlyData, index);
     }
 
     @Override
     public void clone(ValueMapProperty<K, V> src, int srcIndex, int dstIndex) {
         if (src.clone && clone) {
-            set(dstIndex, src.get(srcIndex));
+            Map<K, V> value = src.data[srcIndex];
+            if (value == null || value.isEmpty()) {
+                setDefaultValue(dstIndex);
+            } else {
+                set(dstIndex, value);
+            }
         } else {
             setDefaultValue(dstIndex);
         }
@@ -26,10 +26,6 @@
  */
 package com.lhkbob.entreri.property;
 
-import com.lhkbob.entreri.IllegalComponentDefinitionException;
-
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -46,6 +42,14 @@ import java.util.Set;
  * itself cannot store null sets as a value type, the sets it maintains are allowed to have null references as
  * elements. Value semantics are not enforced upon the elements, they are stored and treated as references.
  *
+ * A component's set is not created until a value is first written to it, so growing the property allocates
+ * nothing for components that never use their set. Until then `get(int)` returns a shared, immutable empty
+ * set; reads never modify the property, so they are safe from parallel streams. The empty set returned before
+ * a component's first write does not reflect that write, so the set must be fetched again afterwards. When a
+ * component is removed or reset to the default value, its set is cleared and recycled for the next component
+ * that needs one, so a read-only set obtained before the reset will show another component's values and
+ * should not be held on to.
+ *
  * ## Supported method patterns
  *
  * ValueSetProperty supports the standard `get(int) -> Set<T>` and `set(int, Set<T>) -> void` methods used
@@ -62,7 +66,7 @@ import java.util.Set;
  */
 public class ValueSetProperty<T>
         implements Property<ValueSetProperty<T>>, Property.ValueSemantics, Property.Generic<Set<T>> {
-    private final Constructor<? extends Set<T>> newSetCtor;
+    private final CollectionPool<Set<T>> pool;
     private final boolean clone;
     private Set<T>[] data;
     private Set<T>[] readOnlyData;
@@ -76,18 +80,11 @@ public class ValueSetProperty<T>
      */
     @SuppressWarnings("unchecked")
     public ValueSetProperty(Class<? extends Set> setClass, boolean cloneValue) {
-        try {
-            newSetCtor = (Constructor<? extends Set<T>>) setClass.getConstructor();
-        } catch (NoSuchMethodException e) {
-            throw new IllegalComponentDefinitionException("Requested backing Set implementation does not have a public default constructor: " +
-                                                          setClass);
-        }
+        pool = new CollectionPool<>(CollectionPool.newFactory(setClass, "Set"),
+                                    Collections::unmodifiableSet, Set::clear);
         clone = cloneValue;
         data = new Set[1];
         readOnlyData = new Set[1];
-
-        // must initialize it so that the 0 index obeys value semantics
-        setDefaultValue(0);
     }
 
     /**
@@ -99,10 +96,13 @@ public class ValueSetProperty<T>
 
     /**
      * @param index The component index
-     * @return The current Set as a read-only reference (this mirrors any changes to the value)
+     * @return The current Set as a read-only reference, which mirrors later changes to the value once the
+     *         component's set has been written
      */
     public Set<T> get(int index) {
-        return readOnlyData[index];
+        Set<T> value = readOnlyData[index];
+        // unallocated slots are not allocated by reads, so that reads never modify the property
+        return (value == null ? Collections.emptySet() : value);
     }
 
     /**
@@ -115,6 +115,7 @@ public class ValueSetProperty<T>
         if (set == null) {
             throw new NullPointerException("Value-semantics set cannot be null");
         }
+        pool.acquire(data, readOnlyData, index);
         data[index].clear();
         data[index].addAll(set);
     }
@@ -128,6 +129,7 @@ public class ValueSetProperty<T>
      * @return True if the set was modified (e.g. the set did not contain the element before)
      */
     public boolean add(int index, T element) {
+        pool.acquire(data, readOnlyData, index);
         return data[index].add(element);
     }
 
@@ -140,7 +142,7 @@ public class ValueSetProperty<T>
      * @return True if the element was removed
      */
     public boolean remove(int index, T element) {
-        return data[index].remove(element);
+        return data[index] != null && data[index].remove(element);
     }
 
     /**
@@ -152,19 +154,16 @@ public class ValueSetProperty<T>
      * @return True if the current set contains `element`
      */
     public boolean contains(int index, T element) {
-        return data[index].contains(element);
+        return data[index] != null && data[index].contains(element);
     }
 
     @Override
     public void setCapacity(int size) {
-        int oldLength = data.length;
         data = Arrays.copyOf(data, size);
         readOnlyData = Arrays.copyOf(readOnlyData, size);
 
-        // guarantee we have value semantics for new elements
-        for (int i = oldLength; i < size; i++) {
-            setDefaultValue(i);
-        }
+        // new slots are left null until they're written
+        pool.trim(size);
     }
 
     @Override
@@ -185,23 +184,18 @@ public class ValueSetProperty<T>
 
     @Override
     public void setDefaultValue(int index) {
-        if (data[index] == null) {
-            // first time initialization for this slot
-            try {
-                data[index] = newSetCtor.newInstance();
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException("Error creating default value for set property", e);
-            }
-            readOnlyData[index] = Collections.unmodifiableSet(data[index]);
-        } else {
-            data[index].clear();
-        }
+        pool.release(data, readOnlyData, index);
     }
 
     @Override
     public void clone(ValueSetProperty<T> src, int srcIndex, int dstIndex) {
         if (src.clone && clone) {
-            set(dstIndex, src.get(srcIndex));
+            Set<T> value = src.data[srcIndex];
+            if (value == null || value.isEmpty()) {
+                setDefaultValue(dstIndex);
+            } else {
+                set(dstIndex, value);
+            }
         } else {
             setDefaultValue(dstIndex);
         }
@@ -28,9 +28,12 @@ package com.lhkbob.entreri.task;
 
 import com.lhkbob.entreri.Component;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -51,8 +54,13 @@ import java.util.concurrent.locks.Lock;
 public class Job implements Runnable {
     private final Task[] tasks;
     private final Map<Class<? extends Result>, List<ResultReporter>> resultMethods;
+    // all reporters that receive a concrete result class, including those declared for its super types,
+    // filled in as results are reported, which can happen concurrently from parallel streams
+    private final Map<Class<? extends Result>, ResultReporter[]> dispatchCache;
 
     private final List<Lock> locks; // includes system lock and type locks in proper, consistent order to prevent deadlocks
+    // types whose accumulator shards are merged before unlocking, or null to merge every type
+    private final List<Class<? extends Component>> mergedTypes;
 
     private final Scheduler scheduler;
     private final String name;
@@ -60,6 +68,14 @@ public class Job implements Runnable {
     private final Set<Class<? extends Result>> singletonResults;
     private int taskIndex;
 
+    // non-null while running a recorded or replayed frame, along with the post-processing pass number
+    private Frame frame;
+    private int pass;
+
+    // the frame used when the scheduler has a recorder, recreated if the recorder changes
+    private JobRecorder recorder;
+    private Frame recordingFrame;
+
     /**
      * Create a new job with the given name and tasks.
      *
@@ -76,13 +92,15 @@ public class Job implements Runnable {
         this.tasks = new Task[tasks.length];
         this.name = name;
 
-        singletonResults = new HashSet<>();
+        singletonResults = ConcurrentHashMap.newKeySet();
         resultMethods = new HashMap<>();
+        dispatchCache = new ConcurrentHashMap<>();
         taskIndex = -1;
 
         boolean exclusive = false;
         Set<Class<? extends Component>> writtenTypes = new HashSet<>();
         Set<Class<? extends Component>> readTypes = new HashSet<>();
+        Set<Class<? extends Component>> bufferedTypes = new HashSet<>();
         for (int i = 0; i < tasks.length; i++) {
             if (tasks[i] == null) {
                 throw new NullPointerException("Task cannot be null");
@@ -101,6 +119,9 @@ public class Job implements Runnable {
                     readTypes.remove(written); // if it was read-only it can't be anymore
                     writtenTypes.add(written);
                 }
+                for (Class<? extends Component> buffered : config.bufferedComponents()) {
+                    bufferedTypes.add(buffered);
+                }
                 for (Class<? extends Component> readOnly : config.readOnlyComponents()) {
                     // if it's a modified type don't put it in the readtypes collection
                     if (!writtenTypes.contains(readOnly)) {
@@ -117,21 +138,20 @@ public class Job implements Runnable {
                         Result.class.isAssignableFrom(m.getParameterTypes()[0])) {
                         // found a valid report method
                         m.setAccessible(true);
-                        ResultReporter reporter = new ResultReporter(m, i);
-                        Class<? extends Result> type = reporter.getResultType();
-
-                        List<ResultReporter> all = resultMethods.get(type);
-                        if (all == null) {
-                            all = new ArrayList<>();
-                            resultMethods.put(type, all);
-                        }
-
-                        all.add(reporter);
+                        ResultReporter reporter = new ResultReporter(m, tasks[i]);
+                        resultMethods.computeIfAbsent(reporter.getResultType(), t -> new ArrayList<>())
+                                     .add(reporter);
                     }
                 }
             }
         }
 
+        if (exclusive) {
+            mergedTypes = null;
+        } else {
+            mergedTypes = new ArrayList<>(writtenTypes);
+        }
+
         locks = new ArrayList<>();
         // first lock is always for the system, either read or write depending on exclusivity of tasks
         if (exclusive) {
@@ -143,14 +163,13 @@ public class Job implements Runnable {
         // type locks are acquired always in name order, regardless of it its a read or write lock
         List<Class<? extends Component>> consistentTypeOrdering = new ArrayList<>(writtenTypes.size() +
                                                                                   readTypes.size());
+        // buffered types only need to block modifying tasks, so they are read locked like read-only types
+        bufferedTypes.removeAll(writtenTypes);
+        readTypes.removeAll(bufferedTypes);
         consistentTypeOrdering.addAll(writtenTypes);
         consistentTypeOrdering.addAll(readTypes);
-        Collections.sort(consistentTypeOrdering, new Comparator<Class<? extends Component>>() {
-            @Override
-            public int compare(Class<? extends Component> o1, Class<? extends Component> o2) {
-                return o1.getName().compareTo(o2.getName());
-            }
-        });
+        consistentTypeOrdering.addAll(bufferedTypes);
+        consistentTypeOrdering.sort(Comparator.comparing(Class::getName));
         for (Class<? extends Component> type : consistentTypeOrdering) {
             if (writtenTypes.contains(type)) {
                 locks.add(scheduler.getTypeLock(type).writeLock());
@@ -158,6 +177,14 @@ public class Job implements Runnable {
                 locks.add(scheduler.getTypeLock(type).readLock());
             }
         }
+
+        // buffer locks serialize the writers of each back buffer, and are always acquired after every type
+        // lock, again in name order
+        List<Class<? extends Component>> consistentBufferOrdering = new ArrayList<>(bufferedTypes);
+        consistentBufferOrdering.sort(Comparator.comparing(Class::getName));
+        for (Class<? extends Component> type : consistentBufferOrdering) {
+            locks.add(scheduler.getBufferLock(type));
+        }
     }
 
     /**
@@ -183,14 +210,37 @@ public class Job implements Runnable {
      */
     @Override
     public void run() {
+        JobRecorder currentRecorder = scheduler.getRecorder();
+        if (currentRecorder == null) {
+            run(null);
+        } else {
+            if (currentRecorder != recorder) {
+                recorder = currentRecorder;
+                recordingFrame = currentRecorder.newFrame(this);
+            }
+            run(recordingFrame);
+        }
+    }
+
+    /**
+     * Invoke all tasks in this job, and those of any post-processing jobs, as a single frame of a recording
+     * or replay.
+     *
+     * @param frame The frame, or null if the job is not recorded or replayed
+     */
+    void run(Frame frame) {
         // repeatedly run jobs until no task produces a post-process task
         Job toInvoke = this;
+        int pass = 0;
         while (toInvoke != null) {
-            toInvoke = toInvoke.runJob();
+            toInvoke = toInvoke.runJob(frame, pass++);
+        }
+        if (frame != null) {
+            frame.endFrame(this);
         }
     }
 
-    private Job runJob() {
+    private Job runJob(Frame frame, int pass) {
         // acquire locks (already correctly organized in the constructor)
         for (int i = 0; i < locks.size(); i++) {
             locks.get(i).lock();
@@ -199,6 +249,8 @@ public class Job implements Runnable {
         try {
             // reset all tasks and the job
             taskIndex = 0;
+            this.frame = frame;
+            this.pass = pass;
             singletonResults.clear();
             for (int i = 0; i < tasks.length; i++) {
                 tasks[i].reset(scheduler.getEntitySystem());
@@ -212,11 +264,18 @@ public class Job implements Runnable {
                 if (after != null) {
                     postProcess.add(after);
                 }
+                if (frame != null) {
+                    frame.afterTask(this, pass, i);
+                }
             }
 
             // set this to negative so that report() can fail now that
             // we're not executing tasks anymore
             taskIndex = -1;
+            this.frame = null;
+
+            // values accumulated by parallel workers become visible before other jobs can read the types
+            scheduler.mergeShards(mergedTypes);
 
             if (postProcess.isEmpty()) {
                 // nothing to process afterwards
@@ -250,7 +309,20 @@ public class Job implements Runnable {
         if (taskIndex < 0) {
             throw new IllegalStateException("Can only be invoked by a task from within run()");
         }
+        if (frame != null && !frame.intercept(r, pass, taskIndex)) {
+            // a replayed frame reports the recorded result instead
+            return;
+        }
+        dispatch(r);
+    }
 
+    /**
+     * Report the result to the tasks of this job, without notifying a recording or replay.
+     *
+     * @param r The result to report
+     * @throws IllegalStateException if r is a singleton result whose type has already been reported
+     */
+    void dispatch(Result r) {
         if (r.isSingleton()) {
             // make sure this is the first we've seen the result
             if (!singletonResults.add(r.getClass())) {
@@ -259,19 +331,25 @@ public class Job implements Runnable {
             }
         }
 
-        Class<?> type = r.getClass();
+        // the concrete result classes are only known once reported, so the cache can't be built up front
+        ResultReporter[] reporters = dispatchCache.computeIfAbsent(r.getClass(), this::getReporters);
+        for (int i = 0; i < reporters.length; i++) {
+            reporters[i].report(r);
+        }
+    }
+
+    private ResultReporter[] getReporters(Class<? extends Result> resultType) {
+        // report to all methods that receive the type, then those of each super type
+        List<ResultReporter> reporters = new ArrayList<>();
+        Class<?> type = resultType;
         while (Result.class.isAssignableFrom(type)) {
-            // report to all methods that receive the type
             List<ResultReporter> all = resultMethods.get(type);
             if (all != null) {
-                int ct = all.size();
-                for (int i = 0; i < ct; i++) {
-                    all.get(i).report(r);
-                }
+                reporters.addAll(all);
             }
-
             type = type.getSuperclass();
         }
+        return reporters.toArray(new ResultReporter[reporters.size()]);
     }
 
     @Override
@@ -279,29 +357,65 @@ public class Job implements Runnable {
         return "Job(" + name + ", # tasks=" + tasks.length + ")";
     }
 
-    private class ResultReporter {
-        private final Method reportMethod;
-        private final int taskIndex;
+    /**
+     * Frame is the hook that a {@link JobRecorder} or {@link JobReplayer} uses to observe and control the
+     * results reported during one execution of a job and its post-processing jobs.
+     */
+    interface Frame {
+        /**
+         * Called when a task reports a result.
+         *
+         * @param r         The reported result
+         * @param pass      The post-processing pass, 0 for the job itself
+         * @param taskIndex The index of the reporting task within the pass's job
+         * @return True if the result should be reported to the job's tasks
+         */
+        boolean intercept(Result r, int pass, int taskIndex);
+
+        /**
+         * Called after a task's `process()` method returns, while the job's locks are held.
+         *
+         * @param job       The job of the current pass
+         * @param pass      The post-processing pass, 0 for the job itself
+         * @param taskIndex The index of the task that completed
+         */
+        void afterTask(Job job, int pass, int taskIndex);
+
+        /**
+         * Called after the job and all of its post-processing jobs complete, without any locks held.
+         *
+         * @param job The top-level job
+         */
+        void endFrame(Job job);
+    }
+
+    private static class ResultReporter {
+        private final MethodHandle reportHandle; // (Result)void, bound to the task
+        private final Class<? extends Result> resultType;
 
-        public ResultReporter(Method reportMethod, int taskIndex) {
-            this.reportMethod = reportMethod;
-            this.taskIndex = taskIndex;
+        @SuppressWarnings("unchecked")
+        public ResultReporter(Method reportMethod, Task task) {
+            resultType = (Class<? extends Result>) reportMethod.getParameterTypes()[0];
+            try {
+                reportHandle = MethodHandles.lookup().unreflect(reportMethod).bindTo(task)
+                                            .asType(MethodType.methodType(void.class, Result.class));
+            } catch (IllegalAccessException e) {
+                // shouldn't happen, since the method was made accessible
+                throw new RuntimeException(e);
+            }
         }
 
         public void report(Result r) {
             try {
-                reportMethod.invoke(Job.this.tasks[taskIndex], r);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                // shouldn't happen, since we check the type before invoking
-                throw new RuntimeException(e);
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException("Error reporting result", e.getCause());
+                // the result's type was checked when the dispatch list was built
+                reportHandle.invokeExact(r);
+            } catch (Throwable t) {
+                throw new RuntimeException("Error reporting result", t);
             }
         }
 
-        @SuppressWarnings("unchecked")
         public Class<? extends Result> getResultType() {
-            return (Class<? extends Result>) reportMethod.getParameterTypes()[0];
+            return resultType;
         }
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.task;
+
+import com.lhkbob.entreri.EntitySystem;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * JobLog
+ * ======
+ *
+ * Shared implementation of {@link JobRecorder} and {@link JobReplayer}, which holds the result codecs and
+ * defines the format of the log. A log starts with a magic number and version, followed by a sequence of
+ * records that each start with a record type byte. Job names and result types are written once in their own
+ * records the first time they are used, and frame records refer to them by index. Every frame record holds
+ * the encoded results of one execution of a job, along with a checkpoint of the entity system's structure
+ * after the job completed:
+ *
+ * * job index, entity count, and structure hash (see {@link EntitySystem#getStructureChecksum()})
+ * * result count, and then per result: pass, task index, result type index, data length, and data
+ *
+ * The pass is 0 for the job itself and counts up for each post-processing job it spawned.
+ *
+ * @author Michael Ludwig
+ */
+abstract class JobLog {
+    static final int MAGIC = 0x454e544a; // "ENTJ"
+    static final int VERSION = 2; // version 1 checkpoints only hashed the entity ids
+
+    static final byte JOB_RECORD = 1;
+    static final byte RESULT_TYPE_RECORD = 2;
+    static final byte FRAME_RECORD = 3;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<Class<? extends Result>, ResultCodec<?>> codecs;
+
+    JobLog() {
+        codecs = new HashMap<>();
+        codecs.put(ElapsedTimeResult.class, new ElapsedTimeCodec());
+    }
+
+    /**
+     * Set the codec used for results of the exact type `type`, replacing any previous codec. A null codec
+     * stops results of the type from being recorded or replayed. Codecs must be configured before the log is
+     * used, and must be the same when recording and replaying a log.
+     *
+     * @param type  The result type
+     * @param codec The codec for the type, or null
+     * @param <R>   The result type
+     * @throws NullPointerException if type is null
+     */
+    public <R extends Result> void setResultCodec(Class<R> type, ResultCodec<R> codec) {
+        if (type == null) {
+            throw new NullPointerException("Result type cannot be null");
+        }
+        if (codec == null) {
+            codecs.remove(type);
+        } else {
+            codecs.put(type, codec);
+        }
+    }
+
+    /**
+     * @param type The result type
+     * @return The codec for the exact result type, or null if results of the type are not recorded
+     */
+    @SuppressWarnings("unchecked")
+    ResultCodec<Result> getResultCodec(Class<?> type) {
+        return (ResultCodec<Result>) codecs.get(type);
+    }
+
+    /**
+     * @param typeName The name of the result type
+     * @return The codec for the result type with the given name, or null if results of the type are not
+     *         recorded
+     */
+    ResultCodec<Result> getResultCodec(String typeName) {
+        for (Class<? extends Result> type : codecs.keySet()) {
+            if (type.getName().equals(typeName)) {
+                return getResultCodec(type);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compute the structure checkpoint of the system, see {@link EntitySystem#getStructureChecksum()}.
+     *
+     * @param scheduler The scheduler of the system
+     * @return The checkpoint
+     */
+    static long getCheckpoint(Scheduler scheduler) {
+        Lock lock = scheduler.getEntitySystemLock().readLock();
+        lock.lock();
+        try {
+            return scheduler.getEntitySystem().getStructureChecksum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static void putString(ByteBuffer buffer, byte[] utf8) {
+        buffer.putInt(utf8.length);
+        buffer.put(utf8);
+    }
+
+    private static class ElapsedTimeCodec implements ResultCodec<ElapsedTimeResult> {
+        @Override
+        public void write(ElapsedTimeResult result, ByteBuffer out) {
+            out.putDouble(result.getTimeDelta());
+        }
+
+        @Override
+        public ElapsedTimeResult read(ByteBuffer in) {
+            return new ElapsedTimeResult(in.getDouble());
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JobRecorder
+ * ===========
+ *
+ * JobRecorder records every execution of the jobs of a {@link Scheduler} to a compact, append-only binary
+ * log so that the executions can be reproduced later by a {@link JobReplayer}. It is attached to a scheduler
+ * with {@link Scheduler#setRecorder(JobRecorder)}. For each execution, or frame, of a job the recorder logs
+ * the results reported by the job's tasks that have a registered {@link ResultCodec}, such as the {@link
+ * ElapsedTimeResult} of a timer and any results that deliver external input. After the job and its
+ * post-processing jobs complete, it logs a checkpoint of the entity system's structure, {@link
+ * com.lhkbob.entreri.EntitySystem#getStructureChecksum()}: the number of entities, a hash of their ids and,
+ * per component type, the number of components, the entities they are attached to and their version
+ * sequence. Replaying verifies the checkpoints, which catches entities or components that were added,
+ * removed or attached differently than when recording, and setters that were called a different number of
+ * times. Property values themselves are not compared, so a divergent value is only caught once it changes
+ * the structure or the number of writes.
+ *
+ * Results are encoded into a buffer owned by the job while it runs, and each frame is appended to the log's
+ * buffer as a single record, which is written to the channel whenever it fills up. Recording a frame at 60Hz
+ * therefore costs a few dozen bytes and no I/O in most frames. The checkpoint is maintained by the entity
+ * system as entities and components are added and removed, so it costs nothing extra for large worlds. Jobs
+ * that call auto-versioning setters from parallel streams increment the version sequences concurrently, and
+ * their checkpoints may not be reproducible.
+ *
+ * The recorder is thread safe, frames of jobs running in parallel are appended in the order they complete.
+ * The log should be started right after taking a snapshot of the system so that it can be replayed against
+ * the restored snapshot, and it must be {@link #close() closed} to write out the buffered frames.
+ *
+ * @author Michael Ludwig
+ */
+public class JobRecorder extends JobLog implements Closeable {
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final ByteBuffer buffer;
+
+    private final Map<String, Integer> jobIds;
+    private final Map<Class<?>, Integer> resultTypeIds;
+    private int frameCount;
+    private boolean closed;
+
+    /**
+     * Create a recorder that writes a new log to the file at `path`, replacing any existing file.
+     *
+     * @param path The file to write
+     * @throws IOException if the file could not be created
+     */
+    public JobRecorder(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                              StandardOpenOption.WRITE), true);
+    }
+
+    /**
+     * Create a recorder that writes a new log to `channel`. The channel is not closed when the recorder is
+     * closed.
+     *
+     * @param channel The channel to write to
+     * @throws NullPointerException if channel is null
+     */
+    public JobRecorder(WritableByteChannel channel) {
+        this(channel, false);
+    }
+
+    private JobRecorder(WritableByteChannel channel, boolean closeChannel) {
+        if (channel == null) {
+            throw new NullPointerException("Channel cannot be null");
+        }
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        jobIds = new HashMap<>();
+        resultTypeIds = new HashMap<>();
+        frameCount = 0;
+        closed = false;
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    /**
+     * @return The number of frames recorded so far
+     */
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Write all buffered frames to the channel.
+     *
+     * @throws IOException if the channel could not be written to
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write all buffered frames to the channel and stop recording. Jobs that complete after the recorder is
+     * closed are not recorded. If the recorder was created with a path, the file is closed as well.
+     *
+     * @throws IOException if the channel could not be written to
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                flush();
+            } finally {
+                if (closeChannel) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param job The top-level job being recorded
+     * @return A new frame that records executions of the job
+     */
+    Job.Frame newFrame(Job job) {
+        return new RecordingFrame(getJobId(job.getName()));
+    }
+
+    private synchronized int getJobId(String name) {
+        Integer id = jobIds.get(name);
+        if (id == null) {
+            id = jobIds.size();
+            jobIds.put(name, id);
+            writeDefinition(JOB_RECORD, id, name);
+        }
+        return id;
+    }
+
+    private synchronized int getResultTypeId(Class<?> type) {
+        Integer id = resultTypeIds.get(type);
+        if (id == null) {
+            id = resultTypeIds.size();
+            resultTypeIds.put(type, id);
+            writeDefinition(RESULT_TYPE_RECORD, id, type.getName());
+        }
+        return id;
+    }
+
+    private void writeDefinition(byte recordType, int id, String name) {
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        require(9 + utf8.length);
+        buffer.put(recordType);
+        buffer.putInt(id);
+        putString(buffer, utf8);
+    }
+
+    private synchronized void writeFrame(int jobId, long checkpoint, int resultCount, ByteBuffer results) {
+        if (closed) {
+            return;
+        }
+        require(17);
+        buffer.put(FRAME_RECORD);
+        buffer.putInt(jobId);
+        buffer.putLong(checkpoint);
+        buffer.putInt(resultCount);
+
+        results.flip();
+        if (results.remaining() > buffer.capacity()) {
+            // too large to buffer, so write the buffered records and then the results directly
+            try {
+                flush();
+                while (results.hasRemaining()) {
+                    channel.write(results);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to record job frame", e);
+            }
+        } else {
+            require(results.remaining());
+            buffer.put(results);
+        }
+        frameCount++;
+    }
+
+    private void require(int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to record job frame", e);
+            }
+        }
+    }
+
+    /*
+     * Frame that encodes the results reported to a job while it runs and appends them to the log as a single
+     * record once the job completes.
+     */
+    private class RecordingFrame implements Job.Frame {
+        private final int jobId;
+        private ByteBuffer results;
+        private int resultCount;
+
+        public RecordingFrame(int jobId) {
+            this.jobId = jobId;
+            results = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+            resultCount = 0;
+        }
+
+        @Override
+        public boolean intercept(Result r, int pass, int taskIndex) {
+            ResultCodec<Result> codec = getResultCodec(r.getClass());
+            if (codec != null) {
+                int typeId = getResultTypeId(r.getClass());
+                int start = results.position();
+                while (true) {
+                    try {
+                        results.putInt(pass);
+                        results.putInt(taskIndex);
+                        results.putInt(typeId);
+                        results.putInt(0); // patched once the length is known
+                        codec.write(r, results);
+                        break;
+                    } catch (BufferOverflowException e) {
+                        ByteBuffer larger = ByteBuffer.allocate(results.capacity() * 2)
+                                                      .order(ByteOrder.LITTLE_ENDIAN);
+                        results.flip().limit(start);
+                        larger.put(results);
+                        results = larger;
+                    }
+                }
+                results.putInt(start + 12, results.position() - start - 16);
+                resultCount++;
+            }
+            return true;
+        }
+
+        @Override
+        public void afterTask(Job job, int pass, int taskIndex) {
+            // nothing to do
+        }
+
+        @Override
+        public void endFrame(Job job) {
+            writeFrame(jobId, getCheckpoint(job.getScheduler()), resultCount, results);
+            results.clear();
+            resultCount = 0;
+        }
+    }
+}
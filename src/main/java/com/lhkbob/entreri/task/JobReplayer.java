@@ -0,0 +1,332 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JobReplayer
+ * ===========
+ *
+ * JobReplayer re-runs the frames of a log written by a {@link JobRecorder}. Replaying is meant to be done
+ * against a system restored from a snapshot that was taken when the recording started, using jobs that have
+ * the same names and tasks as the recorded jobs:
+ *
+ * ```java
+ * EntitySystem system = EntitySystem.Factory.create();
+ * new SnapshotReader().read(snapshotFile, system);
+ * Job update = system.getScheduler().createJob("update", Timers.measuredDelta(), new PhysicsTask());
+ * try (JobReplayer replayer = new JobReplayer(logFile)) {
+ *     replayer.replay(update);
+ * }
+ * ```
+ *
+ * Each recorded frame runs the job with the same name on the current thread. Results with a registered
+ * {@link ResultCodec} that the job's tasks report are discarded, and the recorded results are reported
+ * instead, right after the task that originally reported them completes. The task that reports a result
+ * therefore receives the recorded result after its `process()` method returns instead of during it, while
+ * every other task receives it at the same point as when recording. After each frame, the structure of the
+ * entity system is compared against the recorded checkpoint, and an IllegalStateException identifies the
+ * first frame that diverged.
+ *
+ * @author Michael Ludwig
+ */
+public class JobReplayer extends JobLog implements Closeable {
+    private final ReadableByteChannel channel;
+    private final boolean closeChannel;
+    private ByteBuffer buffer;
+    private boolean endOfChannel;
+
+    private final List<String> jobNames;
+    private final List<String> resultTypes;
+    private final List<ResultCodec<Result>> resultCodecs; // null if the type has no codec
+    private int frameCount;
+
+    /**
+     * Create a replayer that reads the log in the file at `path`.
+     *
+     * @param path The file to read
+     * @throws IOException if the file could not be opened or is not a job log
+     */
+    public JobReplayer(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), true);
+    }
+
+    /**
+     * Create a replayer that reads the log from `channel`. The channel is not closed when the replayer is
+     * closed.
+     *
+     * @param channel The channel to read from
+     * @throws IOException          if the channel could not be read or is not a job log
+     * @throws NullPointerException if channel is null
+     */
+    public JobReplayer(ReadableByteChannel channel) throws IOException {
+        this(channel, false);
+    }
+
+    private JobReplayer(ReadableByteChannel channel, boolean closeChannel) throws IOException {
+        if (channel == null) {
+            throw new NullPointerException("Channel cannot be null");
+        }
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip(); // start out empty
+        endOfChannel = false;
+        jobNames = new ArrayList<>();
+        resultTypes = new ArrayList<>();
+        resultCodecs = new ArrayList<>();
+        frameCount = 0;
+
+        if (!require(8) || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a job log");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported job log version: " + version);
+        }
+    }
+
+    /**
+     * @return The number of frames replayed so far
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Replay all remaining frames of the log.
+     *
+     * @param jobs The jobs to run, which must include a job with the name of every recorded job
+     * @return The number of frames replayed
+     * @throws IOException           if the log could not be read or is corrupt
+     * @throws IllegalStateException if the replay diverged from the recording, or a recorded job or result
+     *                               type is not available
+     */
+    public int replay(Job... jobs) throws IOException {
+        int count = 0;
+        while (replayFrame(jobs)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Replay the next frame of the log, which is useful for stepping through a recording in a debugger.
+     *
+     * @param jobs The jobs to run, which must include a job with the name of every recorded job
+     * @return True if a frame was replayed, or false if the end of the log was reached
+     * @throws IOException           if the log could not be read or is corrupt
+     * @throws IllegalStateException if the replay diverged from the recording, or a recorded job or result
+     *                               type is not available
+     */
+    public boolean replayFrame(Job... jobs) throws IOException {
+        while (require(1)) {
+            byte recordType = buffer.get();
+            if (recordType == JOB_RECORD) {
+                readDefinition(jobNames);
+            } else if (recordType == RESULT_TYPE_RECORD) {
+                readDefinition(resultTypes);
+                resultCodecs.add(getResultCodec(resultTypes.get(resultTypes.size() - 1)));
+            } else if (recordType == FRAME_RECORD) {
+                readFrame(jobs);
+                frameCount++;
+                return true;
+            } else {
+                throw new IOException("Corrupt job log, unknown record type: " + recordType);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Close the log. If the replayer was created with a path, the file is closed.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    private void readDefinition(List<String> definitions) throws IOException {
+        requireFully(8);
+        int id = buffer.getInt();
+        int length = buffer.getInt();
+        requireFully(length);
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        if (id != definitions.size()) {
+            throw new IOException("Corrupt job log, unexpected definition " + id);
+        }
+        definitions.add(new String(utf8, StandardCharsets.UTF_8));
+    }
+
+    private void readFrame(Job[] jobs) throws IOException {
+        requireFully(16);
+        int jobId = buffer.getInt();
+        long checkpoint = buffer.getLong();
+        int resultCount = buffer.getInt();
+        if (jobId < 0 || jobId >= jobNames.size()) {
+            throw new IOException("Corrupt job log, unknown job " + jobId);
+        }
+        String name = jobNames.get(jobId);
+        Job job = null;
+        for (Job j : jobs) {
+            if (j.getName().equals(name)) {
+                job = j;
+                break;
+            }
+        }
+        if (job == null) {
+            throw new IllegalStateException("Frame " + frameCount + " requires a job named " + name);
+        }
+
+        ReplayFrame frame = new ReplayFrame(resultCount);
+        for (int i = 0; i < resultCount; i++) {
+            requireFully(16);
+            int pass = buffer.getInt();
+            int taskIndex = buffer.getInt();
+            int typeId = buffer.getInt();
+            int length = buffer.getInt();
+            if (typeId < 0 || typeId >= resultTypes.size()) {
+                throw new IOException("Corrupt job log, unknown result type " + typeId);
+            }
+            ResultCodec<Result> codec = resultCodecs.get(typeId);
+            if (codec == null) {
+                throw new IllegalStateException("No codec for recorded result type " +
+                                                resultTypes.get(typeId));
+            }
+
+            requireFully(length);
+            int limit = buffer.limit();
+            int end = buffer.position() + length;
+            buffer.limit(end);
+            frame.add(pass, taskIndex, codec.read(buffer.slice().order(ByteOrder.LITTLE_ENDIAN)));
+            buffer.limit(limit).position(end);
+        }
+
+        job.run(frame);
+
+        if (frame.next < resultCount) {
+            throw new IllegalStateException("Replay of " + name + " diverged in frame " + frameCount +
+                                            ", a recorded result was not reported to task " +
+                                            frame.taskIndices[frame.next] + " in pass " +
+                                            frame.passes[frame.next]);
+        }
+        long actual = getCheckpoint(job.getScheduler());
+        if (actual != checkpoint) {
+            throw new IllegalStateException("Replay of " + name + " diverged in frame " + frameCount +
+                                            ", expected " + (checkpoint >>> 32) + " entities but found " +
+                                            (actual >>> 32) + " or their ids or components differ");
+        }
+    }
+
+    /*
+     * Make sure `bytes` bytes are buffered, growing the buffer if necessary. Returns false if the end of the
+     * channel is reached before then.
+     */
+    private boolean require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (bytes > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes && !endOfChannel) {
+            endOfChannel = channel.read(buffer) < 0;
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    private void requireFully(int bytes) throws IOException {
+        if (bytes < 0 || !require(bytes)) {
+            throw new IOException("Corrupt job log, unexpected end of log");
+        }
+    }
+
+    /*
+     * Frame that discards results of recorded types that the job's tasks report, and reports the recorded
+     * results in their place.
+     */
+    private class ReplayFrame implements Job.Frame {
+        private final int[] passes;
+        private final int[] taskIndices;
+        private final Result[] results;
+        private int count;
+        private int next;
+
+        public ReplayFrame(int resultCount) {
+            passes = new int[resultCount];
+            taskIndices = new int[resultCount];
+            results = new Result[resultCount];
+            count = 0;
+            next = 0;
+        }
+
+        void add(int pass, int taskIndex, Result result) {
+            passes[count] = pass;
+            taskIndices[count] = taskIndex;
+            results[count] = result;
+            count++;
+        }
+
+        @Override
+        public boolean intercept(Result r, int pass, int taskIndex) {
+            return getResultCodec(r.getClass()) == null;
+        }
+
+        @Override
+        public void afterTask(Job job, int pass, int taskIndex) {
+            while (next < count && passes[next] == pass && taskIndices[next] == taskIndex) {
+                job.dispatch(results[next++]);
+            }
+        }
+
+        @Override
+        public void endFrame(Job job) {
+            // verified by the replayer once the job completes
+        }
+    }
+}
@@ -86,6 +86,21 @@ public @interface ParallelAware {
      */
     public Class<? extends Component>[] readOnlyComponents();
 
+    /**
+     * Return the set of component data types whose {@link com.lhkbob.entreri.property.DoubleBuffered double
+     * buffered} properties are written by the task, without reading any values written in the same frame.
+     * Setters of double buffered properties only modify the back buffer, so these tasks can run in parallel
+     * with tasks that read the same types. At most one task that buffers a type runs at a time, and tasks
+     * that list the type in {@link #modifiedComponents()} still get exclusive access to it. The written
+     * values become visible to getters after {@link Scheduler#swapBuffers()}.
+     *
+     * Only the double buffered properties of these types may be modified. Types that are already included in
+     * {@link #modifiedComponents()} do not need to be duplicated in this method.
+     *
+     * @return The set of all component types whose double buffered properties are written by the task
+     */
+    public Class<? extends Component>[] bufferedComponents() default { };
+
     /**
      * Return whether or not {@link Entity entities} are added or removed from an EntitySystem. Note that
      * this refers to using {@link EntitySystem#addEntity()} or {@link EntitySystem#removeEntity(Entity)}, or
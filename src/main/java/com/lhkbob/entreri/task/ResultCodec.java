@@ -0,0 +1,65 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.task;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ResultCodec
+ * ===========
+ *
+ * ResultCodec encodes the results of a particular type to and from the binary log written by a {@link
+ * JobRecorder}. Only results whose type has a registered codec are recorded, and when replaying a log with a
+ * {@link JobReplayer} those are the results that are delivered from the log instead of from the job's
+ * tasks. Codecs should be registered for every result type that carries input from outside of the entity
+ * system, such as elapsed time, user input, or network messages. A codec for {@link ElapsedTimeResult} is
+ * registered by default.
+ *
+ * The buffers are little endian. A codec may write any number of bytes, and must read exactly the bytes
+ * it wrote.
+ *
+ * @param <R> The result type
+ * @author Michael Ludwig
+ */
+public interface ResultCodec<R extends Result> {
+    /**
+     * Write the data of `result` to the end of `out`. If the buffer runs out of space, the recorder grows the
+     * buffer and calls this method again.
+     *
+     * @param result The result to encode
+     * @param out    The buffer to write to
+     */
+    public void write(R result, ByteBuffer out);
+
+    /**
+     * Read a result that was written by {@link #write(Result, ByteBuffer)}.
+     *
+     * @param in The buffer to read from, positioned at the start of the result's data
+     * @return The decoded result
+     */
+    public R read(ByteBuffer in);
+}
@@ -29,7 +29,9 @@ package com.lhkbob.entreri.task;
 import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.EntitySystem;
 
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -61,9 +63,13 @@ public class Scheduler {
     // locks per component data type, this map is filled
     // dynamically the first time each type is requested
     private final ConcurrentHashMap<Class<? extends Component>, ReentrantReadWriteLock> typeLocks;
+    // locks per component data type for the tasks that write its back buffers
+    private final ConcurrentHashMap<Class<? extends Component>, ReentrantLock> bufferLocks;
 
     private final EntitySystem system;
 
+    private volatile JobRecorder recorder;
+
     /**
      * Create a new Scheduler for the given EntitySystem. It is recommended to use the scheduler provided by
      * the system. If multiple schedulers exist for the same entity system, they cannot guarantee thread
@@ -82,6 +88,7 @@ public class Scheduler {
         schedulerGroup = new ThreadGroup("job-scheduler");
         exclusiveLock = new ReentrantReadWriteLock();
         typeLocks = new ConcurrentHashMap<>();
+        bufferLocks = new ConcurrentHashMap<>();
     }
 
     /**
@@ -91,6 +98,24 @@ public class Scheduler {
         return system;
     }
 
+    /**
+     * Set the recorder that logs every execution of the jobs created by this scheduler. Jobs that are
+     * already running when the recorder is set or cleared start or stop recording with their next execution.
+     *
+     * @param recorder The recorder, or null to stop recording
+     * @see JobReplayer
+     */
+    public void setRecorder(JobRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return The recorder that logs job executions, or null if jobs are not recorded
+     */
+    public JobRecorder getRecorder() {
+        return recorder;
+    }
+
     /**
      * @return The read-write lock used to coordinate entity data access
      */
@@ -103,17 +128,45 @@ public class Scheduler {
      * @return The lock used to coordinate access to the particular componen type
      */
     ReentrantReadWriteLock getTypeLock(Class<? extends Component> id) {
-        ReentrantReadWriteLock lock = typeLocks.get(id);
-        if (lock == null) {
-            ReentrantReadWriteLock newLock = new ReentrantReadWriteLock();
-            // this will return the first lock stored into the map, or null if this thread created the first lock
-            lock = typeLocks.putIfAbsent(id, newLock);
-            if (lock == null) {
-                // newLock was the assigned one
-                lock = newLock;
+        return typeLocks.computeIfAbsent(id, t -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * @param id The component type whose back buffers are written
+     * @return The lock used to coordinate the tasks that buffer the particular component type
+     */
+    ReentrantLock getBufferLock(Class<? extends Component> id) {
+        return bufferLocks.computeIfAbsent(id, t -> new ReentrantLock());
+    }
+
+    /**
+     * Swap the front and back buffers of every {@link com.lhkbob.entreri.property.DoubleBuffered double
+     * buffered} property in the entity system, making the values written by tasks that declared {@link
+     * ParallelAware#bufferedComponents()} visible to the component getters. This acquires the system's
+     * exclusive lock, so it blocks until all running jobs complete and is the sync point between frames.
+     * It should be called once per frame after the jobs that write the back buffers.
+     */
+    public void swapBuffers() {
+        exclusiveLock.writeLock().lock();
+        try {
+            system.swapBuffers();
+        } finally {
+            exclusiveLock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Merge the accumulator shards of the given component types, or of every type if types is null. The
+     * calling job must hold the locks for the types.
+     */
+    void mergeShards(List<Class<? extends Component>> types) {
+        if (types == null) {
+            system.mergeShards();
+        } else {
+            for (int i = 0; i < types.size(); i++) {
+                system.mergeShards(types.get(i));
             }
         }
-        return lock;
     }
 
     /**
@@ -204,12 +257,8 @@ public class Scheduler {
         }
 
         final String name = String.format("job-%s-every-%.2fs", job.getName(), dt);
-        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(schedulerGroup, r, name);
-            }
-        });
+        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(
+                r -> new Thread(schedulerGroup, r, name));
         service.scheduleAtFixedRate(job, 0L, (long) (dt * 1e9), TimeUnit.NANOSECONDS);
         return Executors.unconfigurableExecutorService(service);
     }
@@ -243,12 +292,8 @@ public class Scheduler {
         }
 
         final String name = String.format("job-%s-as-fast-as-possible", job.getName());
-        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(schedulerGroup, r, name);
-            }
-        });
+        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(
+                r -> new Thread(schedulerGroup, r, name));
 
         // ScheduledExecutorService has no way to just specify run-as-fast-as-possible.
         // However, if a task takes longer than its fixed-rate, that is the resulting,
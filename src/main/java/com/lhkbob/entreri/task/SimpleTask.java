@@ -31,7 +31,11 @@ import com.lhkbob.entreri.ComponentIterator;
 import com.lhkbob.entreri.EntitySystem;
 
 import java.lang.annotation.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 
 /**
  * SimpleTask
@@ -65,7 +69,9 @@ import java.lang.reflect.Method;
  *
  * In the task's {@link #process(EntitySystem, Job)} method, it can then invoke {@link
  * #processEntities(EntitySystem)} to perform the automated iteration over matching entities within the
- * system. SimpleTask will call the identified 'processEntity' method for each matched entity.
+ * system. SimpleTask will call the identified 'processEntity' method for each matched entity. The method is
+ * invoked through a method handle adapted once per task, so the per-entity cost is a direct call instead of
+ * a reflective invocation.
  *
  * @author Michael Ludwig
  */
@@ -80,7 +86,10 @@ public abstract class SimpleTask implements Task {
     public static @interface Optional {
     }
 
+    private static final int MAX_DIRECT_ARGS = 3;
+
     private final Method processMethod;
+    private final MethodHandle processHandle; // (SimpleTask, Component...)boolean, or spread for many args
     private final boolean[] optional;
 
     // filled with instances after first call to processEntities
@@ -127,6 +136,21 @@ public abstract class SimpleTask implements Task {
 
         this.processMethod = processMethod;
         optional = new boolean[processMethod.getParameterTypes().length];
+        try {
+            // erase the receiver and parameter types so the call sites in processEntities() can use
+            // invokeExact, methods with many parameters are spread from the reused argument array
+            MethodHandle handle = MethodHandles.lookup().unreflect(processMethod);
+            if (optional.length <= MAX_DIRECT_ARGS) {
+                Class<?>[] params = new Class<?>[optional.length];
+                Arrays.fill(params, Component.class);
+                processHandle = handle.asType(MethodType.methodType(boolean.class, SimpleTask.class, params));
+            } else {
+                processHandle = handle.asSpreader(Object[].class, optional.length).asType(
+                        MethodType.methodType(boolean.class, SimpleTask.class, Object[].class));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access processEntity() method", e);
+        }
         componentDatas = new Component[optional.length];
 
         for (int i = 0; i < optional.length; i++) {
@@ -176,20 +200,35 @@ public abstract class SimpleTask implements Task {
         }
 
         try {
-            Object[] invokeArgs = new Object[optional.length];
+            Component[] invokeArgs = new Component[optional.length];
             iterator.reset();
             while (iterator.next()) {
                 for (int i = 0; i < optional.length; i++) {
                     invokeArgs[i] = (optional[i] && !componentDatas[i].isAlive() ? null : componentDatas[i]);
                 }
 
-                boolean iterate = ((Boolean) processMethod.invoke(this, invokeArgs));
+                boolean iterate;
+                switch (invokeArgs.length) {
+                case 1:
+                    iterate = (boolean) processHandle.invokeExact(this, invokeArgs[0]);
+                    break;
+                case 2:
+                    iterate = (boolean) processHandle.invokeExact(this, invokeArgs[0], invokeArgs[1]);
+                    break;
+                case 3:
+                    iterate = (boolean) processHandle.invokeExact(this, invokeArgs[0], invokeArgs[1],
+                                                                  invokeArgs[2]);
+                    break;
+                default:
+                    iterate = (boolean) processHandle.invokeExact(this, (Object[]) invokeArgs);
+                    break;
+                }
                 if (!iterate) {
                     break;
                 }
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Exception while invoking processEntity()", e);
+        } catch (Throwable t) {
+            throw new RuntimeException("Exception while invoking processEntity()", t);
         }
     }
 }
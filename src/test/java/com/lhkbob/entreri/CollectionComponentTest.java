@@ -27,9 +27,13 @@
 package com.lhkbob.entreri;
 
 import com.lhkbob.entreri.components.CollectionComponent;
+import com.lhkbob.entreri.property.IntIntMap;
+import com.lhkbob.entreri.property.IntList;
+import com.lhkbob.entreri.property.IntSet;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.reflect.Field;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -382,4 +386,49 @@ public class CollectionComponentTest {
             // expected
         }
     }
+
+    @Test
+    public void testPrimitiveBackingImplementations() throws Exception {
+        c.setIds(Arrays.asList(4, 5, 6));
+        assertEquals(Arrays.asList(4, 5, 6), c.getIds());
+        assertTrue(c.addTag(3));
+        assertFalse(c.addTag(3));
+        assertTrue(c.containsTag(3));
+        assertNull(c.putCount(1, 10));
+        assertEquals(Integer.valueOf(10), c.putCount(1, 11));
+        assertEquals(Integer.valueOf(11), c.getCount(1));
+
+        // pull out the backing collections from the unmodifiable wrappers
+        assertTrue(getBackingCollection(c.getIds(), "list") instanceof IntList);
+        assertTrue(getBackingCollection(c.getTags(), "c") instanceof IntSet);
+        assertTrue(getBackingCollection(c.getCounts(), "m") instanceof IntIntMap);
+    }
+
+    @Test
+    public void testValueCollectionsRecycled() throws Exception {
+        EntitySystem system = c.getEntity().getEntitySystem();
+        c.setIds(Arrays.asList(1, 2, 3));
+        Object ids = getBackingCollection(c.getIds(), "list");
+
+        // the removed component's cleared list is reused by the next component that needs one
+        system.removeEntity(c.getEntity());
+        CollectionComponent next = system.addEntity().add(CollectionComponent.class);
+        next.setIds(Arrays.asList(7));
+        assertSame(ids, getBackingCollection(next.getIds(), "list"));
+        assertEquals(Arrays.asList(7), next.getIds());
+    }
+
+    private static Object getBackingCollection(Object wrapper, String fieldName) throws Exception {
+        Class<?> type = wrapper.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                return field.get(wrapper);
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            }
+        }
+        throw new NoSuchFieldException(fieldName);
+    }
 }
@@ -29,10 +29,12 @@ package com.lhkbob.entreri;
 import com.lhkbob.entreri.components.FloatComponent;
 import com.lhkbob.entreri.components.IntComponent;
 import com.lhkbob.entreri.components.ObjectComponent;
+import com.lhkbob.entreri.impl.ComponentDataStore;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -47,6 +49,7 @@ public class ComponentIteratorTest {
 
     private List<ObjectComponent.FooBlah> entityCombinedObjValues;
     private List<Float> entityCombinedFloatValues;
+    private List<Float> entityFloatOnlyValues;
 
     private int countWithObj;
     private int countWithFloat;
@@ -62,6 +65,7 @@ public class ComponentIteratorTest {
         entityFloatValues = new ArrayList<>();
         entityCombinedObjValues = new ArrayList<>();
         entityCombinedFloatValues = new ArrayList<>();
+        entityFloatOnlyValues = new ArrayList<>();
 
         system = EntitySystem.Factory.create();
 
@@ -93,6 +97,7 @@ public class ComponentIteratorTest {
                 floatData = e.add(FloatComponent.class);
                 float fv = (float) (Math.random() * 1000);
                 entityFloatValues.add(fv);
+                entityFloatOnlyValues.add(fv);
                 floatData.setFloat(fv);
 
                 countWithFloat++;
@@ -152,6 +157,18 @@ public class ComponentIteratorTest {
         Assert.assertEquals(countWithBoth, i);
     }
 
+    // assumes it has floatData as required and excludes objData
+    private void doTestExcludedComponentIterator(ComponentIterator it) {
+        int i = 0;
+        while (it.next()) {
+            Assert.assertEquals(entityFloatOnlyValues.get(i), floatData.getFloat(), .0001f);
+            Assert.assertNull(floatData.getEntity().get(ObjectComponent.class));
+            i++;
+        }
+
+        Assert.assertEquals(countWithFloat - countWithBoth, i);
+    }
+
     private void doIteratorRemove(Iterator<Entity> it) {
         int i = 0;
         Iterator<Integer> ids = entityIds.iterator();
@@ -201,6 +218,17 @@ public class ComponentIteratorTest {
         doTestBulkComponentIterator(it);
     }
 
+    @Test
+    public void testExcludedComponentIterator() {
+        ComponentIterator it = system.fastIterator();
+        floatData = it.addRequired(FloatComponent.class);
+        it.addExcluded(ObjectComponent.class);
+
+        doTestExcludedComponentIterator(it);
+        it.reset();
+        doTestExcludedComponentIterator(it);
+    }
+
     @Test
     public void testEntityIteratorRemove() {
         doIteratorRemove(system.iterator());
@@ -242,4 +270,143 @@ public class ComponentIteratorTest {
         it.reset();
         doTestBulkComponentIterator(it);
     }
+
+    @Test
+    public void testExcludedCollectionIterator() {
+        List<Entity> entities = new ArrayList<>();
+        for (Entity e : system) {
+            entities.add(e);
+        }
+
+        ComponentIterator it = system.fastIterator(entities);
+        floatData = it.addRequired(FloatComponent.class);
+        it.addExcluded(ObjectComponent.class);
+
+        doTestExcludedComponentIterator(it);
+        it.reset();
+        doTestExcludedComponentIterator(it);
+    }
+
+    @Test
+    public void testMergeJoinIterator() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Entity e = system.addEntity();
+            if (i % 2 == 0) {
+                e.add(IntComponent.class).setInt(i);
+            }
+            if (i % 7 == 0) {
+                e.add(FloatComponent.class).setFloat(i);
+            }
+            entities.add(e);
+        }
+        system.compact();
+
+        ComponentIterator it = system.fastIterator();
+        IntComponent intData = it.addRequired(IntComponent.class);
+        FloatComponent floatData = it.addRequired(FloatComponent.class);
+
+        // both stores are compacted, so this joins over sorted stores
+        int count = 0;
+        while (it.next()) {
+            Assert.assertEquals(count * 14, intData.getInt());
+            Assert.assertEquals(count * 14, floatData.getFloat(), .0001f);
+            Assert.assertSame(intData.getEntity(), floatData.getEntity());
+            count++;
+        }
+        Assert.assertEquals(15, count);
+
+        // removing components invalidates the join, and the iterator falls back to lookups
+        for (int i = 0; i < 200; i += 28) {
+            entities.get(i).remove(FloatComponent.class);
+        }
+        it.reset();
+        count = 0;
+        while (it.next()) {
+            Assert.assertEquals(0, intData.getInt() % 14);
+            Assert.assertTrue(intData.getInt() % 28 != 0);
+            Assert.assertEquals(intData.getInt(), floatData.getFloat(), .0001f);
+            count++;
+        }
+        Assert.assertEquals(7, count);
+    }
+
+    @Test
+    public void testPrimaryReselectedOnReset() {
+        EntitySystem system = EntitySystem.Factory.create();
+        ComponentIterator it = system.fastIterator();
+        IntComponent intData = it.addRequired(IntComponent.class);
+        FloatComponent floatData = it.addRequired(FloatComponent.class);
+
+        // the float type starts out the smallest, but after removals the int type has fewer live components
+        // despite having more slots, and the results must not depend on which one drives the iteration
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Entity e = system.addEntity();
+            if (i < 50) {
+                e.add(FloatComponent.class).setFloat(i);
+            }
+            e.add(IntComponent.class).setInt(i);
+            entities.add(e);
+        }
+        for (int i = 0; i < 100; i++) {
+            if (i % 10 != 0) {
+                entities.get(i).remove(IntComponent.class);
+            }
+        }
+
+        it.reset();
+        int count = 0;
+        while (it.next()) {
+            Assert.assertEquals(intData.getInt(), floatData.getFloat(), .0001f);
+            Assert.assertEquals(0, intData.getInt() % 10);
+            count++;
+        }
+        Assert.assertEquals(5, count);
+    }
+
+    @Test
+    public void testExcludedReorderedOnReset() throws Exception {
+        EntitySystem system = EntitySystem.Factory.create();
+        ComponentIterator it = system.fastIterator();
+        IntComponent intData = it.addRequired(IntComponent.class);
+        it.addExcluded(FloatComponent.class);
+        it.addExcluded(ObjectComponent.class);
+
+        // the float type has more slots, but after removals the object type has more live components
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            e.add(FloatComponent.class);
+            if (i < 40) {
+                e.add(ObjectComponent.class);
+            }
+            entities.add(e);
+        }
+        for (int i = 0; i < 100; i++) {
+            if (i % 10 != 0) {
+                entities.get(i).remove(FloatComponent.class);
+            }
+        }
+
+        it.reset();
+        Object[] excluded = getExcluded(it);
+        Assert.assertSame(ObjectComponent.class, ((ComponentDataStore<?>) excluded[0]).getType());
+
+        int count = 0;
+        while (it.next()) {
+            Assert.assertTrue(intData.getInt() >= 40);
+            Assert.assertTrue(intData.getInt() % 10 != 0);
+            count++;
+        }
+        Assert.assertEquals(54, count);
+    }
+
+    private static Object[] getExcluded(ComponentIterator it) throws Exception {
+        Field field = it.getClass().getDeclaredField("excluded");
+        field.setAccessible(true);
+        return (Object[]) field.get(it);
+    }
 }
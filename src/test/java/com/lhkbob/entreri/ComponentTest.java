@@ -27,9 +27,13 @@
 package com.lhkbob.entreri;
 
 import com.lhkbob.entreri.components.*;
+import com.lhkbob.entreri.math.*;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ComponentTest {
     @Test
     public void testIsAliveComponentRemove() {
@@ -315,4 +319,177 @@ public class ComponentTest {
         Assert.assertFalse(c2.isAlive());
         Assert.assertEquals(2, count);
     }
+
+    @Test
+    public void testPackedVectorProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity e = system.addEntity();
+        TransformComponent t = e.add(TransformComponent.class);
+
+        Vec3 position = new Vec3();
+        Quat rotation = new Quat(1f, 1f, 1f, 1f);
+        Mat4 transform = new Mat4();
+        Assert.assertSame(position, t.getPosition(position));
+        Assert.assertEquals(new Vec3(), position);
+        t.getRotation(rotation);
+        Assert.assertEquals(new Quat(), rotation);
+        Assert.assertEquals(new Vec2(), t.getScale());
+
+        t.setPosition(new Vec3(1f, 2f, 3f));
+        t.setScale(new Vec2(4f, 5f));
+        t.setColor(new Vec4(1f, 0f, 0f, 1f));
+        transform.set(0, 3, 10f);
+        t.setTransform(transform);
+
+        Assert.assertEquals(new Vec3(1f, 2f, 3f), t.getPosition(position));
+        Assert.assertEquals(new Vec2(4f, 5f), t.getScale());
+        Assert.assertEquals(transform, t.getTransform(new Mat4()));
+
+        // color is not cloned, everything else is
+        TransformComponent clone = system.addEntity().add(t);
+        Assert.assertEquals(new Vec3(1f, 2f, 3f), clone.getPosition(position));
+        Assert.assertEquals(new Vec4(), clone.getColor(new Vec4()));
+        Assert.assertEquals(10f, clone.getTransform(new Mat4()).get(0, 3), 0.0001f);
+    }
+
+    @Test
+    public void testFixedArrayProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity e = system.addEntity();
+        InventoryComponent c = e.add(InventoryComponent.class);
+
+        int[] slots = new int[8];
+        Assert.assertSame(slots, c.getSlots(slots));
+        Assert.assertArrayEquals(new int[] { -1, -1, -1, -1, -1, -1, -1, -1 }, slots);
+        Assert.assertEquals(0.25f, c.getWeight(3), 0.0001f);
+        Assert.assertArrayEquals(new long[2], c.getBones());
+
+        long version = c.getVersion();
+        Assert.assertSame(c, c.setSlot(2, 42));
+        Assert.assertTrue(c.getVersion() > version);
+        c.setWeight(0, 0.75f);
+        c.setBone(1, 7L);
+
+        Assert.assertEquals(42, c.getSlot(2));
+        Assert.assertEquals(-1, c.getSlot(3));
+        Assert.assertEquals(0.75f, c.getWeight(0), 0.0001f);
+        Assert.assertArrayEquals(new long[] { 0L, 7L }, c.getBones());
+
+        c.setSlots(new int[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+        Assert.assertEquals(5, c.getSlot(5));
+
+        // the arrays of other components are unaffected
+        InventoryComponent other = system.addEntity().add(InventoryComponent.class);
+        Assert.assertEquals(-1, other.getSlot(0));
+        Assert.assertEquals(-1, other.getSlot(7));
+
+        InventoryComponent clone = system.addEntity().add(c);
+        Assert.assertEquals(7, clone.getSlot(7));
+        Assert.assertEquals(0.75f, clone.getWeight(0), 0.0001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedArrayWithin() {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(InventoryComponent.class).setWeight(0, 2f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testFixedArrayElementOutOfBounds() {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(InventoryComponent.class).getSlot(8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedArrayWrongLength() {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(InventoryComponent.class).setSlots(new int[4]);
+    }
+
+    @Test
+    public void testPackedProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<FlagComponent> flags = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            FlagComponent c = system.addEntity().add(FlagComponent.class);
+            Assert.assertFalse(c.isVisible());
+            Assert.assertTrue(c.isActive());
+            Assert.assertEquals(0, c.getLevel());
+            Assert.assertEquals(-3, c.getHealth());
+
+            c.setVisible(i % 3 == 0);
+            c.setActive(i % 5 != 0);
+            c.setLevel(i % 16);
+            c.setHealth(i - 100);
+            c.setScore(i * 1000);
+            flags.add(c);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            FlagComponent c = flags.get(i);
+            Assert.assertEquals(i % 3 == 0, c.isVisible());
+            Assert.assertEquals(i % 5 != 0, c.isActive());
+            Assert.assertEquals(i % 16, c.getLevel());
+            Assert.assertEquals(i - 100, c.getHealth());
+            Assert.assertEquals(i * 1000, c.getScore());
+        }
+
+        // removing and compacting moves values between words
+        for (int i = 0; i < 200; i += 7) {
+            system.removeEntity(flags.get(i).getEntity());
+        }
+        system.compact();
+        for (int i = 0; i < 200; i++) {
+            FlagComponent c = flags.get(i);
+            if (i % 7 != 0) {
+                Assert.assertEquals(i % 3 == 0, c.isVisible());
+                Assert.assertEquals(i % 16, c.getLevel());
+                Assert.assertEquals(i - 100, c.getHealth());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackedPropertyWithin() {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(FlagComponent.class).setLevel(16);
+    }
+
+    @Test
+    public void testQuantizedProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        ParticleComponent c = system.addEntity().add(ParticleComponent.class);
+        Assert.assertEquals(0f, c.getOpacity(), 0f);
+        Assert.assertEquals(1.5f, c.getSize(), 0f);
+
+        c.setOpacity(0.75f);
+        c.setSize(1000.1f);
+        c.setMass(1000.1f);
+        Assert.assertEquals(0.75f, c.getOpacity(), 0f);
+        // half precision only keeps 11 significant bits
+        Assert.assertEquals(1000f, c.getSize(), 0f);
+        Assert.assertEquals(1000.1f, c.getMass(), 0f);
+
+        ParticleComponent clone = system.addEntity().add(c);
+        Assert.assertEquals(0.75f, clone.getOpacity(), 0f);
+        Assert.assertEquals(1000f, clone.getSize(), 0f);
+    }
+
+    @Test
+    public void testStringProperties() {
+        EntitySystem system = EntitySystem.Factory.create();
+        TagComponent c = system.addEntity().add(TagComponent.class);
+        Assert.assertEquals("", c.getName());
+        Assert.assertEquals("untagged", c.getTag());
+
+        c.setName("player");
+        c.setTag("hero");
+        TagComponent clone = system.addEntity().add(c);
+        Assert.assertEquals("player", clone.getName());
+        Assert.assertEquals("hero", clone.getTag());
+
+        clone.setTag("villain");
+        Assert.assertEquals("hero", c.getTag());
+        Assert.assertEquals("villain", clone.getTag());
+    }
 }
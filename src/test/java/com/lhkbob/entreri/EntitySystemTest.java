@@ -27,14 +27,19 @@
 package com.lhkbob.entreri;
 
 import com.lhkbob.entreri.components.ComplexComponent;
+import com.lhkbob.entreri.components.FlagComponent;
 import com.lhkbob.entreri.components.FloatComponent;
 import com.lhkbob.entreri.components.IntComponent;
+import com.lhkbob.entreri.components.NodeComponent;
+import com.lhkbob.entreri.impl.EntitySystemImpl;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 public class EntitySystemTest {
     @Test
@@ -287,4 +292,230 @@ public class EntitySystemTest {
         Assert.assertFalse(it.hasNext());
         Assert.assertFalse(si.hasNext());
     }
+
+    @Test
+    public void testParallelCompact() {
+        EntitySystem system = EntitySystem.Factory.create();
+        // force every compaction with more than one type to be parallel
+        ((EntitySystemImpl) system).setParallelCompactThreshold(0);
+
+        List<Entity> es = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            if (i % 3 == 0) {
+                e.add(FloatComponent.class).setFloat(i);
+            }
+            es.add(e);
+        }
+
+        // remove entities and components to create holes in every data store
+        for (int i = 0; i < es.size(); i++) {
+            if (i % 5 == 0) {
+                system.removeEntity(es.get(i));
+            } else if (i % 7 == 0) {
+                es.get(i).remove(IntComponent.class);
+            }
+        }
+
+        system.compact();
+
+        for (int i = 0; i < es.size(); i++) {
+            Entity e = es.get(i);
+            if (i % 5 == 0) {
+                Assert.assertFalse(e.isAlive());
+                continue;
+            }
+
+            IntComponent ic = e.get(IntComponent.class);
+            if (i % 7 == 0) {
+                Assert.assertNull(ic);
+            } else {
+                Assert.assertEquals(i, ic.getInt());
+            }
+
+            FloatComponent fc = e.get(FloatComponent.class);
+            if (i % 3 == 0) {
+                Assert.assertEquals(i, fc.getFloat(), .0001f);
+            } else {
+                Assert.assertNull(fc);
+            }
+        }
+    }
+
+    @Test
+    public void testStream() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> es = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            es.add(e);
+        }
+        for (int i = 0; i < 100; i += 3) {
+            es.get(i).remove(IntComponent.class);
+        }
+
+        List<Integer> values = system.stream(IntComponent.class).map(c -> c.getInt())
+                                     .collect(Collectors.toList());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 != 0) {
+                expected.add(i);
+            }
+        }
+        Assert.assertEquals(expected, values);
+
+        // holes make the size an estimate
+        Spliterator<IntComponent> split = system.stream(IntComponent.class).spliterator();
+        Assert.assertFalse(split.hasCharacteristics(Spliterator.SIZED));
+
+        system.compact();
+        split = system.stream(IntComponent.class).spliterator();
+        Assert.assertTrue(split.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        Assert.assertEquals(expected.size(), split.estimateSize());
+        Spliterator<IntComponent> prefix = split.trySplit();
+        Assert.assertEquals(expected.size(), prefix.estimateSize() + split.estimateSize());
+        Assert.assertEquals(expected.size(), system.stream(IntComponent.class).count());
+    }
+
+    @Test
+    public void testParallelStream() {
+        EntitySystem system = EntitySystem.Factory.create();
+        long expected = 0;
+        for (int i = 0; i < 10000; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            if (i % 10 == 0) {
+                system.removeEntity(e);
+            } else {
+                expected += i;
+            }
+        }
+
+        long sum = system.stream(IntComponent.class).parallel().mapToLong(c -> c.getInt()).sum();
+        Assert.assertEquals(expected, sum);
+
+        system.stream(IntComponent.class).parallel().forEach(c -> c.setInt(-c.getInt()));
+        Assert.assertEquals(-expected, system.stream(IntComponent.class).mapToLong(c -> c.getInt()).sum());
+    }
+
+    @Test
+    public void testParallelStreamPackedWrites() {
+        EntitySystem system = EntitySystem.Factory.create();
+        for (int i = 0; i < 10000; i++) {
+            system.addEntity().add(FlagComponent.class).setLevel(i % 16);
+        }
+
+        // neighboring components share words, which must not be split across parallel tasks
+        for (int run = 0; run < 5; run++) {
+            system.stream(FlagComponent.class).parallel().forEach(c -> {
+                c.setVisible(!c.isVisible());
+                c.setLevel(15 - c.getLevel());
+            });
+        }
+        int i = 0;
+        for (FlagComponent c : (Iterable<FlagComponent>) () -> system.iterator(FlagComponent.class)) {
+            Assert.assertTrue(c.isVisible());
+            Assert.assertEquals(15 - i % 16, c.getLevel());
+            i++;
+        }
+        Assert.assertEquals(10000, i);
+    }
+
+    @Test
+    public void testEntityReferencesClearedOnRemove() {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity parent = system.addEntity();
+        List<NodeComponent> children = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            NodeComponent c = system.addEntity().add(NodeComponent.class);
+            c.setParent(parent);
+            children.add(c);
+        }
+
+        for (NodeComponent c : children) {
+            Assert.assertSame(parent, c.getParent());
+        }
+        system.removeEntity(parent);
+        for (NodeComponent c : children) {
+            Assert.assertNull(c.getParent());
+        }
+
+        // the entity stays dead even though it is used as a value after removal
+        children.get(0).setParent(parent);
+        Assert.assertNull(children.get(0).getParent());
+    }
+
+    @Test
+    public void testEntityReferencesSurviveCompact() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Entity e = system.addEntity();
+            if (i > 0) {
+                e.add(NodeComponent.class).setParent(entities.get(i / 2));
+            }
+            entities.add(e);
+        }
+        for (int i = 1; i < 100; i += 3) {
+            system.removeEntity(entities.get(i));
+        }
+        system.compact();
+
+        for (int i = 2; i < 100; i++) {
+            Entity e = entities.get(i);
+            if (e.isAlive()) {
+                Entity parent = entities.get(i / 2);
+                Entity actual = e.get(NodeComponent.class).getParent();
+                if (parent.isAlive()) {
+                    Assert.assertSame(parent, actual);
+                } else {
+                    Assert.assertNull(actual);
+                }
+            }
+        }
+
+        // references created after compaction resolve through the new indices
+        Entity last = entities.get(99);
+        entities.get(98).get(NodeComponent.class).setParent(last);
+        system.removeEntity(last);
+        Assert.assertNull(entities.get(98).get(NodeComponent.class).getParent());
+    }
+
+    @Test
+    public void testStructureChecksum() {
+        EntitySystem a = EntitySystem.Factory.create();
+        EntitySystem b = EntitySystem.Factory.create();
+        List<Entity> entitiesA = new ArrayList<>();
+        List<Entity> entitiesB = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entitiesA.add(a.addEntity());
+            entitiesB.add(b.addEntity());
+        }
+        // looking up a component type without adding components does not change the checksum
+        b.fastIterator().addRequired(FloatComponent.class);
+        Assert.assertEquals(a.getStructureChecksum(), b.getStructureChecksum());
+
+        // same number of components and versions, attached to different entities
+        entitiesA.get(1).add(IntComponent.class);
+        entitiesB.get(2).add(IntComponent.class);
+        Assert.assertEquals(a.getStructureChecksum() >>> 32, b.getStructureChecksum() >>> 32);
+        Assert.assertTrue(a.getStructureChecksum() != b.getStructureChecksum());
+
+        entitiesB.get(2).remove(IntComponent.class);
+        long beforeAdd = b.getStructureChecksum();
+        entitiesB.get(1).add(IntComponent.class);
+        Assert.assertTrue(beforeAdd != b.getStructureChecksum());
+
+        // writes through auto-versioning setters change it, compaction does not
+        long beforeSet = a.getStructureChecksum();
+        entitiesA.get(1).get(IntComponent.class).setInt(4);
+        long afterSet = a.getStructureChecksum();
+        Assert.assertTrue(beforeSet != afterSet);
+        a.removeEntity(entitiesA.get(0));
+        long beforeCompact = a.getStructureChecksum();
+        a.compact();
+        Assert.assertEquals(beforeCompact, a.getStructureChecksum());
+    }
 }
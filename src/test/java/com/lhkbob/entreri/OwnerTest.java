@@ -216,6 +216,43 @@ public class OwnerTest {
         Assert.assertFalse(c3.isAlive());
     }
 
+    @Test
+    public void testDeepOwnershipChainRemoval() {
+        EntitySystem system = EntitySystem.Factory.create();
+
+        // a chain this deep would overflow the stack if removal recursed per level
+        int depth = 100000;
+        Entity root = system.addEntity();
+        Entity parent = root;
+        Entity[] chain = new Entity[depth];
+        for (int i = 0; i < depth; i++) {
+            chain[i] = system.addEntity();
+            IntComponent c = chain[i].add(IntComponent.class);
+            if (i % 2 == 0) {
+                // alternate between entity and component owners
+                chain[i].setOwner(parent);
+            } else {
+                chain[i].setOwner(parent.get(IntComponent.class));
+            }
+            c.setOwner(chain[i]);
+            parent = chain[i];
+        }
+
+        Entity spare = system.addEntity();
+        system.removeEntity(root);
+
+        for (int i = 0; i < depth; i++) {
+            Assert.assertFalse(chain[i].isAlive());
+        }
+        Assert.assertTrue(spare.isAlive());
+
+        int count = 0;
+        for (Entity e : system) {
+            count++;
+        }
+        Assert.assertEquals(1, count);
+    }
+
     @Test
     public void testComponentOwningParentEntityRemoval() {
         EntitySystem system = EntitySystem.Factory.create();
@@ -0,0 +1,165 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri;
+
+import com.lhkbob.entreri.components.FloatComponent;
+import com.lhkbob.entreri.components.FloatIntQuery;
+import com.lhkbob.entreri.components.FloatQuery;
+import com.lhkbob.entreri.components.IntComponent;
+import com.lhkbob.entreri.components.ObjectComponent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryTest {
+    private EntitySystem system;
+    private List<Entity> expected;
+
+    @Before
+    public void setup() {
+        system = EntitySystem.Factory.create();
+        expected = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            Entity e = system.addEntity();
+            if (i % 2 == 0) {
+                e.add(FloatComponent.class).setFloat(i);
+            }
+            if (i % 3 == 0) {
+                e.add(IntComponent.class).setInt(i);
+            }
+            if (i % 5 == 0) {
+                e.add(ObjectComponent.class);
+            }
+
+            if (i % 2 == 0 && i % 5 != 0) {
+                expected.add(e);
+            }
+        }
+    }
+
+    @Test
+    public void testNext() {
+        FloatQuery query = system.createQuery(FloatQuery.class);
+        Assert.assertNull(query.getEntity());
+
+        for (int pass = 0; pass < 2; pass++) {
+            int count = 0;
+            while (query.next()) {
+                Entity e = query.getEntity();
+                Assert.assertSame(expected.get(count), e);
+                Assert.assertTrue(query.getFloat().isAlive());
+                Assert.assertEquals(e, query.getFloat().getEntity());
+                Assert.assertEquals(e.get(FloatComponent.class).getFloat(), query.getFloat().getFloat(),
+                                    .0001f);
+
+                IntComponent ic = e.get(IntComponent.class);
+                Assert.assertEquals(ic != null, query.getInt().isAlive());
+                if (ic != null) {
+                    Assert.assertEquals(ic.getInt(), query.getInt().getInt());
+                }
+                count++;
+            }
+            Assert.assertEquals(expected.size(), count);
+            Assert.assertNull(query.getEntity());
+            query.reset();
+        }
+    }
+
+    @Test
+    public void testForEach() {
+        final List<Entity> visited = new ArrayList<>();
+        FloatQuery query = system.createQuery(FloatQuery.class);
+        query.forEach(new QueryIterator.Visitor<FloatQuery>() {
+            @Override
+            public void visit(FloatQuery query) {
+                visited.add(query.getEntity());
+                query.getFloat().setFloat(-1f);
+            }
+        });
+
+        Assert.assertEquals(expected, visited);
+        for (Entity e : expected) {
+            Assert.assertEquals(-1f, e.get(FloatComponent.class).getFloat(), .0001f);
+        }
+    }
+
+    @Test
+    public void testPrimarySelectedOnReset() {
+        // start with no float components so the query walks the smallest store once they're added
+        EntitySystem system = EntitySystem.Factory.create();
+        FloatQuery query = system.createQuery(FloatQuery.class);
+        Assert.assertFalse(query.next());
+
+        Entity e = system.addEntity();
+        e.add(FloatComponent.class).setFloat(3f);
+        query.reset();
+        Assert.assertTrue(query.next());
+        Assert.assertSame(e, query.getEntity());
+        Assert.assertFalse(query.next());
+    }
+
+    @Test
+    public void testPropertyGetters() {
+        List<Entity> both = new ArrayList<>();
+        for (Entity e : expected) {
+            if (e.get(IntComponent.class) != null) {
+                both.add(e);
+            }
+        }
+
+        FloatIntQuery query = system.createQuery(FloatIntQuery.class);
+        for (int pass = 0; pass < 2; pass++) {
+            int count = 0;
+            while (query.next()) {
+                Entity e = query.getEntity();
+                Assert.assertSame(both.get(count), e);
+                Assert.assertEquals(e.get(FloatComponent.class).getFloat(), query.getFloat(), .0001f);
+                Assert.assertEquals(e.get(IntComponent.class).getInt(), query.getIntValue());
+                count++;
+            }
+            Assert.assertEquals(both.size(), count);
+
+            // the primary store changes once there are fewer float components than int components
+            for (int i = 0; i < 100; i++) {
+                system.addEntity().add(IntComponent.class);
+            }
+            query.reset();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAQuery() {
+        system.createQuery(UnannotatedQuery.class);
+    }
+
+    public static interface UnannotatedQuery extends QueryIterator<UnannotatedQuery> {
+    }
+}
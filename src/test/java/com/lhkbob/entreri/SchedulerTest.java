@@ -26,12 +26,30 @@
  */
 package com.lhkbob.entreri;
 
-import com.lhkbob.entreri.task.Job;
-import com.lhkbob.entreri.task.Result;
-import com.lhkbob.entreri.task.Task;
+import com.lhkbob.entreri.components.BufferedComponent;
+import com.lhkbob.entreri.components.FloatComponent;
+import com.lhkbob.entreri.components.IntComponent;
+import com.lhkbob.entreri.impl.SnapshotReader;
+import com.lhkbob.entreri.impl.SnapshotWriter;
+import com.lhkbob.entreri.property.FloatAccumulatorProperty;
+import com.lhkbob.entreri.property.Reduction;
+import com.lhkbob.entreri.task.*;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
 // NOTE: this does not test the thread-safety aspects of a job, because
 // it's a little too difficult to write a unit test for that
 public class SchedulerTest {
@@ -131,6 +149,129 @@ public class SchedulerTest {
         Assert.assertTrue(t1.reset);
     }
 
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        for (int i = 0; i < 10; i++) {
+            system.addEntity().add(FloatComponent.class);
+        }
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        new SnapshotWriter(system).write(Channels.newChannel(snapshot));
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        JobRecorder recorder = new JobRecorder(Channels.newChannel(log));
+        recorder.setResultCodec(InputResult.class, new InputCodec());
+        system.getScheduler().setRecorder(recorder);
+        Job job = createReplayableJob(system, new Random());
+        for (int i = 0; i < 30; i++) {
+            system.getScheduler().runOnCurrentThread(job);
+        }
+        recorder.close();
+        Assert.assertEquals(30, recorder.getFrameCount());
+
+        // replay with a different input sequence, which the recorded inputs must override
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader().read(Channels.newChannel(new ByteArrayInputStream(snapshot.toByteArray())),
+                                  restored);
+        JobReplayer replayer = new JobReplayer(Channels.newChannel(
+                new ByteArrayInputStream(log.toByteArray())));
+        replayer.setResultCodec(InputResult.class, new InputCodec());
+        Assert.assertEquals(30, replayer.replay(createReplayableJob(restored, new Random(1))));
+
+        List<Entity> expected = new ArrayList<>();
+        system.forEach(expected::add);
+        List<Entity> actual = new ArrayList<>();
+        restored.forEach(actual::add);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            FloatComponent expectedFloat = expected.get(i).get(FloatComponent.class);
+            if (expectedFloat == null) {
+                Assert.assertNull(actual.get(i).get(FloatComponent.class));
+            } else {
+                FloatComponent actualFloat = actual.get(i).get(FloatComponent.class);
+                Assert.assertEquals(expectedFloat.getFloat(), actualFloat.getFloat(), 0f);
+            }
+            IntComponent expectedInt = expected.get(i).get(IntComponent.class);
+            if (expectedInt == null) {
+                Assert.assertNull(actual.get(i).get(IntComponent.class));
+            } else {
+                Assert.assertEquals(expectedInt.getInt(), actual.get(i).get(IntComponent.class).getInt());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReplayDetectsDivergence() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        JobRecorder recorder = new JobRecorder(Channels.newChannel(log));
+        recorder.setResultCodec(InputResult.class, new InputCodec());
+        system.getScheduler().setRecorder(recorder);
+        Job job = createReplayableJob(system, new Random());
+        for (int i = 0; i < 5; i++) {
+            job.run();
+        }
+        recorder.close();
+
+        // the replayed system has an entity that was not part of the recording
+        EntitySystem other = EntitySystem.Factory.create();
+        other.addEntity();
+        JobReplayer replayer = new JobReplayer(Channels.newChannel(
+                new ByteArrayInputStream(log.toByteArray())));
+        replayer.setResultCodec(InputResult.class, new InputCodec());
+        replayer.replay(createReplayableJob(other, new Random()));
+    }
+
+    @Test
+    public void testReplayDetectsComponentDivergence() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        for (int i = 0; i < 10; i++) {
+            Entity e = system.addEntity();
+            if (i < 5) {
+                e.add(FloatComponent.class);
+            }
+        }
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        new SnapshotWriter(system).write(Channels.newChannel(snapshot));
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        JobRecorder recorder = new JobRecorder(Channels.newChannel(log));
+        recorder.setResultCodec(InputResult.class, new InputCodec());
+        system.getScheduler().setRecorder(recorder);
+        Job job = createReplayableJob(system, new Random());
+        for (int i = 0; i < 5; i++) {
+            system.getScheduler().runOnCurrentThread(job);
+        }
+        recorder.close();
+
+        // the restored system has the same entities and number of components, but one component is
+        // attached to a different entity
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader().read(Channels.newChannel(new ByteArrayInputStream(snapshot.toByteArray())),
+                                  restored);
+        List<Entity> restoredEntities = new ArrayList<>();
+        restored.forEach(restoredEntities::add);
+        restoredEntities.get(0).remove(FloatComponent.class);
+        restoredEntities.get(5).add(FloatComponent.class);
+
+        JobReplayer replayer = new JobReplayer(Channels.newChannel(
+                new ByteArrayInputStream(log.toByteArray())));
+        replayer.setResultCodec(InputResult.class, new InputCodec());
+        try {
+            replayer.replay(createReplayableJob(restored, new Random()));
+            Assert.fail("Expected the replay to diverge");
+        } catch (IllegalStateException e) {
+            // expected, in the first frame
+            Assert.assertTrue(e.getMessage().contains("frame 0"));
+        }
+    }
+
+    private static Job createReplayableJob(EntitySystem system, Random input) {
+        return system.getScheduler().createJob("replayable", Timers.measuredDelta(), new InputTask(input),
+                                               new IntegrateTask());
+    }
+
     private static class ResultA extends Result {
         @Override
         public boolean isSingleton() {
@@ -145,6 +286,112 @@ public class SchedulerTest {
         }
     }
 
+    @Test
+    public void testSwapBuffers() {
+        EntitySystem system = EntitySystem.Factory.create();
+        for (int i = 0; i < 10; i++) {
+            BufferedComponent c = system.addEntity().add(BufferedComponent.class);
+            c.setPosition(i);
+            c.setCount(i);
+        }
+        system.getScheduler().swapBuffers();
+
+        Job j = system.getScheduler().createJob("integrate", new BufferedIntegrateTask(null));
+        j.run();
+        j.run();
+        // both runs computed from the front buffer, which hasn't been swapped
+        for (BufferedComponent c : (Iterable<BufferedComponent>) () -> system
+                .iterator(BufferedComponent.class)) {
+            Assert.assertEquals(c.getCount(), c.getPosition(), 0.0001f);
+        }
+
+        system.getScheduler().swapBuffers();
+        for (BufferedComponent c : (Iterable<BufferedComponent>) () -> system
+                .iterator(BufferedComponent.class)) {
+            Assert.assertEquals(c.getCount() + 1, c.getPosition(), 0.0001f);
+        }
+    }
+
+    @Test
+    public void testBufferedVersionsUpdatedAtSwap() {
+        EntitySystem system = EntitySystem.Factory.create();
+        BufferedComponent written = system.addEntity().add(BufferedComponent.class);
+        BufferedComponent unwritten = system.addEntity().add(BufferedComponent.class);
+        system.getScheduler().swapBuffers();
+
+        int writtenVersion = written.getVersion();
+        int unwrittenVersion = unwritten.getVersion();
+        written.setPosition(2.0f);
+        Assert.assertEquals(writtenVersion, written.getVersion());
+
+        system.getScheduler().swapBuffers();
+        Assert.assertTrue(writtenVersion != written.getVersion());
+        Assert.assertEquals(unwrittenVersion, unwritten.getVersion());
+        Assert.assertEquals(2.0f, written.getPosition(), 0.0001f);
+
+        // nothing was written since the last swap
+        writtenVersion = written.getVersion();
+        system.getScheduler().swapBuffers();
+        Assert.assertEquals(writtenVersion, written.getVersion());
+
+        // properties that are not buffered still update the version in the setter
+        written.setCount(4);
+        Assert.assertTrue(writtenVersion != written.getVersion());
+    }
+
+    @Test
+    public void testBufferedJobRunsWithReaders() throws Exception {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(BufferedComponent.class);
+
+        // the reader holds its locks until the writer finishes, which requires the jobs to run in parallel
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        BufferedReadTask readTask = new BufferedReadTask(started, written);
+        Job reader = system.getScheduler().createJob("read", readTask);
+        Job writer = system.getScheduler().createJob("write", new BufferedIntegrateTask(written));
+
+        Thread readThread = new Thread(reader);
+        readThread.start();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        writer.run();
+        readThread.join();
+        Assert.assertTrue(readTask.sawWrite);
+    }
+
+    @Test
+    public void testAccumulatorsMergedAtJobEnd() {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<IntComponent> components = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            components.add(system.addEntity().add(IntComponent.class));
+        }
+        FloatAccumulatorProperty force = system.decorate(IntComponent.class,
+                                                         new FloatAccumulatorProperty(Reduction.SUM));
+
+        // every component pushes on itself and the first component
+        int first = components.get(0).getIndex();
+        Job j = system.getScheduler().createJob("forces", new ForceTask(force, first));
+        j.run();
+        Assert.assertEquals(101.0f, force.get(first), 0.0001f);
+        for (int i = 1; i < components.size(); i++) {
+            Assert.assertEquals(1.0f, force.get(components.get(i).getIndex()), 0.0001f);
+        }
+
+        j.run();
+        Assert.assertEquals(202.0f, force.get(first), 0.0001f);
+    }
+
+    @Test
+    public void testResultsReportedFromParallelStream() {
+        EntitySystem system = EntitySystem.Factory.create();
+        ParallelReportingTask task = new ParallelReportingTask();
+        Job j = system.getScheduler().createJob("parallel", task);
+        j.run();
+        Assert.assertEquals(10000, task.receiveCount.get());
+        Assert.assertEquals(5000, task.cReceiveCount.get());
+    }
+
     private static class BasicTask implements Task {
         boolean invoked;
         boolean reset;
@@ -256,4 +503,184 @@ public class SchedulerTest {
             bReceiveCount++;
         }
     }
+
+    private static class ResultC extends ResultA {
+    }
+
+    private static class ParallelReportingTask implements Task {
+        final AtomicInteger receiveCount = new AtomicInteger();
+        final AtomicInteger cReceiveCount = new AtomicInteger();
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            // the first report of each result class from the workers fills the job's dispatch cache
+            IntStream.range(0, 10000).parallel().forEach(i -> job.report(i % 2 == 0 ? new ResultA()
+                                                                                     : new ResultC()));
+            return null;
+        }
+
+        @Override
+        public void reset(EntitySystem system) {
+        }
+
+        @SuppressWarnings("unused")
+        public void report(Result r) {
+            receiveCount.incrementAndGet();
+        }
+
+        @SuppressWarnings("unused")
+        public void report(ResultC r) {
+            cReceiveCount.incrementAndGet();
+        }
+    }
+
+    private static class InputResult extends Result {
+        final int value;
+
+        public InputResult(int value) {
+            this.value = value;
+        }
+    }
+
+    private static class InputCodec implements ResultCodec<InputResult> {
+        @Override
+        public void write(InputResult result, ByteBuffer out) {
+            out.putInt(result.value);
+        }
+
+        @Override
+        public InputResult read(ByteBuffer in) {
+            return new InputResult(in.getInt());
+        }
+    }
+
+    // reports a nondeterministic input every frame, which only a replay can reproduce
+    private static class InputTask implements Task {
+        private final Random input;
+
+        public InputTask(Random input) {
+            this.input = input;
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            job.report(new InputResult(input.nextInt(100)));
+            return null;
+        }
+
+        @Override
+        public void reset(EntitySystem system) {
+        }
+    }
+
+    private static class IntegrateTask implements Task {
+        private double dt;
+        private int input;
+
+        public void report(ElapsedTimeResult r) {
+            dt = r.getTimeDelta();
+        }
+
+        public void report(InputResult r) {
+            input = r.value;
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            for (FloatComponent c : (Iterable<FloatComponent>) () -> system.iterator(FloatComponent.class)) {
+                c.setFloat(c.getFloat() + (float) dt * input);
+            }
+            if (input < 30) {
+                system.addEntity().add(FloatComponent.class).setFloat(input);
+            } else if (input > 90) {
+                system.addEntity().add(IntComponent.class).setInt(input);
+            }
+            return null;
+        }
+
+        @Override
+        public void reset(EntitySystem system) {
+            dt = 0;
+            input = 0;
+        }
+    }
+
+    @ParallelAware(modifiedComponents = { }, readOnlyComponents = { },
+                   bufferedComponents = BufferedComponent.class, entitySetModified = false)
+    private static class BufferedIntegrateTask implements Task {
+        private final CountDownLatch written;
+
+        public BufferedIntegrateTask(CountDownLatch written) {
+            this.written = written;
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            for (BufferedComponent c : (Iterable<BufferedComponent>) () -> system
+                    .iterator(BufferedComponent.class)) {
+                c.setPosition(c.getPosition() + 1.0f);
+            }
+            if (written != null) {
+                written.countDown();
+            }
+            return null;
+        }
+
+        @Override
+        public void reset(EntitySystem system) {
+        }
+    }
+
+    @ParallelAware(modifiedComponents = { }, readOnlyComponents = BufferedComponent.class,
+                   entitySetModified = false)
+    private static class BufferedReadTask implements Task {
+        private final CountDownLatch started;
+        private final CountDownLatch written;
+        private volatile boolean sawWrite;
+
+        public BufferedReadTask(CountDownLatch started, CountDownLatch written) {
+            this.started = started;
+            this.written = written;
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            started.countDown();
+            try {
+                sawWrite = written.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+
+        @Override
+        public void reset(EntitySystem system) {
+        }
+    }
+
+    @ParallelAware(modifiedComponents = IntComponent.class, readOnlyComponents = { },
+                   entitySetModified = false)
+    private static class ForceTask implements Task {
+        private final FloatAccumulatorProperty force;
+        private final int target;
+
+        public ForceTask(FloatAccumulatorProperty force, int target) {
+            this.force = force;
+            this.target = target;
+        }
+
+        @Override
+        public Task process(EntitySystem system, Job job) {
+            system.stream(IntComponent.class).parallel().forEach(c -> {
+                force.accumulate(c.getIndex(), 1.0f);
+                force.accumulate(target, 1.0f);
+            });
+            return null;
+        }
+
+        @Override
+        public void reset(EntitySystem system) {
+        }
+    }
 }
@@ -29,6 +29,9 @@ package com.lhkbob.entreri.components;
 import com.lhkbob.entreri.Component;
 import com.lhkbob.entreri.Named;
 import com.lhkbob.entreri.property.Collection;
+import com.lhkbob.entreri.property.IntIntMap;
+import com.lhkbob.entreri.property.IntList;
+import com.lhkbob.entreri.property.IntSet;
 import com.lhkbob.entreri.property.Reference;
 
 import java.util.List;
@@ -123,6 +126,27 @@ public interface CollectionComponent extends Component {
     public boolean containsValueMappedPoint(String key);
 
 
+    // testing the primitive specialized value collections
+    @Collection(listImpl = IntList.class)
+    public List<Integer> getIds();
+
+    public void setIds(List<Integer> ids);
+
+    @Collection(setImpl = IntSet.class)
+    public Set<Integer> getTags();
+
+    public boolean addTag(Integer tag);
+
+    public boolean containsTag(Integer tag);
+
+    @Collection(mapImpl = IntIntMap.class)
+    public Map<Integer, Integer> getCounts();
+
+    public Integer putCount(Integer key, Integer value);
+
+    public Integer getCount(Integer key);
+
+
     public static class Point implements Comparable<Point> {
         public int x, y;
 
@@ -0,0 +1,64 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.components;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.property.DefaultBoolean;
+import com.lhkbob.entreri.property.DefaultInt;
+import com.lhkbob.entreri.property.Within;
+
+/**
+ * A test component that uses bit-packed boolean and small-range int properties.
+ *
+ * @author Michael Ludwig
+ */
+public interface FlagComponent extends Component {
+    public boolean isVisible();
+
+    public void setVisible(boolean visible);
+
+    @DefaultBoolean(true)
+    public boolean isActive();
+
+    public void setActive(boolean active);
+
+    public int getLevel();
+
+    public void setLevel(@Within(min = 0, max = 15) int level);
+
+    @DefaultInt(-3)
+    @Within(min = -100, max = 100)
+    public int getHealth();
+
+    public void setHealth(int health);
+
+    // too large of a range to be packed
+    @Within(min = 0, max = 1000000)
+    public int getScore();
+
+    public void setScore(int score);
+}
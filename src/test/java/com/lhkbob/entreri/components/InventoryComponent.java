@@ -0,0 +1,62 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.components;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.ReturnValue;
+import com.lhkbob.entreri.property.DefaultFloat;
+import com.lhkbob.entreri.property.DefaultInt;
+import com.lhkbob.entreri.property.FixedArray;
+import com.lhkbob.entreri.property.Within;
+
+/**
+ * A test component that uses the fixed-length array properties.
+ *
+ * @author Michael Ludwig
+ */
+public interface InventoryComponent extends Component {
+    @FixedArray(length = 8)
+    @DefaultInt(-1)
+    public int getSlot(int index);
+
+    public InventoryComponent setSlot(int index, int item);
+
+    public int[] getSlots(@ReturnValue int[] result);
+
+    public void setSlots(int[] slots);
+
+    @FixedArray(length = 4)
+    @DefaultFloat(0.25f)
+    public float getWeight(int index);
+
+    public void setWeight(int index, @Within(min = 0.0, max = 1.0) float weight);
+
+    @FixedArray(length = 2)
+    public void setBone(int index, long bone);
+
+    public long[] getBones();
+}
@@ -28,9 +28,12 @@ package com.lhkbob.entreri.impl;
 
 import com.lhkbob.entreri.Entity;
 import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.components.BufferedComponent;
 import com.lhkbob.entreri.components.ComplexComponent;
+import com.lhkbob.entreri.components.FloatComponent;
 import com.lhkbob.entreri.components.FloatPropertyOverride;
 import com.lhkbob.entreri.components.IntComponent;
+import com.lhkbob.entreri.property.FloatProperty;
 import com.lhkbob.entreri.property.Property;
 import org.junit.Assert;
 import org.junit.Test;
@@ -117,6 +120,275 @@ public class ComponentDataStoreTest {
         Assert.assertEquals(count, getDecoratedProperties(cr).size());
     }
 
+    @Test
+    public void testLazyOwnerDelegate() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+
+        Entity e = system.addEntity();
+        IntComponent c = e.add(IntComponent.class);
+        Assert.assertNull(cr.getOwnerDelegate(c.getIndex()));
+        Assert.assertNull(c.getOwner());
+
+        // clearing the owner of an unowned component must not allocate a delegate
+        c.setOwner(null);
+        Assert.assertNull(cr.getOwnerDelegate(c.getIndex()));
+
+        Entity owner = system.addEntity();
+        c.setOwner(owner);
+        Assert.assertNotNull(cr.getOwnerDelegate(c.getIndex()));
+        Assert.assertSame(owner, c.getOwner());
+
+        // removing the component releases its delegate, and the component's index is reset by the removal
+        int index = c.getIndex();
+        e.remove(IntComponent.class);
+        Assert.assertEquals(0, c.getIndex());
+        Assert.assertNull(cr.getOwnerDelegate(index));
+    }
+
+    @Test
+    public void testOwnershipCycleRemovesComponentOnce() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+
+        Entity e1 = system.addEntity();
+        IntComponent c1 = e1.add(IntComponent.class);
+        Entity e2 = system.addEntity();
+        IntComponent c2 = e2.add(IntComponent.class);
+        e1.setOwner(c2);
+        c2.setOwner(c1);
+
+        // removing c1 removes c2, which removes e1 and thereby leads back to c1
+        e1.remove(IntComponent.class);
+        Assert.assertFalse(e1.isAlive());
+        Assert.assertFalse(c2.isAlive());
+        Assert.assertEquals(0, cr.getComponentCount());
+    }
+
+    @Test
+    public void testComponentCountAndCompacted() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+        Assert.assertEquals(0, cr.getComponentCount());
+        Assert.assertTrue(cr.isCompacted());
+
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class);
+            entities.add(e);
+        }
+        Assert.assertEquals(10, cr.getComponentCount());
+        Assert.assertTrue(cr.isCompacted());
+
+        // replacing a component leaves a hole
+        entities.get(2).add(IntComponent.class);
+        Assert.assertEquals(10, cr.getComponentCount());
+        Assert.assertEquals(12, cr.getMaxComponentIndex());
+        Assert.assertFalse(cr.isCompacted());
+
+        entities.get(3).remove(IntComponent.class);
+        system.removeEntity(entities.get(4));
+        Assert.assertEquals(8, cr.getComponentCount());
+
+        system.compact();
+        Assert.assertEquals(8, cr.getComponentCount());
+        Assert.assertEquals(9, cr.getMaxComponentIndex());
+        Assert.assertTrue(cr.isCompacted());
+
+        // adding to an older entity breaks the entity ordering
+        entities.get(3).add(IntComponent.class);
+        Assert.assertFalse(cr.isCompacted());
+    }
+
+    @Test
+    public void testNextComponentIndexSkipsHoles() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            entities.add(e);
+        }
+        Assert.assertEquals(1, cr.nextComponentIndex(0));
+        Assert.assertEquals(10, cr.nextComponentIndex(10));
+
+        // leave a hole spanning several words, keeping a single component in the middle of it
+        for (int i = 5; i < 250; i++) {
+            if (i != 130) {
+                entities.get(i).remove(IntComponent.class);
+            }
+        }
+        int live = entities.get(130).get(IntComponent.class).getIndex();
+        Assert.assertEquals(live, cr.nextComponentIndex(6));
+        Assert.assertEquals(entities.get(250).get(IntComponent.class).getIndex(),
+                            cr.nextComponentIndex(live + 1));
+
+        // past the last component the max index is returned
+        Assert.assertEquals(cr.getMaxComponentIndex(), cr.nextComponentIndex(cr.getMaxComponentIndex()));
+        entities.get(299).remove(IntComponent.class);
+        Assert.assertEquals(cr.getMaxComponentIndex(), cr.nextComponentIndex(cr.getMaxComponentIndex() - 1));
+
+        // iteration only visits the remaining components
+        int count = 0;
+        int max = cr.getMaxComponentIndex();
+        for (int i = cr.nextComponentIndex(1); i < max; i = cr.nextComponentIndex(i + 1)) {
+            Assert.assertNotNull(cr.getComponent(i));
+            count++;
+        }
+        Assert.assertEquals(cr.getComponentCount(), count);
+
+        system.compact();
+        Assert.assertEquals(1, cr.nextComponentIndex(1));
+        Assert.assertEquals(cr.getComponentCount() + 1, cr.getMaxComponentIndex());
+        Assert.assertEquals(cr.getComponentCount(), cr.nextComponentIndex(cr.getComponentCount()));
+    }
+
+    @Test
+    public void testSwapBuffersVersionsComponentsAboveLiveCount() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        List<BufferedComponent> components = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            components.add(system.addEntity().add(BufferedComponent.class));
+        }
+        system.swapBuffers();
+
+        // the highest slot is above the live count once a low-index component is removed
+        components.get(0).getEntity().remove(BufferedComponent.class);
+        BufferedComponent last = components.get(3);
+        Assert.assertTrue(last.getIndex() > system.getRepository(BufferedComponent.class)
+                                                  .getComponentCount());
+
+        int version = last.getVersion();
+        last.setPosition(2.0f);
+        system.swapBuffers();
+        Assert.assertTrue(version != last.getVersion());
+        Assert.assertEquals(2.0f, last.getPosition(), 0.0001f);
+    }
+
+    @Test
+    public void testMergeShardsVersionsBulkWrites() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        List<FloatComponent> components = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            components.add(system.addEntity().add(FloatComponent.class));
+        }
+        components.get(0).getEntity().remove(FloatComponent.class);
+        int[] versions = new int[4];
+        for (int i = 0; i < 4; i++) {
+            versions[i] = components.get(i).getVersion();
+        }
+
+        ComponentDataStore<FloatComponent> cr = system.getRepository(FloatComponent.class);
+        FloatProperty p = (FloatProperty) cr.getProperty(0);
+        p.fill(components.get(2).getIndex(), cr.getMaxComponentIndex(), 3.0f);
+        Assert.assertEquals(versions[2], components.get(2).getVersion());
+
+        system.mergeShards(FloatComponent.class);
+        Assert.assertEquals(versions[1], components.get(1).getVersion());
+        Assert.assertTrue(versions[2] != components.get(2).getVersion());
+        Assert.assertTrue(versions[3] != components.get(3).getVersion());
+        Assert.assertEquals(3.0f, components.get(3).getFloat(), 0.0001f);
+
+        // the writes are only versioned once
+        versions[3] = components.get(3).getVersion();
+        system.mergeShards();
+        Assert.assertEquals(versions[3], components.get(3).getVersion());
+    }
+
+    @Test
+    public void testAppendOnlySlotPolicy() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+        Assert.assertEquals(ComponentDataStore.SlotReusePolicy.APPEND_ONLY, cr.getSlotReusePolicy());
+
+        doChurn(system);
+        Assert.assertEquals(1001, cr.getMaxComponentIndex());
+    }
+
+    @Test
+    public void testReuseLowestSlotPolicy() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        system.setSlotReusePolicy(ComponentDataStore.SlotReusePolicy.REUSE_LOWEST);
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+        Assert.assertEquals(ComponentDataStore.SlotReusePolicy.REUSE_LOWEST, cr.getSlotReusePolicy());
+
+        List<Entity> entities = doChurn(system);
+        Assert.assertEquals(11, cr.getMaxComponentIndex());
+
+        // holes are filled from the front
+        entities.get(7).remove(IntComponent.class);
+        entities.get(2).remove(IntComponent.class);
+        Assert.assertEquals(3, system.addEntity().add(IntComponent.class).getIndex());
+        Assert.assertEquals(8, system.addEntity().add(IntComponent.class).getIndex());
+        Assert.assertEquals(11, system.addEntity().add(IntComponent.class).getIndex());
+    }
+
+    @Test
+    public void testReuseLifoSlotPolicy() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class);
+            entities.add(e);
+        }
+        // holes made before switching the policy are picked up as well
+        entities.get(1).remove(IntComponent.class);
+        cr.setSlotReusePolicy(ComponentDataStore.SlotReusePolicy.REUSE_LIFO);
+        entities.get(7).remove(IntComponent.class);
+        entities.get(4).remove(IntComponent.class);
+
+        Assert.assertEquals(5, system.addEntity().add(IntComponent.class).getIndex());
+        Assert.assertEquals(8, system.addEntity().add(IntComponent.class).getIndex());
+        Assert.assertEquals(2, system.addEntity().add(IntComponent.class).getIndex());
+        Assert.assertEquals(11, system.addEntity().add(IntComponent.class).getIndex());
+    }
+
+    @Test
+    public void testReusedSlotIdentity() {
+        EntitySystemImpl system = (EntitySystemImpl) EntitySystem.Factory.create();
+        system.setSlotReusePolicy(ComponentDataStore.SlotReusePolicy.REUSE_LOWEST);
+        ComponentDataStore<IntComponent> cr = system.getRepository(IntComponent.class);
+
+        Entity e1 = system.addEntity();
+        IntComponent c1 = e1.add(IntComponent.class);
+        c1.setInt(5);
+        int index = c1.getIndex();
+        int id = cr.getId(index);
+        int version = c1.getVersion();
+        e1.remove(IntComponent.class);
+
+        IntComponent c2 = system.addEntity().add(IntComponent.class);
+        Assert.assertEquals(index, c2.getIndex());
+        Assert.assertFalse(c1.isAlive());
+        Assert.assertNotSame(c1, c2);
+        Assert.assertTrue(id != cr.getId(index));
+        Assert.assertTrue(version != c2.getVersion());
+        Assert.assertEquals(0, c2.getInt());
+    }
+
+    private static List<Entity> doChurn(EntitySystemImpl system) {
+        // keep 10 components alive while continuously replacing them
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (entities.size() == 10) {
+                system.removeEntity(entities.remove(0));
+            }
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            entities.add(e);
+        }
+
+        for (int i = 0; i < entities.size(); i++) {
+            Assert.assertEquals(990 + i, entities.get(i).get(IntComponent.class).getInt());
+        }
+        return entities;
+    }
+
     @SuppressWarnings("unchecked")
     private static List<Property> getDecoratedProperties(ComponentDataStore<?> cr) throws Exception {
         Field decorated = ComponentDataStore.class.getDeclaredField("decoratedProperties");
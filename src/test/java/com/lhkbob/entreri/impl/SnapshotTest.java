@@ -0,0 +1,873 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.impl;
+
+import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.components.*;
+import com.lhkbob.entreri.math.Mat4;
+import com.lhkbob.entreri.math.Quat;
+import com.lhkbob.entreri.math.Vec3;
+import com.lhkbob.entreri.property.EntityRefProperty;
+import com.lhkbob.entreri.property.FloatProperty;
+import com.lhkbob.entreri.property.HalfFloatProperty;
+import com.lhkbob.entreri.property.IntProperty;
+import com.lhkbob.entreri.property.PackedIntProperty;
+import com.lhkbob.entreri.property.StringProperty;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class SnapshotTest {
+    private static SnapshotCodecs createCodecs() {
+        SnapshotCodecs codecs = new SnapshotCodecs();
+        codecs.setPropertyCodec(FloatPropertyOverride.class, new PropertyCodec<FloatPropertyOverride>() {
+            @Override
+            public void write(FloatPropertyOverride property, int[] componentIndices, int count,
+                              SnapshotOutput out) throws IOException {
+                out.writeFloats(property.getIndexedData(), componentIndices, count);
+            }
+
+            @Override
+            public void read(FloatPropertyOverride property, int[] componentIndices, int count,
+                             SnapshotInput in) throws IOException {
+                in.readFloats(property.getIndexedData(), componentIndices, count);
+            }
+        });
+        codecs.setPropertyCodec(CustomProperty.class, new PropertyCodec<CustomProperty>() {
+            @Override
+            public void write(CustomProperty property, int[] componentIndices, int count, SnapshotOutput out)
+                    throws IOException {
+                for (int i = 0; i < count; i++) {
+                    out.writeInt(property.get(componentIndices[i]).value);
+                }
+            }
+
+            @Override
+            public void read(CustomProperty property, int[] componentIndices, int count, SnapshotInput in)
+                    throws IOException {
+                for (int i = 0; i < count; i++) {
+                    property.get(componentIndices[i]).value = in.readInt();
+                }
+            }
+        });
+        codecs.setObjectCodec(ObjectComponent.FooBlah.class, new ObjectCodec<ObjectComponent.FooBlah>() {
+            @Override
+            public void write(ObjectComponent.FooBlah value, SnapshotOutput out) {
+            }
+
+            @Override
+            public ObjectComponent.FooBlah read(SnapshotInput in) {
+                return new ObjectComponent.FooBlah();
+            }
+        });
+        return codecs;
+    }
+
+    private static EntitySystem roundTrip(EntitySystem system) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new SnapshotWriter(system, createCodecs()).write(Channels.newChannel(bytes));
+
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader(createCodecs())
+                .read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), restored);
+        return restored;
+    }
+
+    private static List<Entity> entities(EntitySystem system) {
+        List<Entity> entities = new ArrayList<>();
+        for (Entity e : system) {
+            entities.add(e);
+        }
+        return entities;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> created = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            if (i % 3 == 0) {
+                e.add(FloatComponent.class).setFloat(i / 2f);
+            }
+            if (i % 5 == 0) {
+                ComplexComponent c = e.add(ComplexComponent.class);
+                c.setLong(i * 1000L);
+                c.setEnum(i % 2 == 0 ? ComplexComponent.TestEnum.V2 : ComplexComponent.TestEnum.V1);
+                c.setFactoryFloat(i);
+                c.setParams((short) i, (short) (i + 1));
+                c.setNamedParamSetter(i % 10 == 0);
+                c.setSuperValue(-i);
+                CustomProperty.Bletch b = new CustomProperty.Bletch();
+                b.value = i + 7;
+                c.setBletch(b);
+            }
+            created.add(e);
+        }
+        // leave holes in both the entity table and the data stores
+        for (int i = 0; i < 500; i += 7) {
+            system.removeEntity(created.get(i));
+        }
+        for (int i = 1; i < 500; i += 11) {
+            created.get(i).remove(IntComponent.class);
+        }
+
+        List<Entity> expected = entities(system);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new SnapshotWriter(system, createCodecs()).write(Channels.newChannel(bytes));
+        Path file = Files.createTempFile("entreri", ".snapshot");
+        try {
+            Files.write(file, bytes.toByteArray());
+            EntitySystem restored = EntitySystem.Factory.create();
+            new SnapshotReader(createCodecs()).read(file, restored);
+
+            List<Entity> actual = entities(restored);
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Entity e = expected.get(i);
+                Entity r = actual.get(i);
+                Assert.assertEquals(e.getId(), r.getId());
+
+                IntComponent ei = e.get(IntComponent.class);
+                IntComponent ri = r.get(IntComponent.class);
+                if (ei == null) {
+                    Assert.assertNull(ri);
+                } else {
+                    Assert.assertEquals(ei.getInt(), ri.getInt());
+                    Assert.assertEquals(ei.getVersion(), ri.getVersion());
+                    Assert.assertSame(r, ri.getEntity());
+                }
+
+                FloatComponent ef = e.get(FloatComponent.class);
+                FloatComponent rf = r.get(FloatComponent.class);
+                if (ef == null) {
+                    Assert.assertNull(rf);
+                } else {
+                    Assert.assertEquals(ef.getFloat(), rf.getFloat(), .0001f);
+                }
+
+                ComplexComponent ec = e.get(ComplexComponent.class);
+                ComplexComponent rc = r.get(ComplexComponent.class);
+                if (ec == null) {
+                    Assert.assertNull(rc);
+                } else {
+                    Assert.assertEquals(ec.getLong(), rc.getLong());
+                    Assert.assertEquals(ec.getEnum(), rc.getEnum());
+                    Assert.assertEquals(ec.getFactoryFloat(), rc.getFactoryFloat(), .0001f);
+                    Assert.assertEquals(ec.getParam1(), rc.getParam1());
+                    Assert.assertEquals(ec.getParam2(), rc.getParam2());
+                    Assert.assertEquals(ec.isNamedParamGetter(), rc.isNamedParamGetter());
+                    Assert.assertEquals(ec.getSuperValue(), rc.getSuperValue());
+                    Assert.assertEquals(ec.hasBletch(new CustomProperty.Bletch()).value,
+                                        rc.hasBletch(new CustomProperty.Bletch()).value);
+                    Assert.assertEquals(ec.getVersion(), rc.getVersion());
+                }
+            }
+
+            // the restored system continues the id sequences of the saved one
+            Assert.assertEquals(system.addEntity().getId(), restored.addEntity().getId());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMappedRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        for (int i = 0; i < 20000; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            if (i % 2 == 0) {
+                e.add(FloatComponent.class).setFloat(i % 4000);
+            }
+            if (i % 3 == 0) {
+                e.add(ComplexComponent.class).setLong(-i);
+            }
+        }
+
+        Path file = Files.createTempFile("entreri", ".snapshot");
+        try {
+            new SnapshotWriter(system, createCodecs()).write(file);
+
+            EntitySystem restored = EntitySystem.Factory.create();
+            new SnapshotReader(createCodecs()).read(file, restored);
+
+            int i = 0;
+            for (Entity e : restored) {
+                Assert.assertEquals(i, e.get(IntComponent.class).getInt());
+                if (i % 2 == 0) {
+                    Assert.assertEquals(i % 4000, e.get(FloatComponent.class).getFloat(), .0001f);
+                } else {
+                    Assert.assertNull(e.get(FloatComponent.class));
+                }
+                if (i % 3 == 0) {
+                    Assert.assertEquals(-i, e.get(ComplexComponent.class).getLong());
+                } else {
+                    Assert.assertNull(e.get(ComplexComponent.class));
+                }
+                i++;
+            }
+            Assert.assertEquals(20000, i);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMappedInputWindows() throws IOException {
+        int[] indices = new int[5000];
+        float[] floats = new float[5000];
+        long[] longs = new long[5000];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+            floats[i] = i * .5f;
+            longs[i] = i * 31L;
+        }
+
+        Path file = Files.createTempFile("entreri", ".snapshot");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                SnapshotOutput out = new SnapshotOutput(channel);
+                out.writeInt(42);
+                out.writeFloats(floats, indices, floats.length);
+                out.writeString("between columns");
+                out.writeLongs(longs, indices, longs.length);
+                out.flush();
+            }
+
+            float[] readFloats = new float[floats.length + 1];
+            long[] readLongs = new long[longs.length + 1];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // a window of only two pages forces values and columns to span multiple mappings
+                SnapshotInput in = new SnapshotInput(channel, 2 * SnapshotInput.MAP_WINDOW_ALIGNMENT);
+                Assert.assertEquals(42, in.readInt());
+                Assert.assertEquals(4, in.getPosition());
+                in.readFloats(readFloats, 1, floats.length);
+                Assert.assertEquals("between columns", in.readString());
+                in.readLongs(readLongs, 1, longs.length);
+            }
+
+            for (int i = 0; i < floats.length; i++) {
+                Assert.assertEquals(floats[i], readFloats[i + 1], 0f);
+                Assert.assertEquals(longs[i], readLongs[i + 1]);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testObjectCodec() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(ObjectComponent.class).setObject(new ObjectComponent.FooBlah());
+        system.addEntity().add(ObjectComponent.class);
+
+        List<Entity> restored = entities(roundTrip(system));
+        Assert.assertEquals(2, restored.size());
+        Assert.assertNotNull(restored.get(0).get(ObjectComponent.class).getObject());
+        Assert.assertNull(restored.get(1).get(ObjectComponent.class).getObject());
+    }
+
+    @Test
+    public void testOwnership() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity parent = system.addEntity();
+        Entity child = system.addEntity();
+        IntComponent owner = parent.add(IntComponent.class);
+        child.setOwner(owner);
+        parent.add(FloatComponent.class).setOwner(child);
+
+        List<Entity> restored = entities(roundTrip(system));
+        Entity restoredParent = restored.get(0);
+        Entity restoredChild = restored.get(1);
+        Assert.assertSame(restoredParent.get(IntComponent.class), restoredChild.getOwner());
+        Assert.assertSame(restoredChild, restoredParent.get(FloatComponent.class).getOwner());
+        Assert.assertNull(restoredParent.getOwner());
+
+        // removing the owner cascades just like in the original system
+        restoredParent.remove(IntComponent.class);
+        Assert.assertFalse(restoredChild.isAlive());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingCodec() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(ObjectComponent.class);
+        new SnapshotWriter(system).write(Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRestoreIntoNonEmptySystem() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        system.addEntity().add(IntComponent.class);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new SnapshotWriter(system).write(Channels.newChannel(bytes));
+
+        new SnapshotReader().read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), system);
+    }
+
+    @Test
+    public void testDoubleBufferedRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        BufferedComponent c = system.addEntity().add(BufferedComponent.class);
+        c.setPosition(3.0f);
+        system.getScheduler().swapBuffers();
+        // the pending write is not part of the snapshot
+        c.setPosition(4.0f);
+
+        EntitySystem restored = roundTrip(system);
+        BufferedComponent r = restored.iterator(BufferedComponent.class).next();
+        Assert.assertEquals(3.0f, r.getPosition(), 0.0001f);
+        // the back buffer matches the restored front buffer, so a swap keeps the restored values
+        restored.getScheduler().swapBuffers();
+        Assert.assertEquals(3.0f, r.getPosition(), 0.0001f);
+    }
+
+    @Test
+    public void testPackedVectorRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<TransformComponent> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            TransformComponent t = system.addEntity().add(TransformComponent.class);
+            t.setPosition(new Vec3(i, i + 1, i + 2));
+            t.setRotation(new Quat(0f, 0f, i, 1f));
+            t.setTransform(new Mat4().set(1, 2, i));
+            expected.add(t);
+        }
+        // leave a hole so the columns are not a contiguous range
+        system.removeEntity(expected.get(5).getEntity());
+
+        EntitySystem restored = roundTrip(system);
+        Vec3 position = new Vec3();
+        Quat rotation = new Quat();
+        Mat4 transform = new Mat4();
+        int count = 0;
+        for (TransformComponent t : (Iterable<TransformComponent>) () -> restored
+                .iterator(TransformComponent.class)) {
+            int i = (int) t.getPosition(position).x;
+            Assert.assertEquals(new Vec3(i, i + 1, i + 2), position);
+            Assert.assertEquals(new Quat(0f, 0f, i, 1f), t.getRotation(rotation));
+            Assert.assertEquals(new Mat4().set(1, 2, i), t.getTransform(transform));
+            count++;
+        }
+        Assert.assertEquals(19, count);
+    }
+
+    @Test
+    public void testFixedArrayRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<InventoryComponent> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            InventoryComponent c = system.addEntity().add(InventoryComponent.class);
+            c.setSlot(0, i).setSlot(7, i * 2);
+            c.setWeight(3, i / 20f);
+            c.setBone(1, i * 3L);
+            expected.add(c);
+        }
+        // leave a hole so the columns are not a contiguous range
+        system.removeEntity(expected.get(5).getEntity());
+
+        EntitySystem restored = roundTrip(system);
+        int count = 0;
+        for (InventoryComponent c : (Iterable<InventoryComponent>) () -> restored
+                .iterator(InventoryComponent.class)) {
+            int i = c.getSlot(0);
+            Assert.assertEquals(i * 2, c.getSlot(7));
+            Assert.assertEquals(-1, c.getSlot(3));
+            Assert.assertEquals(i / 20f, c.getWeight(3), 0.0001f);
+            Assert.assertArrayEquals(new long[] { 0L, i * 3L }, c.getBones());
+            count++;
+        }
+        Assert.assertEquals(19, count);
+    }
+
+    @Test
+    public void testPackedPropertiesRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<FlagComponent> expected = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            FlagComponent c = system.addEntity().add(FlagComponent.class);
+            c.setVisible(i % 3 == 0);
+            c.setLevel(i % 16);
+            c.setHealth(i - 75);
+            expected.add(c);
+        }
+        // leave a hole so the columns are not a contiguous range
+        system.removeEntity(expected.get(70).getEntity());
+
+        ComponentDataStore<?> store = ((EntitySystemImpl) system).getRepository(FlagComponent.class);
+        for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+            String name = store.getDeclaredPropertyName(i);
+            if (name.equals("level") || name.equals("health")) {
+                Assert.assertTrue(store.getProperty(i) instanceof PackedIntProperty);
+            } else if (name.equals("score")) {
+                Assert.assertTrue(store.getProperty(i) instanceof IntProperty);
+            }
+        }
+
+        EntitySystem restored = roundTrip(system);
+        int count = 0;
+        for (FlagComponent c : (Iterable<FlagComponent>) () -> restored.iterator(FlagComponent.class)) {
+            int i = c.getHealth() + 75;
+            Assert.assertEquals(i % 3 == 0, c.isVisible());
+            Assert.assertEquals(i % 16, c.getLevel());
+            Assert.assertTrue(c.isActive());
+            count++;
+        }
+        Assert.assertEquals(149, count);
+    }
+
+    @Test
+    public void testQuantizedPropertiesRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        for (int i = 0; i < 50; i++) {
+            ParticleComponent c = system.addEntity().add(ParticleComponent.class);
+            c.setOpacity(i / 64f);
+            c.setMass(i + 0.1f);
+        }
+
+        ComponentDataStore<?> store = ((EntitySystemImpl) system).getRepository(ParticleComponent.class);
+        for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+            String name = store.getDeclaredPropertyName(i);
+            if (name.equals("opacity") || name.equals("size")) {
+                Assert.assertTrue(store.getProperty(i) instanceof HalfFloatProperty);
+            } else if (name.equals("mass")) {
+                Assert.assertTrue(store.getProperty(i) instanceof FloatProperty);
+            }
+        }
+
+        EntitySystem restored = roundTrip(system);
+        int count = 0;
+        for (ParticleComponent c : (Iterable<ParticleComponent>) () -> restored
+                .iterator(ParticleComponent.class)) {
+            int i = (int) c.getMass();
+            Assert.assertEquals(i + 0.1f, c.getMass(), 0f);
+            Assert.assertEquals(i / 64f, c.getOpacity(), 0f);
+            Assert.assertEquals(1.5f, c.getSize(), 0f);
+            count++;
+        }
+        Assert.assertEquals(50, count);
+    }
+
+    @Test
+    public void testEntityReferenceRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> nodes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Entity e = system.addEntity();
+            NodeComponent c = e.add(NodeComponent.class);
+            if (i > 0) {
+                c.setParent(nodes.get(i - 1));
+                c.setTarget(nodes.get(0));
+            }
+            nodes.add(e);
+        }
+        // leaves a gap in the entity ids and clears the references to it
+        system.removeEntity(nodes.get(10));
+        system.compact();
+
+        ComponentDataStore<?> store = ((EntitySystemImpl) system).getRepository(NodeComponent.class);
+        for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+            Assert.assertTrue(store.getProperty(i) instanceof EntityRefProperty);
+        }
+
+        EntitySystem restored = roundTrip(system);
+        Entity first = null;
+        int count = 0;
+        for (Entity e : restored) {
+            NodeComponent c = e.get(NodeComponent.class);
+            Entity expectedParent = nodes.get(e.getId() - 1).get(NodeComponent.class).getParent();
+            if (expectedParent == null) {
+                Assert.assertNull(c.getParent());
+            } else {
+                Assert.assertEquals(expectedParent.getId(), c.getParent().getId());
+                Assert.assertSame(restored, c.getParent().getEntitySystem());
+            }
+            if (first == null) {
+                first = e;
+                Assert.assertNull(c.getTarget());
+            } else {
+                Assert.assertSame(first, c.getTarget());
+            }
+            count++;
+        }
+        Assert.assertEquals(19, count);
+    }
+
+    @Test
+    public void testStringPropertyRoundTrip() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<TagComponent> tags = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            TagComponent c = system.addEntity().add(TagComponent.class);
+            tags.add(c);
+            c.setName("entity" + i);
+            if (i % 4 != 0) {
+                c.setTag("tag" + (i % 4));
+            }
+        }
+        // leaves unused codes behind in the symbol table
+        for (int i = 0; i < 100; i += 5) {
+            tags.get(i).setName("renamed");
+        }
+
+        ComponentDataStore<?> store = ((EntitySystemImpl) system).getRepository(TagComponent.class);
+        for (int i = 0; i < store.getDeclaredPropertyCount(); i++) {
+            Assert.assertTrue(store.getProperty(i) instanceof StringProperty);
+        }
+
+        EntitySystem restored = roundTrip(system);
+        int count = 0;
+        for (TagComponent c : (Iterable<TagComponent>) () -> restored.iterator(TagComponent.class)) {
+            int i = c.getEntity().getId() - 1;
+            Assert.assertEquals(i % 5 == 0 ? "renamed" : "entity" + i, c.getName());
+            Assert.assertEquals(i % 4 == 0 ? "untagged" : "tag" + (i % 4), c.getTag());
+            count++;
+        }
+        Assert.assertEquals(100, count);
+    }
+
+    private static byte[] toBytes(ByteArrayOutputStream bytes) {
+        byte[] result = bytes.toByteArray();
+        bytes.reset();
+        return result;
+    }
+
+    private static int componentId(Component c) {
+        AbstractComponent<?> impl = (AbstractComponent<?>) c;
+        return impl.owner.getId(impl.index);
+    }
+
+    private static void assertSameIntsAndFloats(EntitySystem expected, EntitySystem actual) {
+        List<Entity> expectedEntities = entities(expected);
+        List<Entity> actualEntities = entities(actual);
+        Assert.assertEquals(expectedEntities.size(), actualEntities.size());
+        for (int i = 0; i < expectedEntities.size(); i++) {
+            Entity e = expectedEntities.get(i);
+            Entity r = actualEntities.get(i);
+            Assert.assertEquals(e.getId(), r.getId());
+
+            IntComponent ei = e.get(IntComponent.class);
+            IntComponent ri = r.get(IntComponent.class);
+            if (ei == null) {
+                Assert.assertNull(ri);
+            } else {
+                Assert.assertEquals(ei.getInt(), ri.getInt());
+                Assert.assertEquals(componentId(ei), componentId(ri));
+                Assert.assertEquals(ei.getVersion(), ri.getVersion());
+            }
+
+            FloatComponent ef = e.get(FloatComponent.class);
+            FloatComponent rf = r.get(FloatComponent.class);
+            if (ef == null) {
+                Assert.assertNull(rf);
+            } else {
+                Assert.assertEquals(ef.getFloat(), rf.getFloat(), .0001f);
+                Assert.assertEquals(componentId(ef), componentId(rf));
+                Assert.assertEquals(ef.getVersion(), rf.getVersion());
+            }
+        }
+    }
+
+    @Test
+    public void testDeltaChain() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> created = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            if (i % 4 == 0) {
+                e.add(FloatComponent.class).setFloat(i);
+            }
+            created.add(e);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaSnapshotWriter writer = new DeltaSnapshotWriter(system, createCodecs());
+        writer.writeBase(Channels.newChannel(bytes));
+        byte[] base = toBytes(bytes);
+
+        // first delta: updates, removals, and new entities with ownership
+        for (int i = 0; i < 200; i += 10) {
+            created.get(i).get(IntComponent.class).setInt(-i);
+        }
+        created.get(8).get(FloatComponent.class).setFloat(-8f);
+        created.get(8).get(FloatComponent.class).updateVersion();
+        system.removeEntity(created.get(3));
+        created.get(5).remove(IntComponent.class);
+        Entity added = system.addEntity();
+        added.add(FloatComponent.class).setFloat(42f);
+        added.setOwner(created.get(0).get(IntComponent.class));
+        created.get(1).add(FloatComponent.class).setOwner(added);
+        writer.writeDelta(Channels.newChannel(bytes));
+        byte[] delta1 = toBytes(bytes);
+
+        // second delta: replace a component, clear an owner, and remove an owning entity
+        created.get(12).remove(IntComponent.class);
+        created.get(12).add(IntComponent.class).setInt(1200);
+        created.get(1).get(FloatComponent.class).setOwner(null);
+        system.removeEntity(created.get(0));
+        system.compact();
+        writer.writeDelta(Channels.newChannel(bytes));
+        byte[] delta2 = toBytes(bytes);
+
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader(createCodecs()).read(Channels.newChannel(new ByteArrayInputStream(base)),
+                                                restored);
+        DeltaSnapshotReader reader = new DeltaSnapshotReader(createCodecs());
+        reader.apply(Channels.newChannel(new ByteArrayInputStream(delta1)), restored);
+        reader.apply(Channels.newChannel(new ByteArrayInputStream(delta2)), restored);
+
+        // the owned entity was removed along with its owner in both systems
+        Assert.assertFalse(added.isAlive());
+        assertSameIntsAndFloats(system, restored);
+        Assert.assertNull(entities(restored).get(0).get(FloatComponent.class).getOwner());
+
+        // the restored system continues the id sequences of the saved one
+        Assert.assertEquals(system.addEntity().getId(), restored.addEntity().getId());
+        Assert.assertEquals(componentId(created.get(2).add(FloatComponent.class)),
+                            componentId(entities(restored).get(1).add(FloatComponent.class)));
+    }
+
+    @Test
+    public void testDeltaOwnership() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity parent = system.addEntity();
+        parent.add(IntComponent.class);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaSnapshotWriter writer = new DeltaSnapshotWriter(system, createCodecs());
+        writer.writeBase(Channels.newChannel(bytes));
+        byte[] base = toBytes(bytes);
+
+        Entity child = system.addEntity();
+        child.setOwner(parent.get(IntComponent.class));
+        child.add(FloatComponent.class).setOwner(parent);
+        writer.writeDelta(Channels.newChannel(bytes));
+
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader(createCodecs()).read(Channels.newChannel(new ByteArrayInputStream(base)),
+                                                restored);
+        new DeltaSnapshotReader(createCodecs())
+                .apply(Channels.newChannel(new ByteArrayInputStream(toBytes(bytes))), restored);
+
+        List<Entity> actual = entities(restored);
+        Assert.assertSame(actual.get(0).get(IntComponent.class), actual.get(1).getOwner());
+        Assert.assertSame(actual.get(0), actual.get(1).get(FloatComponent.class).getOwner());
+
+        // removing the owner cascades just like in the original system
+        actual.get(0).remove(IntComponent.class);
+        Assert.assertFalse(actual.get(1).isAlive());
+    }
+
+    @Test
+    public void testDeltaReassignedOwnership() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity parent = system.addEntity();
+        Entity other = system.addEntity();
+        Entity child = system.addEntity();
+        child.setOwner(parent.add(IntComponent.class));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaSnapshotWriter writer = new DeltaSnapshotWriter(system, createCodecs());
+        writer.writeBase(Channels.newChannel(bytes));
+        byte[] base = toBytes(bytes);
+
+        // the child must survive replacing its previous owner
+        child.setOwner(other);
+        parent.remove(IntComponent.class);
+        parent.add(IntComponent.class);
+        writer.writeDelta(Channels.newChannel(bytes));
+
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader(createCodecs()).read(Channels.newChannel(new ByteArrayInputStream(base)),
+                                                restored);
+        new DeltaSnapshotReader(createCodecs())
+                .apply(Channels.newChannel(new ByteArrayInputStream(toBytes(bytes))), restored);
+
+        List<Entity> actual = entities(restored);
+        Assert.assertEquals(3, actual.size());
+        Assert.assertSame(actual.get(1), actual.get(2).getOwner());
+        assertSameIntsAndFloats(system, restored);
+    }
+
+    @Test
+    public void testDeltaSize() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        List<Entity> created = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Entity e = system.addEntity();
+            e.add(IntComponent.class).setInt(i);
+            created.add(e);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaSnapshotWriter writer = new DeltaSnapshotWriter(system, createCodecs());
+        writer.writeBase(Channels.newChannel(bytes));
+        int baseSize = toBytes(bytes).length;
+
+        writer.writeDelta(Channels.newChannel(bytes));
+        int emptySize = toBytes(bytes).length;
+
+        for (int i = 0; i < 10; i++) {
+            created.get(i * 100).get(IntComponent.class).setInt(-1);
+        }
+        writer.writeDelta(Channels.newChannel(bytes));
+        int deltaSize = toBytes(bytes).length;
+
+        // each changed int component costs its entity id, component id, version, and value
+        Assert.assertEquals(emptySize + 10 * 16, deltaSize);
+        Assert.assertTrue(deltaSize * 100 < baseSize);
+    }
+
+    @Test
+    public void testDeltaDoubleBuffered() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        BufferedComponent written = system.addEntity().add(BufferedComponent.class);
+        BufferedComponent unwritten = system.addEntity().add(BufferedComponent.class);
+        unwritten.setCount(5);
+        system.getScheduler().swapBuffers();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaSnapshotWriter writer = new DeltaSnapshotWriter(system, createCodecs());
+        writer.writeBase(Channels.newChannel(bytes));
+        byte[] base = toBytes(bytes);
+        writer.writeDelta(Channels.newChannel(bytes));
+        byte[] empty = toBytes(bytes);
+
+        // the buffered write is versioned by the swap, so it is part of the next delta
+        written.setPosition(3.0f);
+        system.getScheduler().swapBuffers();
+        written.setPosition(4.0f);
+        writer.writeDelta(Channels.newChannel(bytes));
+        byte[] delta = toBytes(bytes);
+        Assert.assertTrue(delta.length > empty.length);
+
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader(createCodecs()).read(Channels.newChannel(new ByteArrayInputStream(base)),
+                                                restored);
+        DeltaSnapshotReader reader = new DeltaSnapshotReader(createCodecs());
+        reader.apply(Channels.newChannel(new ByteArrayInputStream(empty)), restored);
+        reader.apply(Channels.newChannel(new ByteArrayInputStream(delta)), restored);
+
+        Iterator<BufferedComponent> it = restored.iterator(BufferedComponent.class);
+        BufferedComponent r = it.next();
+        Assert.assertEquals(3.0f, r.getPosition(), 0.0001f);
+        Assert.assertEquals(written.getVersion(), r.getVersion());
+        Assert.assertEquals(5, it.next().getCount());
+    }
+
+    @Test
+    public void testDeltaUnversionedWrites() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        FloatComponent filled = system.addEntity().add(FloatComponent.class);
+        Entity parent = system.addEntity();
+        NodeComponent child = system.addEntity().add(NodeComponent.class);
+        child.setParent(parent);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaSnapshotWriter writer = new DeltaSnapshotWriter(system, createCodecs());
+        writer.writeBase(Channels.newChannel(bytes));
+        byte[] base = toBytes(bytes);
+
+        // neither the bulk write nor the cleared reference goes through a setter
+        ComponentDataStore<?> store = ((EntitySystemImpl) system).getRepository(FloatComponent.class);
+        ((FloatProperty) store.getProperty(0)).fill(filled.getIndex(), filled.getIndex() + 1, 3.0f);
+        int version = child.getVersion();
+        system.removeEntity(parent);
+        Assert.assertNull(child.getParent());
+        Assert.assertTrue(version != child.getVersion());
+
+        writer.writeDelta(Channels.newChannel(bytes));
+        byte[] delta = toBytes(bytes);
+
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader(createCodecs()).read(Channels.newChannel(new ByteArrayInputStream(base)),
+                                                restored);
+        new DeltaSnapshotReader(createCodecs())
+                .apply(Channels.newChannel(new ByteArrayInputStream(delta)), restored);
+
+        FloatComponent restoredFilled = restored.iterator(FloatComponent.class).next();
+        Assert.assertEquals(3.0f, restoredFilled.getFloat(), 0.0001f);
+        Assert.assertEquals(filled.getVersion(), restoredFilled.getVersion());
+        NodeComponent restoredChild = restored.iterator(NodeComponent.class).next();
+        Assert.assertNull(restoredChild.getParent());
+        Assert.assertEquals(child.getVersion(), restoredChild.getVersion());
+    }
+
+    @Test(expected = IOException.class)
+    public void testDeltaOutOfOrder() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        Entity e = system.addEntity();
+        e.add(IntComponent.class);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaSnapshotWriter writer = new DeltaSnapshotWriter(system, createCodecs());
+        writer.writeBase(Channels.newChannel(bytes));
+        byte[] base = toBytes(bytes);
+        e.get(IntComponent.class).setInt(1);
+        writer.writeDelta(Channels.newChannel(bytes));
+        toBytes(bytes);
+        e.get(IntComponent.class).setInt(2);
+        writer.writeDelta(Channels.newChannel(bytes));
+        byte[] delta2 = toBytes(bytes);
+
+        EntitySystem restored = EntitySystem.Factory.create();
+        new SnapshotReader(createCodecs()).read(Channels.newChannel(new ByteArrayInputStream(base)),
+                                                restored);
+        new DeltaSnapshotReader(createCodecs())
+                .apply(Channels.newChannel(new ByteArrayInputStream(delta2)), restored);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDeltaWithoutBase() throws IOException {
+        EntitySystem system = EntitySystem.Factory.create();
+        new DeltaSnapshotWriter(system).writeDelta(Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidSnapshot() throws IOException {
+        byte[] bytes = new byte[64];
+        new SnapshotReader().read(Channels.newChannel(new ByteArrayInputStream(bytes)),
+                                  EntitySystem.Factory.create());
+    }
+}
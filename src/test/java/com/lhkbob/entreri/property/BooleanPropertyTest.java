@@ -105,7 +105,24 @@ public class BooleanPropertyTest {
         BooleanProperty p = new BooleanProperty(false, false);
         p.setCapacity(5);
         assertEquals(5, p.getCapacity());
-        assertEquals(5, p.getIndexedData().length);
+        // 64 flags are packed into each word
+        assertEquals(1, p.getIndexedData().length);
+        p.setCapacity(130);
+        assertEquals(130, p.getCapacity());
+        assertEquals(3, p.getIndexedData().length);
+    }
+
+    @Test
+    public void testShrinkCapacity() {
+        BooleanProperty p = new BooleanProperty(false, false);
+        p.setCapacity(128);
+        p.set(10, true);
+        p.set(70, true);
+        p.setCapacity(65);
+        p.setCapacity(128);
+        assertTrue(p.get(10));
+        // truncated flags do not reappear when the property grows again
+        assertFalse(p.get(70));
     }
 
     @Test
@@ -133,12 +150,42 @@ public class BooleanPropertyTest {
         assertFalse(p.get(1));
     }
 
+    @Test
+    public void testGetAndSetAcrossWords() {
+        BooleanProperty p = new BooleanProperty(false, false);
+        p.setCapacity(200);
+        for (int i = 0; i < 200; i += 3) {
+            p.set(i, true);
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i % 3 == 0, p.get(i));
+        }
+        p.set(63, false);
+        p.set(64, true);
+        assertFalse(p.get(63));
+        assertTrue(p.get(64));
+        assertTrue(p.get(66));
+    }
+
+    @Test
+    public void testSwapAcrossWords() {
+        BooleanProperty p = new BooleanProperty(false, false);
+        p.setCapacity(130);
+        p.set(3, true);
+        p.swap(3, 129);
+        assertFalse(p.get(3));
+        assertTrue(p.get(129));
+    }
+
     @Test
     public void testGetIndexedData() {
         BooleanProperty p = new BooleanProperty(false, false);
-        boolean[] data = p.getIndexedData();
+        p.setCapacity(70);
+        long[] data = p.getIndexedData();
         p.set(0, true);
-        assertTrue(data[0]);
+        p.set(67, true);
+        assertEquals(1L, data[0]);
+        assertEquals(1L << 3, data[1]);
     }
 
     @DefaultBoolean(true)
@@ -0,0 +1,176 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.DoubleAccumulatorProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class DoubleAccumulatorPropertyTest {
+    @Test
+    public void testIdentityDefaults() {
+        DoubleAccumulatorProperty sum = new DoubleAccumulatorProperty(Reduction.SUM);
+        DoubleAccumulatorProperty min = new DoubleAccumulatorProperty(Reduction.MIN);
+        DoubleAccumulatorProperty max = new DoubleAccumulatorProperty(Reduction.MAX);
+        sum.setDefaultValue(0);
+        min.setDefaultValue(0);
+        max.setDefaultValue(0);
+        assertEquals(0.0, sum.get(0), 0.00001);
+        assertEquals(Double.POSITIVE_INFINITY, min.get(0), 0.00001);
+        assertEquals(Double.NEGATIVE_INFINITY, max.get(0), 0.00001);
+    }
+
+    @Test
+    public void testAccumulateAndMerge() {
+        DoubleAccumulatorProperty p = new DoubleAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(4);
+        p.set(2, 1.0);
+        p.accumulate(2, 2.0);
+        p.accumulate(2, 3.0);
+        p.accumulate(3, 4.0);
+
+        // not visible until merged
+        assertEquals(1.0, p.get(2), 0.00001);
+        p.mergeShards();
+        assertEquals(6.0, p.get(2), 0.00001);
+        assertEquals(4.0, p.get(3), 0.00001);
+
+        // shards are reset after the merge
+        p.mergeShards();
+        assertEquals(6.0, p.get(2), 0.00001);
+
+        p.clear();
+        assertEquals(0.0, p.get(2), 0.00001);
+    }
+
+    @Test
+    public void testMinAndMax() {
+        DoubleAccumulatorProperty min = new DoubleAccumulatorProperty(Reduction.MIN);
+        DoubleAccumulatorProperty max = new DoubleAccumulatorProperty(Reduction.MAX);
+        min.setCapacity(2);
+        max.setCapacity(2);
+        min.clear();
+        max.clear();
+        for (double v : new double[] { 3.0, -2.0, 7.0 }) {
+            min.accumulate(1, v);
+            max.accumulate(1, v);
+        }
+        min.mergeShards();
+        max.mergeShards();
+        assertEquals(-2.0, min.get(1), 0.00001);
+        assertEquals(7.0, max.get(1), 0.00001);
+        assertEquals(Double.POSITIVE_INFINITY, min.get(0), 0.00001);
+    }
+
+    @Test
+    public void testParallelAccumulate() {
+        DoubleAccumulatorProperty p = new DoubleAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(16);
+        // every worker accumulates into every component, which would race without the shards
+        IntStream.range(0, 10000).parallel().forEach(i -> p.accumulate(i % 16, 1.0));
+        p.mergeShards();
+        for (int i = 0; i < 16; i++) {
+            assertEquals(625.0, p.get(i), 0.00001);
+        }
+    }
+
+    @Test
+    public void testMergedBeforeSwapAndResize() {
+        DoubleAccumulatorProperty p = new DoubleAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.accumulate(0, 5.0);
+        p.swap(0, 1);
+        assertEquals(0.0, p.get(0), 0.00001);
+        assertEquals(5.0, p.get(1), 0.00001);
+
+        p.accumulate(1, 1.0);
+        p.setCapacity(4);
+        assertEquals(6.0, p.get(1), 0.00001);
+        p.accumulate(3, 2.0);
+        p.mergeShards();
+        assertEquals(2.0, p.get(3), 0.00001);
+    }
+
+    @Test
+    public void testClone() {
+        DoubleAccumulatorProperty p = new DoubleAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.set(0, 3.0);
+        p.clone(p, 0, 1);
+        assertEquals(3.0, p.get(1), 0.00001);
+    }
+
+    @Test
+    public void testReusedSlotDiscardsShards() {
+        DoubleAccumulatorProperty p = new DoubleAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.accumulate(1, 5.0);
+        p.accumulate(0, 2.0);
+
+        // the component at 1 is removed and the slot reused before the merge
+        p.setDefaultValue(1);
+        p.mergeShards();
+        assertEquals(0.0, p.get(1), 0.00001);
+        assertEquals(2.0, p.get(0), 0.00001);
+    }
+
+    @Test
+    public void testTerminatedThreadShardsDropped() throws Exception {
+        DoubleAccumulatorProperty p = new DoubleAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.accumulate(0, 1.0);
+        Thread worker = new Thread(() -> p.accumulate(1, 2.0));
+        worker.start();
+        worker.join();
+        assertEquals(2, getShardCount(p));
+
+        // the worker's values are still merged before its shard is dropped
+        p.mergeShards();
+        assertEquals(2.0, p.get(1), 0.00001);
+        assertEquals(1, getShardCount(p));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullReduction() {
+        new DoubleAccumulatorProperty(null);
+    }
+
+    private static int getShardCount(Object p) throws Exception {
+        Field shards = p.getClass().getDeclaredField("shards");
+        shards.setAccessible(true);
+        return ((List<?>) shards.get(p)).size();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.DoubleArrayProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class DoubleArrayPropertyTest {
+    private static final double[] VALUE = new double[] { 1.0, 2.0, 3.0 };
+
+    @Test
+    public void testDefaultValue() {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 3.0, true);
+        p.setCapacity(2);
+        p.set(1, VALUE);
+        p.setDefaultValue(1);
+        assertArrayEquals(new double[] { 3.0, 3.0, 3.0 }, p.get(1), 0.00001);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 0.0, true);
+        p.setCapacity(3);
+        double[] v = VALUE.clone();
+        p.set(1, v);
+        // the property copies the value
+        v[0] = 3.0;
+        assertArrayEquals(VALUE, p.get(1), 0.00001);
+
+        double[] result = new double[3];
+        p.get(1, result);
+        assertArrayEquals(VALUE, result, 0.00001);
+
+        p.set(1, 2, 1.0);
+        assertEquals(1.0, p.get(1, 2), 0.00001);
+        assertEquals(VALUE[1], p.get(1, 1), 0.00001);
+    }
+
+    @Test
+    public void testPackedLayout() {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 0.0, true);
+        p.setCapacity(3);
+        p.set(2, VALUE);
+        double[] data = p.getIndexedData();
+        assertEquals(9, data.length);
+        assertEquals(VALUE[0], data[6], 0.00001);
+        assertEquals(VALUE[2], data[8], 0.00001);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testElementOutOfBounds() {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 0.0, true);
+        p.setCapacity(2);
+        // would otherwise read the first element of component 1
+        p.get(0, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetWrongLength() {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 0.0, true);
+        p.set(0, new double[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingFixedArray() {
+        new DoubleArrayProperty(null, null, null);
+    }
+
+    @Test
+    public void testAttributes() throws NoSuchMethodException {
+        DoubleArrayProperty p = new DoubleArrayProperty(getFixedArray(), getDefault(), null);
+        assertEquals(5, p.getLength());
+        p.setDefaultValue(0);
+        assertEquals(2.0, p.get(0, 4), 0.00001);
+    }
+
+    @Test
+    public void testSetCapacity() {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 0.0, true);
+        assertEquals(1, p.getCapacity());
+        p.set(0, VALUE);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertArrayEquals(VALUE, p.get(0), 0.00001);
+    }
+
+    @Test
+    public void testSwap() {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 0.0, true);
+        p.setCapacity(2);
+        p.setDefaultValue(0);
+        p.set(1, VALUE);
+        p.swap(0, 1);
+        assertArrayEquals(VALUE, p.get(0), 0.00001);
+        assertArrayEquals(new double[3], p.get(1), 0.00001);
+    }
+
+    @Test
+    public void testClonePolicy() throws NoSuchMethodException {
+        DoubleArrayProperty p = new DoubleArrayProperty(3, 0.0, true);
+        p.setCapacity(2);
+        p.set(0, VALUE);
+        p.clone(p, 0, 1);
+        assertArrayEquals(VALUE, p.get(1), 0.00001);
+
+        DoubleArrayProperty noClone = new DoubleArrayProperty(getFixedArray(), null, getClonePolicy());
+        noClone.setCapacity(2);
+        noClone.set(0, 0, 1.0);
+        noClone.set(1, 0, 1.0);
+        noClone.clone(noClone, 0, 1);
+        assertArrayEquals(new double[5], noClone.get(1), 0.00001);
+    }
+
+    @FixedArray(length = 5)
+    private static FixedArray getFixedArray() throws NoSuchMethodException {
+        return getAnnotation(FixedArray.class, "getFixedArray");
+    }
+
+    @DefaultDouble(2.0)
+    private static DefaultDouble getDefault() throws NoSuchMethodException {
+        return getAnnotation(DefaultDouble.class, "getDefault");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return DoubleArrayPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
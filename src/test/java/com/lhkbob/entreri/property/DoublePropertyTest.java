@@ -141,6 +141,86 @@ public class DoublePropertyTest {
         assertEquals(5.0, data[0], 0.00001);
     }
 
+    @Test
+    public void testFill() {
+        DoubleProperty p = new DoubleProperty(0.0, false);
+        p.setCapacity(5);
+        p.fill(1, 4, 3.0);
+        assertEquals(0.0, p.get(0), 0.00001);
+        assertEquals(3.0, p.get(1), 0.00001);
+        assertEquals(3.0, p.get(3), 0.00001);
+        assertEquals(0.0, p.get(4), 0.00001);
+    }
+
+    @Test
+    public void testCopy() {
+        DoubleProperty src = new DoubleProperty(0.0, false);
+        src.setCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            src.set(i, (double) i);
+        }
+
+        DoubleProperty dst = new DoubleProperty(0.0, false);
+        dst.setCapacity(4);
+        dst.copy(src, 1, 0, 3);
+        assertEquals(1.0, dst.get(0), 0.00001);
+        assertEquals(3.0, dst.get(2), 0.00001);
+        assertEquals(0.0, dst.get(3), 0.00001);
+
+        // overlapping copy within the same property
+        src.copy(src, 0, 1, 3);
+        assertEquals(0.0, src.get(1), 0.00001);
+        assertEquals(2.0, src.get(3), 0.00001);
+    }
+
+    @Test
+    public void testScaleAdd() {
+        DoubleProperty pos = new DoubleProperty(1.0, false);
+        DoubleProperty vel = new DoubleProperty(0.0, false);
+        pos.setCapacity(5);
+        vel.setCapacity(5);
+        for (int i = 0; i < 5; i++) {
+            pos.setDefaultValue(i);
+            vel.set(i, (double) i);
+        }
+
+        pos.scaleAdd(1, 5, 2.0, vel);
+        assertEquals(1.0, pos.get(0), 0.00001);
+        assertEquals(3.0, pos.get(1), 0.00001);
+        assertEquals((double) 9, pos.get(4), 0.00001);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testScaleAddOutOfBounds() {
+        DoubleProperty pos = new DoubleProperty(0.0, false);
+        DoubleProperty vel = new DoubleProperty(0.0, false);
+        pos.setCapacity(5);
+        vel.setCapacity(3);
+        pos.scaleAdd(0, 5, 1.0, vel);
+    }
+
+    @Test
+    public void testGatherAndScatter() {
+        DoubleProperty p = new DoubleProperty(0.0, false);
+        p.setCapacity(5);
+        for (int i = 0; i < 5; i++) {
+            p.set(i, (double) i);
+        }
+
+        int[] indices = new int[] { 4, 0, 2 };
+        double[] values = new double[3];
+        p.gather(indices, values, 3);
+        assertEquals((double) 4, values[0], 0.00001);
+        assertEquals(0.0, values[1], 0.00001);
+        assertEquals(2.0, values[2], 0.00001);
+
+        values[0] = 1.0;
+        p.scatter(indices, values, 2);
+        assertEquals(1.0, p.get(4), 0.00001);
+        assertEquals(0.0, p.get(0), 0.00001);
+        assertEquals(2.0, p.get(2), 0.00001);
+    }
+
     @DefaultDouble(5.0)
     private static DefaultDouble getDefaultValue() throws NoSuchMethodException {
         return getAnnotation(DefaultDouble.class, "getDefaultValue");
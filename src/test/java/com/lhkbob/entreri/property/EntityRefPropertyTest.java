@@ -0,0 +1,192 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.EntityRefProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class EntityRefPropertyTest {
+    private EntitySystem system;
+    private EntityRefProperty property;
+
+    @Before
+    public void setup() {
+        system = EntitySystem.Factory.create();
+        property = new EntityRefProperty(true);
+        property.setEntityTable((EntityTable) system);
+        property.setCapacity(8);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        Entity a = system.addEntity();
+        Entity b = system.addEntity();
+        assertNull(property.get(1));
+
+        property.set(1, a);
+        property.set(2, b);
+        property.set(3, a);
+        assertSame(a, property.get(1));
+        assertSame(b, property.get(2));
+        assertSame(a, property.get(3));
+        assertEquals(((EntityTable) system).getEntityIndex(b), property.getEntityIndex(2));
+
+        property.set(3, null);
+        assertNull(property.get(3));
+        assertEquals(0, property.getEntityIndex(3));
+    }
+
+    @Test
+    public void testEntityRemoved() {
+        Entity a = system.addEntity();
+        Entity b = system.addEntity();
+        property.set(1, a);
+        property.set(2, b);
+        property.set(3, a);
+        property.set(4, a);
+        // reassigning and resetting a slot removes it from the reverse index
+        property.set(4, b);
+        property.setDefaultValue(3);
+
+        int index = ((EntityTable) system).getEntityIndex(a);
+        system.removeEntity(a);
+        property.entityRemoved(index);
+        assertNull(property.get(1));
+        assertEquals(0, property.getEntityIndex(1));
+        assertSame(b, property.get(2));
+        assertSame(b, property.get(4));
+
+        // removed entities are stored as null
+        property.set(5, a);
+        assertNull(property.get(5));
+    }
+
+    @Test
+    public void testSwap() {
+        Entity a = system.addEntity();
+        Entity b = system.addEntity();
+        property.set(1, a);
+        property.set(2, b);
+        property.set(3, a);
+        property.swap(1, 2);
+        assertSame(b, property.get(1));
+        assertSame(a, property.get(2));
+
+        // the reverse index follows the swapped slots
+        property.entityRemoved(((EntityTable) system).getEntityIndex(a));
+        assertSame(b, property.get(1));
+        assertNull(property.get(2));
+        assertNull(property.get(3));
+    }
+
+    @Test
+    public void testRemapEntities() {
+        Entity a = system.addEntity();
+        Entity b = system.addEntity();
+        Entity c = system.addEntity();
+        property.set(1, b);
+        property.set(2, c);
+
+        int[] oldToNew = new int[4];
+        oldToNew[((EntityTable) system).getEntityIndex(b)] = 1;
+        oldToNew[((EntityTable) system).getEntityIndex(c)] = 0;
+        property.remapEntities(oldToNew);
+        assertEquals(1, property.getEntityIndex(1));
+        assertEquals(0, property.getEntityIndex(2));
+
+        // the rebuilt reverse index uses the new indices
+        property.entityRemoved(1);
+        assertEquals(0, property.getEntityIndex(1));
+        assertNotNull(a);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherSystemEntity() {
+        property.set(1, EntitySystem.Factory.create().addEntity());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnattached() {
+        new EntityRefProperty(true).set(0, system.addEntity());
+    }
+
+    @Test
+    public void testClonePolicy() throws NoSuchMethodException {
+        Entity a = system.addEntity();
+        property.set(1, a);
+        property.clone(property, 1, 2);
+        assertSame(a, property.get(2));
+
+        EntityRefProperty noClone = new EntityRefProperty(getClonePolicy());
+        noClone.setEntityTable((EntityTable) system);
+        noClone.setCapacity(3);
+        noClone.clone(property, 1, 2);
+        assertNull(noClone.get(2));
+
+        // references are not cloned across systems
+        EntityRefProperty other = new EntityRefProperty(true);
+        other.setEntityTable((EntityTable) EntitySystem.Factory.create());
+        other.setCapacity(3);
+        other.clone(property, 1, 2);
+        assertNull(other.get(2));
+    }
+
+    @Test
+    public void testShrinkCapacity() {
+        Entity a = system.addEntity();
+        property.set(1, a);
+        property.set(6, a);
+        property.setCapacity(4);
+        assertEquals(4, property.getCapacity());
+        property.setCapacity(8);
+        assertNull(property.get(6));
+
+        property.entityRemoved(((EntityTable) system).getEntityIndex(a));
+        assertNull(property.get(1));
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return EntityRefPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.FloatAccumulatorProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class FloatAccumulatorPropertyTest {
+    @Test
+    public void testIdentityDefaults() {
+        FloatAccumulatorProperty sum = new FloatAccumulatorProperty(Reduction.SUM);
+        FloatAccumulatorProperty min = new FloatAccumulatorProperty(Reduction.MIN);
+        FloatAccumulatorProperty max = new FloatAccumulatorProperty(Reduction.MAX);
+        sum.setDefaultValue(0);
+        min.setDefaultValue(0);
+        max.setDefaultValue(0);
+        assertEquals(0.0f, sum.get(0), 0.00001f);
+        assertEquals(Float.POSITIVE_INFINITY, min.get(0), 0.00001f);
+        assertEquals(Float.NEGATIVE_INFINITY, max.get(0), 0.00001f);
+    }
+
+    @Test
+    public void testAccumulateAndMerge() {
+        FloatAccumulatorProperty p = new FloatAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(4);
+        p.set(2, 1.0f);
+        p.accumulate(2, 2.0f);
+        p.accumulate(2, 3.0f);
+        p.accumulate(3, 4.0f);
+
+        // not visible until merged
+        assertEquals(1.0f, p.get(2), 0.00001f);
+        p.mergeShards();
+        assertEquals(6.0f, p.get(2), 0.00001f);
+        assertEquals(4.0f, p.get(3), 0.00001f);
+
+        // shards are reset after the merge
+        p.mergeShards();
+        assertEquals(6.0f, p.get(2), 0.00001f);
+
+        p.clear();
+        assertEquals(0.0f, p.get(2), 0.00001f);
+    }
+
+    @Test
+    public void testMinAndMax() {
+        FloatAccumulatorProperty min = new FloatAccumulatorProperty(Reduction.MIN);
+        FloatAccumulatorProperty max = new FloatAccumulatorProperty(Reduction.MAX);
+        min.setCapacity(2);
+        max.setCapacity(2);
+        min.clear();
+        max.clear();
+        for (float v : new float[] { 3.0f, -2.0f, 7.0f }) {
+            min.accumulate(1, v);
+            max.accumulate(1, v);
+        }
+        min.mergeShards();
+        max.mergeShards();
+        assertEquals(-2.0f, min.get(1), 0.00001f);
+        assertEquals(7.0f, max.get(1), 0.00001f);
+        assertEquals(Float.POSITIVE_INFINITY, min.get(0), 0.00001f);
+    }
+
+    @Test
+    public void testParallelAccumulate() {
+        FloatAccumulatorProperty p = new FloatAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(16);
+        // every worker accumulates into every component, which would race without the shards
+        IntStream.range(0, 10000).parallel().forEach(i -> p.accumulate(i % 16, 1.0f));
+        p.mergeShards();
+        for (int i = 0; i < 16; i++) {
+            assertEquals(625.0f, p.get(i), 0.00001f);
+        }
+    }
+
+    @Test
+    public void testMergedBeforeSwapAndResize() {
+        FloatAccumulatorProperty p = new FloatAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.accumulate(0, 5.0f);
+        p.swap(0, 1);
+        assertEquals(0.0f, p.get(0), 0.00001f);
+        assertEquals(5.0f, p.get(1), 0.00001f);
+
+        p.accumulate(1, 1.0f);
+        p.setCapacity(4);
+        assertEquals(6.0f, p.get(1), 0.00001f);
+        p.accumulate(3, 2.0f);
+        p.mergeShards();
+        assertEquals(2.0f, p.get(3), 0.00001f);
+    }
+
+    @Test
+    public void testClone() {
+        FloatAccumulatorProperty p = new FloatAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.set(0, 3.0f);
+        p.clone(p, 0, 1);
+        assertEquals(3.0f, p.get(1), 0.00001f);
+    }
+
+    @Test
+    public void testReusedSlotDiscardsShards() {
+        FloatAccumulatorProperty p = new FloatAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.accumulate(1, 5.0f);
+        p.accumulate(0, 2.0f);
+
+        // the component at 1 is removed and the slot reused before the merge
+        p.setDefaultValue(1);
+        p.mergeShards();
+        assertEquals(0.0f, p.get(1), 0.00001f);
+        assertEquals(2.0f, p.get(0), 0.00001f);
+    }
+
+    @Test
+    public void testTerminatedThreadShardsDropped() throws Exception {
+        FloatAccumulatorProperty p = new FloatAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.accumulate(0, 1.0f);
+        Thread worker = new Thread(() -> p.accumulate(1, 2.0f));
+        worker.start();
+        worker.join();
+        assertEquals(2, getShardCount(p));
+
+        // the worker's values are still merged before its shard is dropped
+        p.mergeShards();
+        assertEquals(2.0f, p.get(1), 0.00001f);
+        assertEquals(1, getShardCount(p));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullReduction() {
+        new FloatAccumulatorProperty(null);
+    }
+
+    private static int getShardCount(Object p) throws Exception {
+        Field shards = p.getClass().getDeclaredField("shards");
+        shards.setAccessible(true);
+        return ((List<?>) shards.get(p)).size();
+    }
+}
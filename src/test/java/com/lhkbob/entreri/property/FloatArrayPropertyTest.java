@@ -0,0 +1,165 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.FloatArrayProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class FloatArrayPropertyTest {
+    private static final float[] VALUE = new float[] { 1f, 2f, 3f };
+
+    @Test
+    public void testDefaultValue() {
+        FloatArrayProperty p = new FloatArrayProperty(3, 3f, true);
+        p.setCapacity(2);
+        p.set(1, VALUE);
+        p.setDefaultValue(1);
+        assertArrayEquals(new float[] { 3f, 3f, 3f }, p.get(1), 0.00001f);
+    }
+
+    @Test
+    public void testGetAndSet() {
+        FloatArrayProperty p = new FloatArrayProperty(3, 0f, true);
+        p.setCapacity(3);
+        float[] v = VALUE.clone();
+        p.set(1, v);
+        // the property copies the value
+        v[0] = 3f;
+        assertArrayEquals(VALUE, p.get(1), 0.00001f);
+
+        float[] result = new float[3];
+        p.get(1, result);
+        assertArrayEquals(VALUE, result, 0.00001f);
+
+        p.set(1, 2, 1f);
+        assertEquals(1f, p.get(1, 2), 0.00001f);
+        assertEquals(VALUE[1], p.get(1, 1), 0.00001f);
+    }
+
+    @Test
+    public void testPackedLayout() {
+        FloatArrayProperty p = new FloatArrayProperty(3, 0f, true);
+        p.setCapacity(3);
+        p.set(2, VALUE);
+        float[] data = p.getIndexedData();
+        assertEquals(9, data.length);
+        assertEquals(VALUE[0], data[6], 0.00001f);
+        assertEquals(VALUE[2], data[8], 0.00001f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testElementOutOfBounds() {
+        FloatArrayProperty p = new FloatArrayProperty(3, 0f, true);
+        p.setCapacity(2);
+        // would otherwise read the first element of component 1
+        p.get(0, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetWrongLength() {
+        FloatArrayProperty p = new FloatArrayProperty(3, 0f, true);
+        p.set(0, new float[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingFixedArray() {
+        new FloatArrayProperty(null, null, null);
+    }
+
+    @Test
+    public void testAttributes() throws NoSuchMethodException {
+        FloatArrayProperty p = new FloatArrayProperty(getFixedArray(), getDefault(), null);
+        assertEquals(5, p.getLength());
+        p.setDefaultValue(0);
+        assertEquals(2f, p.get(0, 4), 0.00001f);
+    }
+
+    @Test
+    public void testSetCapacity() {
+        FloatArrayProperty p = new FloatArrayProperty(3, 0f, true);
+        assertEquals(1, p.getCapacity());
+        p.set(0, VALUE);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertArrayEquals(VALUE, p.get(0), 0.00001f);
+    }
+
+    @Test
+    public void testSwap() {
+        FloatArrayProperty p = new FloatArrayProperty(3, 0f, true);
+        p.setCapacity(2);
+        p.setDefaultValue(0);
+        p.set(1, VALUE);
+        p.swap(0, 1);
+        assertArrayEquals(VALUE, p.get(0), 0.00001f);
+        assertArrayEquals(new float[3], p.get(1), 0.00001f);
+    }
+
+    @Test
+    public void testClonePolicy() throws NoSuchMethodException {
+        FloatArrayProperty p = new FloatArrayProperty(3, 0f, true);
+        p.setCapacity(2);
+        p.set(0, VALUE);
+        p.clone(p, 0, 1);
+        assertArrayEquals(VALUE, p.get(1), 0.00001f);
+
+        FloatArrayProperty noClone = new FloatArrayProperty(getFixedArray(), null, getClonePolicy());
+        noClone.setCapacity(2);
+        noClone.set(0, 0, 1f);
+        noClone.set(1, 0, 1f);
+        noClone.clone(noClone, 0, 1);
+        assertArrayEquals(new float[5], noClone.get(1), 0.00001f);
+    }
+
+    @FixedArray(length = 5)
+    private static FixedArray getFixedArray() throws NoSuchMethodException {
+        return getAnnotation(FixedArray.class, "getFixedArray");
+    }
+
+    @DefaultFloat(2f)
+    private static DefaultFloat getDefault() throws NoSuchMethodException {
+        return getAnnotation(DefaultFloat.class, "getDefault");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return FloatArrayPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
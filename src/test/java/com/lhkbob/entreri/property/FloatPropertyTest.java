@@ -30,7 +30,7 @@ import org.junit.Test;
 
 import java.lang.annotation.Annotation;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * Unit tests for {@link com.lhkbob.entreri.property.FloatProperty}.
@@ -141,6 +141,234 @@ public class FloatPropertyTest {
         assertEquals(5.0, data[0], 0.00001);
     }
 
+    @Test
+    public void testFill() {
+        FloatProperty p = new FloatProperty(0.0f, false);
+        p.setCapacity(5);
+        p.fill(1, 4, 3.0f);
+        assertEquals(0.0f, p.get(0), 0.00001f);
+        assertEquals(3.0f, p.get(1), 0.00001f);
+        assertEquals(3.0f, p.get(3), 0.00001f);
+        assertEquals(0.0f, p.get(4), 0.00001f);
+    }
+
+    @Test
+    public void testCopy() {
+        FloatProperty src = new FloatProperty(0.0f, false);
+        src.setCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            src.set(i, (float) i);
+        }
+
+        FloatProperty dst = new FloatProperty(0.0f, false);
+        dst.setCapacity(4);
+        dst.copy(src, 1, 0, 3);
+        assertEquals(1.0f, dst.get(0), 0.00001f);
+        assertEquals(3.0f, dst.get(2), 0.00001f);
+        assertEquals(0.0f, dst.get(3), 0.00001f);
+
+        // overlapping copy within the same property
+        src.copy(src, 0, 1, 3);
+        assertEquals(0.0f, src.get(1), 0.00001f);
+        assertEquals(2.0f, src.get(3), 0.00001f);
+    }
+
+    @Test
+    public void testScaleAdd() {
+        FloatProperty pos = new FloatProperty(1.0f, false);
+        FloatProperty vel = new FloatProperty(0.0f, false);
+        pos.setCapacity(5);
+        vel.setCapacity(5);
+        for (int i = 0; i < 5; i++) {
+            pos.setDefaultValue(i);
+            vel.set(i, (float) i);
+        }
+
+        pos.scaleAdd(1, 5, 2.0f, vel);
+        assertEquals(1.0f, pos.get(0), 0.00001f);
+        assertEquals(3.0f, pos.get(1), 0.00001f);
+        assertEquals((float) 9, pos.get(4), 0.00001f);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testScaleAddOutOfBounds() {
+        FloatProperty pos = new FloatProperty(0.0f, false);
+        FloatProperty vel = new FloatProperty(0.0f, false);
+        pos.setCapacity(5);
+        vel.setCapacity(3);
+        pos.scaleAdd(0, 5, 1.0f, vel);
+    }
+
+    @Test
+    public void testGatherAndScatter() {
+        FloatProperty p = new FloatProperty(0.0f, false);
+        p.setCapacity(5);
+        for (int i = 0; i < 5; i++) {
+            p.set(i, (float) i);
+        }
+
+        int[] indices = new int[] { 4, 0, 2 };
+        float[] values = new float[3];
+        p.gather(indices, values, 3);
+        assertEquals((float) 4, values[0], 0.00001f);
+        assertEquals(0.0f, values[1], 0.00001f);
+        assertEquals(2.0f, values[2], 0.00001f);
+
+        values[0] = 1.0f;
+        p.scatter(indices, values, 2);
+        assertEquals(1.0f, p.get(4), 0.00001f);
+        assertEquals(0.0f, p.get(0), 0.00001f);
+        assertEquals(2.0f, p.get(2), 0.00001f);
+    }
+
+    @Test
+    public void testDoubleBuffered() {
+        FloatProperty p = new FloatProperty(1.0f, false, true);
+        assertTrue(p.isDoubleBuffered());
+        p.setCapacity(3);
+        for (int i = 0; i < 3; i++) {
+            p.setDefaultValue(i);
+        }
+
+        // writes go to the back buffer until the swap
+        p.set(1, 5.0f);
+        assertEquals(1.0f, p.get(1), 0.00001f);
+        assertEquals(5.0f, p.getBackData()[1], 0.00001f);
+        p.swapBuffers();
+        assertEquals(5.0f, p.get(1), 0.00001f);
+
+        // the new back buffer starts as a copy of the front buffer
+        p.set(0, 2.0f);
+        p.swapBuffers();
+        assertEquals(2.0f, p.get(0), 0.00001f);
+        assertEquals(5.0f, p.get(1), 0.00001f);
+        assertEquals(1.0f, p.get(2), 0.00001f);
+
+        p.set(2, 7.0f);
+        p.discardBufferedWrites();
+        p.swapBuffers();
+        assertEquals(1.0f, p.get(2), 0.00001f);
+    }
+
+    @Test
+    public void testBulkWritesAreUnversioned() {
+        FloatProperty p = new FloatProperty(1.0f, false);
+        p.setCapacity(200);
+        for (int i = 0; i < 200; i++) {
+            p.setDefaultValue(i);
+        }
+
+        p.set(1, 2.0f);
+        assertEquals(-1, p.nextUnversionedWrite(0));
+        p.fill(3, 5, 2.0f);
+        p.scatter(new int[] { 130 }, new float[] { 4.0f }, 1);
+        assertEquals(3, p.nextUnversionedWrite(0));
+        assertEquals(4, p.nextUnversionedWrite(4));
+        assertEquals(130, p.nextUnversionedWrite(5));
+        assertEquals(-1, p.nextUnversionedWrite(131));
+
+        p.clearUnversionedWrites();
+        assertEquals(-1, p.nextUnversionedWrite(0));
+
+        // double buffered bulk writes are versioned at the swap instead
+        FloatProperty buffered = new FloatProperty(1.0f, false, true);
+        buffered.setCapacity(4);
+        buffered.fill(0, 2, 2.0f);
+        assertEquals(-1, buffered.nextUnversionedWrite(0));
+        assertEquals(0, buffered.nextBufferedWrite(0));
+    }
+
+    @Test
+    public void testDoubleBufferedScaleAdd() {
+        FloatProperty pos = new FloatProperty(1.0f, false, true);
+        FloatProperty vel = new FloatProperty(2.0f, false);
+        pos.setCapacity(4);
+        vel.setCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            pos.setDefaultValue(i);
+            vel.setDefaultValue(i);
+        }
+
+        // repeated updates within a frame are computed from the front buffer
+        pos.scaleAdd(0, 4, 0.5f, vel);
+        pos.scaleAdd(0, 4, 0.5f, vel);
+        assertEquals(1.0f, pos.get(0), 0.00001f);
+        pos.swapBuffers();
+        assertEquals(2.0f, pos.get(0), 0.00001f);
+        assertEquals(2.0f, pos.get(3), 0.00001f);
+    }
+
+    @Test
+    public void testNextBufferedWrite() {
+        FloatProperty p = new FloatProperty(0.0f, false, true);
+        p.setCapacity(200);
+        assertEquals(-1, p.nextBufferedWrite(0));
+
+        p.set(3, 1.0f);
+        p.fill(63, 66, 2.0f);
+        p.scatter(new int[] { 190, 130 }, new float[] { 3.0f, 4.0f }, 2);
+        int[] expected = new int[] { 3, 63, 64, 65, 130, 190 };
+        int index = p.nextBufferedWrite(0);
+        for (int e : expected) {
+            assertEquals(e, index);
+            index = p.nextBufferedWrite(index + 1);
+        }
+        assertEquals(-1, index);
+
+        // swapping components moves their recorded writes
+        p.swap(3, 4);
+        assertEquals(4, p.nextBufferedWrite(0));
+
+        // structural writes assign both buffers, so they are not buffered writes
+        p.setDefaultValue(4);
+        assertEquals(63, p.nextBufferedWrite(0));
+
+        p.swapBuffers();
+        assertEquals(-1, p.nextBufferedWrite(0));
+        assertEquals(4.0f, p.get(130), 0.00001f);
+        assertEquals(4.0f, p.getBackData()[130], 0.00001f);
+        assertEquals(2.0f, p.getBackData()[64], 0.00001f);
+
+        // values written in an earlier frame survive later swaps
+        p.copy(p, 63, 0, 2);
+        p.swapBuffers();
+        p.swapBuffers();
+        assertEquals(2.0f, p.get(1), 0.00001f);
+        assertEquals(3.0f, p.get(190), 0.00001f);
+
+        // truncated writes are forgotten
+        p.set(150, 1.0f);
+        p.setCapacity(100);
+        assertEquals(-1, p.nextBufferedWrite(0));
+    }
+
+    @Test
+    public void testDoubleBufferedAnnotationConstructor() throws NoSuchMethodException {
+        assertFalse(new FloatProperty(null, null, null).isDoubleBuffered());
+        FloatProperty p = new FloatProperty(null, null, getBufferPolicy());
+        assertTrue(p.isDoubleBuffered());
+        p.setCapacity(5);
+        assertEquals(5, p.getBackData().length);
+        assertNotSame(p.getIndexedData(), p.getBackData());
+    }
+
+    @Test
+    public void testSingleBufferedSwapIsNoOp() {
+        FloatProperty p = new FloatProperty(0.0f, false);
+        assertFalse(p.isDoubleBuffered());
+        assertSame(p.getIndexedData(), p.getBackData());
+        p.set(0, 3.0f);
+        assertEquals(3.0f, p.get(0), 0.00001f);
+        p.swapBuffers();
+        assertEquals(3.0f, p.get(0), 0.00001f);
+        assertEquals(-1, p.nextBufferedWrite(0));
+    }
+
+    @DoubleBuffered
+    private static DoubleBuffered getBufferPolicy() throws NoSuchMethodException {
+        return getAnnotation(DoubleBuffered.class, "getBufferPolicy");
+    }
+
     @DefaultFloat(5.0f)
     private static DefaultFloat getDefaultValue() throws NoSuchMethodException {
         return getAnnotation(DefaultFloat.class, "getDefaultValue");
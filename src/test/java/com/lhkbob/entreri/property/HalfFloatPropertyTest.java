@@ -0,0 +1,175 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.HalfFloatProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class HalfFloatPropertyTest {
+    @Test
+    public void testExactConversions() {
+        float[] exact = new float[] {
+                0f, 1f, -1f, 0.5f, 2f, 1024f, 65504f, -65504f, 0.000061035156f, 1.5f, -3.75f
+        };
+        for (float f : exact) {
+            assertEquals(f, HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(f)), 0f);
+        }
+        assertEquals((short) 0x3c00, HalfFloatProperty.toHalf(1f));
+        assertEquals((short) 0xc000, HalfFloatProperty.toHalf(-2f));
+        assertEquals((short) 0x7bff, HalfFloatProperty.toHalf(65504f));
+        // negative zero keeps its sign
+        assertEquals((short) 0x8000, HalfFloatProperty.toHalf(-0f));
+    }
+
+    @Test
+    public void testRounding() {
+        // 2049 is halfway between 2048 and 2050 and rounds to even
+        assertEquals(2048f, HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(2049f)), 0f);
+        assertEquals(2052f, HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(2051f)), 0f);
+        assertEquals(2050f, HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(2049.5f)), 0f);
+        // relative error is bounded by 2^-11
+        for (float f = -100f; f < 100f; f += 0.37f) {
+            assertEquals(f, HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(f)),
+                         Math.abs(f) / 2048f + 1e-7f);
+        }
+    }
+
+    @Test
+    public void testSpecialValues() {
+        assertEquals(Float.POSITIVE_INFINITY,
+                     HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(Float.POSITIVE_INFINITY)), 0f);
+        assertEquals(Float.NEGATIVE_INFINITY,
+                     HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(Float.NEGATIVE_INFINITY)), 0f);
+        // values too large for half precision overflow to infinity
+        assertEquals(Float.POSITIVE_INFINITY,
+                     HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(70000f)), 0f);
+        assertEquals(Float.NEGATIVE_INFINITY,
+                     HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(-1e10f)), 0f);
+        assertTrue(Float.isNaN(HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(Float.NaN))));
+    }
+
+    @Test
+    public void testSubnormals() {
+        float smallest = (float) Math.pow(2, -24);
+        assertEquals((short) 0x0001, HalfFloatProperty.toHalf(smallest));
+        assertEquals(smallest, HalfFloatProperty.toFloat((short) 0x0001), 0f);
+        assertEquals(3 * smallest, HalfFloatProperty.toFloat(HalfFloatProperty.toHalf(3 * smallest)), 0f);
+        assertEquals((short) 0x03ff, HalfFloatProperty.toHalf(1023 * smallest));
+        // values below half the smallest subnormal flush to zero
+        assertEquals((short) 0, HalfFloatProperty.toHalf(smallest / 4));
+    }
+
+    @Test
+    public void testGetAndSet() {
+        HalfFloatProperty p = new HalfFloatProperty(0f, true);
+        p.setCapacity(10);
+        for (int i = 0; i < 10; i++) {
+            p.set(i, i * 0.25f);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * 0.25f, p.get(i), 0f);
+        }
+        assertEquals(HalfFloatProperty.toHalf(0.5f), p.getIndexedData()[2]);
+    }
+
+    @Test
+    public void testDecode() {
+        HalfFloatProperty p = new HalfFloatProperty(0f, true);
+        p.setCapacity(10);
+        for (int i = 0; i < 10; i++) {
+            p.set(i, i);
+        }
+
+        float[] dst = new float[6];
+        p.decode(3, 8, dst, 1);
+        assertArrayEquals(new float[] { 0f, 3f, 4f, 5f, 6f, 7f }, dst, 0f);
+
+        p.gather(new int[] { 9, 0, 4 }, dst, 3);
+        assertArrayEquals(new float[] { 9f, 0f, 4f, 5f, 6f, 7f }, dst, 0f);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testDecodeOutOfBounds() {
+        HalfFloatProperty p = new HalfFloatProperty(0f, true);
+        p.setCapacity(4);
+        p.decode(2, 6, new float[4], 0);
+    }
+
+    @Test
+    public void testDefaultAndClone() throws NoSuchMethodException {
+        HalfFloatProperty p = new HalfFloatProperty(getDefaultValue(), null);
+        p.setCapacity(2);
+        p.setDefaultValue(0);
+        assertEquals(1.5f, p.get(0), 0f);
+        p.set(0, 8f);
+        p.clone(p, 0, 1);
+        assertEquals(8f, p.get(1), 0f);
+
+        HalfFloatProperty noClone = new HalfFloatProperty(null, getClonePolicy());
+        noClone.setCapacity(2);
+        noClone.set(0, 8f);
+        noClone.clone(noClone, 0, 1);
+        assertEquals(0f, noClone.get(1), 0f);
+    }
+
+    @Test
+    public void testSwapAndCapacity() {
+        HalfFloatProperty p = new HalfFloatProperty(0f, true);
+        p.setCapacity(3);
+        p.set(0, 1f);
+        p.set(2, -2f);
+        p.swap(0, 2);
+        assertEquals(-2f, p.get(0), 0f);
+        assertEquals(1f, p.get(2), 0f);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(1f, p.get(2), 0f);
+    }
+
+    @DefaultFloat(1.5f)
+    private static DefaultFloat getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultFloat.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return HalfFloatPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.IntAccumulatorProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class IntAccumulatorPropertyTest {
+    @Test
+    public void testParallelReductions() {
+        IntAccumulatorProperty sum = new IntAccumulatorProperty(Reduction.SUM);
+        IntAccumulatorProperty min = new IntAccumulatorProperty(Reduction.MIN);
+        IntAccumulatorProperty max = new IntAccumulatorProperty(Reduction.MAX);
+        sum.setCapacity(8);
+        min.setCapacity(8);
+        max.setCapacity(8);
+        min.clear();
+        max.clear();
+
+        IntStream.range(0, 8000).parallel().forEach(i -> {
+            sum.accumulate(i % 8, i);
+            min.accumulate(i % 8, i);
+            max.accumulate(i % 8, i);
+        });
+        sum.mergeShards();
+        min.mergeShards();
+        max.mergeShards();
+
+        for (int i = 0; i < 8; i++) {
+            // sum of i, i + 8, ..., i + 7992
+            assertEquals(1000 * i + 8 * 999 * 1000 / 2, sum.get(i));
+            assertEquals(i, min.get(i));
+            assertEquals(7992 + i, max.get(i));
+        }
+    }
+
+    @Test
+    public void testIdentityDefaults() {
+        IntAccumulatorProperty min = new IntAccumulatorProperty(Reduction.MIN);
+        IntAccumulatorProperty max = new IntAccumulatorProperty(Reduction.MAX);
+        min.setDefaultValue(0);
+        max.setDefaultValue(0);
+        assertEquals(Integer.MAX_VALUE, min.get(0));
+        assertEquals(Integer.MIN_VALUE, max.get(0));
+    }
+
+    @Test
+    public void testReusedSlotDiscardsShards() {
+        IntAccumulatorProperty p = new IntAccumulatorProperty(Reduction.SUM);
+        p.setCapacity(2);
+        p.accumulate(1, 5);
+        p.accumulate(0, 2);
+
+        // the component at 1 is removed and the slot reused before the merge
+        p.setDefaultValue(1);
+        p.mergeShards();
+        assertEquals(0, p.get(1));
+        assertEquals(2, p.get(0));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.IntIntMap}.
+ *
+ * @author Michael Ludwig
+ */
+public class IntIntMapTest {
+    @Test
+    public void testPutGetRemove() {
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random r = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int k = r.nextInt(1000) - 500;
+            if (r.nextBoolean()) {
+                assertEquals(expected.put(k, i), map.put(k, i));
+            } else {
+                assertEquals(expected.remove(k), map.remove(k));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (int k = -500; k < 500; k++) {
+            assertEquals(expected.containsKey(k), map.containsIntKey(k));
+            assertEquals(expected.getOrDefault(k, -1).intValue(), map.getInt(k, -1));
+        }
+    }
+
+    @Test
+    public void testPrimitiveMethods() {
+        IntIntMap map = new IntIntMap();
+        map.putInt(3, 30);
+        map.putInt(3, 31);
+        map.putInt(4, 40);
+        assertEquals(2, map.size());
+        assertEquals(31, map.getInt(3, 0));
+        assertEquals(0, map.getInt(5, 0));
+        assertTrue(map.containsValue(40));
+        assertFalse(map.containsValue(30));
+        assertTrue(map.removeInt(3));
+        assertFalse(map.removeInt(3));
+        assertNull(map.get(3));
+        assertNull(map.get("4"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsIntKey(4));
+    }
+
+    @Test
+    public void testEntrySet() {
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 50; i++) {
+            map.putInt(i, i * 2);
+        }
+        Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Integer> e = it.next();
+            assertEquals(e.getKey() * 2, e.getValue().intValue());
+            if (e.getKey() < 25) {
+                it.remove();
+            } else {
+                e.setValue(-e.getKey());
+            }
+        }
+        assertEquals(25, map.size());
+        for (int i = 25; i < 50; i++) {
+            assertEquals(-i, map.getInt(i, 0));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        new IntIntMap().put(1, null);
+    }
+}
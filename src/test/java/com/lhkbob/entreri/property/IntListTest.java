@@ -0,0 +1,100 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.IntList}.
+ *
+ * @author Michael Ludwig
+ */
+public class IntListTest {
+    @Test
+    public void testAddAndGet() {
+        IntList list = new IntList();
+        for (int i = 0; i < 100; i++) {
+            list.addInt(i * 3);
+        }
+        assertEquals(100, list.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 3, list.getInt(i));
+            assertEquals(Integer.valueOf(i * 3), list.get(i));
+        }
+        assertEquals(10, list.indexOfInt(30));
+        assertEquals(-1, list.indexOfInt(31));
+        assertTrue(list.contains(297));
+        assertFalse(list.contains("297"));
+    }
+
+    @Test
+    public void testListMethods() {
+        IntList list = new IntList();
+        list.addAll(Arrays.asList(1, 2, 3));
+        list.add(1, 7);
+        assertEquals(Arrays.asList(1, 7, 2, 3), list);
+        assertEquals(Integer.valueOf(2), list.remove(2));
+        assertTrue(list.remove(Integer.valueOf(1)));
+        assertEquals(Arrays.asList(7, 3), list);
+        assertEquals(7, list.setInt(0, 8));
+        assertEquals(Arrays.asList(8, 3), list);
+        assertEquals(Arrays.asList(8, 3).hashCode(), list.hashCode());
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        IntList list = new IntList();
+        list.addInt(1);
+        list.getInt(1);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullElement() {
+        List<Integer> list = new IntList();
+        list.add(null);
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testFailFastIterator() {
+        IntList list = new IntList();
+        list.addAll(Arrays.asList(1, 2, 3));
+        Iterator<Integer> it = list.iterator();
+        it.next();
+        list.addInt(4);
+        it.next();
+    }
+}
@@ -141,6 +141,86 @@ public class IntPropertyTest {
         assertEquals(5, data[0]);
     }
 
+    @Test
+    public void testFill() {
+        IntProperty p = new IntProperty(0, false);
+        p.setCapacity(5);
+        p.fill(1, 4, 3);
+        assertEquals(0, p.get(0));
+        assertEquals(3, p.get(1));
+        assertEquals(3, p.get(3));
+        assertEquals(0, p.get(4));
+    }
+
+    @Test
+    public void testCopy() {
+        IntProperty src = new IntProperty(0, false);
+        src.setCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            src.set(i, i);
+        }
+
+        IntProperty dst = new IntProperty(0, false);
+        dst.setCapacity(4);
+        dst.copy(src, 1, 0, 3);
+        assertEquals(1, dst.get(0));
+        assertEquals(3, dst.get(2));
+        assertEquals(0, dst.get(3));
+
+        // overlapping copy within the same property
+        src.copy(src, 0, 1, 3);
+        assertEquals(0, src.get(1));
+        assertEquals(2, src.get(3));
+    }
+
+    @Test
+    public void testScaleAdd() {
+        IntProperty pos = new IntProperty(1, false);
+        IntProperty vel = new IntProperty(0, false);
+        pos.setCapacity(5);
+        vel.setCapacity(5);
+        for (int i = 0; i < 5; i++) {
+            pos.setDefaultValue(i);
+            vel.set(i, i);
+        }
+
+        pos.scaleAdd(1, 5, 2, vel);
+        assertEquals(1, pos.get(0));
+        assertEquals(3, pos.get(1));
+        assertEquals(9, pos.get(4));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testScaleAddOutOfBounds() {
+        IntProperty pos = new IntProperty(0, false);
+        IntProperty vel = new IntProperty(0, false);
+        pos.setCapacity(5);
+        vel.setCapacity(3);
+        pos.scaleAdd(0, 5, 1, vel);
+    }
+
+    @Test
+    public void testGatherAndScatter() {
+        IntProperty p = new IntProperty(0, false);
+        p.setCapacity(5);
+        for (int i = 0; i < 5; i++) {
+            p.set(i, i);
+        }
+
+        int[] indices = new int[] { 4, 0, 2 };
+        int[] values = new int[3];
+        p.gather(indices, values, 3);
+        assertEquals(4, values[0]);
+        assertEquals(0, values[1]);
+        assertEquals(2, values[2]);
+
+        values[0] = 1;
+        p.scatter(indices, values, 2);
+        assertEquals(1, p.get(4));
+        assertEquals(0, p.get(0));
+        assertEquals(2, p.get(2));
+    }
+
     @DefaultInt(5)
     private static DefaultInt getDefaultValue() throws NoSuchMethodException {
         return getAnnotation(DefaultInt.class, "getDefaultValue");
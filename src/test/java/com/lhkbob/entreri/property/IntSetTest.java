@@ -0,0 +1,110 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.IntSet}.
+ *
+ * @author Michael Ludwig
+ */
+public class IntSetTest {
+    @Test
+    public void testAddContainsRemove() {
+        IntSet set = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        Random r = new Random(12);
+        for (int i = 0; i < 5000; i++) {
+            int v = r.nextInt(1000) - 500;
+            if (r.nextBoolean()) {
+                assertEquals(expected.add(v), set.addInt(v));
+            } else {
+                assertEquals(expected.remove(v), set.removeInt(v));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        assertEquals(expected, set);
+        for (int v = -500; v < 500; v++) {
+            assertEquals(expected.contains(v), set.containsInt(v));
+        }
+    }
+
+    @Test
+    public void testSetMethods() {
+        IntSet set = new IntSet();
+        assertTrue(set.add(0));
+        assertTrue(set.add(Integer.MIN_VALUE));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(Integer.MIN_VALUE));
+        assertFalse(set.contains("0"));
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertEquals(Collections.singleton(Integer.MIN_VALUE), set);
+        assertEquals(Collections.singleton(Integer.MIN_VALUE).hashCode(), set.hashCode());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 100; i++) {
+            set.addInt(i);
+        }
+        Iterator<Integer> it = set.iterator();
+        int seen = 0;
+        while (it.hasNext()) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+            seen++;
+        }
+        assertEquals(100, seen);
+        assertEquals(50, set.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 != 0, set.containsInt(i));
+        }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testFailFastIterator() {
+        IntSet set = new IntSet();
+        set.addInt(1);
+        set.addInt(2);
+        Iterator<Integer> it = set.iterator();
+        it.next();
+        set.addInt(3);
+        it.next();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.LongArrayProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class LongArrayPropertyTest {
+    private static final long[] VALUE = new long[] { 1L, 2L, 3L };
+
+    @Test
+    public void testDefaultValue() {
+        LongArrayProperty p = new LongArrayProperty(3, 3L, true);
+        p.setCapacity(2);
+        p.set(1, VALUE);
+        p.setDefaultValue(1);
+        assertArrayEquals(new long[] { 3L, 3L, 3L }, p.get(1));
+    }
+
+    @Test
+    public void testGetAndSet() {
+        LongArrayProperty p = new LongArrayProperty(3, 0L, true);
+        p.setCapacity(3);
+        long[] v = VALUE.clone();
+        p.set(1, v);
+        // the property copies the value
+        v[0] = 3L;
+        assertArrayEquals(VALUE, p.get(1));
+
+        long[] result = new long[3];
+        p.get(1, result);
+        assertArrayEquals(VALUE, result);
+
+        p.set(1, 2, 1L);
+        assertEquals(1L, p.get(1, 2));
+        assertEquals(VALUE[1], p.get(1, 1));
+    }
+
+    @Test
+    public void testPackedLayout() {
+        LongArrayProperty p = new LongArrayProperty(3, 0L, true);
+        p.setCapacity(3);
+        p.set(2, VALUE);
+        long[] data = p.getIndexedData();
+        assertEquals(9, data.length);
+        assertEquals(VALUE[0], data[6]);
+        assertEquals(VALUE[2], data[8]);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testElementOutOfBounds() {
+        LongArrayProperty p = new LongArrayProperty(3, 0L, true);
+        p.setCapacity(2);
+        // would otherwise read the first element of component 1
+        p.get(0, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetWrongLength() {
+        LongArrayProperty p = new LongArrayProperty(3, 0L, true);
+        p.set(0, new long[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingFixedArray() {
+        new LongArrayProperty(null, null, null);
+    }
+
+    @Test
+    public void testAttributes() throws NoSuchMethodException {
+        LongArrayProperty p = new LongArrayProperty(getFixedArray(), getDefault(), null);
+        assertEquals(5, p.getLength());
+        p.setDefaultValue(0);
+        assertEquals(2L, p.get(0, 4));
+    }
+
+    @Test
+    public void testSetCapacity() {
+        LongArrayProperty p = new LongArrayProperty(3, 0L, true);
+        assertEquals(1, p.getCapacity());
+        p.set(0, VALUE);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertArrayEquals(VALUE, p.get(0));
+    }
+
+    @Test
+    public void testSwap() {
+        LongArrayProperty p = new LongArrayProperty(3, 0L, true);
+        p.setCapacity(2);
+        p.setDefaultValue(0);
+        p.set(1, VALUE);
+        p.swap(0, 1);
+        assertArrayEquals(VALUE, p.get(0));
+        assertArrayEquals(new long[3], p.get(1));
+    }
+
+    @Test
+    public void testClonePolicy() throws NoSuchMethodException {
+        LongArrayProperty p = new LongArrayProperty(3, 0L, true);
+        p.setCapacity(2);
+        p.set(0, VALUE);
+        p.clone(p, 0, 1);
+        assertArrayEquals(VALUE, p.get(1));
+
+        LongArrayProperty noClone = new LongArrayProperty(getFixedArray(), null, getClonePolicy());
+        noClone.setCapacity(2);
+        noClone.set(0, 0, 1L);
+        noClone.set(1, 0, 1L);
+        noClone.clone(noClone, 0, 1);
+        assertArrayEquals(new long[5], noClone.get(1));
+    }
+
+    @FixedArray(length = 5)
+    private static FixedArray getFixedArray() throws NoSuchMethodException {
+        return getAnnotation(FixedArray.class, "getFixedArray");
+    }
+
+    @DefaultLong(2L)
+    private static DefaultLong getDefault() throws NoSuchMethodException {
+        return getAnnotation(DefaultLong.class, "getDefault");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return LongArrayPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -141,6 +141,26 @@ public class LongPropertyTest {
         assertEquals(5L, data[0]);
     }
 
+    @Test
+    public void testDoubleBuffered() {
+        LongProperty p = new LongProperty(0L, false, true);
+        p.setCapacity(2);
+        p.set(0, 5L);
+        p.set(1, 6L);
+        assertEquals(0L, p.get(0));
+        p.swapBuffers();
+        assertEquals(5L, p.get(0));
+        assertEquals(6L, p.get(1));
+
+        // swapping entries swaps both buffers
+        p.set(0, 7L);
+        p.swap(0, 1);
+        assertEquals(6L, p.get(0));
+        p.swapBuffers();
+        assertEquals(6L, p.get(0));
+        assertEquals(7L, p.get(1));
+    }
+
     @DefaultLong(5L)
     private static DefaultLong getDefaultValue() throws NoSuchMethodException {
         return getAnnotation(DefaultLong.class, "getDefaultValue");
@@ -0,0 +1,87 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.math.Mat4;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.Mat4Property}.
+ *
+ * @author Michael Ludwig
+ */
+public class Mat4PropertyTest {
+    private static Mat4 createValue() {
+        Mat4 m = new Mat4();
+        for (int i = 0; i < 16; i++) {
+            m.m[i] = i + 1;
+        }
+        return m;
+    }
+
+    @Test
+    public void testDefaultValue() {
+        Mat4Property p = new Mat4Property(true);
+        p.setCapacity(2);
+        p.set(1, createValue());
+        p.setDefaultValue(1);
+        assertEquals(new Mat4(), p.get(1));
+    }
+
+    @Test
+    public void testGetAndSet() {
+        Mat4Property p = new Mat4Property(true);
+        p.setCapacity(3);
+        Mat4 v = createValue();
+        p.set(2, v);
+        v.set(0, 0, -1f);
+        assertEquals(createValue(), p.get(2));
+
+        Mat4 result = new Mat4();
+        p.get(2, result);
+        assertEquals(createValue(), result);
+        assertEquals(5f, result.get(0, 1), 0.00001f);
+        assertEquals(5f, p.getIndexedData()[2 * Mat4Property.STRIDE + 4], 0.00001f);
+    }
+
+    @Test
+    public void testSwapAndClone() {
+        Mat4Property p = new Mat4Property(true);
+        p.setCapacity(3);
+        p.setDefaultValue(0);
+        p.set(1, createValue());
+        p.swap(0, 1);
+        assertEquals(createValue(), p.get(0));
+        assertEquals(new Mat4(), p.get(1));
+
+        p.clone(p, 0, 2);
+        assertEquals(createValue(), p.get(2));
+        assertEquals(3, p.getCapacity());
+    }
+}
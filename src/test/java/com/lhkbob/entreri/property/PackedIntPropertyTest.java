@@ -0,0 +1,172 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.PackedIntProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class PackedIntPropertyTest {
+    @Test
+    public void testBitsPerValue() {
+        assertEquals(1, new PackedIntProperty(0, 1, 0, true).getBitsPerValue());
+        assertEquals(1, new PackedIntProperty(5, 5, 5, true).getBitsPerValue());
+        assertEquals(4, new PackedIntProperty(0, 15, 0, true).getBitsPerValue());
+        // 5 bits are rounded up to a power of two
+        assertEquals(8, new PackedIntProperty(-16, 15, 0, true).getBitsPerValue());
+        assertEquals(16, new PackedIntProperty(0, 65535, 0, true).getBitsPerValue());
+        assertEquals(32, new PackedIntProperty(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, true)
+                .getBitsPerValue());
+    }
+
+    @Test
+    public void testGetAndSet() {
+        PackedIntProperty p = new PackedIntProperty(-8, 7, 0, true);
+        p.setCapacity(100);
+        for (int i = 0; i < 100; i++) {
+            p.set(i, (i % 16) - 8);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals((i % 16) - 8, p.get(i));
+        }
+        // 16 four bit values per word
+        assertEquals(7, p.getIndexedData().length);
+    }
+
+    @Test
+    public void testFullRange() {
+        PackedIntProperty p = new PackedIntProperty(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, true);
+        p.setCapacity(3);
+        p.set(0, Integer.MIN_VALUE);
+        p.set(1, Integer.MAX_VALUE);
+        p.set(2, -1);
+        assertEquals(Integer.MIN_VALUE, p.get(0));
+        assertEquals(Integer.MAX_VALUE, p.get(1));
+        assertEquals(-1, p.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetOutOfRange() {
+        new PackedIntProperty(0, 15, 0, true).set(0, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingWithin() {
+        new PackedIntProperty(null, null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnboundedWithin() throws NoSuchMethodException {
+        new PackedIntProperty(getUnbounded(), null, null);
+    }
+
+    @Test
+    public void testAnnotationConstructor() throws NoSuchMethodException {
+        PackedIntProperty p = new PackedIntProperty(getRange(), null, null);
+        assertEquals(1, p.getMinimum());
+        assertEquals(10, p.getMaximum());
+        p.setDefaultValue(0);
+        // 0 is clamped into the range
+        assertEquals(1, p.get(0));
+
+        p = new PackedIntProperty(getRange(), getDefaultValue(), null);
+        p.setDefaultValue(0);
+        assertEquals(4, p.get(0));
+    }
+
+    @Test
+    public void testSwap() {
+        PackedIntProperty p = new PackedIntProperty(0, 255, 0, true);
+        p.setCapacity(20);
+        p.set(1, 17);
+        p.set(18, 200);
+        p.swap(1, 18);
+        assertEquals(200, p.get(1));
+        assertEquals(17, p.get(18));
+    }
+
+    @Test
+    public void testShrinkCapacity() {
+        PackedIntProperty p = new PackedIntProperty(0, 15, 0, true);
+        p.setCapacity(32);
+        p.set(3, 9);
+        p.set(20, 9);
+        p.setCapacity(17);
+        assertEquals(17, p.getCapacity());
+        p.setCapacity(32);
+        assertEquals(9, p.get(3));
+        // truncated values do not reappear when the property grows again
+        assertEquals(0, p.get(20));
+    }
+
+    @Test
+    public void testClonePolicy() throws NoSuchMethodException {
+        PackedIntProperty p = new PackedIntProperty(0, 15, 2, true);
+        p.setCapacity(2);
+        p.set(0, 12);
+        p.clone(p, 0, 1);
+        assertEquals(12, p.get(1));
+
+        PackedIntProperty noClone = new PackedIntProperty(getRange(), null, getClonePolicy());
+        noClone.setCapacity(2);
+        noClone.set(0, 7);
+        noClone.clone(noClone, 0, 1);
+        assertEquals(1, noClone.get(1));
+    }
+
+    @Within(min = 0.5, max = 10.5)
+    private static Within getRange() throws NoSuchMethodException {
+        return getAnnotation(Within.class, "getRange");
+    }
+
+    @Within(min = 0)
+    private static Within getUnbounded() throws NoSuchMethodException {
+        return getAnnotation(Within.class, "getUnbounded");
+    }
+
+    @DefaultInt(4)
+    private static DefaultInt getDefaultValue() throws NoSuchMethodException {
+        return getAnnotation(DefaultInt.class, "getDefaultValue");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return PackedIntPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
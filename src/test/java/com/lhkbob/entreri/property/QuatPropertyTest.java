@@ -0,0 +1,125 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import com.lhkbob.entreri.math.Quat;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.QuatProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class QuatPropertyTest {
+    private static final Quat VALUE = new Quat(0.5f, 0.5f, 0.5f, 0.5f);
+
+    @Test
+    public void testDefaultValue() {
+        QuatProperty p = new QuatProperty(true);
+        p.setCapacity(2);
+        p.set(1, VALUE);
+        p.setDefaultValue(1);
+        assertEquals(new Quat(0f, 0f, 0f, 1f), p.get(1));
+    }
+
+    @Test
+    public void testGetAndSet() {
+        QuatProperty p = new QuatProperty(true);
+        p.setCapacity(3);
+        Quat v = new Quat(VALUE);
+        p.set(1, v);
+        // the property copies the value
+        v.x = 100f;
+        assertEquals(VALUE, p.get(1));
+
+        Quat result = new Quat();
+        p.get(1, result);
+        assertEquals(VALUE, result);
+    }
+
+    @Test
+    public void testPackedLayout() {
+        QuatProperty p = new QuatProperty(true);
+        p.setCapacity(3);
+        p.set(2, VALUE);
+        float[] data = p.getIndexedData();
+        assertEquals(3 * QuatProperty.STRIDE, data.length);
+        assertEquals(VALUE.x, data[2 * QuatProperty.STRIDE], 0.00001f);
+        assertEquals(VALUE.y, data[2 * QuatProperty.STRIDE + 1], 0.00001f);
+    }
+
+    @Test
+    public void testSetCapacity() {
+        QuatProperty p = new QuatProperty(true);
+        assertEquals(1, p.getCapacity());
+        p.set(0, VALUE);
+        p.setCapacity(5);
+        assertEquals(5, p.getCapacity());
+        assertEquals(VALUE, p.get(0));
+    }
+
+    @Test
+    public void testSwap() {
+        QuatProperty p = new QuatProperty(true);
+        p.setCapacity(2);
+        p.setDefaultValue(0);
+        p.set(1, VALUE);
+        p.swap(0, 1);
+        assertEquals(VALUE, p.get(0));
+        assertEquals(new Quat(0f, 0f, 0f, 1f), p.get(1));
+    }
+
+    @Test
+    public void testClonePolicy() throws NoSuchMethodException {
+        QuatProperty p = new QuatProperty(true);
+        p.setCapacity(2);
+        p.set(0, VALUE);
+        p.clone(p, 0, 1);
+        assertEquals(VALUE, p.get(1));
+
+        QuatProperty noClone = new QuatProperty(getClonePolicy());
+        noClone.setCapacity(2);
+        noClone.set(0, VALUE);
+        noClone.set(1, VALUE);
+        noClone.clone(noClone, 0, 1);
+        assertEquals(new Quat(0f, 0f, 0f, 1f), noClone.get(1));
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return QuatPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Entreri, an entity-component framework in Java
+ *
+ * Copyright (c) 2014, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.lhkbob.entreri.property;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link com.lhkbob.entreri.property.StringProperty}.
+ *
+ * @author Michael Ludwig
+ */
+public class StringPropertyTest {
+    @Test
+    public void testDefaultValue() {
+        StringProperty p = new StringProperty("none", true);
+        p.setCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("none", p.get(i));
+            assertEquals(0, p.getCode(i));
+        }
+        assertEquals(1, p.getSymbolCount());
+
+        StringProperty empty = new StringProperty((DefaultString) null, null);
+        empty.setCapacity(1);
+        assertEquals("", empty.get(0));
+    }
+
+    @Test
+    public void testSharedSymbols() {
+        StringProperty p = new StringProperty("", true);
+        p.setCapacity(100);
+        for (int i = 0; i < 100; i++) {
+            // new instances each time, so sharing only happens through the symbol table
+            p.set(i, new String("tag" + (i % 3)));
+        }
+        assertEquals(4, p.getSymbolCount());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("tag" + (i % 3), p.get(i));
+            assertSame(p.get(i % 3), p.get(i));
+            assertTrue(p.isEqual(i, i % 3));
+            assertTrue(p.isEqual(i, "tag" + (i % 3)));
+            assertFalse(p.isEqual(i, (i + 1) % 3));
+        }
+        assertFalse(p.isEqual(0, "missing"));
+        assertEquals(-1, p.lookupCode("missing"));
+        assertEquals(p.getCode(1), p.lookupCode("tag1"));
+        assertEquals("tag1", p.getSymbol(p.getCode(1)));
+    }
+
+    @Test
+    public void testSymbolsReleased() {
+        StringProperty p = new StringProperty("", true);
+        p.setCapacity(3);
+        p.set(0, "a");
+        p.set(1, "a");
+        p.set(2, "b");
+        int codeA = p.getCode(0);
+        assertEquals(3, p.getSymbolCount());
+
+        // setting the same value must not drop the symbol
+        p.set(0, "a");
+        assertEquals(codeA, p.getCode(0));
+
+        p.set(0, "b");
+        assertEquals(codeA, p.lookupCode("a"));
+        p.setDefaultValue(1);
+        assertEquals(-1, p.lookupCode("a"));
+        assertNull(p.getSymbol(codeA));
+        assertEquals(2, p.getSymbolCount());
+
+        // freed codes are reused
+        p.set(1, "c");
+        assertEquals(codeA, p.getCode(1));
+        assertEquals("c", p.get(1));
+
+        // shrinking releases the truncated components
+        p.setCapacity(1);
+        assertEquals(-1, p.lookupCode("c"));
+        assertEquals("b", p.get(0));
+        assertEquals(2, p.getSymbolCount());
+    }
+
+    @Test
+    public void testManySymbols() {
+        StringProperty p = new StringProperty("", true);
+        p.setCapacity(1000);
+        for (int run = 0; run < 3; run++) {
+            for (int i = 0; i < 1000; i++) {
+                p.set(i, "value" + (i + run * 500));
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("value" + (i + run * 500), p.get(i));
+                assertEquals(p.getCode(i), p.lookupCode("value" + (i + run * 500)));
+            }
+            assertEquals(1001, p.getSymbolCount());
+        }
+        for (int i = 0; i < 1000; i++) {
+            p.setDefaultValue(i);
+        }
+        assertEquals(1, p.getSymbolCount());
+    }
+
+    @Test
+    public void testSwap() {
+        StringProperty p = new StringProperty("", true);
+        p.setCapacity(2);
+        p.set(0, "a");
+        p.set(1, "b");
+        p.swap(0, 1);
+        assertEquals("b", p.get(0));
+        assertEquals("a", p.get(1));
+        assertEquals(3, p.getSymbolCount());
+    }
+
+    @Test
+    public void testClone() throws NoSuchMethodException {
+        StringProperty p = new StringProperty("", true);
+        p.setCapacity(3);
+        p.set(0, "a");
+        p.clone(p, 0, 1);
+        assertEquals("a", p.get(1));
+        assertEquals(p.getCode(0), p.getCode(1));
+
+        StringProperty other = new StringProperty("x", true);
+        other.setCapacity(2);
+        other.clone(p, 0, 1);
+        assertEquals("a", other.get(1));
+
+        StringProperty noClone = new StringProperty(getDefault(), getClonePolicy());
+        noClone.setCapacity(2);
+        noClone.clone(p, 0, 1);
+        assertEquals("dflt", noClone.get(1));
+
+        // releasing the source does not affect the clone
+        p.setDefaultValue(0);
+        p.setDefaultValue(1);
+        assertEquals("a", other.get(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        StringProperty p = new StringProperty("", true);
+        p.set(0, null);
+    }
+
+    @DefaultString("dflt")
+    private static DefaultString getDefault() throws NoSuchMethodException {
+        return getAnnotation(DefaultString.class, "getDefault");
+    }
+
+    @DoNotClone
+    private static DoNotClone getClonePolicy() throws NoSuchMethodException {
+        return getAnnotation(DoNotClone.class, "getClonePolicy");
+    }
+
+    private static <T extends Annotation> T getAnnotation(Class<T> type, String methodName)
+            throws NoSuchMethodException {
+        return StringPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
+    }
+}
@@ -33,6 +33,7 @@ import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
@@ -48,6 +49,9 @@ public class ValueMapPropertyTest {
         property.setDefaultValue(0);
         assertTrue(property.get(0).isEmpty());
 
+        // the backing map is only created by a write
+        property.put(0, new Object(), new Object());
+
         // pull out original data list from the property (wrapped in an unmodifiable set)
         Field origSet = getBaseCollectionField(property.get(0).getClass());
         origSet.setAccessible(true);
@@ -149,11 +153,13 @@ public class ValueMapPropertyTest {
         Object v2 = new Object();
 
         ValueMapProperty<Object, Object> p = new ValueMapProperty<>(HashMap.class, false);
-        Map<Object, Object> m = p.get(0);
+        Map<Object, Object> empty = p.get(0);
 
         // totally new value
         assertFalse(p.contains(0, k));
         assertNull(p.put(0, k, v));
+        Map<Object, Object> m = p.get(0);
+        assertTrue(empty.isEmpty());
         assertTrue(m.containsKey(k));
         assertTrue(p.contains(0, k));
         assertSame(v, p.get(0, k));
@@ -207,6 +213,46 @@ public class ValueMapPropertyTest {
         }
     }
 
+    @Test
+    public void testLazyAllocationAndRecycling() {
+        Object e = new Object();
+        ValueMapProperty<Object, Object> p = new ValueMapProperty<>(HashMap.class, true);
+        p.setCapacity(10);
+        // nothing is allocated for slots that have not been written
+        assertFalse(p.contains(3, e));
+        assertTrue(p.get(3).isEmpty());
+        assertEquals(0, getAllocatedCount(p));
+
+        p.put(3, e, e);
+        p.put(5, e, e);
+        assertEquals(2, getAllocatedCount(p));
+
+        // reset slots hand their cleared maps to the next slot that needs one
+        Map<Object, Object> reused = p.get(3);
+        p.setDefaultValue(3);
+        assertEquals(1, getAllocatedCount(p));
+        assertTrue(reused.isEmpty());
+        p.put(7, e, e);
+        assertSame(reused, p.get(7));
+        assertEquals(1, reused.size());
+        assertTrue(p.get(3).isEmpty());
+    }
+
+    @Test
+    public void testParallelReads() {
+        Object e = new Object();
+        ValueMapProperty<Object, Object> p = new ValueMapProperty<>(HashMap.class, true);
+        p.setCapacity(10000);
+        for (int i = 0; i < 10000; i += 3) {
+            p.put(i, e, e);
+        }
+
+        // reads of unwritten slots must not allocate, or they would race on the shared pool
+        assertTrue(IntStream.range(0, 10000).parallel().allMatch(
+                i -> p.contains(i, e) == (i % 3 == 0) && p.get(i).size() == (i % 3 == 0 ? 1 : 0)));
+        assertEquals(3334, getAllocatedCount(p));
+    }
+
     @DoNotClone
     private static DoNotClone getClonePolicy() throws NoSuchMethodException {
         return getAnnotation(DoNotClone.class, "getClonePolicy");
@@ -221,4 +267,21 @@ public class ValueMapPropertyTest {
             throws NoSuchMethodException {
         return ValueMapPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
     }
+
+    private static int getAllocatedCount(ValueMapProperty<?, ?> p) {
+        // count the slots that have a backing map without accessing them through the property
+        try {
+            Field data = ValueMapProperty.class.getDeclaredField("data");
+            data.setAccessible(true);
+            int count = 0;
+            for (Object v : (Object[]) data.get(p)) {
+                if (v != null) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
@@ -34,6 +34,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
@@ -49,6 +50,9 @@ public class ValueSetPropertyTest {
         property.setDefaultValue(0);
         assertTrue(property.get(0).isEmpty());
 
+        // the backing set is only created by a write
+        property.add(0, new Object());
+
         // pull out original data list from the property (wrapped in an unmodifiable set)
         Field origSet = getBaseCollectionField(property.get(0).getClass());
         origSet.setAccessible(true);
@@ -174,10 +178,12 @@ public class ValueSetPropertyTest {
     public void testAddContainsRemove() {
         Object e = new Object();
         ValueSetProperty<Object> p = new ValueSetProperty<>(HashSet.class, false);
-        Set<Object> v = p.get(0);
+        Set<Object> empty = p.get(0);
 
         assertFalse(p.contains(0, e));
         assertTrue(p.add(0, e));
+        Set<Object> v = p.get(0);
+        assertTrue(empty.isEmpty());
         assertTrue(v.contains(e));
         assertTrue(p.contains(0, e));
         assertEquals(1, v.size());
@@ -200,6 +206,46 @@ public class ValueSetPropertyTest {
         }
     }
 
+    @Test
+    public void testLazyAllocationAndRecycling() {
+        Object e = new Object();
+        ValueSetProperty<Object> p = new ValueSetProperty<>(HashSet.class, true);
+        p.setCapacity(10);
+        // nothing is allocated for slots that have not been written
+        assertFalse(p.contains(3, e));
+        assertTrue(p.get(3).isEmpty());
+        assertEquals(0, getAllocatedCount(p));
+
+        p.add(3, e);
+        p.add(5, e);
+        assertEquals(2, getAllocatedCount(p));
+
+        // reset slots hand their cleared sets to the next slot that needs one
+        Set<Object> reused = p.get(3);
+        p.setDefaultValue(3);
+        assertEquals(1, getAllocatedCount(p));
+        assertTrue(reused.isEmpty());
+        p.add(7, e);
+        assertSame(reused, p.get(7));
+        assertEquals(1, reused.size());
+        assertTrue(p.get(3).isEmpty());
+    }
+
+    @Test
+    public void testParallelReads() {
+        Object e = new Object();
+        ValueSetProperty<Object> p = new ValueSetProperty<>(HashSet.class, true);
+        p.setCapacity(10000);
+        for (int i = 0; i < 10000; i += 3) {
+            p.add(i, e);
+        }
+
+        // reads of unwritten slots must not allocate, or they would race on the shared pool
+        assertTrue(IntStream.range(0, 10000).parallel().allMatch(
+                i -> p.contains(i, e) == (i % 3 == 0) && p.get(i).size() == (i % 3 == 0 ? 1 : 0)));
+        assertEquals(3334, getAllocatedCount(p));
+    }
+
     @DoNotClone
     private static DoNotClone getClonePolicy() throws NoSuchMethodException {
         return getAnnotation(DoNotClone.class, "getClonePolicy");
@@ -214,4 +260,21 @@ public class ValueSetPropertyTest {
             throws NoSuchMethodException {
         return ValueSetPropertyTest.class.getDeclaredMethod(methodName).getAnnotation(type);
     }
+
+    private static int getAllocatedCount(ValueSetProperty<?> p) {
+        // count the slots that have a backing set without accessing them through the property
+        try {
+            Field data = ValueSetProperty.class.getDeclaredField("data");
+            data.setAccessible(true);
+            int count = 0;
+            for (Object v : (Object[]) data.get(p)) {
+                if (v != null) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
 }